@@ -2,6 +2,8 @@ package com.gmitaros.vesselmetrics.configuration;
 
 import com.gmitaros.vesselmetrics.dto.ErrorResponseDTO;
 import com.gmitaros.vesselmetrics.exception.ComplianceCalculationException;
+import com.gmitaros.vesselmetrics.exception.IngestJobNotFoundException;
+import com.gmitaros.vesselmetrics.exception.TooManyExportsException;
 import com.gmitaros.vesselmetrics.exception.VesselNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,6 +24,27 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(IngestJobNotFoundException.class)
+    public ResponseEntity<ErrorResponseDTO> handleIngestJobNotFoundException(IngestJobNotFoundException ex) {
+        log.error("Ingest job not found: ", ex);
+        ErrorResponseDTO errorResponse = new ErrorResponseDTO("Ingest Job Not Found", ex.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ErrorResponseDTO> handleIllegalArgumentException(IllegalArgumentException ex) {
+        log.error("Invalid request: ", ex);
+        ErrorResponseDTO errorResponse = new ErrorResponseDTO("Invalid Request", ex.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(TooManyExportsException.class)
+    public ResponseEntity<ErrorResponseDTO> handleTooManyExportsException(TooManyExportsException ex) {
+        log.warn("Export rejected: {}", ex.getMessage());
+        ErrorResponseDTO errorResponse = new ErrorResponseDTO("Too Many Exports", ex.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.TOO_MANY_REQUESTS);
+    }
+
     @ExceptionHandler(ComplianceCalculationException.class)
     public ResponseEntity<ErrorResponseDTO> handleComplianceCalculationException(ComplianceCalculationException ex) {
         log.error("Error during compliance calculation: ", ex);
@@ -0,0 +1,65 @@
+package com.gmitaros.vesselmetrics.controller;
+
+import com.gmitaros.vesselmetrics.dto.IngestJobDTO;
+import com.gmitaros.vesselmetrics.service.IngestJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+/**
+ * REST controller for pushing vessel data CSV files into a running instance.
+ * <p>
+ * The request body is copied to a spool file, so files of any size can be uploaded without being buffered in
+ * memory, and parsed by a background job. The job id is returned as soon as the body has been read and the job
+ * is queued; the progress of the job is available from the status endpoint.
+ *
+ * @author George
+ */
+@RestController
+@RequestMapping("/vessels/ingest")
+@RequiredArgsConstructor
+public class IngestController {
+
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
+    private final IngestJobService ingestJobService;
+
+    /**
+     * Starts an ingest job for the CSV data in the request body.
+     *
+     * @param body the CSV data, header line included
+     * @return the new job, with its status URL in the {@code Location} header
+     * @throws IOException if the request body cannot be read or spooled
+     */
+    @PostMapping(consumes = {TEXT_CSV_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<IngestJobDTO> ingest(InputStream body) throws IOException {
+        IngestJobDTO job = ingestJobService.submit(body);
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{jobId}")
+                .buildAndExpand(job.jobId())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+
+    /**
+     * Retrieves the status of an ingest job: rows parsed, written and rejected so far and the parsing throughput.
+     *
+     * @param jobId the id returned when the job was started
+     * @return the current state of the job
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<IngestJobDTO> getIngestJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(ingestJobService.getJob(jobId));
+    }
+
+}
@@ -1,31 +1,42 @@
 package com.gmitaros.vesselmetrics.controller;
 
+import com.gmitaros.vesselmetrics.dto.CacheStatisticsDTO;
 import com.gmitaros.vesselmetrics.dto.ComplianceComparisonResponseDTO;
 import com.gmitaros.vesselmetrics.dto.PaginatedResponse;
 import com.gmitaros.vesselmetrics.dto.ProblematicWaypointGroupDTO;
 import com.gmitaros.vesselmetrics.dto.SpeedDifferenceDTO;
 import com.gmitaros.vesselmetrics.dto.ValidationIssueDTO;
 import com.gmitaros.vesselmetrics.dto.VesselDataDTO;
+import com.gmitaros.vesselmetrics.dto.WindowStatisticsDTO;
 import com.gmitaros.vesselmetrics.model.ValidationProblemType;
+import com.gmitaros.vesselmetrics.service.RollingStatisticsService;
 import com.gmitaros.vesselmetrics.service.StatisticsCalculationService;
 import com.gmitaros.vesselmetrics.service.VesselComplianceService;
+import com.gmitaros.vesselmetrics.service.VesselDataExportService;
 import com.gmitaros.vesselmetrics.service.VesselDataService;
+import com.gmitaros.vesselmetrics.service.VesselReadCache;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
  * REST controller for managing vessel-related data operations.
  * Provides endpoints to retrieve speed differences, validation issues,
- * compare compliance between vessels, merge vessel data, and identify
+ * compare compliance between vessels, merge and export vessel data, and identify
  * problematic waypoints.
  * <p>
  * This controller interacts with the {@link VesselDataService}, {@link VesselComplianceService},
@@ -45,6 +56,9 @@ public class VesselDataController {
     private final VesselDataService vesselDataService;
     private final VesselComplianceService vesselComplianceService;
     private final StatisticsCalculationService statisticsCalculationService;
+    private final RollingStatisticsService rollingStatisticsService;
+    private final VesselReadCache vesselReadCache;
+    private final VesselDataExportService vesselDataExportService;
 
     /**
      * Retrieves the speed differences between the vessel's actual speed and proposed speed over ground.
@@ -124,6 +138,50 @@ public class VesselDataController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Exports all values for both raw and calculated metrics for a specified period and vessel in one response,
+     * as newline-delimited JSON or CSV. The rows are streamed from a database cursor while the response is written,
+     * so ranges of any size can be exported without paging. The export runs asynchronously with a timeout of its own,
+     * {@code vessel.metrics.export.timeout}, and is rejected with 429 while {@code vessel.metrics.export.max.concurrent}
+     * other exports run.
+     *
+     * @param vesselCode the unique code of the vessel
+     * @param startDate  the start date of the period (ISO format)
+     * @param endDate    the end date of the period (ISO format)
+     * @param format     {@code ndjson} or {@code csv}
+     * @param response   the response the rows are written to, as an attachment
+     * @return the export, writing the rows of the vessel in date-time order
+     */
+    @GetMapping("/{vesselCode}/export")
+    public WebAsyncTask<Void> exportData(
+            @PathVariable String vesselCode,
+            @RequestParam String startDate,
+            @RequestParam String endDate,
+            @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletResponse response) {
+        VesselDataExportService.Format exportFormat = VesselDataExportService.Format.of(format);
+        LocalDateTime start = LocalDateTime.parse(startDate);
+        LocalDateTime end = LocalDateTime.parse(endDate);
+        vesselDataExportService.checkVesselExists(vesselCode);
+        Runnable releaseSlot = vesselDataExportService.acquireSlot();
+        ContentDisposition attachment = ContentDisposition.attachment()
+                .filename(vesselCode + "." + exportFormat.getExtension())
+                .build();
+        response.setContentType(exportFormat.getMediaType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, attachment.toString());
+        WebAsyncTask<Void> export = new WebAsyncTask<>(vesselDataExportService.getTimeout().toMillis(), () -> {
+            try {
+                vesselDataExportService.export(vesselCode, start, end, exportFormat, response.getOutputStream());
+                return null;
+            } finally {
+                releaseSlot.run();
+            }
+        });
+        // Also releases the slot of an export that timed out before it started
+        export.onCompletion(releaseSlot);
+        return export;
+    }
+
     /**
      * Identifies groups of consecutive waypoints with problematic data for a specific vessel.
      * Allows optional filtering by a specific problem type.
@@ -140,5 +198,31 @@ public class VesselDataController {
         return ResponseEntity.ok(waypointGroups);
     }
 
+    /**
+     * Retrieves the mean and standard deviation of power, fuel consumption and actual speed over ground over a
+     * trailing time window ending at every recent waypoint of a vessel. The series is kept in memory and covers
+     * the largest configured window.
+     *
+     * @param vesselCode the unique code of the vessel
+     * @param window     the length of the window, such as {@code 24h} or {@code PT6H}
+     * @return the windowed statistics of the vessel
+     */
+    @GetMapping("/{vesselCode}/window-statistics")
+    public ResponseEntity<WindowStatisticsDTO> getWindowStatistics(
+            @PathVariable String vesselCode,
+            @RequestParam(defaultValue = "24h") String window) {
+        WindowStatisticsDTO statistics = rollingStatisticsService.getWindowStatistics(vesselCode, DurationStyle.detectAndParse(window));
+        return ResponseEntity.ok(statistics);
+    }
+
+    /**
+     * Retrieves the hits, misses and evictions of the caches behind the read endpoints since the service started.
+     *
+     * @return the statistics of every cache
+     */
+    @GetMapping("/cache-statistics")
+    public ResponseEntity<List<CacheStatisticsDTO>> getCacheStatistics() {
+        return ResponseEntity.ok(vesselReadCache.statistics());
+    }
 
 }
@@ -0,0 +1,11 @@
+package com.gmitaros.vesselmetrics.dto;
+
+public record CacheStatisticsDTO(
+        String cache,
+        long size,
+        long hits,
+        long misses,
+        double hitRate,
+        long evictions
+) {
+}
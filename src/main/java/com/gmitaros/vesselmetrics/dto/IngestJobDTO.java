@@ -0,0 +1,17 @@
+package com.gmitaros.vesselmetrics.dto;
+
+import com.gmitaros.vesselmetrics.model.IngestJobStatus;
+
+import java.time.LocalDateTime;
+
+public record IngestJobDTO(String jobId,
+                           IngestJobStatus status,
+                           long rowsParsed,
+                           long rowsWritten,
+                           long rowsRejected,
+                           long rowsDuplicate,
+                           double rowsPerSecond,
+                           LocalDateTime startedAt,
+                           LocalDateTime finishedAt,
+                           String errorMessage) {
+}
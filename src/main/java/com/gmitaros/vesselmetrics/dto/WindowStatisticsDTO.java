@@ -0,0 +1,9 @@
+package com.gmitaros.vesselmetrics.dto;
+
+import java.time.Duration;
+import java.util.List;
+
+public record WindowStatisticsDTO(String vesselCode,
+                                  Duration window,
+                                  List<WindowStatisticsPointDTO> points) {
+}
@@ -0,0 +1,15 @@
+package com.gmitaros.vesselmetrics.dto;
+
+import java.time.LocalDateTime;
+
+public record WindowStatisticsPointDTO(LocalDateTime dateTime,
+                                       long powerCount,
+                                       Double avgPower,
+                                       Double stddevPower,
+                                       long fuelConsumptionCount,
+                                       Double avgFuelConsumption,
+                                       Double stddevFuelConsumption,
+                                       long actualSpeedOvergroundCount,
+                                       Double avgActualSpeedOverground,
+                                       Double stddevActualSpeedOverground) {
+}
@@ -0,0 +1,8 @@
+package com.gmitaros.vesselmetrics.exception;
+
+public class IngestJobNotFoundException extends RuntimeException {
+
+    public IngestJobNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.gmitaros.vesselmetrics.exception;
+
+public class TooManyExportsException extends RuntimeException {
+
+    public TooManyExportsException(String message) {
+        super(message);
+    }
+}
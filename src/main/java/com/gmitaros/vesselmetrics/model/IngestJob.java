@@ -0,0 +1,65 @@
+package com.gmitaros.vesselmetrics.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Checkpoint of the load of one source. Every record before {@code recordNumber}, which ends at
+ * {@code byteOffset} in the source, has been processed and its row committed.
+ */
+@Entity
+@Table(name = "ingest_jobs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IngestJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "source_id", nullable = false, unique = true)
+    private String sourceId;
+
+    @Column(name = "source_size", nullable = false)
+    private long sourceSize;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private IngestJobStatus status;
+
+    // Null when the parser does not track byte offsets
+    @Column(name = "byte_offset")
+    private Long byteOffset;
+
+    @Column(name = "record_number", nullable = false)
+    private long recordNumber;
+
+    @Column(name = "rows_written", nullable = false)
+    private long rowsWritten;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+}
@@ -0,0 +1,9 @@
+package com.gmitaros.vesselmetrics.model;
+
+public enum IngestJobStatus {
+    QUEUED,
+    RUNNING,
+    DETECTING_OUTLIERS,
+    COMPLETED,
+    FAILED
+}
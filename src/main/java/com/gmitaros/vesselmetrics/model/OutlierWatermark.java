@@ -0,0 +1,49 @@
+package com.gmitaros.vesselmetrics.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * How far the rows of one vessel have been scored for outliers. {@code lastRun} is the number of the last run, which
+ * every row it scored carries in {@code vessel_data.outlier_run}; the statistics are those of the VALID rows of the
+ * vessel right after its last full scoring.
+ */
+@Entity
+@Table(name = "vessel_outlier_watermarks")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutlierWatermark {
+
+    @Id
+    @Column(name = "vessel_code")
+    private String vesselCode;
+
+    @Column(name = "last_run", nullable = false)
+    private long lastRun;
+
+    private Double avgPower;
+    private Double stddevPower;
+    private Double avgFuelConsumption;
+    private Double stddevFuelConsumption;
+    private Double avgActualSpeedOverground;
+    private Double stddevActualSpeedOverground;
+
+    @Column(name = "rescored_at", nullable = false)
+    private LocalDateTime rescoredAt;
+
+    @Column(name = "scored_at", nullable = false)
+    private LocalDateTime scoredAt;
+
+}
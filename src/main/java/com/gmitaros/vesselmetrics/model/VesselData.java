@@ -19,6 +19,7 @@ import lombok.Setter;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 @Entity
 @Builder
@@ -33,7 +34,7 @@ public class VesselData {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     @Column(name = "vessel_data_uuid", nullable = false, unique = true)
-    private String vesselDataUuid;
+    private UUID vesselDataUuid;
     private String vesselCode;
     private LocalDateTime dateTime;
     private Double latitude;
@@ -50,6 +51,12 @@ public class VesselData {
     @Column(name = "validation_status", nullable = false)
     private ValidationStatus validationStatus;
 
+    /**
+     * The outlier detection run that scored the row, null until one has. Only set by that run, in SQL.
+     */
+    @Column(name = "outlier_run", insertable = false, updatable = false)
+    private Long outlierRun;
+
     @OneToMany(mappedBy = "vesselData", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<ValidationError> validationErrors = new ArrayList<>();
 
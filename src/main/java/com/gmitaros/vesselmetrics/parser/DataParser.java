@@ -1,10 +1,45 @@
 package com.gmitaros.vesselmetrics.parser;
 
 
+import com.gmitaros.vesselmetrics.service.IngestProgress;
+
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public interface DataParser {
 
-    void parseAndSave(InputStream inputStream);
+    /**
+     * Parses and saves the data of a stream, reporting the rows parsed, written and rejected to the given progress.
+     *
+     * @param inputStream the stream to parse
+     * @param progress    receives the counts of the run
+     */
+    void parseAndSave(InputStream inputStream, IngestProgress progress);
+
+    default void parseAndSave(InputStream inputStream) {
+        parseAndSave(inputStream, new IngestProgress());
+    }
+
+    /**
+     * Parses and saves the data of a file. Implementations that can read files more efficiently than
+     * through a stream, for example by memory-mapping them, override this method.
+     *
+     * @param path     the file to parse
+     * @param progress receives the counts of the run
+     */
+    default void parseAndSave(Path path, IngestProgress progress) {
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            parseAndSave(inputStream, progress);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + path, e);
+        }
+    }
+
+    default void parseAndSave(Path path) {
+        parseAndSave(path, new IngestProgress());
+    }
 
 }
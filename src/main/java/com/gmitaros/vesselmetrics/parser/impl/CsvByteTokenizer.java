@@ -0,0 +1,415 @@
+package com.gmitaros.vesselmetrics.parser.impl;
+
+import com.gmitaros.vesselmetrics.model.VesselData;
+import com.gmitaros.vesselmetrics.util.FixedWidthDateTimeParser;
+import com.gmitaros.vesselmetrics.util.TimeOrderedUuid;
+import com.gmitaros.vesselmetrics.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Tokenizes vessel data CSV straight from a {@link ByteBuffer} and maps each line to {@link VesselData}.
+ * <p>
+ * The first line is the header: the position of every column is resolved once from it. After that, numbers
+ * and timestamps are parsed from the bytes in place and vessel codes are shared between rows, so a
+ * well-formed row does not create any intermediate String. Values that the fast paths do not understand
+ * fall back to {@link Utils}, which keeps the results identical to the commons-csv based parser.
+ * <p>
+ * Not thread-safe, use one instance per reading thread.
+ */
+class CsvByteTokenizer {
+
+    private static final Logger log = LoggerFactory.getLogger(CsvByteTokenizer.class);
+
+    static final String[] COLUMNS = {
+            "vessel_code", "datetime", "latitude", "longitude", "power", "fuel_consumption",
+            "actual_speed_overground", "proposed_speed_overground", "predicted_fuel_consumption"
+    };
+    private static final int VESSEL_CODE = 0;
+    private static final int DATETIME = 1;
+    private static final int LATITUDE = 2;
+    private static final int LONGITUDE = 3;
+    private static final int POWER = 4;
+    private static final int FUEL_CONSUMPTION = 5;
+    private static final int ACTUAL_SPEED_OVERGROUND = 6;
+    private static final int PROPOSED_SPEED_OVERGROUND = 7;
+    private static final int PREDICTED_FUEL_CONSUMPTION = 8;
+
+    private static final byte[] NULL_LITERAL = "NULL".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    // Largest mantissa and power of ten for which mantissa * 10^exponent is exact before a single rounding
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final int CACHED_TEXT_VALUES = 64;
+
+    private final int[] columnIndex = new int[COLUMNS.length];
+    private int[] fieldStart;
+    private int[] fieldEnd;
+    private int requiredFieldCount;
+    private boolean headerResolved;
+
+    private ByteBuffer buffer;
+    private int lineEnd;
+
+    private final byte[][] cachedTextBytes = new byte[CACHED_TEXT_VALUES][];
+    private final String[] cachedTextValues = new String[CACHED_TEXT_VALUES];
+    private int nextCachedText;
+
+    private final FixedWidthDateTimeParser dateTimeParser = new FixedWidthDateTimeParser();
+
+    CsvByteTokenizer() {
+    }
+
+    /**
+     * Creates a tokenizer that shares the resolved header of another one, for reading a part of the same input
+     * that starts after the header line.
+     *
+     * @param header a tokenizer that has read the header line
+     */
+    CsvByteTokenizer(CsvByteTokenizer header) {
+        if (!header.headerResolved) {
+            throw new IllegalStateException("The header has not been read yet");
+        }
+        System.arraycopy(header.columnIndex, 0, columnIndex, 0, columnIndex.length);
+        fieldStart = new int[header.fieldStart.length];
+        fieldEnd = new int[header.fieldEnd.length];
+        requiredFieldCount = header.requiredFieldCount;
+        headerResolved = true;
+    }
+
+    /**
+     * Tokenizes the complete lines found between {@code from} and {@code to} and passes every mapped row to the sink.
+     * The first line ever seen by this tokenizer is treated as the header.
+     *
+     * @param source     the bytes to tokenize
+     * @param from       the position of the first byte of a line
+     * @param to         the position after the last available byte
+     * @param endOfInput whether no more bytes follow, in which case a last line without line break is processed too
+     * @param sink       receives the mapped rows, and null for every line with fewer fields than the header
+     *                   requires, which the ingest pipeline counts as a rejected record
+     * @return the position after the last line processed; bytes from there on belong to an incomplete line
+     */
+    int tokenize(ByteBuffer source, int from, int to, boolean endOfInput, Consumer<? super VesselData> sink) {
+        this.buffer = source;
+        int lineStart = from;
+        int fieldCount = 0;
+        boolean inQuotes = false;
+        if (fieldStart != null) {
+            fieldStart[0] = from;
+        }
+
+        for (int position = from; position < to; position++) {
+            byte b = source.get(position);
+            if (b == '"') {
+                // An escaped quote ("") toggles twice, so the state stays correct
+                inQuotes = !inQuotes;
+            } else if (!inQuotes) {
+                if (b == ',') {
+                    endField(fieldCount++, position, position + 1);
+                } else if (b == '\n') {
+                    int lineEnd = position > lineStart && source.get(position - 1) == '\r' ? position - 1 : position;
+                    endField(fieldCount++, lineEnd, position + 1);
+                    this.lineEnd = position + 1;
+                    endLine(lineStart, lineEnd, fieldCount, sink);
+                    lineStart = position + 1;
+                    fieldCount = 0;
+                    if (fieldStart != null) {
+                        fieldStart[0] = lineStart;
+                    }
+                }
+            }
+        }
+
+        if (endOfInput && lineStart < to) {
+            int lineEnd = source.get(to - 1) == '\r' ? to - 1 : to;
+            endField(fieldCount++, lineEnd, to);
+            this.lineEnd = to;
+            endLine(lineStart, lineEnd, fieldCount, sink);
+            return to;
+        }
+        return lineStart;
+    }
+
+    /**
+     * Tokenizes only the header line, for readers that start somewhere after it.
+     *
+     * @param source the bytes holding the header
+     * @param from   the position of the first byte of the input
+     * @param to     the position after the last available byte
+     * @return the position after the header line, or -1 if there is no complete header line before {@code to}
+     */
+    int tokenizeHeader(ByteBuffer source, int from, int to) {
+        int lineStart = from;
+        boolean inQuotes = false;
+        for (int position = from; position < to && !headerResolved; position++) {
+            byte b = source.get(position);
+            if (b == '"') {
+                inQuotes = !inQuotes;
+            } else if (b == '\n' && !inQuotes) {
+                tokenize(source, lineStart, position + 1, false, row -> {
+                });
+                lineStart = position + 1;
+            }
+        }
+        return headerResolved ? lineStart : -1;
+    }
+
+    boolean isHeaderResolved() {
+        return headerResolved;
+    }
+
+    /**
+     * Returns where the line of the row last passed to the sink ends, line break included. Only meaningful
+     * while the sink is handling that row.
+     *
+     * @return the position in the current buffer right after the line
+     */
+    int lineEnd() {
+        return lineEnd;
+    }
+
+    private void endField(int field, int end, int nextStart) {
+        if (fieldStart == null) {
+            // Still reading the header, whose fields are collected by resolveHeader
+            return;
+        }
+        if (field < fieldEnd.length) {
+            fieldEnd[field] = end;
+        }
+        if (field + 1 < fieldStart.length) {
+            fieldStart[field + 1] = nextStart;
+        }
+    }
+
+    private void endLine(int lineStart, int lineEnd, int fieldCount, Consumer<? super VesselData> sink) {
+        if (lineStart == lineEnd) {
+            return; // empty lines are ignored, like commons-csv does
+        }
+        if (!headerResolved) {
+            resolveHeader(lineStart, lineEnd);
+            return;
+        }
+        if (fieldCount < requiredFieldCount) {
+            log.error("Error mapping CSV record: expected at least {} values but found {}", requiredFieldCount, fieldCount);
+            sink.accept(null);
+            return;
+        }
+        sink.accept(mapRow());
+    }
+
+    private void resolveHeader(int lineStart, int lineEnd) {
+        int start = lineStart;
+        if (lineEnd - start >= UTF8_BOM.length && startsWith(start, UTF8_BOM)) {
+            start += UTF8_BOM.length;
+        }
+        byte[] headerBytes = new byte[lineEnd - start];
+        buffer.get(start, headerBytes);
+        String[] names = new String(headerBytes, StandardCharsets.UTF_8).split(",", -1);
+        for (int i = 0; i < names.length; i++) {
+            names[i] = unquote(names[i].trim());
+        }
+
+        requiredFieldCount = 0;
+        for (int column = 0; column < COLUMNS.length; column++) {
+            int index = Arrays.asList(names).indexOf(COLUMNS[column]);
+            if (index < 0) {
+                throw new IllegalArgumentException("CSV header is missing column " + COLUMNS[column]);
+            }
+            columnIndex[column] = index;
+            requiredFieldCount = Math.max(requiredFieldCount, index + 1);
+        }
+        fieldStart = new int[names.length];
+        fieldEnd = new int[names.length];
+        headerResolved = true;
+    }
+
+    private VesselData mapRow() {
+        return VesselData.builder()
+                .vesselDataUuid(TimeOrderedUuid.next())
+                .vesselCode(text(VESSEL_CODE))
+                .dateTime(timestamp(DATETIME))
+                .latitude(number(LATITUDE))
+                .longitude(number(LONGITUDE))
+                .power(number(POWER))
+                .fuelConsumption(number(FUEL_CONSUMPTION))
+                .actualSpeedOverground(number(ACTUAL_SPEED_OVERGROUND))
+                .proposedSpeedOverground(number(PROPOSED_SPEED_OVERGROUND))
+                .predictedFuelConsumption(number(PREDICTED_FUEL_CONSUMPTION))
+                .validationErrors(new ArrayList<>())
+                .build();
+    }
+
+    private String text(int column) {
+        int fieldStart = this.fieldStart[columnIndex[column]];
+        int fieldEnd = this.fieldEnd[columnIndex[column]];
+        boolean quoted = isQuoted(fieldStart, fieldEnd);
+        // Cached by the bytes of the value, so quoted and unquoted occurrences share the same String
+        int start = quoted ? fieldStart + 1 : fieldStart;
+        int end = quoted ? fieldEnd - 1 : fieldEnd;
+        int length = end - start;
+        for (int i = 0; i < CACHED_TEXT_VALUES; i++) {
+            byte[] cached = cachedTextBytes[i];
+            if (cached != null && cached.length == length && startsWith(start, cached)) {
+                return cachedTextValues[i];
+            }
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(start, bytes);
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        if (value.indexOf('"') >= 0) {
+            // Escaped quotes mean something else outside quotes, such values are not shared
+            return quoted ? value.replace("\"\"", "\"") : value;
+        }
+        cachedTextBytes[nextCachedText] = bytes;
+        cachedTextValues[nextCachedText] = value;
+        nextCachedText = (nextCachedText + 1) % CACHED_TEXT_VALUES;
+        return value;
+    }
+
+    private LocalDateTime timestamp(int column) {
+        int start = valueStart(column);
+        int end = valueEnd(column);
+        if (end - start == FixedWidthDateTimeParser.LENGTH) {
+            LocalDateTime parsed = dateTimeParser.parse(buffer, start);
+            if (parsed != null) {
+                return parsed;
+            }
+        }
+        return Utils.parseDateTimeWithFormatter(asciiString(start, end));
+    }
+
+    private int digits(int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Parses a decimal number such as {@code -14.788875579834} or {@code 1.5e3} from the bytes in place.
+     * Uses the exact fast path when the mantissa fits in 53 bits and the power of ten is at most 22,
+     * in which case a single floating-point operation gives the correctly rounded result.
+     */
+    private Double number(int column) {
+        int start = valueStart(column);
+        int end = valueEnd(column);
+        int position = start;
+        boolean negative = false;
+        if (position < end && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+            negative = buffer.get(position) == '-';
+            position++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        for (; position < end; position++) {
+            int digit = buffer.get(position) - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            mantissa = mantissa * 10 + digit;
+            significantDigits += mantissa != 0 ? 1 : 0;
+            anyDigit = true;
+        }
+        if (position < end && buffer.get(position) == '.') {
+            for (position++; position < end; position++) {
+                int digit = buffer.get(position) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                mantissa = mantissa * 10 + digit;
+                significantDigits += mantissa != 0 ? 1 : 0;
+                exponent--;
+                anyDigit = true;
+            }
+        }
+        if (!anyDigit || significantDigits > 18) {
+            return slowNumber(start, end);
+        }
+        if (position < end && (buffer.get(position) == 'e' || buffer.get(position) == 'E')) {
+            position++;
+            boolean negativeExponent = false;
+            if (position < end && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+                negativeExponent = buffer.get(position) == '-';
+                position++;
+            }
+            int exponentDigits = end - position;
+            int explicitExponent = exponentDigits > 0 && exponentDigits <= 3 ? digits(position, exponentDigits) : -1;
+            if (explicitExponent < 0) {
+                return slowNumber(start, end);
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+            position = end;
+        }
+        if (position != end || mantissa > MAX_EXACT_MANTISSA || exponent < -22 || exponent > 22) {
+            return slowNumber(start, end);
+        }
+
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    private Double slowNumber(int start, int end) {
+        if (end - start == NULL_LITERAL.length && startsWith(start, NULL_LITERAL)) {
+            return null;
+        }
+        return Utils.parseDoubleSafe(asciiString(start, end));
+    }
+
+    private int valueStart(int column) {
+        int start = fieldStart[columnIndex[column]];
+        int end = fieldEnd[columnIndex[column]];
+        return isQuoted(start, end) ? start + 1 : start;
+    }
+
+    private int valueEnd(int column) {
+        int start = fieldStart[columnIndex[column]];
+        int end = fieldEnd[columnIndex[column]];
+        return isQuoted(start, end) ? end - 1 : end;
+    }
+
+    private boolean isQuoted(int start, int end) {
+        return end - start >= 2 && buffer.get(start) == '"' && buffer.get(end - 1) == '"';
+    }
+
+    private boolean startsWith(int start, byte[] expected) {
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(start + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String asciiString(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+            return value.substring(1, value.length() - 1).replace("\"\"", "\"");
+        }
+        return value;
+    }
+
+}
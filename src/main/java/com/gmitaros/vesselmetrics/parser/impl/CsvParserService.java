@@ -1,32 +1,32 @@
 package com.gmitaros.vesselmetrics.parser.impl;
 
-import com.gmitaros.vesselmetrics.model.VesselData;
+import com.gmitaros.vesselmetrics.model.IngestJob;
+import com.gmitaros.vesselmetrics.model.IngestJobStatus;
 import com.gmitaros.vesselmetrics.parser.DataParser;
 import com.gmitaros.vesselmetrics.repository.VesselDataRepository;
-import com.gmitaros.vesselmetrics.service.MetricsCalculationService;
+import com.gmitaros.vesselmetrics.service.IngestCheckpointService;
+import com.gmitaros.vesselmetrics.service.IngestPipelineService;
+import com.gmitaros.vesselmetrics.service.IngestProgress;
 import com.gmitaros.vesselmetrics.service.OutlierDetectionService;
-import com.gmitaros.vesselmetrics.service.ValidationService;
-import com.gmitaros.vesselmetrics.service.VesselDataBatchService;
 import com.gmitaros.vesselmetrics.util.Utils;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.StreamSupport;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * Service responsible for parsing vessel data from a CSV file, validating and calculating metrics,
@@ -37,10 +37,6 @@ import java.util.stream.StreamSupport;
 public class CsvParserService implements DataParser {
 
     private static final Logger log = LoggerFactory.getLogger(CsvParserService.class);
-    private static final int LOG_INTERVAL = 1000;
-
-    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
-    private int batchSize;
 
     @Value("${vessel.metrics.csv.load.if.already.have.data:false}")
     private boolean loadCsvIfAlreadyHaveData;
@@ -48,26 +44,33 @@ public class CsvParserService implements DataParser {
     @Value("${vessel.metrics.csv.path}")
     private String vesselDataPath;
 
+    @Value("${vessel.metrics.csv.parser:commons}")
+    private String csvParserType;
+
     private final VesselDataRepository vesselDataRepository;
-    private final VesselDataBatchService vesselDataBatchService;
+    private final IngestPipelineService ingestPipelineService;
+    private final MappedCsvParserService mappedCsvParserService;
     private final OutlierDetectionService outlierDetectionService;
-    private final ValidationService validationService;
-    private final MetricsCalculationService metricsCalculationService;
+    private final IngestCheckpointService ingestCheckpointService;
 
     /**
      * Listener for when the application is fully initialized and ready.
-     * It will trigger CSV parsing and data loading if required.
+     * It will trigger CSV parsing and data loading if required, or resume a load that did not complete.
+     * Every batch is committed on its own, so after a failure or a restart only the batches written after the
+     * last checkpoint are loaded again.
      */
     @EventListener(ApplicationReadyEvent.class)
-    @Transactional
     public void onApplicationReady() {
         long vesselData = vesselDataRepository.count();
         log.info("Found {} vessel data in vessel_data db ", vesselData);
-        boolean loadData = vesselData <= 0 || loadCsvIfAlreadyHaveData;
+        boolean interruptedLoad = ingestCheckpointService.findLoad(vesselDataPath)
+                .map(job -> job.getStatus() != IngestJobStatus.COMPLETED)
+                .orElse(false);
+        boolean loadData = interruptedLoad || vesselData <= 0 || loadCsvIfAlreadyHaveData;
         if (loadData) {
             log.info("CsvParserService will load data from {} file", vesselDataPath);
-            try (InputStream inputStream = getClass().getResourceAsStream(vesselDataPath)) {
-                parseAndSave(inputStream);
+            try {
+                loadCsv(configuredParser());
                 checkForOutliers();
             } catch (Exception e) {
                 log.error("Error initializing data: ", e);
@@ -78,12 +81,62 @@ public class CsvParserService implements DataParser {
         }
     }
 
+    /**
+     * Returns the parser selected with {@code vessel.metrics.csv.parser}: the memory-mapped parser for
+     * {@code mapped}, this commons-csv based parser otherwise.
+     *
+     * @return the configured CSV parser
+     */
+    public DataParser configuredParser() {
+        return "mapped".equals(csvParserType) ? mappedCsvParserService : this;
+    }
+
+    /**
+     * Loads the CSV resource with the given parser, checkpointing the load in {@code ingest_jobs}.
+     * Resources that are plain files are handed over as a path, so parsers able to memory-map files can do so;
+     * resources inside an archive are streamed.
+     *
+     * @param parser the parser to load the CSV resource with
+     */
+    void loadCsv(DataParser parser) throws Exception {
+        URL resource = getClass().getResource(vesselDataPath);
+        if (resource == null) {
+            throw new IllegalStateException("CSV resource " + vesselDataPath + " was not found");
+        }
+        if ("file".equals(resource.getProtocol())) {
+            Path path = Path.of(resource.toURI());
+            IngestJob job = ingestCheckpointService.startLoad(vesselDataPath, Files.size(path));
+            runLoad(job, () -> parser.parseAndSave(path, ingestCheckpointService.progressOf(job)));
+        } else {
+            URLConnection connection = resource.openConnection();
+            try (InputStream inputStream = connection.getInputStream()) {
+                IngestJob job = ingestCheckpointService.startLoad(vesselDataPath, connection.getContentLengthLong());
+                runLoad(job, () -> parser.parseAndSave(inputStream, ingestCheckpointService.progressOf(job)));
+            }
+        }
+    }
+
+    private void runLoad(IngestJob job, Runnable load) {
+        try {
+            load.run();
+        } catch (RuntimeException e) {
+            ingestCheckpointService.finishLoad(job, IngestJobStatus.FAILED);
+            throw e;
+        }
+        ingestCheckpointService.finishLoad(job, IngestJobStatus.COMPLETED);
+    }
+
     /**
      * Parses the CSV file and processes the records, saving them in batches.
+     * Whether the records are processed sequentially or through the parallel pipeline is decided by
+     * {@link IngestPipelineService}. commons-csv does not expose byte offsets, so a run resuming from a
+     * checkpoint skips the records the checkpoint covers.
      *
      * @param inputStream the input stream of the CSV file to be parsed
+     * @param progress    receives the counts of the run
      */
-    public void parseAndSave(InputStream inputStream) {
+    @Override
+    public void parseAndSave(InputStream inputStream, IngestProgress progress) {
         long startTime = System.currentTimeMillis();
 
         try {
@@ -94,33 +147,11 @@ public class CsvParserService implements DataParser {
                     .build()
                     .parse(reader);
 
-            List<VesselData> batch = new ArrayList<>();
-            AtomicInteger totalRecordsProcessed = new AtomicInteger();
-
-            StreamSupport.stream(csvParser.spliterator(), false)
-                    .map(Utils::mapCsvRecordToVesselData)
-                    .filter(Objects::nonNull)
-                    .peek(validationService::validate)
-                    .peek(metricsCalculationService::calculateMetrics)
-                    .forEach(data -> {
-                        batch.add(data);
-                        int count = totalRecordsProcessed.incrementAndGet();
-
-                        if (count % LOG_INTERVAL == 0) {
-                            log.info("Processed {} records so far...", count);
-                        }
-
-                        if (batch.size() >= batchSize) {
-                            vesselDataBatchService.saveVesselDataBatch(new ArrayList<>(batch));
-                            batch.clear();
-                        }
-                    });
-
-            if (!batch.isEmpty()) {
-                vesselDataBatchService.saveVesselDataBatch(new ArrayList<>(batch));
-            }
+            IngestPipelineService.RecordSource<CSVRecord> records = csvParser::forEach;
+            long totalRecordsProcessed = ingestPipelineService.ingest(records.skipFirst(progress.getResumePoint().recordNumber()),
+                    Utils::mapCsvRecordToVesselData, progress);
 
-            log.info("Finished processing. Total records processed: {}", totalRecordsProcessed.get());
+            log.info("Finished processing. Total records processed: {}", totalRecordsProcessed);
 
         } catch (Exception e) {
             log.error("Error while parsing CSV file: ", e);
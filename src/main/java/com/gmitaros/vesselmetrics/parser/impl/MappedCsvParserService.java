@@ -0,0 +1,345 @@
+package com.gmitaros.vesselmetrics.parser.impl;
+
+import com.gmitaros.vesselmetrics.model.VesselData;
+import com.gmitaros.vesselmetrics.parser.DataParser;
+import com.gmitaros.vesselmetrics.service.IngestCheckpoint;
+import com.gmitaros.vesselmetrics.service.IngestPipelineService;
+import com.gmitaros.vesselmetrics.service.IngestProgress;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * CSV parser that tokenizes the bytes of the input in place with {@link CsvByteTokenizer} instead of going
+ * through commons-csv. Files are memory-mapped window by window, so they are never copied onto the heap;
+ * streams are read through a reusable buffer. The mapped rows go through the same
+ * {@link IngestPipelineService} stages as the rows of {@link CsvParserService}.
+ * <p>
+ * In split mode a file is cut into byte ranges that start at record boundaries, and every range is tokenized on
+ * its own thread with a copy of the header parsed once up front. The cuts are found by following the quotes
+ * from the start of the file, so quoted values may hold line breaks and rows may have any number of fields.
+ */
+@RequiredArgsConstructor
+@Service
+public class MappedCsvParserService implements DataParser {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedCsvParserService.class);
+    // A mapping is limited to 2 GB, larger files are mapped in consecutive windows
+    private static final long MAPPING_WINDOW_SIZE = 256L * 1024 * 1024;
+    private static final int STREAM_BUFFER_SIZE = 1024 * 1024;
+    // Ranges are cut this size at least, so small files are not split into ranges of a few lines
+    private static final long MIN_SPLIT_RANGE_SIZE = 16L * 1024 * 1024;
+    private static final int SPLIT_SCAN_WINDOW_SIZE = 1024 * 1024;
+    private static final int RANGES_PER_THREAD = 4;
+
+    @Value("${vessel.metrics.csv.split.enabled:false}")
+    private boolean splitEnabled;
+
+    @Value("${vessel.metrics.csv.split.parallelism:0}")
+    private int splitParallelism;
+
+    private final IngestPipelineService ingestPipelineService;
+
+    /**
+     * Memory-maps the CSV file and processes the records, saving them in batches.
+     * A run resuming from a checkpoint maps the file from the byte offset of the checkpoint.
+     * In split mode the byte ranges of the file are parsed in parallel.
+     *
+     * @param path     the CSV file to be parsed
+     * @param progress receives the counts of the run
+     */
+    @Override
+    public void parseAndSave(Path path, IngestProgress progress) {
+        IngestCheckpoint resumePoint = progress.getResumePoint();
+        if (resumePoint.byteOffset() == IngestCheckpoint.UNKNOWN_OFFSET) {
+            ingest(new FileSource(path, 0).skipFirst(resumePoint.recordNumber()), progress);
+        } else if (splitEnabled) {
+            ingestSplit(path, resumePoint.byteOffset(), progress);
+        } else {
+            ingest(new FileSource(path, resumePoint.byteOffset()), progress);
+        }
+    }
+
+    /**
+     * Parses the CSV stream and processes the records, saving them in batches.
+     * A run resuming from a checkpoint skips the stream up to the byte offset of the checkpoint.
+     *
+     * @param inputStream the input stream of the CSV file to be parsed
+     * @param progress    receives the counts of the run
+     */
+    @Override
+    public void parseAndSave(InputStream inputStream, IngestProgress progress) {
+        IngestCheckpoint resumePoint = progress.getResumePoint();
+        if (resumePoint.byteOffset() == IngestCheckpoint.UNKNOWN_OFFSET) {
+            ingest(new StreamSource(inputStream, 0).skipFirst(resumePoint.recordNumber()), progress);
+        } else {
+            ingest(new StreamSource(inputStream, resumePoint.byteOffset()), progress);
+        }
+    }
+
+    private void ingest(IngestPipelineService.RecordSource<VesselData> source, IngestProgress progress) {
+        long startTime = System.currentTimeMillis();
+        try {
+            long totalRecordsProcessed = ingestPipelineService.ingest(source, Function.identity(), progress);
+            log.info("Finished processing. Total records processed: {}", totalRecordsProcessed);
+        } catch (Exception e) {
+            log.error("Error while parsing CSV file: ", e);
+            throw new RuntimeException("Failed to parse CSV file", e);
+        } finally {
+            log.info("CSV processing completed in {} ms", System.currentTimeMillis() - startTime);
+        }
+    }
+
+    private void ingestSplit(Path path, long startOffset, IngestProgress progress) {
+        long startTime = System.currentTimeMillis();
+        int parallelism = splitParallelism > 0 ? splitParallelism : Runtime.getRuntime().availableProcessors();
+        try {
+            long rangeSize = Math.max(MIN_SPLIT_RANGE_SIZE, Files.size(path) / ((long) parallelism * RANGES_PER_THREAD) + 1);
+            List<FileSource> ranges = splitIntoRanges(path, startOffset, rangeSize);
+            long totalRecordsProcessed = ingestPipelineService.ingestRanges(ranges, Function.identity(), progress, parallelism);
+            log.info("Finished processing {} ranges. Total records processed: {}", ranges.size(), totalRecordsProcessed);
+        } catch (Exception e) {
+            log.error("Error while parsing CSV file: ", e);
+            throw new RuntimeException("Failed to parse CSV file", e);
+        } finally {
+            log.info("CSV processing completed in {} ms", System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * Cuts the file after the header, or from the given offset on, into ranges of about {@code rangeSize} bytes.
+     * Every cut is moved forward to the start of the next record, so each range holds whole records only.
+     *
+     * @param path        the CSV file
+     * @param startOffset the byte offset of the first line to read after the header, or 0 to read the whole file
+     * @param rangeSize   the size of a range before its end is moved to a record start
+     * @return the ranges in file order
+     */
+    List<FileSource> splitIntoRanges(Path path, long startOffset, long rangeSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (startOffset > size) {
+                throw new IOException("Resume offset " + startOffset + " is past the end of " + path);
+            }
+            CsvByteTokenizer header = new CsvByteTokenizer();
+            MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(MAPPING_WINDOW_SIZE, size));
+            int headerEnd = header.tokenizeHeader(head, 0, head.limit());
+            if (headerEnd < 0) {
+                throw new IOException("CSV header of " + path + " was not found");
+            }
+            long rangeStart = Math.max(startOffset, headerEnd);
+            List<FileSource> ranges = new ArrayList<>();
+            while (rangeStart < size) {
+                long rangeEnd = nextRecordStart(channel, rangeStart, rangeStart + rangeSize, size);
+                ranges.add(new FileSource(path, rangeStart, rangeEnd, new CsvByteTokenizer(header)));
+                rangeStart = rangeEnd;
+            }
+            return ranges;
+        }
+    }
+
+    /**
+     * Finds the first record start at or after {@code target}, scanning from the start of the previous record.
+     * A line break is the end of a record only when an even number of quotes precedes it since the record start,
+     * the same rule the tokenizer applies, so a line break inside a quoted value is never taken for a cut. The
+     * scan reads every byte of the file once in total, which costs far less than tokenizing it.
+     *
+     * @param from   the start of a record, outside quotes
+     * @param target the offset the record start should be at or after
+     */
+    private static long nextRecordStart(FileChannel channel, long from, long target, long size) throws IOException {
+        boolean inQuotes = false;
+        long windowStart = from;
+        while (windowStart < size) {
+            int length = (int) Math.min(SPLIT_SCAN_WINDOW_SIZE, size - windowStart);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, length);
+            for (int i = 0; i < length; i++) {
+                byte b = window.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes && windowStart + i + 1 >= target) {
+                    return windowStart + i + 1;
+                }
+            }
+            windowStart += length;
+        }
+        return size;
+    }
+
+    void read(Path path, Consumer<? super VesselData> sink) throws IOException {
+        new FileSource(path, 0).forEach(sink);
+    }
+
+    void read(InputStream inputStream, Consumer<? super VesselData> sink) throws IOException {
+        new StreamSource(inputStream, 0).forEach(sink);
+    }
+
+    /**
+     * Maps the file window by window and passes every row to the sink.
+     * A window ends at the last complete line it contains; the next window starts right after it.
+     */
+    static final class FileSource implements IngestPipelineService.RecordSource<VesselData> {
+
+        private final Path path;
+        private final long startOffset;
+        private final long endOffset;
+        private final CsvByteTokenizer tokenizer;
+        private long windowStart;
+        private long position;
+
+        /**
+         * @param path        the CSV file
+         * @param startOffset the byte offset of the first line to read after the header, or 0 to read the whole file
+         */
+        FileSource(Path path, long startOffset) {
+            this(path, startOffset, Long.MAX_VALUE, new CsvByteTokenizer());
+        }
+
+        /**
+         * Creates a source for the range of a split file. A tokenizer that has read the header already is used
+         * as is, and the range is read from {@code startOffset} without looking at the header line.
+         *
+         * @param endOffset the byte offset right after the last line of the range
+         */
+        private FileSource(Path path, long startOffset, long endOffset, CsvByteTokenizer tokenizer) {
+            this.path = path;
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+            this.tokenizer = tokenizer;
+        }
+
+        @Override
+        public void forEach(Consumer<? super VesselData> sink) throws IOException {
+            Consumer<VesselData> trackingSink = row -> {
+                position = windowStart + tokenizer.lineEnd();
+                sink.accept(row);
+            };
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = Math.min(channel.size(), endOffset);
+                if (tokenizer.isHeaderResolved()) {
+                    windowStart = startOffset;
+                } else {
+                    windowStart = startOffset > 0 ? seekPastHeader(channel, size) : 0;
+                }
+                position = windowStart;
+                while (windowStart < size) {
+                    long length = Math.min(MAPPING_WINDOW_SIZE, size - windowStart);
+                    boolean lastWindow = windowStart + length == size;
+                    MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, length);
+                    int consumed = tokenizer.tokenize(window, 0, (int) length, lastWindow, trackingSink);
+                    if (consumed == 0 && !lastWindow) {
+                        throw new IOException("CSV line at offset " + windowStart + " is longer than " + MAPPING_WINDOW_SIZE + " bytes");
+                    }
+                    windowStart += consumed;
+                }
+            }
+        }
+
+        private long seekPastHeader(FileChannel channel, long size) throws IOException {
+            MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(MAPPING_WINDOW_SIZE, size));
+            int headerEnd = tokenizer.tokenizeHeader(head, 0, head.limit());
+            if (headerEnd < 0) {
+                throw new IOException("CSV header of " + path + " was not found");
+            }
+            if (startOffset > size) {
+                throw new IOException("Resume offset " + startOffset + " is past the end of " + path);
+            }
+            return Math.max(startOffset, headerEnd);
+        }
+
+        @Override
+        public long position() {
+            return position;
+        }
+    }
+
+    /**
+     * Reads the stream into a reusable buffer and passes every row to the sink.
+     * The bytes of an incomplete line are moved to the start of the buffer before reading more.
+     */
+    static final class StreamSource implements IngestPipelineService.RecordSource<VesselData> {
+
+        private final InputStream inputStream;
+        private final long startOffset;
+        private final CsvByteTokenizer tokenizer = new CsvByteTokenizer();
+        // Byte offset in the stream of the first byte in the buffer
+        private long bufferStart;
+        private long position;
+
+        /**
+         * @param inputStream the CSV stream
+         * @param startOffset the byte offset of the first line to read after the header, or 0 to read the whole stream
+         */
+        StreamSource(InputStream inputStream, long startOffset) {
+            this.inputStream = inputStream;
+            this.startOffset = startOffset;
+        }
+
+        @Override
+        public void forEach(Consumer<? super VesselData> sink) throws IOException {
+            Consumer<VesselData> trackingSink = row -> {
+                position = bufferStart + tokenizer.lineEnd();
+                sink.accept(row);
+            };
+            byte[] bytes = new byte[STREAM_BUFFER_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            int filled = 0;
+            boolean seeking = startOffset > 0;
+            while (true) {
+                int read = inputStream.read(bytes, filled, bytes.length - filled);
+                if (read < 0) {
+                    if (seeking) {
+                        throw new IOException("CSV stream ended before resume offset " + startOffset);
+                    }
+                    tokenizer.tokenize(buffer, 0, filled, true, trackingSink);
+                    return;
+                }
+                filled += read;
+                int consumed;
+                if (seeking) {
+                    int headerEnd = tokenizer.tokenizeHeader(buffer, 0, filled);
+                    if (headerEnd < 0) {
+                        consumed = 0; // the header line is not complete yet
+                    } else {
+                        // The bytes up to the resume offset are dropped without being tokenized
+                        consumed = (int) Math.max(headerEnd, Math.min(filled, startOffset - bufferStart));
+                        seeking = bufferStart + consumed < startOffset;
+                        position = bufferStart + consumed;
+                    }
+                } else {
+                    consumed = tokenizer.tokenize(buffer, 0, filled, false, trackingSink);
+                }
+                System.arraycopy(bytes, consumed, bytes, 0, filled - consumed);
+                filled -= consumed;
+                bufferStart += consumed;
+                if (filled == bytes.length) {
+                    // A single line fills the whole buffer
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                    buffer = ByteBuffer.wrap(bytes);
+                }
+            }
+        }
+
+        @Override
+        public long position() {
+            return position;
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.gmitaros.vesselmetrics.repository;
+
+import com.gmitaros.vesselmetrics.model.IngestJob;
+import com.gmitaros.vesselmetrics.model.IngestJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IngestJobRepository extends JpaRepository<IngestJob, Long> {
+
+    Optional<IngestJob> findBySourceId(String sourceId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestJob j " +
+            "SET j.byteOffset = :byteOffset, j.recordNumber = :recordNumber, j.rowsWritten = :rowsWritten, j.updatedAt = :updatedAt " +
+            "WHERE j.id = :id")
+    int updateCheckpoint(@Param("id") Long id,
+                         @Param("byteOffset") Long byteOffset,
+                         @Param("recordNumber") long recordNumber,
+                         @Param("rowsWritten") long rowsWritten,
+                         @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestJob j SET j.status = :status, j.updatedAt = :finishedAt, j.finishedAt = :finishedAt WHERE j.id = :id")
+    int finish(@Param("id") Long id, @Param("status") IngestJobStatus status, @Param("finishedAt") LocalDateTime finishedAt);
+}
@@ -0,0 +1,9 @@
+package com.gmitaros.vesselmetrics.repository;
+
+import com.gmitaros.vesselmetrics.model.OutlierWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutlierWatermarkRepository extends JpaRepository<OutlierWatermark, String> {
+}
@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.UUID;
 
 @Repository
 public interface ValidationErrorRepository extends JpaRepository<ValidationError, Long> {
@@ -29,7 +30,7 @@ public interface ValidationErrorRepository extends JpaRepository<ValidationError
     @Query("SELECT ve.vesselData.vesselDataUuid " +
             "FROM ValidationError ve " +
             "WHERE ve.vesselCode = :vesselCode AND ve.problemType = :problemType")
-    List<String> findVesselDataUuidsByVesselCodeAndProblemType(
+    List<UUID> findVesselDataUuidsByVesselCodeAndProblemType(
             @Param("vesselCode") String vesselCode,
             @Param("problemType") ValidationProblemType problemType);
 
@@ -1,7 +1,10 @@
 package com.gmitaros.vesselmetrics.repository;
 
+import com.gmitaros.vesselmetrics.dto.SpeedDifferenceDTO;
+import com.gmitaros.vesselmetrics.dto.VesselDataDTO;
 import com.gmitaros.vesselmetrics.model.ValidationStatus;
 import com.gmitaros.vesselmetrics.model.VesselData;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -11,6 +14,8 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
 
 @Repository
 public interface VesselDataRepository extends JpaRepository<VesselData, Long> {
@@ -21,8 +26,103 @@ public interface VesselDataRepository extends JpaRepository<VesselData, Long> {
 
     List<VesselData> findByVesselCodeAndValidationStatus(String vesselCode, ValidationStatus validationStatus);
 
-    @Query("SELECT COUNT(vd) > 0 FROM VesselData vd WHERE vd.vesselCode = :vesselCode")
-    boolean vesselExists(@Param("vesselCode") String vesselCode);
+    /**
+     * Reads a page of speed differences straight into DTOs: only their columns are selected, and no entity is
+     * created or tracked by the persistence context.
+     */
+    @Query(value = "SELECT new com.gmitaros.vesselmetrics.dto.SpeedDifferenceDTO(vd.dateTime, vd.latitude, vd.longitude, vd.speedDifference) " +
+            "FROM VesselData vd " +
+            "WHERE vd.vesselCode = :vesselCode AND vd.validationStatus = :validationStatus",
+            countQuery = "SELECT COUNT(vd) FROM VesselData vd " +
+                    "WHERE vd.vesselCode = :vesselCode AND vd.validationStatus = :validationStatus")
+    Page<SpeedDifferenceDTO> findSpeedDifferencesByVesselCodeAndValidationStatus(@Param("vesselCode") String vesselCode,
+                                                                                 @Param("validationStatus") ValidationStatus validationStatus,
+                                                                                 Pageable pageable);
+
+    /**
+     * Reads a page of the rows of a vessel within a time range straight into DTOs, like
+     * {@link #findSpeedDifferencesByVesselCodeAndValidationStatus(String, ValidationStatus, Pageable)}.
+     */
+    @Query(value = "SELECT new com.gmitaros.vesselmetrics.dto.VesselDataDTO(vd.vesselCode, vd.dateTime, vd.latitude, vd.longitude, " +
+            "vd.power, vd.fuelConsumption, vd.actualSpeedOverground, vd.proposedSpeedOverground, vd.predictedFuelConsumption, " +
+            "vd.speedDifference, vd.fuelEfficiency) " +
+            "FROM VesselData vd " +
+            "WHERE vd.vesselCode = :vesselCode AND vd.dateTime BETWEEN :start AND :end",
+            countQuery = "SELECT COUNT(vd) FROM VesselData vd " +
+                    "WHERE vd.vesselCode = :vesselCode AND vd.dateTime BETWEEN :start AND :end")
+    Page<VesselDataDTO> findMergedDataByVesselCodeAndDateTimeBetween(@Param("vesselCode") String vesselCode,
+                                                                     @Param("start") LocalDateTime start,
+                                                                     @Param("end") LocalDateTime end,
+                                                                     Pageable pageable);
+
+    List<VesselData> findByVesselCodeAndValidationStatusAndIdGreaterThanOrderByIdAsc(String vesselCode, ValidationStatus validationStatus, Long id, Limit limit);
+
+    List<VesselData> findByVesselCodeAndValidationStatusAndOutlierRunGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+            String vesselCode, ValidationStatus validationStatus, Long outlierRun, Long id, Limit limit);
+
+    /**
+     * Passes all rows of a vessel with the given status to the action, in batches in id order.
+     * Each batch is read with a seek on the last id of the previous one, so reading a batch costs the same at any
+     * point of the scan, no count query is needed, and rows the action moves to another status do not shift the
+     * rows that follow.
+     *
+     * @param vesselCode       the vessel
+     * @param validationStatus the status of the rows
+     * @param batchSize        the maximum number of rows per batch
+     * @param action           called with every batch
+     */
+    default void scanByVesselCodeAndValidationStatus(String vesselCode, ValidationStatus validationStatus, int batchSize,
+                                                     Consumer<List<VesselData>> action) {
+        scanByVesselCodeAndValidationStatus(vesselCode, validationStatus, 0, batchSize, action);
+    }
+
+    /**
+     * Like {@link #scanByVesselCodeAndValidationStatus(String, ValidationStatus, int, Consumer)}, but only passes the
+     * rows with an id above the given one.
+     *
+     * @param afterId the id after which the scan starts
+     */
+    default void scanByVesselCodeAndValidationStatus(String vesselCode, ValidationStatus validationStatus, long afterId,
+                                                     int batchSize, Consumer<List<VesselData>> action) {
+        scan(lastId -> findByVesselCodeAndValidationStatusAndIdGreaterThanOrderByIdAsc(vesselCode, validationStatus, lastId,
+                Limit.of(batchSize)), afterId, batchSize, action);
+    }
+
+    /**
+     * Like {@link #scanByVesselCodeAndValidationStatus(String, ValidationStatus, int, Consumer)}, but only passes the
+     * rows claimed by an outlier detection run from the given one on.
+     *
+     * @param fromRun the first run whose rows are passed
+     */
+    default void scanByVesselCodeAndValidationStatusFromOutlierRun(String vesselCode, ValidationStatus validationStatus,
+                                                                   long fromRun, int batchSize,
+                                                                   Consumer<List<VesselData>> action) {
+        scan(lastId -> findByVesselCodeAndValidationStatusAndOutlierRunGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+                vesselCode, validationStatus, fromRun, lastId, Limit.of(batchSize)), 0, batchSize, action);
+    }
+
+    private static void scan(LongFunction<List<VesselData>> batchAfter, long afterId, int batchSize,
+                             Consumer<List<VesselData>> action) {
+        long lastId = afterId;
+        List<VesselData> batch;
+        do {
+            batch = batchAfter.apply(lastId);
+            if (batch.isEmpty()) {
+                return;
+            }
+            lastId = batch.getLast().getId();
+            action.accept(batch);
+        } while (batch.size() == batchSize);
+    }
+
+    boolean existsByVesselCode(String vesselCode);
+
+    /**
+     * Whether the vessel has any rows. Stops at the first row found, instead of counting all rows of the vessel.
+     */
+    default boolean vesselExists(String vesselCode) {
+        return existsByVesselCode(vesselCode);
+    }
 
     @Query("SELECT DISTINCT vd.vesselCode FROM VesselData vd")
     List<String> findDistinctVesselCode();
@@ -0,0 +1,217 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.gmitaros.vesselmetrics.model.IngestJob;
+import com.gmitaros.vesselmetrics.model.IngestJobStatus;
+import com.gmitaros.vesselmetrics.parser.DataParser;
+import com.gmitaros.vesselmetrics.parser.impl.CsvParserService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Ingests the CSV files dropped into the directory set with {@code vessel.metrics.ingest.watch.directory}.
+ * <p>
+ * The directory is polled for {@code .csv}, {@code .csv.gz} and {@code .csv.zst} files. Compressed files are
+ * decompressed while they are streamed into the configured {@link DataParser}, so they are never written to disk
+ * uncompressed; plain files are handed over as a path, so the mapped parser can map them. At most
+ * {@code vessel.metrics.ingest.watch.concurrency} files are ingested at the same time.
+ * <p>
+ * Every file is a load in {@code ingest_jobs}, keyed by its path: completed files are skipped on later polls and
+ * after restarts, and a file whose ingest was interrupted by a restart resumes from its last checkpoint. A file
+ * that fails is not picked up again until the next start.
+ */
+@RequiredArgsConstructor
+@Service
+public class DirectoryIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectoryIngestService.class);
+    private static final List<String> EXTENSIONS = List.of(".csv", ".csv.gz", ".csv.zst");
+    private static final int DECOMPRESSION_BUFFER_SIZE = 64 * 1024;
+
+    @Value("${vessel.metrics.ingest.watch.directory:}")
+    private String watchDirectory;
+
+    @Value("${vessel.metrics.ingest.watch.concurrency:2}")
+    private int concurrency;
+
+    @Value("${vessel.metrics.ingest.watch.poll.interval.ms:10000}")
+    private long pollIntervalMs;
+
+    private final CsvParserService csvParserService;
+    private final IngestCheckpointService ingestCheckpointService;
+    private final OutlierDetectionService outlierDetectionService;
+
+    // Files queued or being ingested, and files that are done in this run, so polls do not hit the database for them
+    private final Set<Path> claimed = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean outlierDetectionPending = new AtomicBoolean();
+    private ScheduledExecutorService poller;
+    private ExecutorService fileExecutor;
+    private ExecutorService outlierExecutor;
+
+    /**
+     * Starts polling the directory once the application is ready, if a directory is configured.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWatching() {
+        if (watchDirectory.isBlank()) {
+            return;
+        }
+        Path directory = Path.of(watchDirectory);
+        if (!Files.isDirectory(directory)) {
+            log.error("Ingest directory {} does not exist, not watching it", directory);
+            return;
+        }
+        fileExecutor = Executors.newFixedThreadPool(concurrency, new CustomizableThreadFactory("ingest-file-"));
+        outlierExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("ingest-file-outliers-"));
+        poller = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("ingest-watch-"));
+        poller.scheduleWithFixedDelay(() -> poll(directory), 0, pollIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Watching {} for CSV files, ingesting up to {} at the same time", directory, concurrency);
+    }
+
+    @PreDestroy
+    void stopWatching() {
+        if (poller != null) {
+            poller.shutdownNow();
+            fileExecutor.shutdownNow();
+            outlierExecutor.shutdownNow();
+        }
+    }
+
+    private void poll(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(DirectoryIngestService::isCsvFile)
+                    .sorted()
+                    .forEach(this::submitIfNew);
+        } catch (Exception e) {
+            // An exception would cancel the scheduled polls, so it is only logged
+            log.error("Failed to list ingest directory {}", directory, e);
+        }
+    }
+
+    private void submitIfNew(Path file) {
+        try {
+            if (claimed.contains(file) || !isSettled(file)) {
+                return;
+            }
+            long size = Files.size(file);
+            boolean completed = ingestCheckpointService.findLoad(sourceId(file))
+                    .map(job -> job.getStatus() == IngestJobStatus.COMPLETED && job.getSourceSize() == size)
+                    .orElse(false);
+            if (claimed.add(file) && !completed) {
+                fileExecutor.execute(() -> ingest(file, size));
+            }
+        } catch (Exception e) {
+            log.error("Failed to check {}", file, e);
+        }
+    }
+
+    /**
+     * A file still being written must not be picked up; one that has not changed for a poll interval is
+     * taken as complete. Files should still be moved into the directory when done rather than written in place.
+     */
+    private boolean isSettled(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return attributes.isRegularFile()
+                && System.currentTimeMillis() - attributes.lastModifiedTime().toMillis() >= pollIntervalMs;
+    }
+
+    private void ingest(Path file, long size) {
+        long startTime = System.currentTimeMillis();
+        IngestJob job;
+        try {
+            job = ingestCheckpointService.startLoad(sourceId(file), size);
+        } catch (Exception e) {
+            log.error("Failed to start the ingest of {}", file, e);
+            return;
+        }
+        IngestProgress progress = ingestCheckpointService.progressOf(job);
+        DataParser parser = csvParserService.configuredParser();
+        log.info("Ingesting {}", file);
+        try {
+            if (file.getFileName().toString().endsWith(".csv")) {
+                parser.parseAndSave(file, progress);
+            } else {
+                try (InputStream inputStream = openDecompressed(file)) {
+                    parser.parseAndSave(inputStream, progress);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to ingest {}", file, e);
+            ingestCheckpointService.finishLoad(job, IngestJobStatus.FAILED);
+            return;
+        }
+        ingestCheckpointService.finishLoad(job, IngestJobStatus.COMPLETED);
+        log.info("Ingested {} rows of {} in {} ms", progress.getRowsWritten(), file, System.currentTimeMillis() - startTime);
+        scheduleOutlierDetection();
+    }
+
+    /**
+     * Opens a compressed CSV file as a stream of its decompressed bytes.
+     *
+     * @param file a {@code .csv.gz} or {@code .csv.zst} file
+     * @return the decompressed content
+     */
+    static InputStream openDecompressed(Path file) throws IOException {
+        InputStream compressed = new BufferedInputStream(Files.newInputStream(file), DECOMPRESSION_BUFFER_SIZE);
+        try {
+            if (file.getFileName().toString().endsWith(".gz")) {
+                return new GZIPInputStream(compressed, DECOMPRESSION_BUFFER_SIZE);
+            }
+            return new ZstdInputStream(compressed);
+        } catch (IOException | RuntimeException e) {
+            compressed.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Files finishing close together share one detection run: a run is only queued if none is waiting to start.
+     */
+    private void scheduleOutlierDetection() {
+        if (!outlierDetectionPending.compareAndSet(false, true)) {
+            return;
+        }
+        outlierExecutor.execute(() -> {
+            outlierDetectionPending.set(false);
+            try {
+                outlierDetectionService.detectAndStoreOutliers();
+            } catch (Exception e) {
+                log.error("Outlier detection after directory ingest failed", e);
+            }
+        });
+    }
+
+    private static boolean isCsvFile(Path file) {
+        String name = file.getFileName().toString();
+        return EXTENSIONS.stream().anyMatch(name::endsWith);
+    }
+
+    private static String sourceId(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+}
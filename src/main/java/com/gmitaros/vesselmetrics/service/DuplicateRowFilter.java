@@ -0,0 +1,216 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.model.VesselData;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gmitaros.vesselmetrics.util.LongBloomFilter;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Drops the rows of a batch that are already stored, before the batch is written.
+ * <p>
+ * Every vessel has a Bloom filter of the date-times stored for it, built from the database the first time the
+ * vessel is seen and kept up to date with the batches written since. Rows the filter has never seen are new
+ * for sure and are written without asking the database; only the rows the filter might have seen are looked up.
+ * Fresh data therefore rarely causes a lookup, and reloaded data is dropped before its rows and validation
+ * errors are sent to the database. The unique key on vessel code and date-time stays the guarantee against
+ * duplicates, for rows stored by other writers or other instances in the meantime.
+ * <p>
+ * The filters are kept in a Caffeine cache weighed by their size and bounded by
+ * {@code vessel.metrics.ingest.dedup.filter.memory.budget}; an evicted filter is built again when its vessel is
+ * written next. A filter is built by the first thread that needs it, outside of any lock of the cache, while other
+ * threads needing the same vessel wait for it. Vessels whose filter would not fit in the budget on its own are
+ * written without one.
+ * <p>
+ * Enabled with {@code vessel.metrics.ingest.dedup.filter.enabled}.
+ */
+@RequiredArgsConstructor
+@Service
+public class DuplicateRowFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(DuplicateRowFilter.class);
+    // Filters start with room for this many keys, and at least twice the keys stored when they are built
+    private static final long MIN_EXPECTED_KEYS = 64 * 1024;
+    private static final int LOOKUP_CHUNK_SIZE = 500;
+
+    @Value("${vessel.metrics.ingest.dedup.filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${vessel.metrics.ingest.dedup.filter.false.positive.rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${vessel.metrics.ingest.dedup.filter.memory.budget:64MB}")
+    private DataSize memoryBudget;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private Cache<String, LongBloomFilter> filters;
+    // Filters being built, so concurrent batches of a vessel wait for one build instead of scanning its rows again
+    private final Map<String, CompletableFuture<LongBloomFilter>> building = new ConcurrentHashMap<>();
+    private final Set<String> oversized = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void createFilterCache() {
+        filters = Caffeine.newBuilder()
+                .maximumWeight(memoryBudget.toBytes())
+                .weigher((String vesselCode, LongBloomFilter filter) -> (int) Math.min(Integer.MAX_VALUE, filter.getByteSize()))
+                .build();
+    }
+
+    /**
+     * Returns the rows of the batch whose vessel code and date-time are not stored yet, in batch order.
+     *
+     * @param batch the rows to write
+     * @return the rows to write without the ones already stored; the batch itself if the filter is disabled
+     */
+    public List<VesselData> removeStored(List<VesselData> batch) {
+        if (!enabled) {
+            return batch;
+        }
+        Map<String, List<VesselData>> candidates = new HashMap<>();
+        for (VesselData row : batch) {
+            if (row.getVesselCode() == null || row.getDateTime() == null) {
+                continue;
+            }
+            LongBloomFilter filter = filterOf(row.getVesselCode());
+            if (filter != null && filter.mightContain(key(row.getDateTime()))) {
+                candidates.computeIfAbsent(row.getVesselCode(), code -> new ArrayList<>()).add(row);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return batch;
+        }
+
+        Set<VesselData> stored = Collections.newSetFromMap(new IdentityHashMap<>());
+        candidates.forEach((vesselCode, rows) -> stored.addAll(findStored(vesselCode, rows)));
+        log.debug("{} of {} rows might be stored already, {} are", candidates.values().stream().mapToInt(List::size).sum(),
+                batch.size(), stored.size());
+        if (stored.isEmpty()) {
+            return batch;
+        }
+        List<VesselData> fresh = new ArrayList<>(batch.size() - stored.size());
+        for (VesselData row : batch) {
+            if (!stored.contains(row)) {
+                fresh.add(row);
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * Adds the keys of a written batch to the filters. Filters that hold more keys than they were sized for are
+     * dropped, to be built again larger from the database when their vessel is seen next.
+     *
+     * @param batch the rows that were written or found to be stored already
+     */
+    public void recordStored(List<VesselData> batch) {
+        if (!enabled) {
+            return;
+        }
+        for (VesselData row : batch) {
+            if (row.getVesselCode() == null || row.getDateTime() == null) {
+                continue;
+            }
+            LongBloomFilter filter = filters.getIfPresent(row.getVesselCode());
+            if (filter != null) {
+                filter.put(key(row.getDateTime()));
+                if (filter.isSaturated()) {
+                    filters.asMap().remove(row.getVesselCode(), filter);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the filter of the vessel, or null if the vessel is written without one
+     */
+    private LongBloomFilter filterOf(String vesselCode) {
+        LongBloomFilter filter = filters.getIfPresent(vesselCode);
+        if (filter != null || oversized.contains(vesselCode)) {
+            return filter;
+        }
+        CompletableFuture<LongBloomFilter> build = new CompletableFuture<>();
+        CompletableFuture<LongBloomFilter> running = building.putIfAbsent(vesselCode, build);
+        if (running != null) {
+            return running.join();
+        }
+        try {
+            // Another thread may have finished building it between the lookup and the claim
+            filter = filters.getIfPresent(vesselCode);
+            if (filter == null) {
+                filter = buildFilter(vesselCode);
+                if (filter != null) {
+                    filters.put(vesselCode, filter);
+                }
+            }
+            build.complete(filter);
+            return filter;
+        } catch (RuntimeException e) {
+            build.completeExceptionally(e);
+            throw e;
+        } finally {
+            building.remove(vesselCode, build);
+        }
+    }
+
+    private LongBloomFilter buildFilter(String vesselCode) {
+        Long storedRows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vessel_data WHERE vessel_code = ?", Long.class, vesselCode);
+        long rows = storedRows != null ? storedRows : 0;
+        long expectedKeys = Math.max(MIN_EXPECTED_KEYS, rows * 2);
+        if (LongBloomFilter.byteSize(expectedKeys, falsePositiveRate) > memoryBudget.toBytes()) {
+            log.info("Duplicate filter of vessel {} with {} stored rows would not fit in the memory budget, writing it without one",
+                    vesselCode, rows);
+            oversized.add(vesselCode);
+            return null;
+        }
+        LongBloomFilter filter = new LongBloomFilter(expectedKeys, falsePositiveRate);
+        jdbcTemplate.query("SELECT date_time FROM vessel_data WHERE vessel_code = ?",
+                rs -> {
+                    filter.put(key(rs.getTimestamp(1).toLocalDateTime()));
+                }, vesselCode);
+        log.info("Built duplicate filter of vessel {} from {} stored rows", vesselCode, filter.getKeyCount());
+        return filter;
+    }
+
+    private List<VesselData> findStored(String vesselCode, List<VesselData> rows) {
+        Set<LocalDateTime> storedDateTimes = new HashSet<>();
+        for (int from = 0; from < rows.size(); from += LOOKUP_CHUNK_SIZE) {
+            List<VesselData> chunk = rows.subList(from, Math.min(rows.size(), from + LOOKUP_CHUNK_SIZE));
+            List<Object> params = new ArrayList<>(chunk.size() + 1);
+            params.add(vesselCode);
+            chunk.forEach(row -> params.add(Timestamp.valueOf(row.getDateTime())));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.query("SELECT date_time FROM vessel_data WHERE vessel_code = ? AND date_time IN (" + placeholders + ")",
+                    rs -> {
+                        storedDateTimes.add(rs.getTimestamp(1).toLocalDateTime());
+                    }, params.toArray());
+        }
+        return rows.stream().filter(row -> storedDateTimes.contains(row.getDateTime())).toList();
+    }
+
+    private static long key(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + dateTime.getNano();
+    }
+
+}
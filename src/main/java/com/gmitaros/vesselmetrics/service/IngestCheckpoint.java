@@ -0,0 +1,17 @@
+package com.gmitaros.vesselmetrics.service;
+
+/**
+ * Position in a source up to which every record has been processed and every row has been committed.
+ *
+ * @param recordNumber the number of records read from the source, rejected ones included
+ * @param byteOffset   the byte offset in the source right after the last of those records, or -1 if the source
+ *                     does not know its byte position
+ * @param rowsWritten  the number of rows saved from those records
+ */
+public record IngestCheckpoint(long recordNumber, long byteOffset, long rowsWritten) {
+
+    public static final IngestCheckpoint START = new IngestCheckpoint(0, 0, 0);
+
+    public static final long UNKNOWN_OFFSET = -1;
+
+}
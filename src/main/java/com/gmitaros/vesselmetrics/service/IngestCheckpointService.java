@@ -0,0 +1,98 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.model.IngestJob;
+import com.gmitaros.vesselmetrics.model.IngestJobStatus;
+import com.gmitaros.vesselmetrics.repository.IngestJobRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Keeps the checkpoints of source loads in the {@code ingest_jobs} table, so a load interrupted by a failure or
+ * a restart continues from its last checkpoint instead of starting over.
+ */
+@RequiredArgsConstructor
+@Service
+public class IngestCheckpointService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestCheckpointService.class);
+
+    private final IngestJobRepository ingestJobRepository;
+
+    /**
+     * Finds the load of a source.
+     *
+     * @param sourceId the id of the source, such as its path
+     * @return the last load of the source, if it was ever loaded
+     */
+    public Optional<IngestJob> findLoad(String sourceId) {
+        return ingestJobRepository.findBySourceId(sourceId);
+    }
+
+    /**
+     * Starts loading a source. A previous load of the same source that did not complete is resumed from its
+     * checkpoint, unless the size of the source has changed since, in which case the load starts over.
+     *
+     * @param sourceId   the id of the source, such as its path
+     * @param sourceSize the size of the source in bytes
+     * @return the running load
+     */
+    @Transactional
+    public IngestJob startLoad(String sourceId, long sourceSize) {
+        LocalDateTime now = LocalDateTime.now();
+        IngestJob job = ingestJobRepository.findBySourceId(sourceId)
+                .orElseGet(() -> IngestJob.builder().sourceId(sourceId).build());
+
+        boolean interrupted = job.getId() != null && job.getStatus() != IngestJobStatus.COMPLETED && job.getRecordNumber() > 0;
+        if (interrupted && job.getSourceSize() == sourceSize) {
+            log.info("Resuming load of {} after record {} (byte offset {}, {} rows already written)",
+                    sourceId, job.getRecordNumber(), job.getByteOffset(), job.getRowsWritten());
+        } else {
+            if (interrupted) {
+                log.warn("Size of {} changed from {} to {} bytes since the interrupted load, loading it from the start",
+                        sourceId, job.getSourceSize(), sourceSize);
+            }
+            job.setByteOffset(0L);
+            job.setRecordNumber(0);
+            job.setRowsWritten(0);
+            job.setStartedAt(now);
+        }
+        job.setSourceSize(sourceSize);
+        job.setStatus(IngestJobStatus.RUNNING);
+        job.setUpdatedAt(now);
+        job.setFinishedAt(null);
+        return ingestJobRepository.save(job);
+    }
+
+    /**
+     * Creates the progress of a run of the given load: it resumes from the stored checkpoint and stores every new
+     * checkpoint of the run in the transaction of the batch that reaches it.
+     *
+     * @param job the running load
+     * @return the progress to pass to the parser
+     */
+    public IngestProgress progressOf(IngestJob job) {
+        IngestCheckpoint resumePoint = new IngestCheckpoint(job.getRecordNumber(),
+                job.getByteOffset() != null ? job.getByteOffset() : IngestCheckpoint.UNKNOWN_OFFSET,
+                job.getRowsWritten());
+        return new IngestProgress(resumePoint, checkpoint -> ingestJobRepository.updateCheckpoint(job.getId(),
+                checkpoint.byteOffset() != IngestCheckpoint.UNKNOWN_OFFSET ? checkpoint.byteOffset() : null,
+                checkpoint.recordNumber(), checkpoint.rowsWritten(), LocalDateTime.now()));
+    }
+
+    /**
+     * Marks a load as finished.
+     *
+     * @param job    the running load
+     * @param status {@link IngestJobStatus#COMPLETED}, or {@link IngestJobStatus#FAILED} to resume it next time
+     */
+    public void finishLoad(IngestJob job, IngestJobStatus status) {
+        ingestJobRepository.finish(job.getId(), status, LocalDateTime.now());
+    }
+
+}
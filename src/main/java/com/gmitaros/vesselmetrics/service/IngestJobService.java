@@ -0,0 +1,228 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.dto.IngestJobDTO;
+import com.gmitaros.vesselmetrics.exception.IngestJobNotFoundException;
+import com.gmitaros.vesselmetrics.model.IngestJobStatus;
+import com.gmitaros.vesselmetrics.parser.DataParser;
+import com.gmitaros.vesselmetrics.parser.impl.CsvParserService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs ingest jobs for CSV data pushed to a running instance and keeps track of their progress.
+ * <p>
+ * The CSV data of a job is first copied to a spool file on the calling thread, so the request that carries it
+ * completes as usual once it has been read. Jobs then run in the background on a pool of
+ * {@code vessel.metrics.ingest.jobs.concurrency} threads, each one parsing its spool file with the configured
+ * {@link DataParser} and deleting it when done. When the rows of a job are saved, outlier
+ * detection is scheduled on a single thread, so detection runs of jobs finishing at the same time do not overlap.
+ * Jobs are kept in memory only; the most recent finished jobs stay available for status requests.
+ */
+@RequiredArgsConstructor
+@Service
+public class IngestJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestJobService.class);
+    private static final int MAX_FINISHED_JOBS = 100;
+
+    @Value("${vessel.metrics.ingest.jobs.concurrency:2}")
+    private int jobConcurrency;
+
+    @Value("${vessel.metrics.ingest.spool.directory:}")
+    private String spoolDirectory;
+
+    private final CsvParserService csvParserService;
+    private final OutlierDetectionService outlierDetectionService;
+
+    private final Map<String, IngestJob> jobs = new ConcurrentHashMap<>();
+    private ExecutorService jobExecutor;
+    private ExecutorService outlierExecutor;
+
+    @PostConstruct
+    void startExecutors() {
+        jobExecutor = Executors.newFixedThreadPool(jobConcurrency, new CustomizableThreadFactory("ingest-job-"));
+        outlierExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("ingest-outliers-"));
+    }
+
+    @PreDestroy
+    void stopExecutors() {
+        jobExecutor.shutdownNow();
+        outlierExecutor.shutdownNow();
+    }
+
+    /**
+     * Submits a job that parses and saves the CSV data of the given stream. The stream is copied to a spool file
+     * before the method returns, and the file is parsed on a job thread.
+     *
+     * @param inputStream the CSV data; it is read until its end and not closed
+     * @return the state of the new job
+     * @throws IOException if the stream cannot be read or the spool file cannot be written
+     */
+    public IngestJobDTO submit(InputStream inputStream) throws IOException {
+        Path spoolFile = spool(inputStream);
+        IngestJob job = new IngestJob(UUID.randomUUID().toString());
+        jobs.put(job.id, job);
+        evictFinishedJobs();
+        try {
+            jobExecutor.execute(() -> run(job, spoolFile));
+        } catch (RuntimeException e) {
+            jobs.remove(job.id);
+            deleteSpoolFile(spoolFile);
+            throw e;
+        }
+        log.info("Ingest job {} submitted", job.id);
+        return job.toDTO();
+    }
+
+    /**
+     * Returns the current state of a job.
+     *
+     * @param jobId the id of the job
+     * @return the state of the job
+     * @throws IngestJobNotFoundException if there is no such job
+     */
+    public IngestJobDTO getJob(String jobId) {
+        IngestJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new IngestJobNotFoundException("Ingest job " + jobId + " was not found");
+        }
+        return job.toDTO();
+    }
+
+    private Path spool(InputStream inputStream) throws IOException {
+        Path spoolFile = spoolDirectory.isBlank()
+                ? Files.createTempFile("ingest-", ".csv")
+                : Files.createTempFile(Path.of(spoolDirectory), "ingest-", ".csv");
+        try {
+            Files.copy(inputStream, spoolFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            deleteSpoolFile(spoolFile);
+            throw e;
+        }
+        return spoolFile;
+    }
+
+    private void run(IngestJob job, Path spoolFile) {
+        job.start();
+        log.info("Ingest job {} started", job.id);
+        try {
+            csvParserService.configuredParser().parseAndSave(spoolFile, job.progress);
+        } catch (Exception e) {
+            log.error("Ingest job {} failed", job.id, e);
+            job.finish(IngestJobStatus.FAILED, e.getMessage());
+            return;
+        } finally {
+            deleteSpoolFile(spoolFile);
+        }
+        log.info("Ingest job {} saved {} rows, scheduling outlier detection", job.id, job.progress.getRowsWritten());
+        job.rowsSaved();
+        outlierExecutor.execute(() -> detectOutliers(job));
+    }
+
+    private void deleteSpoolFile(Path spoolFile) {
+        try {
+            Files.deleteIfExists(spoolFile);
+        } catch (IOException e) {
+            log.warn("Could not delete spool file {}", spoolFile, e);
+        }
+    }
+
+    private void detectOutliers(IngestJob job) {
+        try {
+            outlierDetectionService.detectAndStoreOutliers();
+            job.finish(IngestJobStatus.COMPLETED, null);
+            log.info("Ingest job {} completed", job.id);
+        } catch (Exception e) {
+            log.error("Outlier detection of ingest job {} failed", job.id, e);
+            job.finish(IngestJobStatus.FAILED, "Outlier detection failed: " + e.getMessage());
+        }
+    }
+
+    private void evictFinishedJobs() {
+        if (jobs.size() <= MAX_FINISHED_JOBS) {
+            return;
+        }
+        jobs.values().stream()
+                .filter(job -> job.finishedAt != null)
+                .sorted(Comparator.comparing((IngestJob job) -> job.finishedAt).reversed())
+                .skip(MAX_FINISHED_JOBS)
+                .forEach(job -> jobs.remove(job.id));
+    }
+
+    /**
+     * State of one ingest job. The status and timestamps are written by the job threads and read by status requests.
+     */
+    private static final class IngestJob {
+
+        private final String id;
+        private final IngestProgress progress = new IngestProgress();
+        private volatile IngestJobStatus status = IngestJobStatus.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile long startNanos;
+        private volatile long endNanos;
+        private volatile LocalDateTime finishedAt;
+        private volatile String errorMessage;
+
+        private IngestJob(String id) {
+            this.id = id;
+        }
+
+        private void start() {
+            startNanos = System.nanoTime();
+            startedAt = LocalDateTime.now();
+            status = IngestJobStatus.RUNNING;
+        }
+
+        private void rowsSaved() {
+            endNanos = System.nanoTime();
+            status = IngestJobStatus.DETECTING_OUTLIERS;
+        }
+
+        private void finish(IngestJobStatus finalStatus, String error) {
+            if (endNanos == 0) {
+                endNanos = System.nanoTime();
+            }
+            errorMessage = error;
+            finishedAt = LocalDateTime.now();
+            status = finalStatus;
+        }
+
+        private IngestJobDTO toDTO() {
+            return new IngestJobDTO(id, status, progress.getRowsParsed(), progress.getRowsWritten(),
+                    progress.getRowsRejected(), progress.getRowsDuplicate(), rowsPerSecond(), startedAt, finishedAt,
+                    errorMessage);
+        }
+
+        /**
+         * Rows parsed per second while the job was reading its input; outlier detection is not included.
+         */
+        private double rowsPerSecond() {
+            if (startedAt == null) {
+                return 0;
+            }
+            long end = endNanos != 0 ? endNanos : System.nanoTime();
+            double seconds = (end - startNanos) / 1_000_000_000.0;
+            return seconds > 0 ? progress.getRowsParsed() / seconds : 0;
+        }
+    }
+
+}
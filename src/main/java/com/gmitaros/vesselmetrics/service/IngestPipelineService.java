@@ -0,0 +1,697 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.model.VesselData;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs the ingest stages (mapping, validation, metrics calculation and saving) over the records of a source.
+ * <p>
+ * In sequential mode every stage runs on the calling thread, one record after the other.
+ * In pipelined mode the calling thread only reads records, a pool of workers maps, validates and calculates
+ * metrics, and a pool of writers saves the batches. The stages are connected by bounded queues, so a slow
+ * stage blocks the stages in front of it instead of letting the heap fill up.
+ */
+@RequiredArgsConstructor
+@Service
+public class IngestPipelineService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestPipelineService.class);
+    private static final int LOG_INTERVAL = 1000;
+    private static final long POLL_INTERVAL_MS = 100;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
+    private int batchSize;
+
+    @Value("${vessel.metrics.ingest.pipeline.enabled:false}")
+    private boolean pipelineEnabled;
+
+    @Value("${vessel.metrics.ingest.pipeline.workers:4}")
+    private int workerCount;
+
+    @Value("${vessel.metrics.ingest.pipeline.writers:2}")
+    private int writerCount;
+
+    @Value("${vessel.metrics.ingest.pipeline.queue.size:8}")
+    private int queueSize;
+
+    private final ValidationService validationService;
+    private final MetricsCalculationService metricsCalculationService;
+    private final VesselDataWriter vesselDataWriter;
+    private final DuplicateRowFilter duplicateRowFilter;
+    private final RollingStatisticsService rollingStatisticsService;
+    private final PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void createTransactionTemplate() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * A source of records that pushes every record it reads to the given sink.
+     *
+     * @param <T> the type of the source records
+     */
+    @FunctionalInterface
+    public interface RecordSource<T> {
+
+        void forEach(Consumer<? super T> sink) throws Exception;
+
+        /**
+         * Returns the byte offset right after the last record passed to the sink. Only called from the thread
+         * running {@link #forEach}, while the sink is handling a record or once {@link #forEach} has returned.
+         *
+         * @return the byte offset, or {@link IngestCheckpoint#UNKNOWN_OFFSET} if the source does not track it
+         */
+        default long position() {
+            return IngestCheckpoint.UNKNOWN_OFFSET;
+        }
+
+        /**
+         * Returns a source that drops the first records of this one, for resuming sources that cannot seek.
+         *
+         * @param count the number of records to drop
+         * @return the source without its first {@code count} records
+         */
+        default RecordSource<T> skipFirst(long count) {
+            if (count <= 0) {
+                return this;
+            }
+            RecordSource<T> source = this;
+            return new RecordSource<>() {
+                @Override
+                public void forEach(Consumer<? super T> sink) throws Exception {
+                    long[] skipped = {0};
+                    source.forEach(record -> {
+                        if (skipped[0] < count) {
+                            skipped[0]++;
+                        } else {
+                            sink.accept(record);
+                        }
+                    });
+                }
+
+                @Override
+                public long position() {
+                    return source.position();
+                }
+            };
+        }
+    }
+
+    /**
+     * Reads all records of the source, maps them to {@link VesselData}, validates them, calculates their metrics
+     * and saves them in batches.
+     *
+     * @param source the source of the records
+     * @param mapper maps a record to {@link VesselData}, returning null for records that cannot be mapped
+     * @param <T>    the type of the source records
+     * @return the number of records processed
+     */
+    public <T> long ingest(RecordSource<T> source, Function<T, VesselData> mapper) {
+        return ingest(source, mapper, new IngestProgress());
+    }
+
+    /**
+     * Same as {@link #ingest(RecordSource, Function)}, reporting the rows parsed, written and rejected to the
+     * given progress while the records are processed. Every batch is committed on its own. When a batch is the
+     * last one missing before a record, the checkpoint for that record is passed to the progress within the
+     * transaction of the batch, so a listener storing it commits it together with the rows it covers.
+     * <p>
+     * The source must already be positioned at the resume point of the progress, the records it delivers are
+     * numbered from there.
+     *
+     * @param source   the source of the records
+     * @param mapper   maps a record to {@link VesselData}, returning null for records that cannot be mapped
+     * @param progress receives the counts and checkpoints of the run
+     * @param <T>      the type of the source records
+     * @return the number of records processed
+     */
+    public <T> long ingest(RecordSource<T> source, Function<T, VesselData> mapper, IngestProgress progress) {
+        if (pipelineEnabled) {
+            return ingestPipelined(source, mapper, progress);
+        }
+        return ingestSequential(source, mapper, progress);
+    }
+
+    private <T> long ingestSequential(RecordSource<T> source, Function<T, VesselData> mapper, IngestProgress progress) {
+        List<VesselData> batch = new ArrayList<>();
+        AtomicLong totalRecordsProcessed = new AtomicLong();
+        AtomicLong recordsInBatch = new AtomicLong();
+        CheckpointTracker checkpoints = new CheckpointTracker(progress);
+
+        try {
+            source.forEach(record -> {
+                recordsInBatch.incrementAndGet();
+                progress.addParsed(1);
+                VesselData data = process(mapper, record);
+                if (data == null) {
+                    progress.addRejected(1);
+                    return;
+                }
+                batch.add(data);
+                long count = totalRecordsProcessed.incrementAndGet();
+
+                if (count % LOG_INTERVAL == 0) {
+                    log.info("Processed {} records so far...", count);
+                }
+
+                if (batch.size() >= batchSize) {
+                    write(batch, progress, checkpoints, new BatchEnd(checkpoints.nextSequence(), recordsInBatch.getAndSet(0), source.position()));
+                    batch.clear();
+                }
+            });
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to read records", e);
+        }
+
+        // Also checkpoints the records rejected after the last full batch
+        write(batch, progress, checkpoints, new BatchEnd(checkpoints.nextSequence(), recordsInBatch.get(), source.position()));
+        return totalRecordsProcessed.get();
+    }
+
+    private void write(List<VesselData> batch, IngestProgress progress, CheckpointTracker checkpoints, BatchEnd end) {
+        save(new ArrayList<>(batch), progress, checkpoints.commitOf(end));
+    }
+
+    /**
+     * Saves the rows of a batch that are not stored yet, after scoring them against their rolling windows, adds
+     * them to the windows once committed, and counts the written and the duplicate rows. The checkpoint the batch completes, if any, is passed to
+     * the progress in the same transaction; an empty batch still commits its checkpoint.
+     */
+    private void save(List<VesselData> batch, IngestProgress progress, BatchCommit commit) {
+        List<VesselData> fresh = batch.isEmpty() ? batch : duplicateRowFilter.removeStored(batch);
+        rollingStatisticsService.score(fresh);
+        int inserted = transactionTemplate.execute(status -> {
+            int rows = fresh.isEmpty() ? 0 : vesselDataWriter.saveVesselDataBatch(fresh);
+            IngestCheckpoint checkpoint = commit.checkpointOnCommit(rows);
+            if (checkpoint != null) {
+                progress.checkpoint(checkpoint);
+            }
+            return rows;
+        });
+        commit.committed(inserted);
+        duplicateRowFilter.recordStored(batch);
+        rollingStatisticsService.record(fresh);
+        progress.addWritten(inserted);
+        progress.addDuplicate(batch.size() - inserted);
+    }
+
+    private <T> long ingestPipelined(RecordSource<T> source, Function<T, VesselData> mapper, IngestProgress progress) {
+        log.info("Starting pipelined ingest with {} workers, {} writers and queues of {} batches",
+                workerCount, writerCount, queueSize);
+        Pipeline<T> pipeline = new Pipeline<>(mapper, progress);
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount + writerCount,
+                new CustomizableThreadFactory("ingest-pipeline-"));
+        List<Future<?>> stages = new ArrayList<>();
+        try {
+            for (int i = 0; i < workerCount; i++) {
+                stages.add(executor.submit(pipeline::runWorker));
+            }
+            for (int i = 0; i < writerCount; i++) {
+                stages.add(executor.submit(pipeline::runWriter));
+            }
+            pipeline.read(source);
+            for (Future<?> stage : stages) {
+                stage.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pipeline.fail(e);
+        } catch (Exception e) {
+            pipeline.fail(e);
+        } finally {
+            shutdown(executor);
+        }
+
+        Throwable failure = pipeline.failure.get();
+        if (failure != null) {
+            throw new RuntimeException("Pipelined ingest failed", failure);
+        }
+        return pipeline.totalRecordsProcessed.get();
+    }
+
+    /**
+     * Same as {@link #ingest(RecordSource, Function, IngestProgress)} for a source split into consecutive ranges
+     * that can be read independently, such as line-aligned byte ranges of one file. Every range is read, mapped,
+     * validated and calculated on its own fork-join worker, without the single reader thread and the worker
+     * queue of the pipelined mode; the batches of all ranges go to the writers through one bounded queue.
+     * A checkpoint moves past a range once the range is read and all its batches are committed.
+     *
+     * @param ranges      the ranges in source order; the position of a range once it is read is where it ends
+     * @param mapper      maps a record to {@link VesselData}, returning null for records that cannot be mapped
+     * @param progress    receives the counts and checkpoints of the run
+     * @param parallelism the number of ranges read at the same time
+     * @param <T>         the type of the source records
+     * @return the number of records processed
+     */
+    public <T> long ingestRanges(List<? extends RecordSource<T>> ranges, Function<T, VesselData> mapper,
+                                 IngestProgress progress, int parallelism) {
+        log.info("Starting split ingest of {} ranges with {} readers, {} writers and a queue of {} batches",
+                ranges.size(), parallelism, writerCount, queueSize);
+        Pipeline<T> pipeline = new Pipeline<>(mapper, progress);
+        ForkJoinPool readers = new ForkJoinPool(parallelism);
+        ExecutorService writers = Executors.newFixedThreadPool(writerCount, new CustomizableThreadFactory("ingest-pipeline-"));
+        List<Future<?>> stages = new ArrayList<>();
+        try {
+            for (int i = 0; i < writerCount; i++) {
+                stages.add(writers.submit(pipeline::runWriter));
+            }
+            List<Future<?>> rangeReads = new ArrayList<>();
+            for (RecordSource<T> range : ranges) {
+                long sequence = pipeline.checkpoints.nextSequence();
+                rangeReads.add(readers.submit(() -> pipeline.readRange(range, sequence)));
+            }
+            for (Future<?> rangeRead : rangeReads) {
+                rangeRead.get();
+            }
+            pipeline.endBatches();
+            for (Future<?> stage : stages) {
+                stage.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pipeline.fail(e);
+        } catch (Exception e) {
+            pipeline.fail(e);
+        } finally {
+            shutdown(readers);
+            shutdown(writers);
+        }
+
+        Throwable failure = pipeline.failure.get();
+        if (failure != null) {
+            throw new RuntimeException("Split ingest failed", failure);
+        }
+        return pipeline.totalRecordsProcessed.get();
+    }
+
+    private void shutdown(ExecutorService executor) {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("Ingest pipeline stages did not stop within one minute");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> VesselData process(Function<T, VesselData> mapper, T record) {
+        VesselData data = mapper.apply(record);
+        if (data != null) {
+            validationService.validate(data);
+            metricsCalculationService.calculateMetrics(data);
+        }
+        return data;
+    }
+
+    /**
+     * Where a batch ends in the source.
+     *
+     * @param sequence the number of the batch within the run, starting at 0
+     * @param records  the number of records of the batch, rejected ones included
+     * @param position the byte offset of the end of the batch, or {@link IngestCheckpoint#UNKNOWN_OFFSET}
+     */
+    private record BatchEnd(long sequence, long records, long position) {
+    }
+
+    /**
+     * Tells the checkpoints about the commit of one batch.
+     */
+    private interface BatchCommit {
+
+        /**
+         * Called within the transaction of the batch, before it commits.
+         *
+         * @param rows the number of rows the batch inserted
+         * @return the checkpoint that is reached once the batch commits, or null if batches before it are still
+         * uncommitted
+         */
+        IngestCheckpoint checkpointOnCommit(long rows);
+
+        /**
+         * Called once the transaction of the batch has committed.
+         *
+         * @param rows the number of rows the batch inserted
+         */
+        void committed(long rows);
+    }
+
+    /**
+     * A batch travelling through the pipeline queues, with the commit the writer reports it to.
+     */
+    private record Chunk<E>(List<E> items, BatchCommit commit) {
+    }
+
+    /**
+     * Turns committed batches into checkpoints. Batches saved by concurrent writers can commit out of order,
+     * so a checkpoint only moves past a batch once every batch before it has committed as well. The checkpoint
+     * is stored by the transaction of the batch that completes it; a batch that commits before one in front of
+     * it leaves its checkpoint to the next transaction, which covers it too.
+     * A crash can therefore make a resumed run save again the batches committed after the last checkpoint.
+     */
+    private static final class CheckpointTracker {
+
+        private final IngestProgress progress;
+        private final IngestCheckpoint start;
+        private final Map<Long, BatchEnd> committedAhead = new HashMap<>();
+        private final Map<Long, Long> rowsAhead = new HashMap<>();
+        private long sequence;
+        private long nextToCommit;
+        private long recordsRead;
+        private long rowsWritten;
+
+        private CheckpointTracker(IngestProgress progress) {
+            this.progress = progress;
+            this.start = progress.getResumePoint();
+        }
+
+        /**
+         * @return the sequence number of the next batch; only called by the reading thread
+         */
+        private long nextSequence() {
+            return sequence++;
+        }
+
+        private BatchCommit commitOf(BatchEnd end) {
+            return new BatchCommit() {
+                @Override
+                public IngestCheckpoint checkpointOnCommit(long rows) {
+                    return checkpointIfCommitted(end, rows);
+                }
+
+                @Override
+                public void committed(long rows) {
+                    CheckpointTracker.this.committed(end, rows);
+                }
+            };
+        }
+
+        /**
+         * @return the checkpoint reached once the given batch commits as well, or null if a batch before it has
+         * not committed yet
+         */
+        private synchronized IngestCheckpoint checkpointIfCommitted(BatchEnd end, long rows) {
+            long records = recordsRead;
+            long written = rowsWritten;
+            BatchEnd last = null;
+            for (long next = nextToCommit; ; next++) {
+                BatchEnd batch = next == end.sequence() ? end : committedAhead.get(next);
+                if (batch == null) {
+                    break;
+                }
+                records += batch.records();
+                written += next == end.sequence() ? rows : rowsAhead.get(next);
+                last = batch;
+            }
+            if (last == null) {
+                return null;
+            }
+            return new IngestCheckpoint(start.recordNumber() + records, last.position(), start.rowsWritten() + written);
+        }
+
+        private synchronized void committed(BatchEnd end, long rows) {
+            committedAhead.put(end.sequence(), end);
+            rowsAhead.put(end.sequence(), rows);
+            while (committedAhead.containsKey(nextToCommit)) {
+                recordsRead += committedAhead.remove(nextToCommit).records();
+                rowsWritten += rowsAhead.remove(nextToCommit);
+                nextToCommit++;
+            }
+        }
+    }
+
+    /**
+     * State shared by the stages of one pipelined ingest run.
+     */
+    private class Pipeline<T> {
+
+        // Identity-compared marker telling a stage that no more batches will arrive
+        private final Chunk<T> endOfRecords = new Chunk<>(List.of(), null);
+        private final Chunk<VesselData> endOfBatches = new Chunk<>(List.of(), null);
+
+        private final BlockingQueue<Chunk<T>> recordQueue = new ArrayBlockingQueue<>(queueSize);
+        private final BlockingQueue<Chunk<VesselData>> batchQueue = new ArrayBlockingQueue<>(queueSize);
+        private final AtomicInteger runningWorkers = new AtomicInteger(workerCount);
+        private final AtomicLong totalRecordsProcessed = new AtomicLong();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final Function<T, VesselData> mapper;
+        private final IngestProgress progress;
+        private final CheckpointTracker checkpoints;
+
+        private Pipeline(Function<T, VesselData> mapper, IngestProgress progress) {
+            this.mapper = mapper;
+            this.progress = progress;
+            this.checkpoints = new CheckpointTracker(progress);
+        }
+
+        private void read(RecordSource<T> source) throws Exception {
+            List<T> chunk = new ArrayList<>(batchSize);
+            source.forEach(record -> {
+                chunk.add(record);
+                if (chunk.size() >= batchSize) {
+                    put(recordQueue, toChunk(new ArrayList<>(chunk), source));
+                    chunk.clear();
+                }
+            });
+            if (!chunk.isEmpty()) {
+                put(recordQueue, toChunk(chunk, source));
+            }
+            for (int i = 0; i < workerCount; i++) {
+                put(recordQueue, endOfRecords);
+            }
+        }
+
+        private Chunk<T> toChunk(List<T> records, RecordSource<T> source) {
+            BatchEnd end = new BatchEnd(checkpoints.nextSequence(), records.size(), source.position());
+            return new Chunk<>(records, checkpoints.commitOf(end));
+        }
+
+        private void runWorker() {
+            try {
+                Chunk<T> chunk;
+                while ((chunk = take(recordQueue)) != endOfRecords) {
+                    List<VesselData> batch = new ArrayList<>(chunk.items().size());
+                    for (T record : chunk.items()) {
+                        VesselData data = process(mapper, record);
+                        if (data != null) {
+                            batch.add(data);
+                        }
+                    }
+                    progress.addParsed(chunk.items().size());
+                    progress.addRejected(chunk.items().size() - batch.size());
+                    logProgress(totalRecordsProcessed.getAndAdd(batch.size()), batch.size());
+                    // Empty batches are passed on as well, the checkpoints need every sequence number
+                    put(batchQueue, new Chunk<>(batch, chunk.commit()));
+                }
+                if (runningWorkers.decrementAndGet() == 0) {
+                    endBatches();
+                }
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+
+        private void endBatches() {
+            for (int i = 0; i < writerCount; i++) {
+                put(batchQueue, endOfBatches);
+            }
+        }
+
+        /**
+         * Reads one range of a split source and processes its records on the calling thread, handing full
+         * batches to the writers.
+         */
+        private void readRange(RecordSource<T> range, long sequence) {
+            RangeCommits commits = new RangeCommits(sequence);
+            List<T> records = new ArrayList<>(batchSize);
+            long[] recordCount = {0};
+            try {
+                range.forEach(record -> {
+                    records.add(record);
+                    recordCount[0]++;
+                    if (records.size() >= batchSize) {
+                        queueRangeBatch(processRangeBatch(records), commits);
+                        records.clear();
+                    }
+                });
+                // The range is complete before its last batch is queued, so that batch can store its checkpoint
+                List<VesselData> lastBatch = processRangeBatch(records);
+                if (!lastBatch.isEmpty()) {
+                    commits.batchQueued();
+                }
+                commits.rangeRead(recordCount[0], range.position());
+                if (!lastBatch.isEmpty()) {
+                    put(batchQueue, new Chunk<>(lastBatch, commits));
+                }
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+
+        private void queueRangeBatch(List<VesselData> batch, RangeCommits commits) {
+            if (!batch.isEmpty()) {
+                commits.batchQueued();
+                put(batchQueue, new Chunk<>(batch, commits));
+            }
+        }
+
+        private List<VesselData> processRangeBatch(List<T> records) {
+            List<VesselData> batch = new ArrayList<>(records.size());
+            for (T record : records) {
+                VesselData data = process(mapper, record);
+                if (data != null) {
+                    batch.add(data);
+                }
+            }
+            progress.addParsed(records.size());
+            progress.addRejected(records.size() - batch.size());
+            logProgress(totalRecordsProcessed.getAndAdd(batch.size()), batch.size());
+            return batch;
+        }
+
+        private void runWriter() {
+            try {
+                Chunk<VesselData> batch;
+                while ((batch = take(batchQueue)) != endOfBatches) {
+                    save(batch.items(), progress, batch.commit());
+                }
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * Counts the batches of one range that are not committed yet. The range is reported to the checkpoints
+         * once it is read and all its batches are committed, by the transaction of its last batch to commit if
+         * possible.
+         */
+        private final class RangeCommits implements BatchCommit {
+
+            private final long sequence;
+            private int pending;
+            private boolean read;
+            private long rows;
+            private long records;
+            private long end;
+
+            private RangeCommits(long sequence) {
+                this.sequence = sequence;
+            }
+
+            private synchronized void batchQueued() {
+                pending++;
+            }
+
+            @Override
+            public synchronized IngestCheckpoint checkpointOnCommit(long rowCount) {
+                return read && pending == 1 ? checkpoints.checkpointIfCommitted(rangeEnd(), rows + rowCount) : null;
+            }
+
+            @Override
+            public void committed(long rowCount) {
+                long rangeRows;
+                synchronized (this) {
+                    rows += rowCount;
+                    if (--pending > 0 || !read) {
+                        return;
+                    }
+                    rangeRows = rows;
+                }
+                checkpoints.committed(rangeEnd(), rangeRows);
+            }
+
+            private void rangeRead(long recordCount, long rangeEnd) {
+                long rangeRows;
+                synchronized (this) {
+                    records = recordCount;
+                    end = rangeEnd;
+                    read = true;
+                    if (pending > 0) {
+                        return;
+                    }
+                    rangeRows = rows;
+                }
+                // No batch of the range is left to store the checkpoint, the next transaction does
+                checkpoints.committed(rangeEnd(), rangeRows);
+            }
+
+            private synchronized BatchEnd rangeEnd() {
+                return new BatchEnd(sequence, records, end);
+            }
+        }
+
+        private void logProgress(long before, int added) {
+            long after = before + added;
+            if (before / LOG_INTERVAL != after / LOG_INTERVAL) {
+                log.info("Processed {} records so far...", after);
+            }
+        }
+
+        private void fail(Throwable e) {
+            if (failure.compareAndSet(null, e)) {
+                log.error("Ingest pipeline stage failed, stopping all stages", e);
+            }
+        }
+
+        private <E> void put(BlockingQueue<E> queue, E item) {
+            try {
+                while (!queue.offer(item, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                    abortIfFailed();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the next stage", e);
+            }
+        }
+
+        private <E> E take(BlockingQueue<E> queue) {
+            try {
+                E item;
+                while ((item = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) == null) {
+                    abortIfFailed();
+                }
+                return item;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the previous stage", e);
+            }
+        }
+
+        private void abortIfFailed() {
+            if (failure.get() != null) {
+                throw new IllegalStateException("Aborting stage because another stage failed");
+            }
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.gmitaros.vesselmetrics.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Counters of one ingest run, updated by the {@link IngestPipelineService} stages while the run is in progress
+ * and safe to read from any thread.
+ * <p>
+ * A run can also continue an earlier one: it then starts at the given resume point, and every time a new
+ * {@link IngestCheckpoint} is reached it is passed to the checkpoint listener. The counters only cover the
+ * records of this run, the checkpoints count from the start of the source.
+ */
+public class IngestProgress {
+
+    private final AtomicLong rowsParsed = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong rowsRejected = new AtomicLong();
+    private final AtomicLong rowsDuplicate = new AtomicLong();
+    private final IngestCheckpoint resumePoint;
+    private final Consumer<IngestCheckpoint> checkpointListener;
+
+    public IngestProgress() {
+        this(IngestCheckpoint.START, checkpoint -> {
+        });
+    }
+
+    /**
+     * @param resumePoint        the checkpoint of an earlier run to continue from, or {@link IngestCheckpoint#START}
+     * @param checkpointListener called with every new checkpoint, within the transaction that commits the last
+     *                           rows it covers
+     */
+    public IngestProgress(IngestCheckpoint resumePoint, Consumer<IngestCheckpoint> checkpointListener) {
+        this.resumePoint = resumePoint;
+        this.checkpointListener = checkpointListener;
+    }
+
+    /**
+     * @return the number of records read from the source, including the rejected ones
+     */
+    public long getRowsParsed() {
+        return rowsParsed.get();
+    }
+
+    /**
+     * @return the number of rows saved to the database, not counting the duplicates of stored rows
+     */
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    /**
+     * @return the number of records that could not be mapped to vessel data and were dropped
+     */
+    public long getRowsRejected() {
+        return rowsRejected.get();
+    }
+
+    /**
+     * @return the number of rows skipped because a row with the same vessel code and date-time is stored already
+     */
+    public long getRowsDuplicate() {
+        return rowsDuplicate.get();
+    }
+
+    /**
+     * @return the checkpoint this run starts from; parsers skip the records it covers
+     */
+    public IngestCheckpoint getResumePoint() {
+        return resumePoint;
+    }
+
+    void addParsed(long count) {
+        rowsParsed.addAndGet(count);
+    }
+
+    void addWritten(long count) {
+        rowsWritten.addAndGet(count);
+    }
+
+    void addRejected(long count) {
+        rowsRejected.addAndGet(count);
+    }
+
+    void addDuplicate(long count) {
+        rowsDuplicate.addAndGet(count);
+    }
+
+    void checkpoint(IngestCheckpoint checkpoint) {
+        checkpointListener.accept(checkpoint);
+    }
+
+}
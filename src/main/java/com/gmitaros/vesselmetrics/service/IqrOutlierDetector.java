@@ -0,0 +1,67 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.tdunning.math.stats.TDigest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link OutlierDetector} that flags values outside Tukey's fences: more than
+ * {@code vessel.metrics.outlier.iqr.multiplier} interquartile ranges below the first or above the third quartile.
+ * <p>
+ * A metric whose quartiles are both zero, because at least half of its values are zero (such as the power of a
+ * vessel idling most of the time), gets its fences from the quartiles of its non-zero values instead, and zero itself
+ * is never flagged. Any other metric whose interquartile range is zero has no spread to compare with, and none of its
+ * values are flagged.
+ */
+@Component
+@ConditionalOnProperty(name = "vessel.metrics.outlier.detector", havingValue = "iqr")
+public class IqrOutlierDetector extends QuantileSketchOutlierDetector {
+
+    @Value("${vessel.metrics.outlier.iqr.multiplier:1.5}")
+    private double multiplier;
+
+    public IqrOutlierDetector(JdbcTemplate jdbcTemplate) {
+        super(jdbcTemplate);
+    }
+
+    @Override
+    Model model(Map<Metric, MetricSketch> sketches) {
+        return model(sketches, multiplier);
+    }
+
+    static Model model(Map<Metric, MetricSketch> sketches, double multiplier) {
+        Map<Metric, double[]> fences = new EnumMap<>(Metric.class);
+        Set<Metric> mostlyZero = EnumSet.noneOf(Metric.class);
+        sketches.forEach((metric, sketch) -> {
+            TDigest values = sketch.values();
+            if (values.size() > 0) {
+                double firstQuartile = values.quantile(0.25);
+                double thirdQuartile = values.quantile(0.75);
+                if (sketch.mostlyZero(firstQuartile, thirdQuartile - firstQuartile)) {
+                    mostlyZero.add(metric);
+                    firstQuartile = sketch.nonZeroValues().quantile(0.25);
+                    thirdQuartile = sketch.nonZeroValues().quantile(0.75);
+                }
+                double range = thirdQuartile - firstQuartile;
+                if (range > 0) {
+                    fences.put(metric, new double[]{firstQuartile - multiplier * range, thirdQuartile + multiplier * range});
+                }
+            }
+        });
+        return (metric, value) -> {
+            double[] fence = fences.get(metric);
+            if (fence == null || value == 0 && mostlyZero.contains(metric)) {
+                return false;
+            }
+            return value < fence[0] || value > fence[1];
+        };
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.tdunning.math.stats.TDigest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link OutlierDetector} that flags values whose robust z-score, the distance from the median in units of the
+ * scaled median absolute deviation (MAD), is above {@code vessel.metrics.outlier.threshold}. Neither the median
+ * nor the MAD move much when outliers are added, unlike the mean and standard deviation.
+ * <p>
+ * A metric whose median and MAD are zero, because at least half of its values are zero (such as the power of a
+ * vessel idling most of the time), is scored against the median and MAD of its non-zero values instead, and zero
+ * itself is never flagged. Any other metric whose MAD is zero has no spread to compare with, and none of its values
+ * are flagged.
+ */
+@Component
+@ConditionalOnProperty(name = "vessel.metrics.outlier.detector", havingValue = "mad")
+public class MadOutlierDetector extends QuantileSketchOutlierDetector {
+
+    /**
+     * Makes the MAD of normally distributed values equal to their standard deviation.
+     */
+    private static final double MAD_SCALE = 1.4826;
+    private static final int SEARCH_STEPS = 64;
+
+    @Value("${vessel.metrics.outlier.threshold:3}")
+    private double outlierThreshold;
+
+    public MadOutlierDetector(JdbcTemplate jdbcTemplate) {
+        super(jdbcTemplate);
+    }
+
+    @Override
+    Model model(Map<Metric, MetricSketch> sketches) {
+        return model(sketches, outlierThreshold);
+    }
+
+    static Model model(Map<Metric, MetricSketch> sketches, double threshold) {
+        Map<Metric, double[]> medianAndMad = new EnumMap<>(Metric.class);
+        Set<Metric> mostlyZero = EnumSet.noneOf(Metric.class);
+        sketches.forEach((metric, sketch) -> {
+            TDigest values = sketch.values();
+            if (values.size() > 0) {
+                double median = values.quantile(0.5);
+                double mad = medianAbsoluteDeviation(values, median);
+                if (sketch.mostlyZero(median, mad)) {
+                    mostlyZero.add(metric);
+                    median = sketch.nonZeroValues().quantile(0.5);
+                    mad = medianAbsoluteDeviation(sketch.nonZeroValues(), median);
+                }
+                medianAndMad.put(metric, new double[]{median, mad});
+            }
+        });
+        return (metric, value) -> {
+            double[] stats = medianAndMad.get(metric);
+            if (stats == null || stats[1] == 0 || value == 0 && mostlyZero.contains(metric)) {
+                return false;
+            }
+            return Math.abs(value - stats[0]) / (MAD_SCALE * stats[1]) > threshold;
+        };
+    }
+
+    /**
+     * Finds the MAD from the same sketch, without a second pass over the values: it is the smallest distance
+     * {@code d} for which half of the values lie within {@code [median - d, median + d]}.
+     */
+    static double medianAbsoluteDeviation(TDigest sketch, double median) {
+        double low = 0;
+        double high = Math.max(sketch.getMax() - median, median - sketch.getMin());
+        // Values equal to the median are a point mass the search would only approach, never reach
+        double tolerance = high * 1e-9;
+        if (sketch.cdf(median + tolerance) - sketch.cdf(median - tolerance) >= 0.5) {
+            return 0;
+        }
+        for (int i = 0; i < SEARCH_STEPS && high - low > tolerance; i++) {
+            double mid = (low + high) / 2;
+            if (sketch.cdf(median + mid) - sketch.cdf(median - mid) >= 0.5) {
+                high = mid;
+            } else {
+                low = mid;
+            }
+        }
+        return high;
+    }
+
+}
@@ -0,0 +1,253 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.util.RunningCovariance;
+import com.gmitaros.vesselmetrics.util.RunningStatistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * {@link OutlierDetector} that judges the power, fuel consumption, actual speed overground and speed difference of a
+ * row together, by their Mahalanobis distance from the mean of the vessel: the distance in standard deviations
+ * along the directions in which the metrics vary together. A vessel drawing high power at low speed can have every
+ * value within {@code vessel.metrics.outlier.threshold} standard deviations, and still be far away from the
+ * combinations the vessel shows. Rows further than {@code vessel.metrics.outlier.mahalanobis.threshold} get an
+ * error with {@link OutlierDetector#COMBINATION_ERROR_MESSAGE}; rows missing one of the four values are not judged
+ * as a whole. Every metric is also checked on its own, like the {@link ZScoreOutlierDetector} does, and rows with
+ * an outlier metric only get the errors of those metrics.
+ * <p>
+ * Fitting a vessel streams its VALID rows from the database once into the mean and standard deviation of every
+ * metric and the covariance matrix of the four values. The inverse of the Cholesky factor of the covariance matrix
+ * is computed once per vessel, so the distance of a row costs ten multiply-adds. Values that never change, such as
+ * the speed difference of a vessel without proposed speeds, carry no information and are left out of the distance;
+ * if the remaining values are linearly dependent, rows are not judged as a whole at all.
+ */
+@Component
+@ConditionalOnProperty(name = "vessel.metrics.outlier.detector", havingValue = "mahalanobis")
+public class MahalanobisOutlierDetector implements OutlierDetector {
+
+    private static final Metric[] METRICS = Metric.values();
+    // The checked metrics, in the order of their ordinals, and the speed difference
+    private static final int DIMENSIONS = METRICS.length + 1;
+    private static final int FETCH_SIZE = 10_000;
+    // A pivot of the Cholesky factorization this small, relative to the variance, means a linearly dependent value
+    private static final double DEPENDENT_TOLERANCE = 1e-10;
+
+    private static final String SQL_SELECT_METRICS = "SELECT "
+            + Arrays.stream(METRICS).map(Metric::getColumn).collect(Collectors.joining(", "))
+            + ", speed_difference FROM vessel_data WHERE vessel_code = ? AND validation_status = 'VALID'";
+
+    @Value("${vessel.metrics.outlier.threshold:3}")
+    private double outlierThreshold;
+
+    @Value("${vessel.metrics.outlier.mahalanobis.threshold:4}")
+    private double distanceThreshold;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public MahalanobisOutlierDetector(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<Model> fit(String vesselCode) {
+        Map<Metric, RunningStatistics> statistics = new EnumMap<>(Metric.class);
+        for (Metric metric : METRICS) {
+            statistics.put(metric, new RunningStatistics());
+        }
+        RunningCovariance covariance = new RunningCovariance(DIMENSIONS);
+        double[] point = new double[DIMENSIONS];
+        long[] rows = new long[1];
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SQL_SELECT_METRICS);
+            statement.setString(1, vesselCode);
+            // Stream the rows instead of letting the driver buffer the whole result
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, rs -> {
+            rows[0]++;
+            boolean complete = true;
+            for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+                point[dimension] = rs.getDouble(dimension + 1);
+                if (rs.wasNull()) {
+                    complete = false;
+                } else if (dimension < METRICS.length) {
+                    statistics.get(METRICS[dimension]).add(point[dimension]);
+                }
+            }
+            if (complete) {
+                covariance.add(point);
+            }
+        });
+        return rows[0] > 0 ? Optional.of(model(statistics, covariance, outlierThreshold, distanceThreshold)) : Optional.empty();
+    }
+
+    /**
+     * Builds the model of a vessel.
+     *
+     * @param statistics        the statistics of every metric
+     * @param covariance        the covariance of the checked metrics, in the order of their ordinals, and the speed difference
+     * @param threshold         the z-score above which a metric is an outlier
+     * @param distanceThreshold the Mahalanobis distance above which a row is an outlier
+     * @return the model
+     */
+    static Model model(Map<Metric, RunningStatistics> statistics, RunningCovariance covariance,
+                       double threshold, double distanceThreshold) {
+        return new MahalanobisModel(statistics, covariance, threshold, distanceThreshold);
+    }
+
+    private static final class MahalanobisModel implements Model {
+
+        private final double[] means = new double[METRICS.length];
+        // The largest distance from the mean that is not an outlier, NaN when the metric has no standard deviation
+        private final double[] limits = new double[METRICS.length];
+
+        // The values that vary, their means, and the inverse of the Cholesky factor of their covariance matrix,
+        // lower triangle row by row; no dimensions when rows are not judged as a whole
+        private final int[] dimensions;
+        private final double[] center;
+        private final double[] whitening;
+        private final double squaredDistanceThreshold;
+
+        private MahalanobisModel(Map<Metric, RunningStatistics> statistics, RunningCovariance covariance,
+                                 double threshold, double distanceThreshold) {
+            for (Metric metric : METRICS) {
+                RunningStatistics metricStatistics = statistics.get(metric);
+                boolean known = metricStatistics.getStandardDeviation() != null;
+                means[metric.ordinal()] = known ? metricStatistics.getMean() : Double.NaN;
+                // A zero standard deviation flags every value that differs from the mean, like an infinite z-score does
+                limits[metric.ordinal()] = known ? threshold * metricStatistics.getStandardDeviation() : Double.NaN;
+            }
+            squaredDistanceThreshold = distanceThreshold * distanceThreshold;
+
+            double[][] matrix = covariance.getCovariance();
+            int[] varying = matrix == null ? new int[0] : IntStream.range(0, covariance.getDimensions())
+                    .filter(dimension -> matrix[dimension][dimension] > 0)
+                    .toArray();
+            double[] inverseFactor = varying.length > 0 && covariance.getCount() > varying.length
+                    ? inverseCholeskyFactor(matrix, varying) : null;
+            if (inverseFactor == null) {
+                dimensions = new int[0];
+                center = new double[0];
+                whitening = new double[0];
+                return;
+            }
+            double[] mean = covariance.getMean();
+            dimensions = varying;
+            center = Arrays.stream(varying).mapToDouble(dimension -> mean[dimension]).toArray();
+            whitening = inverseFactor;
+        }
+
+        @Override
+        public boolean isOutlier(Metric metric, double value) {
+            return Math.abs(value - means[metric.ordinal()]) > limits[metric.ordinal()];
+        }
+
+        @Override
+        public void score(MetricColumns columns, byte[] masks) {
+            Model.super.score(columns, masks);
+            if (dimensions.length == 0) {
+                return;
+            }
+            double[][] values = new double[DIMENSIONS][];
+            for (Metric metric : METRICS) {
+                values[metric.ordinal()] = columns.values(metric);
+            }
+            values[METRICS.length] = columns.speedDifferences();
+            double[] deviation = new double[dimensions.length];
+            for (int row = 0; row < columns.size(); row++) {
+                if (masks[row] != 0 || !isComplete(columns, row)) {
+                    continue;
+                }
+                for (int i = 0; i < dimensions.length; i++) {
+                    deviation[i] = values[dimensions[i]][row] - center[i];
+                }
+                if (squaredDistance(deviation) > squaredDistanceThreshold) {
+                    masks[row] |= (byte) MetricColumns.COMBINATION_BIT;
+                }
+            }
+        }
+
+        /**
+         * The squared Mahalanobis distance is the squared length of the deviation multiplied by the inverse of the
+         * Cholesky factor, which turns the covariance matrix into the identity.
+         */
+        private double squaredDistance(double[] deviation) {
+            double sum = 0;
+            int k = 0;
+            for (int i = 0; i < deviation.length; i++) {
+                double whitened = 0;
+                for (int j = 0; j <= i; j++) {
+                    whitened += whitening[k++] * deviation[j];
+                }
+                sum += whitened * whitened;
+            }
+            return sum;
+        }
+
+        private static boolean isComplete(MetricColumns columns, int row) {
+            for (Metric metric : METRICS) {
+                if (!columns.isPresent(metric, row)) {
+                    return false;
+                }
+            }
+            return columns.isSpeedDifferencePresent(row);
+        }
+    }
+
+    /**
+     * Factors the covariance matrix of the given dimensions into {@code L * L^T} and inverts the lower triangular
+     * {@code L}.
+     *
+     * @return the lower triangle of the inverse row by row, or null if the dimensions are linearly dependent
+     */
+    static double[] inverseCholeskyFactor(double[][] covariance, int[] dimensions) {
+        int n = dimensions.length;
+        double[][] factor = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = covariance[dimensions[i]][dimensions[j]];
+                for (int k = 0; k < j; k++) {
+                    sum -= factor[i][k] * factor[j][k];
+                }
+                if (i == j) {
+                    if (sum <= DEPENDENT_TOLERANCE * covariance[dimensions[i]][dimensions[i]]) {
+                        return null;
+                    }
+                    factor[i][i] = Math.sqrt(sum);
+                } else {
+                    factor[i][j] = sum / factor[j][j];
+                }
+            }
+        }
+        double[][] inverse = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            inverse[i][i] = 1 / factor[i][i];
+            for (int j = 0; j < i; j++) {
+                double sum = 0;
+                for (int k = j; k < i; k++) {
+                    sum += factor[i][k] * inverse[k][j];
+                }
+                inverse[i][j] = -sum / factor[i][i];
+            }
+        }
+        double[] packed = new double[n * (n + 1) / 2];
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                packed[k++] = inverse[i][j];
+            }
+        }
+        return packed;
+    }
+
+}
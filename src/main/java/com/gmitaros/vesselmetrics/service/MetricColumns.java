@@ -0,0 +1,122 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.model.VesselData;
+
+import java.util.List;
+
+/**
+ * The checked metrics of a batch of rows as columns: one {@code double[]} of values per {@link OutlierDetector.Metric}
+ * and a bitmap of the values that are present, bit {@code row % 64} of word {@code row / 64}. The boxed values of the
+ * rows are read once, so scoring the columns runs over primitive arrays only.
+ * <p>
+ * The speed difference is kept as a column too, for detectors that judge the metrics of a row together with it.
+ */
+public final class MetricColumns {
+
+    private static final OutlierDetector.Metric[] METRICS = OutlierDetector.Metric.values();
+    private static final int SPEED_DIFFERENCE = METRICS.length;
+
+    /**
+     * The bit in an outlier mask of a row whose metrics are outliers only in the combination they have, see
+     * {@link OutlierDetector#COMBINATION_ERROR_MESSAGE}.
+     */
+    public static final int COMBINATION_BIT = 1 << METRICS.length;
+
+    private final int size;
+    private final double[][] values;
+    private final long[][] present;
+
+    private MetricColumns(int size) {
+        this.size = size;
+        this.values = new double[METRICS.length + 1][size];
+        this.present = new long[METRICS.length + 1][(size + 63) >>> 6];
+    }
+
+    /**
+     * Reads the checked metrics of the rows into columns, in the order of the list.
+     *
+     * @param rows the rows
+     * @return the columns
+     */
+    public static MetricColumns of(List<VesselData> rows) {
+        MetricColumns columns = new MetricColumns(rows.size());
+        for (int row = 0; row < columns.size; row++) {
+            VesselData vesselData = rows.get(row);
+            for (OutlierDetector.Metric metric : METRICS) {
+                Double value = metric.valueOf(vesselData);
+                if (value != null) {
+                    columns.values[metric.ordinal()][row] = value;
+                    columns.present[metric.ordinal()][row >>> 6] |= 1L << row;
+                }
+            }
+            Double speedDifference = vesselData.getSpeedDifference();
+            if (speedDifference != null) {
+                columns.values[SPEED_DIFFERENCE][row] = speedDifference;
+                columns.present[SPEED_DIFFERENCE][row >>> 6] |= 1L << row;
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the values of a metric; missing values are 0. The array is live and must not be changed.
+     *
+     * @param metric the metric
+     * @return the values, one per row
+     */
+    public double[] values(OutlierDetector.Metric metric) {
+        return values[metric.ordinal()];
+    }
+
+    /**
+     * Returns the bitmap of the values of a metric that are present. The array is live and must not be changed.
+     *
+     * @param metric the metric
+     * @return the bitmap, one bit per row in words of 64 rows
+     */
+    public long[] present(OutlierDetector.Metric metric) {
+        return present[metric.ordinal()];
+    }
+
+    /**
+     * Returns the speed differences; missing values are 0. The array is live and must not be changed.
+     *
+     * @return the speed differences, one per row
+     */
+    public double[] speedDifferences() {
+        return values[SPEED_DIFFERENCE];
+    }
+
+    /**
+     * @param row the index of the row
+     * @return whether the row has a speed difference
+     */
+    public boolean isSpeedDifferencePresent(int row) {
+        return (present[SPEED_DIFFERENCE][row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * @param metric the metric
+     * @param row    the index of the row
+     * @return whether the row has a value of the metric
+     */
+    public boolean isPresent(OutlierDetector.Metric metric, int row) {
+        return (present[metric.ordinal()][row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * @param metric the metric
+     * @return the bit of the metric in an outlier mask
+     */
+    public static int maskBit(OutlierDetector.Metric metric) {
+        return 1 << metric.ordinal();
+    }
+
+}
@@ -1,89 +1,380 @@
 package com.gmitaros.vesselmetrics.service;
 
+import com.gmitaros.vesselmetrics.model.OutlierWatermark;
 import com.gmitaros.vesselmetrics.model.ValidationError;
 import com.gmitaros.vesselmetrics.model.ValidationProblemType;
 import com.gmitaros.vesselmetrics.model.ValidationStatus;
 import com.gmitaros.vesselmetrics.model.VesselData;
 import com.gmitaros.vesselmetrics.model.VesselMetricsStatistics;
+import com.gmitaros.vesselmetrics.repository.OutlierWatermarkRepository;
 import com.gmitaros.vesselmetrics.repository.ValidationErrorRepository;
 import com.gmitaros.vesselmetrics.repository.VesselDataRepository;
-import com.gmitaros.vesselmetrics.repository.VesselMetricsStatisticsRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Flags rows whose fuel consumption, power or actual speed overground is an outlier among the VALID rows of their
+ * vessel, as decided by the configured {@link OutlierDetector}.
+ * <p>
+ * Two engines are available, selected with {@code vessel.metrics.outlier.engine}. The {@code sql} engine lets the
+ * database do the work with one {@code INSERT ... SELECT} of the errors and one {@code UPDATE} of the rows per
+ * vessel, so no rows are loaded into the application; it computes z-scores, so it only works with the
+ * {@link ZScoreOutlierDetector}. The {@code java} engine reads the VALID rows in batches and lets the detector score
+ * them, value by value or, like the {@link MahalanobisOutlierDetector}, a row at a time. With {@code auto}, the
+ * default, the {@code sql} engine is used on PostgreSQL when the z-score detector is selected, and the {@code java}
+ * engine otherwise.
+ * <p>
+ * Vessels are processed concurrently on a pool of {@code vessel.metrics.outlier.parallelism} threads, each vessel
+ * in a transaction of its own, so a failing vessel does not roll back the others. By default the pool gets half of
+ * the connections of the connection pool, leaving the rest to the ingest and to requests.
+ * <p>
+ * A run first claims the rows of a vessel that no run has scored yet, by setting their {@code outlier_run} to its
+ * number, and keeps that number in {@code vessel_outlier_watermarks}. It then only scores the rows it claimed, which
+ * makes it cheap enough to run on a schedule. Unlike a highest id scored, this also catches rows whose transaction
+ * commits after one with a higher id was scored. The cached answers of a scored vessel are dropped from the
+ * {@link VesselReadCache} once its transaction completes.
+ */
 @RequiredArgsConstructor
 @Service
 public class OutlierDetectionService {
 
     private static final Logger log = LoggerFactory.getLogger(OutlierDetectionService.class);
 
+    /**
+     * Claims the rows of a vessel that no run has scored yet for a run. Rows committed after the claim, whatever their
+     * id, are left to the next run.
+     */
+    private static final String SQL_CLAIM_ROWS = """
+            UPDATE vessel_data SET outlier_run = ?
+            WHERE vessel_code = ? AND outlier_run IS NULL""";
+
+    /**
+     * Inserts an OUTLIER error for every VALID row of a vessel claimed from a run on and every checked metric that is
+     * an outlier.
+     * The metrics are joined in as rows, so the statistics of the vessel are aggregated only once.
+     * A zero standard deviation flags every value that differs from the mean, like an infinite z-score does.
+     */
+    private static final String SQL_INSERT_OUTLIER_ERRORS = """
+            INSERT INTO vessel_data_validation_errors (vessel_data_uuid, vessel_code, error_message, problem_type)
+            SELECT d.vessel_data_uuid, d.vessel_code, m.error_message, 'OUTLIER'
+            FROM vessel_data d
+            JOIN vessel_metrics_statistics s ON s.vessel_code = d.vessel_code
+            CROSS JOIN (VALUES (1, 'Fuel consumption is an outlier'),
+                               (2, 'Power is an outlier'),
+                               (3, 'Actual speed overground is an outlier')) AS m (metric, error_message)
+            WHERE d.vessel_code = ?
+              AND d.outlier_run >= ?
+              AND d.validation_status = 'VALID'
+              AND ABS(CASE m.metric
+                          WHEN 1 THEN d.fuel_consumption - s.avg_fuel_consumption
+                          WHEN 2 THEN d.power - s.avg_power
+                          ELSE d.actual_speed_overground - s.avg_actual_speed_overground END)
+                  > CAST(? AS DOUBLE PRECISION) * CASE m.metric
+                          WHEN 1 THEN s.stddev_fuel_consumption
+                          WHEN 2 THEN s.stddev_power
+                          ELSE s.stddev_actual_speed_overground END
+            """;
+
+    // The VALID rows of a vessel claimed from a run on that got an OUTLIER error, taking the run and the vessel code
+    private static final String OUTLIER_ROWS_CONDITION = """
+            outlier_run >= ?
+              AND vessel_data_uuid IN (SELECT vessel_data_uuid
+                                       FROM vessel_data_validation_errors
+                                       WHERE vessel_code = ? AND problem_type = 'OUTLIER')""";
+
+    private static final String SQL_INVALIDATE_OUTLIERS = """
+            UPDATE vessel_data SET validation_status = 'INVALID'
+            WHERE vessel_code = ?
+              AND validation_status = 'VALID'
+              AND\s""" + OUTLIER_ROWS_CONDITION;
+
     @Value("${vessel.metrics.outlier.threshold:3}")
     private double outlierThreshold;
 
     @Value("${vessel.metrics.outlier.batch.size:10000}")
     private int batchSize;
 
+    @Value("${vessel.metrics.outlier.engine:auto}")
+    private String engine;
+
+    @Value("${vessel.metrics.outlier.parallelism:0}")
+    private int parallelism;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int connectionPoolSize;
+
+    @Value("${vessel.metrics.outlier.rescore.drift.tolerance:0.1}")
+    private double driftTolerance;
+
+    @Value("${vessel.metrics.outlier.schedule.interval.ms:0}")
+    private long scheduleIntervalMs;
+
+    private volatile Boolean sqlEngine;
+
     private final VesselDataRepository vesselDataRepository;
     private final ValidationErrorRepository validationErrorRepository;
-    private final VesselMetricsStatisticsRepository vesselMetricsStatisticsRepository;
+    private final VesselStatisticsService vesselStatisticsService;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final OutlierDetector outlierDetector;
+    private final OutlierWatermarkRepository outlierWatermarkRepository;
+    private final VesselDataStore vesselDataStore;
+    private final VesselReadCache vesselReadCache;
 
-    @Transactional
+    private final ReentrantLock runLock = new ReentrantLock();
+    private ExecutorService vesselExecutor;
+    private ScheduledExecutorService scheduler;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void startExecutor() {
+        int threads = parallelism > 0 ? parallelism : Math.max(1, connectionPoolSize / 2);
+        vesselExecutor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("outlier-detection-"));
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        log.info("Outlier detection runs on {} threads", threads);
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        vesselExecutor.shutdownNow();
+    }
+
+    /**
+     * Runs outlier detection every {@code vessel.metrics.outlier.schedule.interval.ms}, if set. A run that is due
+     * while another one is still going is skipped.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startSchedule() {
+        if (scheduleIntervalMs <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("outlier-schedule-"));
+        scheduler.scheduleWithFixedDelay(this::runScheduled, scheduleIntervalMs, scheduleIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Outlier detection scheduled every {} ms", scheduleIntervalMs);
+    }
+
+    private void runScheduled() {
+        if (!runLock.tryLock()) {
+            log.info("Outlier detection is already running, skipping the scheduled run");
+            return;
+        }
+        try {
+            detectAndStoreOutliers();
+        } catch (Exception e) {
+            // Thrown out of the scheduled task, it would cancel every following run
+            log.error("Scheduled outlier detection failed", e);
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    /**
+     * Detects the outliers of every vessel and waits until all vessels are done. Only the rows added since the
+     * previous run are scored, see {@link #findOutlierByVessel(String)}. Runs do not overlap; a run waits for the
+     * one in progress to finish.
+     *
+     * @throws RuntimeException if the detection of any vessel failed; the other vessels are committed regardless
+     */
     public void detectAndStoreOutliers() {
+        runLock.lock();
+        try {
+            detectAndStoreOutliersOfAllVessels();
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    private void detectAndStoreOutliersOfAllVessels() {
         // Start time for total processing
         long totalStartTime = System.nanoTime();
 
         List<String> vessels = vesselDataRepository.findDistinctVesselCode();
 
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(vessels.size());
         for (String vessel : vessels) {
-            findOutlierByVessel(vessel);
+            tasks.add(CompletableFuture.runAsync(
+                    () -> transactionTemplate.executeWithoutResult(status -> findOutlierByVessel(vessel)), vesselExecutor));
+        }
+        try {
+            CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            long failed = tasks.stream().filter(CompletableFuture::isCompletedExceptionally).count();
+            throw new RuntimeException("Outlier detection failed for " + failed + " of " + vessels.size() + " vessels",
+                    e.getCause());
         }
 
         // End time for total processing
         long totalEndTime = System.nanoTime();
         long totalDuration = (totalEndTime - totalStartTime) / 1_000_000;
-        log.info("Total time taken for outlier detection: {} ms", totalDuration);
+        log.info("Total time taken for outlier detection of {} vessels: {} ms", vessels.size(), totalDuration);
     }
 
+    /**
+     * Scores the rows of a vessel committed since it was last scored. All of its VALID rows are scored again instead
+     * when the vessel was never scored, or when the mean or standard deviation of a checked metric has moved by
+     * more than {@code vessel.metrics.outlier.rescore.drift.tolerance} standard deviations since the last full
+     * scoring, as rows scored against the old statistics may no longer be judged the same.
+     *
+     * @param vessel the vessel code
+     */
     @Transactional
     public void findOutlierByVessel(String vessel) {
-        Page<VesselData> vesselDataPage;
+        scoreVessel(vessel, false);
+    }
+
+    /**
+     * Scores all VALID rows of a vessel again, regardless of what was scored before.
+     *
+     * @param vessel the vessel code
+     */
+    @Transactional
+    public void rescoreOutliersOfVessel(String vessel) {
+        scoreVessel(vessel, true);
+    }
+
+    private void scoreVessel(String vessel, boolean forceRescore) {
+        Optional<OutlierWatermark> watermark = outlierWatermarkRepository.findById(vessel);
+        long run = watermark.map(OutlierWatermark::getLastRun).orElse(0L) + 1;
+        int claimed = jdbcTemplate.update(SQL_CLAIM_ROWS, run, vessel);
+        if (claimed == 0 && watermark.isEmpty()) {
+            log.info("No data for vessel {}", vessel);
+            return;
+        }
+        boolean rescore = forceRescore || watermark.isEmpty() || hasDrifted(watermark.get(), vessel);
+        if (claimed == 0 && !rescore) {
+            log.info("No new rows to score for vessel {}", vessel);
+            return;
+        }
+        // Every row of the vessel, except those committed after the claim, has been claimed by this run or before
+        long fromRun = rescore ? 0 : run;
+        log.info("Scoring {} rows of vessel {} in run {}", rescore ? "all" : claimed + " new", vessel, run);
+
+        if (useSqlEngine()) {
+            findOutlierByVesselInDatabase(vessel, fromRun);
+        } else {
+            findOutlierByVesselInMemory(vessel, fromRun);
+        }
+        vesselReadCache.invalidate(List.of(vessel));
+
+        LocalDateTime now = LocalDateTime.now();
+        OutlierWatermark updated = watermark.orElseGet(() -> OutlierWatermark.builder().vesselCode(vessel).build());
+        updated.setLastRun(run);
+        updated.setScoredAt(now);
+        if (rescore) {
+            Optional<VesselMetricsStatistics> statistics = vesselStatisticsService.statisticsOf(vessel);
+            updated.setAvgPower(statistics.map(VesselMetricsStatistics::getAvgPower).orElse(null));
+            updated.setStddevPower(statistics.map(VesselMetricsStatistics::getStddevPower).orElse(null));
+            updated.setAvgFuelConsumption(statistics.map(VesselMetricsStatistics::getAvgFuelConsumption).orElse(null));
+            updated.setStddevFuelConsumption(statistics.map(VesselMetricsStatistics::getStddevFuelConsumption).orElse(null));
+            updated.setAvgActualSpeedOverground(statistics.map(VesselMetricsStatistics::getAvgActualSpeedOverground).orElse(null));
+            updated.setStddevActualSpeedOverground(statistics.map(VesselMetricsStatistics::getStddevActualSpeedOverground).orElse(null));
+            updated.setRescoredAt(now);
+        }
+        outlierWatermarkRepository.save(updated);
+    }
+
+    private boolean hasDrifted(OutlierWatermark watermark, String vessel) {
+        Optional<VesselMetricsStatistics> statistics = vesselStatisticsService.cachedStatisticsOf(vessel);
+        if (statistics.isEmpty()) {
+            return false;
+        }
+        VesselMetricsStatistics current = statistics.get();
+        return drifted(vessel, "power", watermark.getAvgPower(), watermark.getStddevPower(),
+                current.getAvgPower(), current.getStddevPower())
+                || drifted(vessel, "fuel consumption", watermark.getAvgFuelConsumption(), watermark.getStddevFuelConsumption(),
+                current.getAvgFuelConsumption(), current.getStddevFuelConsumption())
+                || drifted(vessel, "actual speed overground", watermark.getAvgActualSpeedOverground(), watermark.getStddevActualSpeedOverground(),
+                current.getAvgActualSpeedOverground(), current.getStddevActualSpeedOverground());
+    }
+
+    private boolean drifted(String vessel, String metric, Double scoredMean, Double scoredStddev, Double mean, Double stddev) {
+        boolean drifted;
+        if (scoredMean == null || scoredStddev == null || mean == null || stddev == null || scoredStddev == 0) {
+            drifted = !Objects.equals(scoredMean, mean) || !Objects.equals(scoredStddev, stddev);
+        } else {
+            drifted = Math.abs(mean - scoredMean) > driftTolerance * scoredStddev
+                    || Math.abs(stddev - scoredStddev) > driftTolerance * scoredStddev;
+        }
+        if (drifted) {
+            log.info("Statistics of {} of vessel {} drifted from mean {} and standard deviation {} to {} and {}",
+                    metric, vessel, scoredMean, scoredStddev, mean, stddev);
+        }
+        return drifted;
+    }
+
+    private void findOutlierByVesselInDatabase(String vessel, long fromRun) {
+        long vesselStartTime = System.nanoTime();
+        int errors = jdbcTemplate.update(SQL_INSERT_OUTLIER_ERRORS, vessel, fromRun, outlierThreshold);
+        int invalidated = 0;
+        if (errors > 0) {
+            // The totals are computed from the rows, so they are changed while the rows are still VALID
+            vesselStatisticsService.recordInvalidated(vessel, OUTLIER_ROWS_CONDITION, fromRun, vessel);
+            invalidated = jdbcTemplate.update(SQL_INVALIDATE_OUTLIERS, vessel, fromRun, vessel);
+            // The rows invalidated are not known here, so the vessel is loaded into the store again
+            vesselDataStore.evict(vessel);
+        }
+        long vesselDuration = (System.nanoTime() - vesselStartTime) / 1_000_000;
+        log.info("Stored {} outlier errors and invalidated {} rows for vessel {} in {} ms", errors, invalidated,
+                vessel, vesselDuration);
+    }
+
+    private void findOutlierByVesselInMemory(String vessel, long fromRun) {
         // Start time for each vessel processing
         long vesselStartTime = System.nanoTime();
 
-        int page = 0;
-        do {
-            log.info("Fetching vessel data for vessel {} with page {} and batch size {}", vessel, page, batchSize);
-            vesselDataPage = vesselDataRepository.findByVesselCodeAndValidationStatus(vessel, ValidationStatus.VALID, PageRequest.of(page, batchSize));
-            log.info("Fetched {} data from total {} for vessel {}", vesselDataPage.getSize(), vesselDataPage.getTotalElements(), vessel);
-            List<VesselData> vesselDataList = vesselDataPage.getContent();
+        Optional<OutlierDetector.Model> model = outlierDetector.fit(vessel);
+        if (model.isEmpty()) {
+            log.info("No valid data for vessel {}", vessel);
+            return;
+        }
+        List<VesselData> invalidated = new ArrayList<>();
+        vesselDataRepository.scanByVesselCodeAndValidationStatusFromOutlierRun(vessel, ValidationStatus.VALID, fromRun, batchSize, vesselDataList -> {
+            log.info("Fetched {} rows for vessel {}", vesselDataList.size(), vessel);
 
             // Apply outlier detection to the current batch
-            Optional<VesselMetricsStatistics> statsOpt = vesselMetricsStatisticsRepository.findStatisticsByVesselCode(vessel);
-            if (statsOpt.isPresent()) {
-                List<ValidationError> errors = detectOutliersInBatch(statsOpt.get(), vesselDataList);
-                if (!errors.isEmpty()) {
-                    log.info("Storing {} outlier errors for vessel {}", errors.size(), vessel);
-                    validationErrorRepository.saveAllAndFlush(errors);
-                }
+            List<ValidationError> errors = detectOutliersInBatch(model.get(), vesselDataList);
+            if (!errors.isEmpty()) {
+                log.info("Storing {} outlier errors for vessel {}", errors.size(), vessel);
+                validationErrorRepository.saveAllAndFlush(errors);
+                vesselDataList.stream()
+                        .filter(vesselData -> vesselData.getValidationStatus() == ValidationStatus.INVALID)
+                        .forEach(invalidated::add);
             }
 
             // Save the batch back to the database
             vesselDataRepository.saveAllAndFlush(vesselDataList);
-
-            page++;
-        } while (vesselDataPage.hasNext());
+        });
+        vesselStatisticsService.recordInvalidated(invalidated);
+        vesselDataStore.recordInvalidated(vessel, invalidated);
 
         // End time for each vessel processing
         long vesselEndTime = System.nanoTime();
@@ -91,43 +382,51 @@ public class OutlierDetectionService {
         log.info("Time taken for vessel {}: {} ms", vessel, vesselDuration);
     }
 
-    private List<ValidationError> detectOutliersInBatch(VesselMetricsStatistics stats, List<VesselData> vesselDataList) {
-        ConcurrentLinkedQueue<ValidationError> validationErrorsList = new ConcurrentLinkedQueue<>();
-        try (ForkJoinPool customThreadPool = new ForkJoinPool(8)) {
-            customThreadPool.submit(() -> {
-                vesselDataList.parallelStream().forEach(vesselData -> {
-                    List<ValidationError> errors = new ArrayList<>();
-                    // Check each metric for outliers
-                    checkAndFlagOutlier(errors, vesselData, vesselData.getFuelConsumption(), stats.getAvgFuelConsumption(), stats.getStddevFuelConsumption(), "Fuel consumption is an outlier");
-                    checkAndFlagOutlier(errors, vesselData, vesselData.getPower(), stats.getAvgPower(), stats.getStddevPower(), "Power is an outlier");
-                    checkAndFlagOutlier(errors, vesselData, vesselData.getActualSpeedOverground(), stats.getAvgActualSpeedOverground(), stats.getStddevActualSpeedOverground(), "Actual speed overground is an outlier");
-                    // If any outliers were found, set validation status
-                    if (!errors.isEmpty()) {
-                        vesselData.setValidationStatus(ValidationStatus.INVALID);
+    private boolean useSqlEngine() {
+        if (sqlEngine == null) {
+            // The statements of the sql engine compute z-scores, the other detectors only run in memory
+            boolean zScores = outlierDetector instanceof ZScoreOutlierDetector;
+            sqlEngine = switch (engine) {
+                case "sql" -> {
+                    if (!zScores) {
+                        throw new IllegalStateException("The sql outlier detection engine only supports the zscore detector");
                     }
-                    validationErrorsList.addAll(errors);
-                });
-            }).get();
-        } catch (Exception e) {
-            log.error("Failed to detect outliers for vessel {}", vesselDataList.getFirst().getVesselCode(), e);
+                    yield true;
+                }
+                case "java" -> false;
+                case "auto" -> zScores && "PostgreSQL".equals(jdbcTemplate.execute(
+                        (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+                default -> throw new IllegalStateException("Unknown outlier detection engine: " + engine);
+            };
+            log.info("Using the {} outlier detection engine with {}", sqlEngine ? "sql" : "java",
+                    outlierDetector.getClass().getSimpleName());
         }
-        return new ArrayList<>(validationErrorsList);
+        return sqlEngine;
     }
 
-    private void checkAndFlagOutlier(List<ValidationError> validationErrors, VesselData vesselData, Double metricValue, Double avgValue, Double stddevValue, String errorMessage) {
-        if (metricValue != null && avgValue != null && stddevValue != null) {
-            double zScore = calculateZScore(metricValue, avgValue, stddevValue);
-            if (isOutlier(zScore)) {
-                validationErrors.add(vesselData.addValidationError(errorMessage, ValidationProblemType.OUTLIER));
+    private List<ValidationError> detectOutliersInBatch(OutlierDetector.Model model, List<VesselData> vesselDataList) {
+        // Vessels already run in parallel, so the rows of one vessel are checked on its own thread.
+        // The values are unboxed once into columns, which the model scores a metric at a time.
+        MetricColumns columns = MetricColumns.of(vesselDataList);
+        byte[] masks = new byte[columns.size()];
+        model.score(columns, masks);
+
+        List<ValidationError> validationErrorsList = new ArrayList<>();
+        for (int row = 0; row < masks.length; row++) {
+            if (masks[row] == 0) {
+                continue;
+            }
+            VesselData vesselData = vesselDataList.get(row);
+            for (OutlierDetector.Metric metric : OutlierDetector.Metric.values()) {
+                if ((masks[row] & MetricColumns.maskBit(metric)) != 0) {
+                    validationErrorsList.add(vesselData.addValidationError(metric.getErrorMessage(), ValidationProblemType.OUTLIER));
+                }
+            }
+            if ((masks[row] & MetricColumns.COMBINATION_BIT) != 0) {
+                validationErrorsList.add(vesselData.addValidationError(OutlierDetector.COMBINATION_ERROR_MESSAGE, ValidationProblemType.OUTLIER));
             }
+            vesselData.setValidationStatus(ValidationStatus.INVALID);
         }
-    }
-
-    private double calculateZScore(double value, double mean, double standardDeviation) {
-        return (value - mean) / standardDeviation;
-    }
-
-    private boolean isOutlier(double zScore) {
-        return Math.abs(zScore) > outlierThreshold;
+        return validationErrorsList;
     }
 }
@@ -0,0 +1,105 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.model.VesselData;
+import com.gmitaros.vesselmetrics.model.VesselMetricsStatistics;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Decides which metric values of a vessel are outliers, based on the VALID rows of the vessel.
+ * The implementation is selected with the {@code vessel.metrics.outlier.detector} property.
+ */
+public interface OutlierDetector {
+
+    /**
+     * Error of a row whose metrics are each within range, but whose combination of them is an outlier, which only
+     * detectors that judge the metrics of a row together find.
+     */
+    String COMBINATION_ERROR_MESSAGE = "Combination of power, fuel consumption and speeds is an outlier";
+
+    /**
+     * The metrics checked for outliers.
+     */
+    enum Metric {
+        FUEL_CONSUMPTION("fuel_consumption", "Fuel consumption is an outlier", VesselData::getFuelConsumption,
+                VesselMetricsStatistics::getAvgFuelConsumption, VesselMetricsStatistics::getStddevFuelConsumption),
+        POWER("power", "Power is an outlier", VesselData::getPower,
+                VesselMetricsStatistics::getAvgPower, VesselMetricsStatistics::getStddevPower),
+        ACTUAL_SPEED_OVERGROUND("actual_speed_overground", "Actual speed overground is an outlier", VesselData::getActualSpeedOverground,
+                VesselMetricsStatistics::getAvgActualSpeedOverground, VesselMetricsStatistics::getStddevActualSpeedOverground);
+
+        private final String column;
+        private final String errorMessage;
+        private final Function<VesselData, Double> value;
+        private final Function<VesselMetricsStatistics, Double> mean;
+        private final Function<VesselMetricsStatistics, Double> standardDeviation;
+
+        Metric(String column, String errorMessage, Function<VesselData, Double> value,
+               Function<VesselMetricsStatistics, Double> mean, Function<VesselMetricsStatistics, Double> standardDeviation) {
+            this.column = column;
+            this.errorMessage = errorMessage;
+            this.value = value;
+            this.mean = mean;
+            this.standardDeviation = standardDeviation;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+
+        public Double valueOf(VesselData vesselData) {
+            return value.apply(vesselData);
+        }
+
+        public Double meanOf(VesselMetricsStatistics statistics) {
+            return mean.apply(statistics);
+        }
+
+        public Double standardDeviationOf(VesselMetricsStatistics statistics) {
+            return standardDeviation.apply(statistics);
+        }
+    }
+
+    /**
+     * What a detector has learned about the values of one vessel.
+     */
+    @FunctionalInterface
+    interface Model {
+
+        boolean isOutlier(Metric metric, double value);
+
+        /**
+         * Sets the {@link MetricColumns#maskBit(Metric) bit} of every metric whose value is an outlier in the mask of
+         * its row, and the {@link MetricColumns#COMBINATION_BIT} of rows that are outliers as a whole. Asks {@link #isOutlier(Metric, double)} about every present value; models that can compare whole
+         * columns at once override it.
+         *
+         * @param columns the values of a batch of rows
+         * @param masks   one mask per row, which outlier bits are added to
+         */
+        default void score(MetricColumns columns, byte[] masks) {
+            for (Metric metric : Metric.values()) {
+                double[] values = columns.values(metric);
+                int bit = MetricColumns.maskBit(metric);
+                for (int row = 0; row < columns.size(); row++) {
+                    if (columns.isPresent(metric, row) && isOutlier(metric, values[row])) {
+                        masks[row] |= (byte) bit;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the model of a vessel from its VALID rows.
+     *
+     * @param vesselCode the vessel
+     * @return the model, or empty if the vessel has no VALID rows
+     */
+    Optional<Model> fit(String vesselCode);
+
+}
@@ -0,0 +1,247 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.model.ValidationError;
+import com.gmitaros.vesselmetrics.model.VesselData;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * {@link VesselDataWriter} that streams batches to PostgreSQL with {@code COPY ... FROM STDIN} in the binary
+ * COPY format, which avoids the per-row statement overhead of JDBC batch inserts.
+ * Only works on PostgreSQL, so it has to be enabled with {@code vessel.metrics.ingest.writer=copy}.
+ * <p>
+ * COPY cannot skip conflicting rows, so a batch is copied into temporary staging tables first and moved into the
+ * real tables with {@code INSERT ... SELECT ... ON CONFLICT DO NOTHING}. The staging tables are created once per
+ * connection and emptied on commit. The VALID rows moved are added to the metrics totals of their vessels by an
+ * upsert from the staging table, in the same transaction. The whole batch is passed to the {@link VesselDataStore},
+ * which skips the rows it already holds, as the rows moved are not known to the writer. For the same reason the
+ * cached answers of every vessel of the batch are dropped from the {@link VesselReadCache}.
+ */
+@RequiredArgsConstructor
+@Service
+@ConditionalOnProperty(name = "vessel.metrics.ingest.writer", havingValue = "copy")
+public class PostgresCopyVesselDataWriter implements VesselDataWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(PostgresCopyVesselDataWriter.class);
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VesselDataStore vesselDataStore;
+    private final VesselReadCache vesselReadCache;
+
+    private static final String VESSEL_DATA_COLUMNS = "vessel_data_uuid, vessel_code, date_time, latitude, longitude, power, fuel_consumption, actual_speed_overground, proposed_speed_overground, predicted_fuel_consumption, speed_difference, fuel_efficiency, validation_status";
+    private static final String VALIDATION_ERROR_COLUMNS = "vessel_data_uuid, vessel_code, error_message, problem_type";
+
+    private static final String SQL_CREATE_VESSEL_DATA_STAGING =
+            "CREATE TEMP TABLE IF NOT EXISTS vessel_data_staging ON COMMIT DELETE ROWS AS SELECT "
+                    + VESSEL_DATA_COLUMNS + " FROM vessel_data WITH NO DATA";
+
+    private static final String SQL_CREATE_VALIDATION_ERRORS_STAGING =
+            "CREATE TEMP TABLE IF NOT EXISTS vessel_data_validation_errors_staging ON COMMIT DELETE ROWS AS SELECT "
+                    + VALIDATION_ERROR_COLUMNS + " FROM vessel_data_validation_errors WITH NO DATA";
+
+    private static final String SQL_COPY_VESSEL_DATA =
+            "COPY vessel_data_staging (" + VESSEL_DATA_COLUMNS + ") FROM STDIN WITH (FORMAT binary)";
+
+    private static final String SQL_COPY_VALIDATION_ERRORS =
+            "COPY vessel_data_validation_errors_staging (" + VALIDATION_ERROR_COLUMNS + ") FROM STDIN WITH (FORMAT binary)";
+
+    private static final String SQL_MOVE_VESSEL_DATA =
+            "INSERT INTO vessel_data (" + VESSEL_DATA_COLUMNS + ") SELECT " + VESSEL_DATA_COLUMNS
+                    + " FROM vessel_data_staging ON CONFLICT (vessel_code, date_time) DO NOTHING";
+
+    // Errors of the rows skipped as duplicates have no vessel data row to belong to and are left behind
+    private static final String SQL_MOVE_VALIDATION_ERRORS =
+            "INSERT INTO vessel_data_validation_errors (" + VALIDATION_ERROR_COLUMNS + ") SELECT " + VALIDATION_ERROR_COLUMNS
+                    + " FROM vessel_data_validation_errors_staging s"
+                    + " WHERE EXISTS (SELECT 1 FROM vessel_data v WHERE v.vessel_data_uuid = s.vessel_data_uuid)";
+
+    // The rows of the batch found in vessel_data by their uuid are the ones moved by this transaction
+    private static final String SQL_ADD_METRICS_TOTALS =
+            "INSERT INTO vessel_metrics_totals (vessel_code, " + VesselStatisticsService.TOTALS_COLUMNS + ")"
+                    + " SELECT s.vessel_code, " + VesselStatisticsService.totalsOf("s")
+                    + " FROM vessel_data_staging s WHERE s.validation_status = 'VALID'"
+                    + " AND EXISTS (SELECT 1 FROM vessel_data v WHERE v.vessel_data_uuid = s.vessel_data_uuid)"
+                    + " GROUP BY s.vessel_code ORDER BY s.vessel_code"
+                    + " ON CONFLICT (vessel_code) DO UPDATE SET "
+                    + Arrays.stream(VesselStatisticsService.TOTALS_COLUMNS.split(", "))
+                    .map(column -> column + " = vessel_metrics_totals." + column + " + EXCLUDED." + column)
+                    .collect(Collectors.joining(", "));
+
+    /**
+     * Saves a batch of vessel data and its validation errors with two COPY commands in one transaction.
+     *
+     * @param vesselDataBatch the list of vessel data to save
+     * @return the number of rows inserted
+     */
+    @Override
+    @Transactional
+    public int saveVesselDataBatch(List<VesselData> vesselDataBatch) {
+        if (vesselDataBatch.isEmpty()) {
+            log.warn("Empty vessel data batch received. No records will be saved.");
+            return 0;
+        }
+        try {
+            return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(SQL_CREATE_VESSEL_DATA_STAGING);
+                    statement.execute(SQL_CREATE_VALIDATION_ERRORS_STAGING);
+                    copyVesselData(pgConnection, vesselDataBatch);
+                    int inserted = statement.executeUpdate(SQL_MOVE_VESSEL_DATA);
+                    log.info("Successfully copied batch of {} VesselData records, skipped {} already stored",
+                            inserted, vesselDataBatch.size() - inserted);
+                    statement.executeUpdate(SQL_ADD_METRICS_TOTALS);
+                    copyValidationErrors(pgConnection, vesselDataBatch);
+                    int errorCount = statement.executeUpdate(SQL_MOVE_VALIDATION_ERRORS);
+                    log.info("Successfully copied batch of {} validation errors", errorCount);
+                    vesselDataStore.recordStored(vesselDataBatch);
+                    vesselReadCache.invalidateVesselsOf(vesselDataBatch);
+                    return inserted;
+                }
+            });
+        } catch (Exception e) {
+            log.error("Error during COPY of vessel data", e);
+            throw new RuntimeException("COPY failed for vessel data", e);
+        }
+    }
+
+    private void copyVesselData(PGConnection connection, List<VesselData> vesselDataBatch) throws SQLException {
+        try (BinaryCopyOutput out = new BinaryCopyOutput(connection, SQL_COPY_VESSEL_DATA)) {
+            for (VesselData vesselData : vesselDataBatch) {
+                out.startRow(13);
+                out.writeUuid(vesselData.getVesselDataUuid());
+                out.writeText(vesselData.getVesselCode());
+                out.writeTimestamp(vesselData.getDateTime());
+                out.writeDouble(vesselData.getLatitude());
+                out.writeDouble(vesselData.getLongitude());
+                out.writeDouble(vesselData.getPower());
+                out.writeDouble(vesselData.getFuelConsumption());
+                out.writeDouble(vesselData.getActualSpeedOverground());
+                out.writeDouble(vesselData.getProposedSpeedOverground());
+                out.writeDouble(vesselData.getPredictedFuelConsumption());
+                out.writeDouble(vesselData.getSpeedDifference());
+                out.writeDouble(vesselData.getFuelEfficiency());
+                out.writeText(vesselData.getValidationStatus().name());
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to stream vessel data to COPY", e);
+        }
+    }
+
+    private int copyValidationErrors(PGConnection connection, List<VesselData> vesselDataBatch) throws SQLException {
+        int errorCount = 0;
+        try (BinaryCopyOutput out = new BinaryCopyOutput(connection, SQL_COPY_VALIDATION_ERRORS)) {
+            for (VesselData vesselData : vesselDataBatch) {
+                if (vesselData.getValidationErrors() == null) {
+                    continue;
+                }
+                for (ValidationError error : vesselData.getValidationErrors()) {
+                    out.startRow(4);
+                    out.writeUuid(error.getVesselData().getVesselDataUuid());
+                    out.writeText(error.getVesselCode());
+                    out.writeText(error.getErrorMessage());
+                    out.writeText(error.getProblemType().name());
+                    errorCount++;
+                }
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to stream validation errors to COPY", e);
+        }
+        return errorCount;
+    }
+
+    /**
+     * Writes rows in the PostgreSQL binary COPY format straight into the COPY stream of the connection.
+     * Closing the output ends the COPY command.
+     */
+    private static final class BinaryCopyOutput implements AutoCloseable {
+
+        private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+        // PostgreSQL timestamps count microseconds from 2000-01-01 00:00:00
+        private static final long POSTGRES_EPOCH_SECONDS = 946_684_800L;
+
+        private final DataOutputStream out;
+
+        private BinaryCopyOutput(PGConnection connection, String sql) throws SQLException, IOException {
+            this.out = new DataOutputStream(new PGCopyOutputStream(connection, sql, COPY_BUFFER_SIZE));
+            out.write(SIGNATURE);
+            out.writeInt(0); // flags
+            out.writeInt(0); // header extension length
+        }
+
+        private void startRow(int fieldCount) throws IOException {
+            out.writeShort(fieldCount);
+        }
+
+        private void writeText(String value) throws IOException {
+            if (value == null) {
+                writeNull();
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeUuid(UUID value) throws IOException {
+            if (value == null) {
+                writeNull();
+                return;
+            }
+            out.writeInt(2 * Long.BYTES);
+            out.writeLong(value.getMostSignificantBits());
+            out.writeLong(value.getLeastSignificantBits());
+        }
+
+        private void writeDouble(Double value) throws IOException {
+            if (value == null) {
+                writeNull();
+                return;
+            }
+            out.writeInt(Double.BYTES);
+            out.writeDouble(value);
+        }
+
+        private void writeTimestamp(LocalDateTime value) throws IOException {
+            if (value == null) {
+                writeNull();
+                return;
+            }
+            long seconds = value.toEpochSecond(ZoneOffset.UTC) - POSTGRES_EPOCH_SECONDS;
+            out.writeInt(Long.BYTES);
+            out.writeLong(seconds * 1_000_000L + value.getNano() / 1_000);
+        }
+
+        private void writeNull() throws IOException {
+            out.writeInt(-1);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.writeShort(-1); // trailer
+            out.close();
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.tdunning.math.stats.TDigest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Base of the {@link OutlierDetector}s that work on quantiles. Fitting a vessel streams the checked metrics of its
+ * VALID rows from the database in one pass into a t-digest per metric, so the memory used per vessel is bounded by
+ * {@code vessel.metrics.outlier.sketch.compression} however many rows the vessel has. The digests of parts of the
+ * data can be merged, so they could also be built in parallel or kept between runs.
+ * <p>
+ * Each metric also gets a digest of only its non-zero values. A vessel idling most of the time reports zero power
+ * and fuel consumption so often that the quantiles of all its values show no spread, while those of the non-zero
+ * values still do.
+ */
+abstract class QuantileSketchOutlierDetector implements OutlierDetector {
+
+    private static final int FETCH_SIZE = 10_000;
+
+    private static final String SQL_SELECT_METRICS = "SELECT "
+            + Arrays.stream(Metric.values()).map(Metric::getColumn).collect(Collectors.joining(", "))
+            + " FROM vessel_data WHERE vessel_code = ? AND validation_status = 'VALID'";
+
+    @Value("${vessel.metrics.outlier.sketch.compression:100}")
+    private double compression;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    QuantileSketchOutlierDetector(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<Model> fit(String vesselCode) {
+        Map<Metric, MetricSketch> sketches = new EnumMap<>(Metric.class);
+        for (Metric metric : Metric.values()) {
+            sketches.put(metric, new MetricSketch(compression));
+        }
+        long[] rows = new long[1];
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SQL_SELECT_METRICS);
+            statement.setString(1, vesselCode);
+            // Stream the rows instead of letting the driver buffer the whole result
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, rs -> {
+            rows[0]++;
+            for (Metric metric : Metric.values()) {
+                double value = rs.getDouble(metric.ordinal() + 1);
+                if (!rs.wasNull()) {
+                    sketches.get(metric).add(value);
+                }
+            }
+        });
+        return rows[0] > 0 ? Optional.of(model(sketches)) : Optional.empty();
+    }
+
+    /**
+     * Builds the model of a vessel from the sketches of its metrics. A metric without values has an empty sketch.
+     */
+    abstract Model model(Map<Metric, MetricSketch> sketches);
+
+    /**
+     * The digests of all values of a metric and of its non-zero values.
+     */
+    record MetricSketch(TDigest values, TDigest nonZeroValues) {
+
+        MetricSketch(double compression) {
+            this(TDigest.createMergingDigest(compression), TDigest.createMergingDigest(compression));
+        }
+
+        void add(double value) {
+            values.add(value);
+            if (value != 0) {
+                nonZeroValues.add(value);
+            }
+        }
+
+        /**
+         * Whether the quantiles of all values are zero, so the metric is scored against its non-zero values instead.
+         */
+        boolean mostlyZero(double median, double spread) {
+            return median == 0 && spread == 0 && nonZeroValues.size() > 0;
+        }
+    }
+
+}
@@ -0,0 +1,368 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.dto.WindowStatisticsDTO;
+import com.gmitaros.vesselmetrics.dto.WindowStatisticsPointDTO;
+import com.gmitaros.vesselmetrics.exception.VesselNotFoundException;
+import com.gmitaros.vesselmetrics.model.ValidationProblemType;
+import com.gmitaros.vesselmetrics.model.ValidationStatus;
+import com.gmitaros.vesselmetrics.model.VesselData;
+import com.gmitaros.vesselmetrics.util.RollingWindowStatistics;
+import com.gmitaros.vesselmetrics.util.RunningStatistics;
+import jakarta.annotation.PostConstruct;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the mean and standard deviation of the checked metrics of every vessel over trailing time windows, such as
+ * the last 24 hours and the last 7 days, so changes in the behaviour of a vessel over time, like seasons or an
+ * engine overhaul, are not hidden by the statistics of its whole history.
+ * <p>
+ * The windows of a vessel are built from its VALID rows of the largest window in the database when they are first
+ * needed, by a series request or by the scoring of an ingested row, and from then on the ingest adds the VALID rows
+ * of every batch once the batch has committed, without asking the database again. Rows that arrive late are inserted
+ * at their time; rows already in the windows, because the build read them, are not added twice. Rows marked INVALID
+ * later, for example by {@link OutlierDetectionService}, stay in the windows until they fall out of them.
+ * <p>
+ * The windows are kept in a Caffeine cache weighed by the size of their buffers and bounded by
+ * {@code vessel.metrics.window.memory.budget}; evicted windows are built again when they are needed next. Windows are
+ * built by the first thread that needs them, outside of any lock of the cache, while other threads needing the same
+ * vessel wait for them. Vessels whose windows would not fit in the budget on their own are built for every request
+ * and not scored. Each vessel's windows are updated under their own lock, so the batches of a vessel are applied
+ * one at a time.
+ * <p>
+ * With {@code vessel.metrics.outlier.window.enabled}, every VALID row is also scored on its way in against the
+ * window of {@code vessel.metrics.outlier.window.duration} of stored rows that ends right before it: a checked
+ * metric more than {@code vessel.metrics.outlier.threshold} standard deviations from the mean of that window gets
+ * an OUTLIER error, and the row is stored as INVALID and kept out of the windows. Windows holding less than
+ * {@code vessel.metrics.outlier.window.min.rows} values of a metric do not score it.
+ */
+@RequiredArgsConstructor
+@Service
+public class RollingStatisticsService {
+
+    private static final Logger log = LoggerFactory.getLogger(RollingStatisticsService.class);
+    private static final OutlierDetector.Metric[] METRICS = OutlierDetector.Metric.values();
+
+    @Value("${vessel.metrics.window.durations:24h,7d}")
+    private List<Duration> durations;
+
+    @Value("${vessel.metrics.outlier.window.enabled:false}")
+    private boolean scoringEnabled;
+
+    @Value("${vessel.metrics.outlier.window.duration:24h}")
+    private Duration scoringDuration;
+
+    @Value("${vessel.metrics.outlier.window.min.rows:30}")
+    private int minRows;
+
+    @Value("${vessel.metrics.outlier.threshold:3}")
+    private double outlierThreshold;
+
+    @Value("${vessel.metrics.window.memory.budget:256MB}")
+    private DataSize memoryBudget;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private Cache<String, RollingWindowStatistics> windows;
+    // Windows being built, so concurrent batches and requests of a vessel wait for one build instead of scanning again
+    private final Map<String, CompletableFuture<RollingWindowStatistics>> building = new ConcurrentHashMap<>();
+    private final Set<String> oversized = ConcurrentHashMap.newKeySet();
+    private long[] windowSeconds;
+    private int scoringWindow;
+
+    @PostConstruct
+    void createWindowCache() {
+        windows = Caffeine.newBuilder()
+                .maximumWeight(memoryBudget.toBytes())
+                .weigher((String vesselCode, RollingWindowStatistics vesselWindows) -> (int) Math.min(Integer.MAX_VALUE, vesselWindows.getByteSize()))
+                .build();
+    }
+
+    @PostConstruct
+    void resolveWindows() {
+        List<Duration> all = new ArrayList<>(durations);
+        all.add(scoringDuration);
+        windowSeconds = all.stream()
+                .peek(duration -> {
+                    if (duration.toSeconds() <= 0) {
+                        throw new IllegalStateException("Window durations must be at least one second: " + duration);
+                    }
+                })
+                .mapToLong(Duration::toSeconds)
+                .distinct()
+                .sorted()
+                .toArray();
+        for (int i = 0; i < windowSeconds.length; i++) {
+            if (windowSeconds[i] == scoringDuration.toSeconds()) {
+                scoringWindow = i;
+            }
+        }
+    }
+
+    /**
+     * Scores the VALID rows of a batch against the windows of their vessels, if enabled. A row is scored against the
+     * stored rows of its window, not the other rows of the batch, and nothing is added to the windows; that is left
+     * to {@link #record(List)} once the batch is committed.
+     *
+     * @param batch the rows about to be written
+     */
+    public void score(List<VesselData> batch) {
+        if (!scoringEnabled) {
+            return;
+        }
+        Map<String, List<VesselData>> rowsByVessel = validRowsByVessel(batch);
+        double[] values = new double[METRICS.length];
+        int rows = 0;
+        int outliers = 0;
+        for (Map.Entry<String, List<VesselData>> vessel : rowsByVessel.entrySet()) {
+            RollingWindowStatistics vesselWindows = windowsOf(vessel.getKey());
+            if (vesselWindows == null) {
+                continue;
+            }
+            synchronized (vesselWindows) {
+                for (VesselData row : vessel.getValue()) {
+                    rows++;
+                    valuesOf(row, values);
+                    if (score(vesselWindows, row.getDateTime().toEpochSecond(ZoneOffset.UTC), row, values)) {
+                        outliers++;
+                    }
+                }
+            }
+        }
+        if (outliers > 0) {
+            log.info("Flagged {} of {} rows as outliers of their {} window", outliers, rows, scoringDuration);
+        }
+    }
+
+    /**
+     * Adds the VALID rows of a committed batch to the windows of their vessels, for the vessels whose windows are
+     * built; the others read the rows from the database when their windows are built. Rows older than the largest
+     * window of their vessel, and rows the windows already hold, are left out.
+     *
+     * @param batch the rows that were written
+     */
+    public void record(List<VesselData> batch) {
+        Map<String, List<VesselData>> rowsByVessel = validRowsByVessel(batch);
+        double[] values = new double[METRICS.length];
+        for (Map.Entry<String, List<VesselData>> vessel : rowsByVessel.entrySet()) {
+            RollingWindowStatistics vesselWindows = builtWindowsOf(vessel.getKey());
+            if (vesselWindows == null) {
+                continue;
+            }
+            boolean grown;
+            synchronized (vesselWindows) {
+                long byteSize = vesselWindows.getByteSize();
+                for (VesselData row : vessel.getValue()) {
+                    long time = row.getDateTime().toEpochSecond(ZoneOffset.UTC);
+                    if (!vesselWindows.contains(time)) {
+                        valuesOf(row, values);
+                        vesselWindows.add(time, values);
+                    }
+                }
+                grown = vesselWindows.getByteSize() != byteSize;
+            }
+            if (grown) {
+                // Weighed again, so the cache evicts other vessels if the grown buffer takes the budget
+                windows.asMap().replace(vessel.getKey(), vesselWindows, vesselWindows);
+            }
+        }
+    }
+
+    /**
+     * Returns the mean and standard deviation of the checked metrics over a trailing window ending at every row kept
+     * for a vessel, oldest first. The rows kept are those of the largest configured window, so the first points of
+     * a series see only the part of their window that is still kept.
+     *
+     * @param vesselCode the vessel
+     * @param window     the length of the window, at most the largest configured window
+     * @return the series
+     * @throws VesselNotFoundException  if the vessel has no VALID rows in its windows
+     * @throws IllegalArgumentException if the window is shorter than a second or longer than the largest configured window
+     */
+    public WindowStatisticsDTO getWindowStatistics(String vesselCode, Duration window) {
+        long largest = windowSeconds[windowSeconds.length - 1];
+        if (window.toSeconds() <= 0 || window.toSeconds() > largest) {
+            throw new IllegalArgumentException("The window must be at least one second and at most " + Duration.ofSeconds(largest));
+        }
+        RollingWindowStatistics vesselWindows = windowsOf(vesselCode);
+        if (vesselWindows == null) {
+            vesselWindows = buildWindows(vesselCode);
+        }
+        List<WindowStatisticsPointDTO> points = new ArrayList<>();
+        synchronized (vesselWindows) {
+            vesselWindows.series(window.toSeconds(), (time, statistics) -> points.add(toPoint(time, statistics)));
+        }
+        if (points.isEmpty()) {
+            // Not kept, so requests for unknown vessels do not fill up the cache
+            windows.asMap().remove(vesselCode, vesselWindows);
+            throw new VesselNotFoundException("Vessel with code " + vesselCode + " has no recent valid data.");
+        }
+        return new WindowStatisticsDTO(vesselCode, window, points);
+    }
+
+    /**
+     * Scores a row against the window ending right before it. A row after the newest one moves the windows to its
+     * time and uses their running statistics; a late row gets the statistics of its window computed from the values
+     * kept, so it is scored against the same rows as if it had arrived in time.
+     */
+    private boolean score(RollingWindowStatistics vesselWindows, long time, VesselData row, double[] values) {
+        RunningStatistics[] lateStatistics = null;
+        if (time > vesselWindows.newestTime()) {
+            vesselWindows.advance(time);
+        } else {
+            lateStatistics = vesselWindows.statisticsAt(scoringWindow, time);
+        }
+        boolean outlier = false;
+        for (int metric = 0; metric < METRICS.length; metric++) {
+            RunningStatistics statistics = lateStatistics != null ? lateStatistics[metric]
+                    : vesselWindows.statistics(scoringWindow, metric);
+            // Two values are needed for a standard deviation
+            if (Double.isNaN(values[metric]) || statistics.getCount() < Math.max(2, minRows)) {
+                continue;
+            }
+            double mean = statistics.getMean();
+            double standardDeviation = statistics.getStandardDeviation();
+            // A zero standard deviation flags every value that differs from the mean, like an infinite z-score does
+            if (Math.abs(values[metric] - mean) > outlierThreshold * standardDeviation) {
+                row.addValidationError(METRICS[metric].getErrorMessage() + " of its " + scoringDuration + " window",
+                        ValidationProblemType.OUTLIER);
+                outlier = true;
+            }
+        }
+        if (outlier) {
+            row.setValidationStatus(ValidationStatus.INVALID);
+        }
+        return outlier;
+    }
+
+    /**
+     * @return the windows of the vessel, built if they are not yet, or null if they would not fit in the budget
+     */
+    private RollingWindowStatistics windowsOf(String vesselCode) {
+        RollingWindowStatistics vesselWindows = windows.getIfPresent(vesselCode);
+        if (vesselWindows != null || oversized.contains(vesselCode)) {
+            return vesselWindows;
+        }
+        CompletableFuture<RollingWindowStatistics> build = new CompletableFuture<>();
+        CompletableFuture<RollingWindowStatistics> running = building.putIfAbsent(vesselCode, build);
+        if (running != null) {
+            return running.join();
+        }
+        try {
+            // Another thread may have finished building them between the lookup and the claim
+            vesselWindows = windows.getIfPresent(vesselCode);
+            if (vesselWindows == null) {
+                vesselWindows = buildWindows(vesselCode);
+                if (vesselWindows.getByteSize() > memoryBudget.toBytes()) {
+                    log.info("Rolling windows of vessel {} with {} rows would not fit in the memory budget, not keeping them",
+                            vesselCode, vesselWindows.size());
+                    oversized.add(vesselCode);
+                    vesselWindows = null;
+                } else {
+                    windows.put(vesselCode, vesselWindows);
+                }
+            }
+            build.complete(vesselWindows);
+            return vesselWindows;
+        } catch (RuntimeException e) {
+            build.completeExceptionally(e);
+            throw e;
+        } finally {
+            building.remove(vesselCode, build);
+        }
+    }
+
+    /**
+     * @return the windows of the vessel if they are built or being built, or null if they are not kept
+     */
+    private RollingWindowStatistics builtWindowsOf(String vesselCode) {
+        CompletableFuture<RollingWindowStatistics> running = building.get(vesselCode);
+        if (running != null) {
+            try {
+                // The build may have read the rows already, or not; the windows tell which
+                return running.join();
+            } catch (CompletionException e) {
+                return null;
+            }
+        }
+        return windows.getIfPresent(vesselCode);
+    }
+
+    private RollingWindowStatistics buildWindows(String vesselCode) {
+        RollingWindowStatistics vesselWindows = new RollingWindowStatistics(windowSeconds, METRICS.length);
+        Timestamp newest = jdbcTemplate.queryForObject(
+                "SELECT MAX(date_time) FROM vessel_data WHERE vessel_code = ? AND validation_status = 'VALID'",
+                Timestamp.class, vesselCode);
+        if (newest == null) {
+            return vesselWindows;
+        }
+        LocalDateTime from = newest.toLocalDateTime().minusSeconds(windowSeconds[windowSeconds.length - 1]);
+        double[] values = new double[METRICS.length];
+        jdbcTemplate.query("SELECT date_time, " + Arrays.stream(METRICS).map(OutlierDetector.Metric::getColumn).collect(Collectors.joining(", "))
+                        + " FROM vessel_data"
+                        + " WHERE vessel_code = ? AND validation_status = 'VALID' AND date_time > ? ORDER BY date_time",
+                rs -> {
+                    for (int metric = 0; metric < METRICS.length; metric++) {
+                        double value = rs.getDouble(2 + metric);
+                        values[metric] = rs.wasNull() ? Double.NaN : value;
+                    }
+                    vesselWindows.add(rs.getTimestamp(1).toLocalDateTime().toEpochSecond(ZoneOffset.UTC), values);
+                }, vesselCode, Timestamp.valueOf(from));
+        log.info("Built rolling windows of vessel {} from {} stored rows", vesselCode, vesselWindows.size());
+        return vesselWindows;
+    }
+
+    /**
+     * @return the VALID rows of the batch by vessel, each in time order
+     */
+    private static Map<String, List<VesselData>> validRowsByVessel(List<VesselData> batch) {
+        Map<String, List<VesselData>> rowsByVessel = new LinkedHashMap<>();
+        batch.stream()
+                .filter(row -> row.getValidationStatus() == ValidationStatus.VALID
+                        && row.getVesselCode() != null && row.getDateTime() != null)
+                .sorted(Comparator.comparing(VesselData::getDateTime))
+                .forEach(row -> rowsByVessel.computeIfAbsent(row.getVesselCode(), code -> new ArrayList<>()).add(row));
+        return rowsByVessel;
+    }
+
+    private static void valuesOf(VesselData row, double[] values) {
+        for (int metric = 0; metric < METRICS.length; metric++) {
+            Double value = METRICS[metric].valueOf(row);
+            values[metric] = value != null ? value : Double.NaN;
+        }
+    }
+
+    private static WindowStatisticsPointDTO toPoint(long time, RunningStatistics[] statistics) {
+        RunningStatistics fuelConsumption = statistics[OutlierDetector.Metric.FUEL_CONSUMPTION.ordinal()];
+        RunningStatistics power = statistics[OutlierDetector.Metric.POWER.ordinal()];
+        RunningStatistics actualSpeedOverground = statistics[OutlierDetector.Metric.ACTUAL_SPEED_OVERGROUND.ordinal()];
+        return new WindowStatisticsPointDTO(LocalDateTime.ofEpochSecond(time, 0, ZoneOffset.UTC),
+                power.getCount(), power.getMean(), power.getStandardDeviation(),
+                fuelConsumption.getCount(), fuelConsumption.getMean(), fuelConsumption.getStandardDeviation(),
+                actualSpeedOverground.getCount(), actualSpeedOverground.getMean(), actualSpeedOverground.getStandardDeviation());
+    }
+
+}
@@ -18,11 +18,14 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 /**
  * Service responsible for calculating statistics related to vessel data,
  * including identifying groups of problematic waypoints based on validation errors.
+ * The INVALID rows are read from the {@link VesselDataStore} when it holds the vessel.
  */
 @Service
 @RequiredArgsConstructor
@@ -32,6 +35,8 @@ public class StatisticsCalculationService {
 
     private final VesselDataRepository vesselDataRepository;
     private final ValidationErrorRepository validationErrorRepository;
+    private final VesselDataStore vesselDataStore;
+    private final VesselReadCache vesselReadCache;
 
     /**
      * Retrieves groups of consecutive waypoints with validation problems for a given vessel, filtered by problem type.
@@ -44,13 +49,15 @@ public class StatisticsCalculationService {
     @Transactional(readOnly = true)
     public List<ProblematicWaypointGroupDTO> getProblematicWaypointGroups(String vesselCode, ValidationProblemType problemType) {
         log.info("Retrieving problematic waypoints for vessel: {}", vesselCode);
-        if (!vesselDataRepository.vesselExists(vesselCode)) {
+        Optional<List<VesselData>> stored = vesselDataStore.read(vesselCode, series -> invalidRowsOf(vesselCode, series));
+        if (stored.isEmpty() && !vesselReadCache.get(VesselReadCache.Kind.VESSEL_EXISTS, vesselCode, vesselDataRepository::vesselExists)) {
             throw new VesselNotFoundException("Vessel with code " + vesselCode + " does not exist.");
         }
 
-        List<VesselData> dataList = vesselDataRepository.findByVesselCodeAndValidationStatus(vesselCode, ValidationStatus.INVALID);
+        List<VesselData> dataList = stored.orElseGet(() ->
+                vesselDataRepository.findByVesselCodeAndValidationStatus(vesselCode, ValidationStatus.INVALID));
 
-        Map<String, VesselData> vesselDataMap = dataList.stream().collect(Collectors.toMap(VesselData::getVesselDataUuid, data -> data));
+        Map<UUID, VesselData> vesselDataMap = dataList.stream().collect(Collectors.toMap(VesselData::getVesselDataUuid, data -> data));
 
         List<VesselData> filteredDataList = getFilteredDataList(vesselCode, problemType, vesselDataMap, dataList);
 
@@ -58,10 +65,20 @@ public class StatisticsCalculationService {
         return groupConsecutiveProblematicWaypoints(filteredDataList);
     }
 
-    private List<VesselData> getFilteredDataList(String vesselCode, ValidationProblemType problemType, Map<String, VesselData> vesselDataMap, List<VesselData> dataList) {
+    private static List<VesselData> invalidRowsOf(String vesselCode, VesselTimeSeries series) {
+        List<VesselData> invalid = new ArrayList<>(series.size() - series.validCount());
+        for (int row = 0; row < series.size(); row++) {
+            if (!series.isValid(row)) {
+                invalid.add(series.toVesselData(vesselCode, row));
+            }
+        }
+        return invalid;
+    }
+
+    private List<VesselData> getFilteredDataList(String vesselCode, ValidationProblemType problemType, Map<UUID, VesselData> vesselDataMap, List<VesselData> dataList) {
         if (problemType != null) {
             // Fetch ValidationErrors matching the vesselCode and problemType
-            List<String> vesselDataUuids = validationErrorRepository.findVesselDataUuidsByVesselCodeAndProblemType(vesselCode, problemType);
+            List<UUID> vesselDataUuids = validationErrorRepository.findVesselDataUuidsByVesselCodeAndProblemType(vesselCode, problemType);
 
             // Filter dataList based on the vesselDataUuids
             return vesselDataUuids.stream()
@@ -27,6 +27,8 @@ public class VesselComplianceService {
 
     private final VesselDataRepository vesselDataRepository;
     private final VesselDataService vesselDataService;
+    private final VesselDataStore vesselDataStore;
+    private final VesselReadCache vesselReadCache;
     private final ExecutorService executorService;
 
     /**
@@ -41,11 +43,11 @@ public class VesselComplianceService {
     @Transactional(readOnly = true)
     public ComplianceComparisonResponseDTO compareVesselCompliance(String vesselCode1, String vesselCode2) {
         long startTime = System.currentTimeMillis();
-        if (!vesselDataRepository.vesselExists(vesselCode1)) {
+        if (!vesselDataStore.isResident(vesselCode1) && !vesselExists(vesselCode1)) {
             throw new VesselNotFoundException("Vessel with code " + vesselCode1 + " does not exist.");
         }
 
-        if (!vesselDataRepository.vesselExists(vesselCode2)) {
+        if (!vesselDataStore.isResident(vesselCode2) && !vesselExists(vesselCode2)) {
             throw new VesselNotFoundException("Vessel with code " + vesselCode2 + " does not exist.");
         }
 
@@ -78,6 +80,10 @@ public class VesselComplianceService {
         }
     }
 
+    private boolean vesselExists(String vesselCode) {
+        return vesselReadCache.get(VesselReadCache.Kind.VESSEL_EXISTS, vesselCode, vesselDataRepository::vesselExists);
+    }
+
     /**
      * Determines which vessel is more compliant based on the calculated compliance percentage.
      *
@@ -4,25 +4,38 @@ import com.gmitaros.vesselmetrics.model.VesselData;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Service for batch-saving vessel data and associated validation errors into the database.
+ * Uses JDBC batch inserts, which work on every database, so it is the default {@link VesselDataWriter}.
+ * The inserted VALID rows are added to the metrics totals of their vessels in the same transaction, and the inserted
+ * rows to the {@link VesselDataStore} once it commits. The cached answers of their vessels are dropped from the
+ * {@link VesselReadCache}.
  */
 @RequiredArgsConstructor
 @Service
-public class VesselDataBatchService {
+@ConditionalOnProperty(name = "vessel.metrics.ingest.writer", havingValue = "jdbc", matchIfMissing = true)
+public class VesselDataBatchService implements VesselDataWriter {
 
     private static final Logger log = LoggerFactory.getLogger(VesselDataBatchService.class);
     private final JdbcTemplate jdbcTemplate;
+    private final VesselStatisticsService vesselStatisticsService;
+    private final VesselDataStore vesselDataStore;
+    private final VesselReadCache vesselReadCache;
 
     // SQL Insert Statement for VesselData Batch Insert
     private static final String SQL_INSERT_VESSEL_DATA = """
             INSERT INTO vessel_data (vessel_data_uuid, vessel_code, date_time, latitude, longitude, power, fuel_consumption, actual_speed_overground, proposed_speed_overground, predicted_fuel_consumption, speed_difference, fuel_efficiency, validation_status)
             VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT DO NOTHING
             """;
 
     // SQL Insert Statement for Validation Errors Batch Insert
@@ -33,17 +46,23 @@ public class VesselDataBatchService {
 
     /**
      * Saves a batch of vessel data into the database.
+     * The vessel data and their validation errors are written in the same transaction, so a batch saved
+     * from a pipeline writer thread is never half-stored, and neither are the metrics totals. Rows that conflict with a stored row are skipped,
+     * and only the validation errors of the inserted rows are saved.
      *
      * @param vesselDataBatch the list of vessel data to save
+     * @return the number of rows inserted
      */
-    public void saveVesselDataBatch(List<VesselData> vesselDataBatch) {
+    @Override
+    @Transactional
+    public int saveVesselDataBatch(List<VesselData> vesselDataBatch) {
         if (vesselDataBatch.isEmpty()) {
             log.warn("Empty vessel data batch received. No records will be saved.");
-            return;
+            return 0;
         }
         try {
             // Batch insert VesselData records
-            jdbcTemplate.batchUpdate(SQL_INSERT_VESSEL_DATA, vesselDataBatch, vesselDataBatch.size(),
+            int[][] updateCounts = jdbcTemplate.batchUpdate(SQL_INSERT_VESSEL_DATA, vesselDataBatch, vesselDataBatch.size(),
                     (ps, vesselData) -> {
                         ps.setObject(1, vesselData.getVesselDataUuid());
                         ps.setString(2, vesselData.getVesselCode());
@@ -61,15 +80,39 @@ public class VesselDataBatchService {
                     }
             );
 
-            log.info("Successfully saved batch of {} VesselData records", vesselDataBatch.size());
+            List<VesselData> inserted = insertedRows(vesselDataBatch, updateCounts);
+            log.info("Successfully saved batch of {} VesselData records, skipped {} already stored",
+                    inserted.size(), vesselDataBatch.size() - inserted.size());
             // Collect and batch insert validation errors
-            saveValidationErrorsBatch(vesselDataBatch);
+            saveValidationErrorsBatch(inserted);
+            vesselStatisticsService.recordStored(inserted);
+            vesselDataStore.recordStored(inserted);
+            vesselReadCache.invalidateVesselsOf(inserted);
+            return inserted.size();
         } catch (Exception e) {
             log.error("Error during batch insert of vessel data", e);
             throw new RuntimeException("Batch insert failed for vessel data", e);
         }
     }
 
+    /**
+     * Picks the rows the insert statements report as inserted. A driver that does not report the count of a
+     * statement ({@link Statement#SUCCESS_NO_INFO}) is trusted to have inserted the row.
+     */
+    private static List<VesselData> insertedRows(List<VesselData> vesselDataBatch, int[][] updateCounts) {
+        List<VesselData> inserted = new ArrayList<>(vesselDataBatch.size());
+        int row = 0;
+        for (int[] counts : updateCounts) {
+            for (int count : counts) {
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    inserted.add(vesselDataBatch.get(row));
+                }
+                row++;
+            }
+        }
+        return inserted;
+    }
+
     /**
      * Saves the associated validation errors for a batch of vessel data.
      *
@@ -0,0 +1,304 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.gmitaros.vesselmetrics.exception.TooManyExportsException;
+import com.gmitaros.vesselmetrics.exception.VesselNotFoundException;
+import com.gmitaros.vesselmetrics.repository.VesselDataRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Streams the raw and calculated metrics of a vessel over a date-time range, like the merged data endpoint returns
+ * them page by page, as newline-delimited JSON or CSV.
+ * <p>
+ * The rows are read in date-time order through a forward-only, read-only cursor within a read-only transaction, and
+ * every row is written to the output as soon as it is read. The driver fetches {@code vessel.metrics.export.fetch.size}
+ * rows at a time, so memory stays the same for any range; PostgreSQL only keeps a server-side cursor when the
+ * fetch size is set and auto-commit is off, which the transaction takes care of.
+ * <p>
+ * Every export holds a connection for as long as it streams, so at most {@code vessel.metrics.export.max.concurrent}
+ * exports run at a time and each one is given {@code vessel.metrics.export.timeout} to finish.
+ */
+@Service
+@RequiredArgsConstructor
+public class VesselDataExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(VesselDataExportService.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    // The writers are not closed, so the output stays open for the response; they are flushed at the end instead
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String[] FIELDS = {"vesselCode", "dateTime", "latitude", "longitude", "power",
+            "fuelConsumption", "actualSpeedOverground", "proposedSpeedOverground", "predictedFuelConsumption",
+            "speedDifference", "fuelEfficiency"};
+
+    private static final String SQL_SELECT_ROWS = """
+            SELECT vessel_code, date_time, latitude, longitude, power, fuel_consumption, actual_speed_overground,
+                   proposed_speed_overground, predicted_fuel_consumption, speed_difference, fuel_efficiency
+            FROM vessel_data
+            WHERE vessel_code = ? AND date_time BETWEEN ? AND ?
+            ORDER BY date_time""";
+
+    /**
+     * The formats of an export.
+     */
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String mediaType;
+        private final String extension;
+
+        Format(String mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public String getMediaType() {
+            return mediaType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * @param name the name of the format, in any case
+         * @return the format
+         * @throws IllegalArgumentException if there is no format with the name
+         */
+        public static Format of(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown export format " + name + ", expected ndjson or csv");
+        }
+    }
+
+    @Value("${vessel.metrics.export.fetch.size:10000}")
+    private int fetchSize;
+
+    @Value("${vessel.metrics.export.timeout:30m}")
+    private Duration timeout;
+
+    @Value("${vessel.metrics.export.max.concurrent:4}")
+    private int maxConcurrent;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final VesselDataRepository vesselDataRepository;
+    private final VesselReadCache vesselReadCache;
+
+    private TransactionTemplate transactionTemplate;
+    private Semaphore slots;
+
+    @PostConstruct
+    void createTransactionTemplate() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        slots = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * @return the time an export is given to finish
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Takes one of the slots of the exports that run at a time, before an export starts.
+     *
+     * @return releases the slot; only the first call does, so it can be called by every way the export ends
+     * @throws TooManyExportsException if all slots are taken
+     */
+    public Runnable acquireSlot() {
+        if (!slots.tryAcquire()) {
+            throw new TooManyExportsException("Already running " + maxConcurrent + " exports, try again later.");
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                slots.release();
+            }
+        };
+    }
+
+    /**
+     * Checks that a vessel exists before its export starts, while the status of the response can still be set.
+     *
+     * @param vesselCode the vessel
+     * @throws VesselNotFoundException if the vessel has no rows
+     */
+    public void checkVesselExists(String vesselCode) {
+        if (!vesselReadCache.get(VesselReadCache.Kind.VESSEL_EXISTS, vesselCode, vesselDataRepository::vesselExists)) {
+            throw new VesselNotFoundException("Vessel with code " + vesselCode + " does not exist.");
+        }
+    }
+
+    /**
+     * Writes the rows of a vessel between two date-times, both included, in date-time order. The output is flushed
+     * but not closed.
+     *
+     * @param vesselCode the vessel
+     * @param start      the first date-time
+     * @param end        the last date-time
+     * @param format     the format of the rows
+     * @param out        the output
+     * @return the number of rows written
+     * @throws IOException if the output cannot be written, such as when the client went away
+     */
+    public long export(String vesselCode, LocalDateTime start, LocalDateTime end, Format format, OutputStream out)
+            throws IOException {
+        log.info("Exporting data of vessel {} from {} to {} as {}", vesselCode, start, end, format);
+        long startTime = System.nanoTime();
+        RowWriter writer = format == Format.NDJSON ? new NdjsonRowWriter(out) : new CsvRowWriter(out);
+        long[] rows = new long[1];
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(SQL_SELECT_ROWS,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setString(1, vesselCode);
+                statement.setTimestamp(2, Timestamp.valueOf(start));
+                statement.setTimestamp(3, Timestamp.valueOf(end));
+                // Stream the rows instead of letting the driver buffer the whole result
+                statement.setFetchSize(fetchSize);
+                return statement;
+            }, rs -> {
+                try {
+                    writer.write(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish();
+        long elapsedNanos = Math.max(1, System.nanoTime() - startTime);
+        log.info("Exported {} rows of vessel {} in {} ms, {} rows/s", rows[0], vesselCode, elapsedNanos / 1_000_000,
+                rows[0] * 1_000_000_000L / elapsedNanos);
+        return rows[0];
+    }
+
+    /**
+     * Writes the current row of the result set to the output.
+     */
+    private interface RowWriter {
+
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    /**
+     * One JSON object per line, with the fields of the merged data endpoint and null for missing values.
+     */
+    private static final class NdjsonRowWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+
+        private NdjsonRowWriter(OutputStream out) throws IOException {
+            generator = JSON_FACTORY.createGenerator(out);
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeStringField(FIELDS[0], rs.getString(1));
+            generator.writeStringField(FIELDS[1], formatDateTime(rs.getTimestamp(2)));
+            for (int column = 3; column <= FIELDS.length; column++) {
+                double value = rs.getDouble(column);
+                generator.writeFieldName(FIELDS[column - 1]);
+                if (rs.wasNull()) {
+                    generator.writeNull();
+                } else {
+                    generator.writeNumber(value);
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+
+    /**
+     * A header line with the fields of the merged data endpoint, then one line per row with empty cells for missing
+     * values. Vessel codes are quoted when they hold a separator or a quote.
+     */
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        private CsvRowWriter(OutputStream out) throws IOException {
+            writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            writer.write(String.join(",", FIELDS));
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            writer.write(csvCell(rs.getString(1)));
+            writer.write(',');
+            writer.write(formatDateTime(rs.getTimestamp(2)));
+            for (int column = 3; column <= FIELDS.length; column++) {
+                double value = rs.getDouble(column);
+                writer.write(',');
+                if (!rs.wasNull()) {
+                    writer.write(Double.toString(value));
+                }
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        private static String csvCell(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    private static String formatDateTime(Timestamp timestamp) {
+        return DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(timestamp.toLocalDateTime());
+    }
+
+}
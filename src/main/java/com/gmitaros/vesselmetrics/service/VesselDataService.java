@@ -14,16 +14,23 @@ import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Service class responsible for handling operations related to vessel data.
  * It provides functionality for calculating speed differences, validation issues, compliance, and merged data retrieval.
+ * Speed differences and merged data are read from the {@link VesselDataStore} when it holds the vessel, with pages
+ * in date-time order; pages sorted otherwise are read from the database straight into DTOs, without loading
+ * {@link VesselData} entities. Whether a vessel exists, its validation issues and its compliance are answered from
+ * the {@link VesselReadCache}.
  */
 @Service
 @RequiredArgsConstructor
@@ -33,6 +40,9 @@ public class VesselDataService {
 
     private final VesselDataRepository vesselDataRepository;
     private final ValidationErrorRepository validationErrorRepository;
+    private final VesselDataStore vesselDataStore;
+    private final VesselStatisticsService vesselStatisticsService;
+    private final VesselReadCache vesselReadCache;
 
     /**
      * Retrieves a paginated list of speed differences for the specified vessel.
@@ -46,18 +56,29 @@ public class VesselDataService {
     public Page<SpeedDifferenceDTO> getSpeedDifferences(String vesselCode, Pageable pageable) {
         log.info("Fetching speed differences for vessel: {}", vesselCode);
 
-        if (!vesselDataRepository.vesselExists(vesselCode)) {
+        if (VesselDataStore.isDateTimeOrdered(pageable)) {
+            Optional<Page<SpeedDifferenceDTO>> stored = vesselDataStore.read(vesselCode, series -> {
+                List<SpeedDifferenceDTO> content = new ArrayList<>();
+                series.forEachValid(offsetOf(pageable), limitOf(pageable), row -> content.add(new SpeedDifferenceDTO(
+                        series.dateTime(row),
+                        series.value(VesselTimeSeries.Field.LATITUDE, row),
+                        series.value(VesselTimeSeries.Field.LONGITUDE, row),
+                        series.value(VesselTimeSeries.Field.SPEED_DIFFERENCE, row)
+                )));
+                return new PageImpl<>(content, pageable, series.validCount());
+            });
+            if (stored.isPresent()) {
+                return stored.get();
+            }
+        }
+
+        if (!vesselReadCache.get(VesselReadCache.Kind.VESSEL_EXISTS, vesselCode, vesselDataRepository::vesselExists)) {
             throw new VesselNotFoundException("Vessel with code " + vesselCode + " does not exist.");
         }
 
-        Page<VesselData> dataList = vesselDataRepository.findByVesselCodeAndValidationStatus(vesselCode, ValidationStatus.VALID, pageable);
+        Page<SpeedDifferenceDTO> speedDifferences = vesselDataRepository.findSpeedDifferencesByVesselCodeAndValidationStatus(vesselCode, ValidationStatus.VALID, pageable);
         log.info("Successfully fetched speed differences for vessel: {}", vesselCode);
-        return dataList.map(data -> new SpeedDifferenceDTO(
-                data.getDateTime(),
-                data.getLatitude(),
-                data.getLongitude(),
-                data.getSpeedDifference()
-        ));
+        return speedDifferences;
     }
 
     /**
@@ -70,16 +91,18 @@ public class VesselDataService {
     @Transactional(readOnly = true)
     public List<ValidationIssueDTO> getValidationIssues(String vesselCode) {
         log.info("Fetching validation issues for vessel: {}", vesselCode);
-        if (!vesselDataRepository.vesselExists(vesselCode)) {
+        if (!vesselReadCache.get(VesselReadCache.Kind.VESSEL_EXISTS, vesselCode, vesselDataRepository::vesselExists)) {
             throw new VesselNotFoundException("Vessel with code " + vesselCode + " does not exist.");
         }
         log.info("Successfully fetched validation issues for vessel: {}", vesselCode);
-        return validationErrorRepository.findValidationIssuesByVesselCode(vesselCode);
+        return vesselReadCache.get(VesselReadCache.Kind.VALIDATION_ISSUES, vesselCode,
+                code -> List.copyOf(validationErrorRepository.findValidationIssuesByVesselCode(code)));
     }
 
     /**
      * Calculates the compliance percentage for the specified vessel based on how far its actual speed
-     * deviates from the proposed speed.
+     * deviates from the proposed speed. The compliance is read from the totals kept by the
+     * {@link VesselStatisticsService}, so it takes the same time however many rows the vessel has.
      *
      * @param vesselCode the unique identifier of the vessel
      * @return a ComplianceDTO containing the compliance percentage for the vessel
@@ -87,21 +110,8 @@ public class VesselDataService {
     @Transactional(readOnly = true)
     public ComplianceDTO calculateCompliance(String vesselCode) {
         log.info("Calculating compliance for vessel: {}", vesselCode);
-        List<VesselData> dataList = vesselDataRepository.findByVesselCodeAndValidationStatus(vesselCode, ValidationStatus.VALID);
-
-        double totalCompliance = 0.0;
-        int count = 0;
-
-        for (VesselData data : dataList) {
-            Double actualSpeed = data.getActualSpeedOverground();
-            Double proposedSpeed = data.getProposedSpeedOverground();
-            if (actualSpeed != null && proposedSpeed != null && proposedSpeed != 0) {
-                double compliance = (1 - Math.abs(actualSpeed - proposedSpeed) / proposedSpeed) * 100;
-                totalCompliance += compliance;
-                count++;
-            }
-        }
-        double averageCompliance = count > 0 ? totalCompliance / count : 0;
+        double averageCompliance = vesselReadCache.get(VesselReadCache.Kind.COMPLIANCE, vesselCode,
+                vesselStatisticsService::complianceOf);
         log.info("Compliance for vessel {} calculated as {}%", vesselCode, averageCompliance);
         return new ComplianceDTO(vesselCode, averageCompliance);
     }
@@ -111,9 +121,32 @@ public class VesselDataService {
         log.info("Fetching merged data for vessel: {} from {} to {}", vesselCode, startDate, endDate);
         final LocalDateTime start = LocalDateTime.parse(startDate);
         final LocalDateTime end = LocalDateTime.parse(endDate);
-        final Page<VesselData> dataList = vesselDataRepository.findByVesselCodeAndDateTimeBetween(vesselCode, start, end, pageable);
+        if (VesselDataStore.isDateTimeOrdered(pageable)) {
+            Optional<Page<VesselDataDTO>> stored = vesselDataStore.read(vesselCode, series -> {
+                int first = series.firstAtOrAfter(start);
+                int last = Math.max(first, series.firstAfter(end));
+                List<VesselDataDTO> content = new ArrayList<>();
+                long from = first + offsetOf(pageable);
+                for (long row = from; row < last && row < from + limitOf(pageable); row++) {
+                    content.add(Utils.mapToVesselDataDTO(series.toVesselData(vesselCode, (int) row)));
+                }
+                return new PageImpl<>(content, pageable, last - first);
+            });
+            if (stored.isPresent()) {
+                return stored.get();
+            }
+        }
+        final Page<VesselDataDTO> mergedData = vesselDataRepository.findMergedDataByVesselCodeAndDateTimeBetween(vesselCode, start, end, pageable);
         log.info("Successfully fetched merged data for vessel: {}", vesselCode);
-        return dataList.map(Utils::mapToVesselDataDTO);
+        return mergedData;
+    }
+
+    private static long offsetOf(Pageable pageable) {
+        return pageable.isPaged() ? pageable.getOffset() : 0;
+    }
+
+    private static int limitOf(Pageable pageable) {
+        return pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
     }
 
 }
@@ -0,0 +1,322 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.model.ValidationStatus;
+import com.gmitaros.vesselmetrics.model.VesselData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the rows of recently read vessels in memory as {@link VesselTimeSeries}, so the read endpoints can answer
+ * from primitive arrays instead of loading {@link VesselData} entities from the database.
+ * <p>
+ * A vessel is loaded from the database the first time it is read, in one pass over its rows in date-time order. From
+ * then on the writers add the rows they store and outlier detection marks the rows it invalidates, once their
+ * transactions commit. The store is bounded by {@code vessel.metrics.store.memory.budget}: when the vessels in it
+ * hold more, the least recently read ones are dropped, and vessels that would not fit on their own are not loaded.
+ * A budget of 0 disables the store.
+ * <p>
+ * Like the metrics totals, the store only sees the changes made through the service. Rows changed directly in the
+ * database are not tracked; {@link #clear()} drops every vessel, so they are loaded again.
+ */
+@Service
+public class VesselDataStore {
+
+    private static final Logger log = LoggerFactory.getLogger(VesselDataStore.class);
+    private static final int FETCH_SIZE = 10_000;
+    // Size of a row in the columns, to decide whether a vessel fits before loading it
+    private static final long ROW_BYTES = 8L * 3 + 8L * VesselTimeSeries.Field.values().length + 2;
+
+    private static final String SQL_COUNT_ROWS = "SELECT COUNT(*) FROM vessel_data WHERE vessel_code = ?";
+
+    private static final String SQL_SELECT_ROWS = """
+            SELECT vessel_data_uuid, date_time, latitude, longitude, power, fuel_consumption, actual_speed_overground,
+                   proposed_speed_overground, predicted_fuel_consumption, speed_difference, fuel_efficiency, validation_status
+            FROM vessel_data
+            WHERE vessel_code = ?
+            ORDER BY date_time""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long budget;
+
+    // In access order, so the first vessel is the least recently read; guarded by itself
+    private final LinkedHashMap<String, Entry> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private long residentBytes;
+    private long clears;
+    // Counts the changes of every vessel, so a load that ran while a vessel changed is not kept
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+    private final Set<String> oversized = ConcurrentHashMap.newKeySet();
+
+    public VesselDataStore(JdbcTemplate jdbcTemplate,
+                           @Value("${vessel.metrics.store.memory.budget:256MB}") DataSize budget) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.budget = budget.toBytes();
+    }
+
+    /**
+     * Whether the rows of a page can be served by the store, which keeps them in date-time order only.
+     *
+     * @param pageable the requested page
+     * @return true if the page is unsorted or sorted by ascending date-time
+     */
+    public static boolean isDateTimeOrdered(Pageable pageable) {
+        Sort sort = pageable.getSort();
+        if (sort.isUnsorted()) {
+            return true;
+        }
+        List<Sort.Order> orders = sort.toList();
+        return orders.size() == 1 && orders.getFirst().getProperty().equals("dateTime") && orders.getFirst().isAscending();
+    }
+
+    /**
+     * Runs the reader on the rows of a vessel, loading them first if they are not in the store yet.
+     *
+     * @param vesselCode the vessel
+     * @param reader     reads the rows; it runs under a read lock and must not keep the series
+     * @return the result of the reader, or empty if the store is disabled, the vessel has no rows or does not fit
+     */
+    <T> Optional<T> read(String vesselCode, Function<VesselTimeSeries, T> reader) {
+        Entry entry = residentEntry(vesselCode);
+        if (entry == null) {
+            entry = load(vesselCode);
+            if (entry == null) {
+                return Optional.empty();
+            }
+        }
+        entry.lock.readLock().lock();
+        try {
+            return Optional.ofNullable(reader.apply(entry.series));
+        } finally {
+            entry.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds stored rows to the vessels in the store once the current transaction commits. Rows whose date-time is
+     * already kept for their vessel are skipped, so a batch that also holds rows the database skipped as
+     * duplicates can be passed as a whole.
+     *
+     * @param rows the rows written
+     */
+    public void recordStored(Collection<VesselData> rows) {
+        if (budget <= 0 || rows.isEmpty()) {
+            return;
+        }
+        Map<String, List<VesselData>> byVessel = rows.stream()
+                .filter(row -> row.getVesselCode() != null)
+                .collect(Collectors.groupingBy(VesselData::getVesselCode));
+        afterCommit(() -> byVessel.forEach((vesselCode, vesselRows) -> update(vesselCode, series -> series.add(vesselRows))));
+    }
+
+    /**
+     * Marks rows INVALID in the store once the current transaction commits.
+     *
+     * @param vesselCode the vessel
+     * @param rows       the rows invalidated
+     */
+    public void recordInvalidated(String vesselCode, Collection<VesselData> rows) {
+        if (budget <= 0 || rows.isEmpty()) {
+            return;
+        }
+        List<VesselData> invalidated = List.copyOf(rows);
+        afterCommit(() -> update(vesselCode, series -> invalidated.forEach(row -> series.markInvalid(row.getDateTime()))));
+    }
+
+    /**
+     * Drops a vessel from the store once the current transaction commits, for changes made in the database that
+     * cannot be applied to the rows in memory.
+     *
+     * @param vesselCode the vessel
+     */
+    public void evict(String vesselCode) {
+        if (budget <= 0) {
+            return;
+        }
+        afterCommit(() -> {
+            versions.merge(vesselCode, 1L, Long::sum);
+            oversized.remove(vesselCode);
+            synchronized (resident) {
+                Entry entry = resident.remove(vesselCode);
+                if (entry != null) {
+                    residentBytes -= entry.bytes;
+                }
+            }
+        });
+    }
+
+    /**
+     * Drops every vessel from the store.
+     */
+    public void clear() {
+        synchronized (resident) {
+            resident.keySet().forEach(vesselCode -> versions.merge(vesselCode, 1L, Long::sum));
+            resident.clear();
+            residentBytes = 0;
+            clears++;
+        }
+        oversized.clear();
+    }
+
+    /**
+     * @return whether the rows of the vessel are in the store
+     */
+    public boolean isResident(String vesselCode) {
+        synchronized (resident) {
+            return resident.containsKey(vesselCode);
+        }
+    }
+
+    private Entry residentEntry(String vesselCode) {
+        if (budget <= 0) {
+            return null;
+        }
+        synchronized (resident) {
+            return resident.get(vesselCode);
+        }
+    }
+
+    private Entry load(String vesselCode) {
+        if (budget <= 0 || oversized.contains(vesselCode)) {
+            return null;
+        }
+        Long rows = jdbcTemplate.queryForObject(SQL_COUNT_ROWS, Long.class, vesselCode);
+        if (rows == null || rows == 0) {
+            return null;
+        }
+        if (rows * ROW_BYTES > budget) {
+            log.info("Vessel {} has {} rows, more than the store holds, reading it from the database", vesselCode, rows);
+            oversized.add(vesselCode);
+            return null;
+        }
+        long version = versions.getOrDefault(vesselCode, 0L);
+        long clearsBefore;
+        synchronized (resident) {
+            clearsBefore = clears;
+        }
+        long startTime = System.nanoTime();
+        VesselTimeSeries series = new VesselTimeSeries();
+        VesselData row = new VesselData();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SQL_SELECT_ROWS);
+            statement.setString(1, vesselCode);
+            // Stream the rows instead of letting the driver buffer the whole result
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, rs -> {
+            row.setVesselDataUuid(rs.getObject(1, UUID.class));
+            row.setDateTime(rs.getTimestamp(2).toLocalDateTime());
+            row.setLatitude(rs.getObject(3, Double.class));
+            row.setLongitude(rs.getObject(4, Double.class));
+            row.setPower(rs.getObject(5, Double.class));
+            row.setFuelConsumption(rs.getObject(6, Double.class));
+            row.setActualSpeedOverground(rs.getObject(7, Double.class));
+            row.setProposedSpeedOverground(rs.getObject(8, Double.class));
+            row.setPredictedFuelConsumption(rs.getObject(9, Double.class));
+            row.setSpeedDifference(rs.getObject(10, Double.class));
+            row.setFuelEfficiency(rs.getObject(11, Double.class));
+            row.setValidationStatus(ValidationStatus.valueOf(rs.getString(12)));
+            series.append(row);
+        });
+        Entry entry = new Entry(series);
+        synchronized (resident) {
+            if (versions.getOrDefault(vesselCode, 0L) != version || clears != clearsBefore) {
+                // Changed while it was read; served this once, loaded again by the next read
+                return entry;
+            }
+            Entry previous = resident.put(vesselCode, entry);
+            residentBytes += entry.bytes - (previous != null ? previous.bytes : 0);
+            evictOverBudget();
+        }
+        log.info("Loaded {} rows of vessel {} into the store in {} ms", series.size(), vesselCode,
+                (System.nanoTime() - startTime) / 1_000_000);
+        return entry;
+    }
+
+    private void update(String vesselCode, Consumer<VesselTimeSeries> change) {
+        versions.merge(vesselCode, 1L, Long::sum);
+        Entry entry = residentEntry(vesselCode);
+        if (entry == null) {
+            return;
+        }
+        entry.lock.writeLock().lock();
+        try {
+            change.accept(entry.series);
+        } finally {
+            entry.lock.writeLock().unlock();
+        }
+        synchronized (resident) {
+            // Dropped while it was changed
+            if (resident.get(vesselCode) != entry) {
+                return;
+            }
+            long bytes = entry.series.bytes();
+            residentBytes += bytes - entry.bytes;
+            entry.bytes = bytes;
+            evictOverBudget();
+        }
+    }
+
+    private void evictOverBudget() {
+        Iterator<Map.Entry<String, Entry>> eldest = resident.entrySet().iterator();
+        // The most recently read vessel stays, even if it grew over the budget on its own
+        while (residentBytes > budget && resident.size() > 1 && eldest.hasNext()) {
+            Map.Entry<String, Entry> evicted = eldest.next();
+            residentBytes -= evicted.getValue().bytes;
+            eldest.remove();
+            log.info("Dropped vessel {} from the store", evicted.getKey());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * The rows of a vessel in the store, with the lock that guards them.
+     */
+    private static final class Entry {
+
+        private final VesselTimeSeries series;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        // Changed under the lock of the resident map
+        private long bytes;
+
+        private Entry(VesselTimeSeries series) {
+            this.series = series;
+            this.bytes = series.bytes();
+        }
+    }
+
+}
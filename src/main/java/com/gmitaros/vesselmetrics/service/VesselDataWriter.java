@@ -0,0 +1,24 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.model.VesselData;
+
+import java.util.List;
+
+/**
+ * Writes batches of vessel data, together with their validation errors, to the database.
+ * The implementation is selected with the {@code vessel.metrics.ingest.writer} property.
+ * <p>
+ * Rows are unique by vessel code and date-time: a row whose key is already stored is skipped together with its
+ * validation errors, so loading the same data again does not duplicate it.
+ */
+public interface VesselDataWriter {
+
+    /**
+     * Saves a batch of vessel data and its validation errors, skipping the rows that are already stored.
+     *
+     * @param vesselDataBatch the list of vessel data to save
+     * @return the number of rows inserted
+     */
+    int saveVesselDataBatch(List<VesselData> vesselDataBatch);
+
+}
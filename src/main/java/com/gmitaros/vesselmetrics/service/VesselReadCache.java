@@ -0,0 +1,135 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.dto.CacheStatisticsDTO;
+import com.gmitaros.vesselmetrics.model.VesselData;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Caches the answers of the read endpoints that depend on a vessel as a whole: whether it exists, the statistics of
+ * its metrics, the counts of its validation issues and its compliance. They only change when rows of the vessel are
+ * written or outlier detection changes them, so the writers and outlier detection invalidate the vessels they
+ * touched once their transactions complete, whether they commit or roll back.
+ * <p>
+ * Every kind of answer has its own Caffeine cache, bounded by {@code vessel.metrics.cache.maximum.size} entries.
+ * Caffeine evicts with W-TinyLFU, which keeps the vessels read often even when many others are read once. Entries
+ * also expire after {@code vessel.metrics.cache.expire.after.write}, so rows changed directly in the database are
+ * seen eventually; {@link VesselStatisticsService#rebuild()} invalidates everything at once.
+ */
+@Service
+public class VesselReadCache {
+
+    /**
+     * The kinds of cached answers.
+     */
+    public enum Kind {
+        VESSEL_EXISTS,
+        STATISTICS,
+        VALIDATION_ISSUES,
+        COMPLIANCE
+    }
+
+    private final Map<Kind, Cache<String, Object>> caches = new EnumMap<>(Kind.class);
+
+    public VesselReadCache(@Value("${vessel.metrics.cache.maximum.size:10000}") long maximumSize,
+                           @Value("${vessel.metrics.cache.expire.after.write:10m}") Duration expireAfterWrite) {
+        for (Kind kind : Kind.values()) {
+            caches.put(kind, Caffeine.newBuilder()
+                    .maximumSize(maximumSize)
+                    .expireAfterWrite(expireAfterWrite)
+                    .recordStats()
+                    .build());
+        }
+    }
+
+    /**
+     * Returns the cached answer for a vessel, loading it on a miss. Concurrent misses for the same vessel load it
+     * once.
+     *
+     * @param kind       the kind of answer
+     * @param vesselCode the vessel
+     * @param loader     loads the answer; it must not return null
+     * @return the answer
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Kind kind, String vesselCode, Function<String, T> loader) {
+        return (T) caches.get(kind).get(vesselCode, loader);
+    }
+
+    /**
+     * Drops the answers of the given vessels once the current transaction completes, or right away outside of one.
+     *
+     * @param vesselCodes the vessels whose rows changed
+     */
+    public void invalidate(Collection<String> vesselCodes) {
+        if (vesselCodes.isEmpty()) {
+            return;
+        }
+        Set<String> invalidated = Set.copyOf(vesselCodes);
+        afterCompletion(() -> caches.values().forEach(cache -> cache.invalidateAll(invalidated)));
+    }
+
+    /**
+     * Drops the answers of the vessels of the given rows once the current transaction completes.
+     *
+     * @param rows the rows written
+     */
+    public void invalidateVesselsOf(Collection<VesselData> rows) {
+        invalidate(rows.stream().map(VesselData::getVesselCode).filter(Objects::nonNull).collect(Collectors.toSet()));
+    }
+
+    /**
+     * Drops every cached answer once the current transaction completes, or right away outside of one.
+     */
+    public void invalidateAll() {
+        afterCompletion(() -> caches.values().forEach(Cache::invalidateAll));
+    }
+
+    /**
+     * @return the hits, misses and evictions of every cache since the start
+     */
+    public List<CacheStatisticsDTO> statistics() {
+        return Arrays.stream(Kind.values())
+                .map(kind -> {
+                    Cache<String, Object> cache = caches.get(kind);
+                    CacheStats stats = cache.stats();
+                    return new CacheStatisticsDTO(kind.name().toLowerCase(), cache.estimatedSize(), stats.hitCount(),
+                            stats.missCount(), stats.hitRate(), stats.evictionCount());
+                })
+                .toList();
+    }
+
+    /**
+     * Runs the action after the transaction ended: a rollback can leave answers read within the transaction in the
+     * cache as well.
+     */
+    private static void afterCompletion(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.run();
+            }
+        });
+    }
+
+}
@@ -0,0 +1,306 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.model.ValidationStatus;
+import com.gmitaros.vesselmetrics.model.VesselData;
+import com.gmitaros.vesselmetrics.model.VesselMetricsStatistics;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the count, sum and sum of squares of every metric over the VALID rows of each vessel in the
+ * {@code vessel_metrics_totals} table, from which the {@code vessel_metrics_statistics} view computes the mean and
+ * standard deviation with a primary key lookup. The count and sum of the compliance of the rows are kept next to
+ * them, so the compliance of a vessel is read the same way.
+ * <p>
+ * The totals are changed in the transactions that change the rows: the batch writers add the VALID rows they
+ * insert, and outlier detection removes the rows it marks INVALID. Rows changed in any other way, for example by
+ * hand in the database, are not tracked; {@link #rebuild()} computes all totals from the rows again.
+ */
+@RequiredArgsConstructor
+@Service
+public class VesselStatisticsService {
+
+    private static final Logger log = LoggerFactory.getLogger(VesselStatisticsService.class);
+
+    /**
+     * The totals columns, in the order of the values of {@link #totalsOf(String)}.
+     */
+    public static final String TOTALS_COLUMNS = "valid_rows, " + Arrays.stream(Metric.values())
+            .map(metric -> metric.column + "_count, " + metric.column + "_sum, " + metric.column + "_sum_squares")
+            .collect(Collectors.joining(", ")) + ", compliance_count, compliance_sum";
+
+    private static final String SQL_INSERT_TOTALS =
+            "INSERT INTO vessel_metrics_totals (vessel_code) VALUES (?) ON CONFLICT DO NOTHING";
+
+    private static final String SQL_ADD_TOTALS = "UPDATE vessel_metrics_totals SET "
+            + Arrays.stream(TOTALS_COLUMNS.split(", "))
+            .map(column -> column + " = " + column + " + ?")
+            .collect(Collectors.joining(", "))
+            + " WHERE vessel_code = ?";
+
+    private static final String SQL_REBUILD_TOTALS = "INSERT INTO vessel_metrics_totals (vessel_code, " + TOTALS_COLUMNS
+            + ") SELECT vessel_code, " + totalsOf(null)
+            + " FROM vessel_data WHERE validation_status = 'VALID' GROUP BY vessel_code";
+
+    private static final String SQL_FIND_STATISTICS = "SELECT * FROM vessel_metrics_statistics WHERE vessel_code = ?";
+
+    private static final String SQL_FIND_COMPLIANCE =
+            "SELECT compliance_count, compliance_sum FROM vessel_metrics_totals WHERE vessel_code = ?";
+
+    private static final RowMapper<VesselMetricsStatistics> STATISTICS_MAPPER =
+            new BeanPropertyRowMapper<>(VesselMetricsStatistics.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VesselReadCache vesselReadCache;
+
+    /**
+     * Returns the aggregates that compute the values of {@link #TOTALS_COLUMNS} over a set of rows.
+     *
+     * @param alias the alias of the rows, or null for none
+     * @return the comma-separated aggregates
+     */
+    public static String totalsOf(String alias) {
+        String prefix = alias == null ? "" : alias + ".";
+        String actualSpeed = prefix + "actual_speed_overground";
+        String proposedSpeed = prefix + "proposed_speed_overground";
+        String complianceCase = "CASE WHEN " + proposedSpeed + " <> 0 THEN ";
+        return "COUNT(*), " + Arrays.stream(Metric.values())
+                .map(metric -> prefix + metric.column)
+                .map(column -> "COUNT(" + column + "), COALESCE(SUM(" + column + "), 0), COALESCE(SUM(" + column + " * " + column + "), 0)")
+                .collect(Collectors.joining(", "))
+                + ", COUNT(" + complianceCase + actualSpeed + " END)"
+                + ", COALESCE(SUM(" + complianceCase + "(1 - ABS(" + actualSpeed + " - " + proposedSpeed + ") / "
+                + proposedSpeed + ") * 100 END), 0)";
+    }
+
+    /**
+     * Computes the compliance of a row: 100 when it sails at the proposed speed, less the further its actual speed
+     * is from it, in percent of the proposed speed.
+     *
+     * @param actualSpeed   the actual speed overground
+     * @param proposedSpeed the proposed speed overground
+     * @return the compliance, or null if a speed is missing or the proposed speed is 0
+     */
+    public static Double compliance(Double actualSpeed, Double proposedSpeed) {
+        if (actualSpeed == null || proposedSpeed == null || proposedSpeed == 0) {
+            return null;
+        }
+        return (1 - Math.abs(actualSpeed - proposedSpeed) / proposedSpeed) * 100;
+    }
+
+    /**
+     * Adds the VALID rows of a batch to the totals of their vessels. Must be called in the transaction that
+     * inserted the rows.
+     *
+     * @param rows the rows inserted
+     */
+    public void recordStored(List<VesselData> rows) {
+        apply(rows, 1);
+    }
+
+    /**
+     * Removes rows that were VALID and have been marked INVALID from the totals of their vessels. Must be called in
+     * the transaction that changed the rows.
+     *
+     * @param rows the rows that are no longer VALID
+     */
+    public void recordInvalidated(List<VesselData> rows) {
+        apply(rows, -1);
+    }
+
+    /**
+     * Removes the VALID rows of a vessel that match a condition from its totals, before they are marked INVALID in
+     * the database. Must be called in the transaction that changes the rows.
+     *
+     * @param vesselCode the vessel of the rows
+     * @param condition  an SQL condition on the columns of {@code vessel_data}
+     * @param args       the arguments of the condition
+     */
+    public void recordInvalidated(String vesselCode, String condition, Object... args) {
+        Object[] arguments = new Object[args.length + 1];
+        arguments[0] = vesselCode;
+        System.arraycopy(args, 0, arguments, 1, args.length);
+        Totals totals = jdbcTemplate.queryForObject("SELECT " + totalsOf(null)
+                        + " FROM vessel_data WHERE vessel_code = ? AND validation_status = 'VALID' AND (" + condition + ")",
+                (rs, rowNum) -> Totals.of(rs, -1), arguments);
+        if (totals != null && totals.rows != 0) {
+            update(new TreeMap<>(Map.of(vesselCode, totals)));
+        }
+    }
+
+    /**
+     * Returns the statistics of a vessel, read from the totals. They are read with JDBC rather than JPA, so a read
+     * after the totals changed in the same transaction is not answered from the persistence context.
+     *
+     * @param vesselCode the vessel
+     * @return the statistics, or empty if the vessel has no VALID rows
+     */
+    public Optional<VesselMetricsStatistics> statisticsOf(String vesselCode) {
+        return jdbcTemplate.query(SQL_FIND_STATISTICS, STATISTICS_MAPPER, vesselCode).stream().findFirst();
+    }
+
+    /**
+     * Like {@link #statisticsOf(String)}, but answered from the {@link VesselReadCache}. Must not be used after the
+     * totals of the vessel changed in the current transaction, as the cached statistics are only dropped once it
+     * completes.
+     *
+     * @param vesselCode the vessel
+     * @return the statistics, or empty if the vessel has no VALID rows
+     */
+    public Optional<VesselMetricsStatistics> cachedStatisticsOf(String vesselCode) {
+        return vesselReadCache.get(VesselReadCache.Kind.STATISTICS, vesselCode, this::statisticsOf);
+    }
+
+    /**
+     * Returns the average compliance of the VALID rows of a vessel, read from the totals.
+     *
+     * @param vesselCode the vessel
+     * @return the average compliance, or 0 if no VALID row of the vessel has a compliance
+     */
+    public double complianceOf(String vesselCode) {
+        return jdbcTemplate.query(SQL_FIND_COMPLIANCE, (rs, rowNum) -> {
+                    long count = rs.getLong(1);
+                    return count > 0 ? rs.getDouble(2) / count : 0.0;
+                }, vesselCode).stream()
+                .findFirst()
+                .orElse(0.0);
+    }
+
+    /**
+     * Computes the totals of all vessels from their rows again, for when rows were changed outside the service.
+     */
+    @Transactional
+    public void rebuild() {
+        jdbcTemplate.update("DELETE FROM vessel_metrics_totals");
+        int vessels = jdbcTemplate.update(SQL_REBUILD_TOTALS);
+        vesselReadCache.invalidateAll();
+        log.info("Rebuilt the metrics totals of {} vessels", vessels);
+    }
+
+    private void apply(List<VesselData> rows, int sign) {
+        Map<String, Totals> totals = new TreeMap<>();
+        for (VesselData row : rows) {
+            if (row.getVesselCode() != null && (sign < 0 || row.getValidationStatus() == ValidationStatus.VALID)) {
+                totals.computeIfAbsent(row.getVesselCode(), code -> new Totals()).add(row, sign);
+            }
+        }
+        if (!totals.isEmpty()) {
+            update(totals);
+        }
+    }
+
+    /**
+     * Applies changes to the totals. The vessels are sorted, so concurrent writers lock the rows of the totals table
+     * in the same order and cannot deadlock each other.
+     */
+    private void update(Map<String, Totals> totals) {
+        List<Object[]> added = totals.entrySet().stream()
+                .filter(entry -> entry.getValue().rows > 0)
+                .map(entry -> new Object[]{entry.getKey()})
+                .toList();
+        if (!added.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_INSERT_TOTALS, added);
+        }
+        jdbcTemplate.batchUpdate(SQL_ADD_TOTALS, totals.entrySet().stream()
+                .map(entry -> entry.getValue().toArguments(entry.getKey()))
+                .toList());
+    }
+
+    /**
+     * The metrics of the {@code vessel_metrics_statistics} view.
+     */
+    private enum Metric {
+        POWER("power", VesselData::getPower),
+        FUEL_CONSUMPTION("fuel_consumption", VesselData::getFuelConsumption),
+        ACTUAL_SPEED_OVERGROUND("actual_speed_overground", VesselData::getActualSpeedOverground),
+        PROPOSED_SPEED_OVERGROUND("proposed_speed_overground", VesselData::getProposedSpeedOverground),
+        PREDICTED_FUEL_CONSUMPTION("predicted_fuel_consumption", VesselData::getPredictedFuelConsumption),
+        SPEED_DIFFERENCE("speed_difference", VesselData::getSpeedDifference),
+        FUEL_EFFICIENCY("fuel_efficiency", VesselData::getFuelEfficiency);
+
+        private final String column;
+        private final Function<VesselData, Double> value;
+
+        Metric(String column, Function<VesselData, Double> value) {
+            this.column = column;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Changes to the totals of one vessel. Null metric values are left out, like SQL aggregates do.
+     */
+    private static final class Totals {
+
+        private long rows;
+        private final long[] counts = new long[Metric.values().length];
+        private final double[] sums = new double[Metric.values().length];
+        private final double[] sumsOfSquares = new double[Metric.values().length];
+        private long complianceCount;
+        private double complianceSum;
+
+        private void add(VesselData row, int sign) {
+            rows += sign;
+            for (Metric metric : Metric.values()) {
+                Double value = metric.value.apply(row);
+                if (value != null) {
+                    counts[metric.ordinal()] += sign;
+                    sums[metric.ordinal()] += sign * value;
+                    sumsOfSquares[metric.ordinal()] += sign * value * value;
+                }
+            }
+            Double compliance = compliance(row.getActualSpeedOverground(), row.getProposedSpeedOverground());
+            if (compliance != null) {
+                complianceCount += sign;
+                complianceSum += sign * compliance;
+            }
+        }
+
+        /**
+         * Reads totals computed by the aggregates of {@link #totalsOf(String)}.
+         */
+        private static Totals of(ResultSet rs, int sign) throws SQLException {
+            Totals totals = new Totals();
+            totals.rows = sign * rs.getLong(1);
+            for (int i = 0; i < totals.counts.length; i++) {
+                totals.counts[i] = sign * rs.getLong(2 + 3 * i);
+                totals.sums[i] = sign * rs.getDouble(3 + 3 * i);
+                totals.sumsOfSquares[i] = sign * rs.getDouble(4 + 3 * i);
+            }
+            totals.complianceCount = sign * rs.getLong(2 + 3 * totals.counts.length);
+            totals.complianceSum = sign * rs.getDouble(3 + 3 * totals.counts.length);
+            return totals;
+        }
+
+        private Object[] toArguments(String vesselCode) {
+            Object[] arguments = new Object[4 + 3 * counts.length];
+            arguments[0] = rows;
+            for (int i = 0; i < counts.length; i++) {
+                arguments[1 + 3 * i] = counts[i];
+                arguments[2 + 3 * i] = sums[i];
+                arguments[3 + 3 * i] = sumsOfSquares[i];
+            }
+            arguments[1 + 3 * counts.length] = complianceCount;
+            arguments[2 + 3 * counts.length] = complianceSum;
+            arguments[arguments.length - 1] = vesselCode;
+            return arguments;
+        }
+    }
+
+}
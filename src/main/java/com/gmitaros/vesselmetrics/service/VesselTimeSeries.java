@@ -0,0 +1,328 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.model.ValidationStatus;
+import com.gmitaros.vesselmetrics.model.VesselData;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * The rows of one vessel in columns, sorted by date-time: the date-times as a {@code long[]} of microseconds since
+ * the epoch, the uuids as two {@code long[]}, every metric as a {@code double[]} with a bitmap of the values that are
+ * present, and the validation status as a bitmap of the VALID rows. Date-times are unique per vessel, like the
+ * unique key of {@code vessel_data}, so a row is found by its date-time with a binary search.
+ * <p>
+ * The arrays grow by doubling. Rows added after the newest one are appended; rows added before it are merged in,
+ * which copies the columns once per batch.
+ * <p>
+ * Not thread-safe.
+ */
+final class VesselTimeSeries {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The metrics kept per row.
+     */
+    enum Field {
+        LATITUDE(VesselData::getLatitude, VesselData::setLatitude),
+        LONGITUDE(VesselData::getLongitude, VesselData::setLongitude),
+        POWER(VesselData::getPower, VesselData::setPower),
+        FUEL_CONSUMPTION(VesselData::getFuelConsumption, VesselData::setFuelConsumption),
+        ACTUAL_SPEED_OVERGROUND(VesselData::getActualSpeedOverground, VesselData::setActualSpeedOverground),
+        PROPOSED_SPEED_OVERGROUND(VesselData::getProposedSpeedOverground, VesselData::setProposedSpeedOverground),
+        PREDICTED_FUEL_CONSUMPTION(VesselData::getPredictedFuelConsumption, VesselData::setPredictedFuelConsumption),
+        SPEED_DIFFERENCE(VesselData::getSpeedDifference, VesselData::setSpeedDifference),
+        FUEL_EFFICIENCY(VesselData::getFuelEfficiency, VesselData::setFuelEfficiency);
+
+        private final Function<VesselData, Double> getter;
+        private final BiConsumer<VesselData, Double> setter;
+
+        Field(Function<VesselData, Double> getter, BiConsumer<VesselData, Double> setter) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+
+    private static final Field[] FIELDS = Field.values();
+
+    private int size;
+    private int validCount;
+    private long[] times;
+    private long[] uuidHigh;
+    private long[] uuidLow;
+    private double[][] values;
+    private long[][] present;
+    private long[] valid;
+
+    VesselTimeSeries() {
+        this(INITIAL_CAPACITY);
+    }
+
+    private VesselTimeSeries(int capacity) {
+        times = new long[capacity];
+        uuidHigh = new long[capacity];
+        uuidLow = new long[capacity];
+        values = new double[FIELDS.length][capacity];
+        present = new long[FIELDS.length][words(capacity)];
+        valid = new long[words(capacity)];
+    }
+
+    /**
+     * Adds rows in any order. Rows with the date-time of a row kept already are skipped, like the database skips
+     * them, and so are rows without a date-time.
+     *
+     * @param rows the rows of the vessel
+     */
+    void add(List<VesselData> rows) {
+        List<VesselData> sorted = rows.stream()
+                .filter(row -> row.getDateTime() != null)
+                .sorted(Comparator.comparing(VesselData::getDateTime))
+                .toList();
+        if (sorted.isEmpty()) {
+            return;
+        }
+        if (size == 0 || toMicros(sorted.getFirst().getDateTime()) > times[size - 1]) {
+            for (VesselData row : sorted) {
+                long time = toMicros(row.getDateTime());
+                // Equal date-times within the batch keep the first row
+                if (size == 0 || time > times[size - 1]) {
+                    append(row, time);
+                }
+            }
+            return;
+        }
+        merge(sorted);
+    }
+
+    /**
+     * Adds a row that is known to be newer than every row kept, such as while loading rows in date-time order.
+     */
+    void append(VesselData row) {
+        append(row, toMicros(row.getDateTime()));
+    }
+
+    /**
+     * Marks the row with the given date-time INVALID, if it is kept.
+     *
+     * @param dateTime the date-time of the row
+     */
+    void markInvalid(LocalDateTime dateTime) {
+        long time = toMicros(dateTime);
+        int row = firstAtOrAfter(time);
+        if (row < size && times[row] == time && isValid(row)) {
+            valid[row >>> 6] &= ~(1L << row);
+            validCount--;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int validCount() {
+        return validCount;
+    }
+
+    boolean isValid(int row) {
+        return (valid[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * @return the index of the first row at or after the date-time, or the size if there is none
+     */
+    int firstAtOrAfter(LocalDateTime dateTime) {
+        return firstAtOrAfter(toMicros(dateTime));
+    }
+
+    /**
+     * @return the index of the first row after the date-time, or the size if there is none
+     */
+    int firstAfter(LocalDateTime dateTime) {
+        long time = toMicros(dateTime);
+        return time == Long.MAX_VALUE ? size : firstAtOrAfter(time + 1);
+    }
+
+    /**
+     * Passes the indexes of up to {@code limit} VALID rows to the action, in date-time order, skipping the first
+     * {@code offset} VALID rows. Skipping counts the bits of whole words of the bitmap.
+     */
+    void forEachValid(long offset, int limit, IntConsumer action) {
+        if (offset >= validCount || limit <= 0) {
+            return;
+        }
+        int word = 0;
+        long skip = offset;
+        while (Long.bitCount(valid[word]) <= skip) {
+            skip -= Long.bitCount(valid[word]);
+            word++;
+        }
+        long bits = valid[word];
+        for (; skip > 0; skip--) {
+            bits &= bits - 1;
+        }
+        int passed = 0;
+        while (passed < limit) {
+            while (bits == 0) {
+                if (++word >= words(size)) {
+                    return;
+                }
+                bits = valid[word];
+            }
+            action.accept((word << 6) + Long.numberOfTrailingZeros(bits));
+            bits &= bits - 1;
+            passed++;
+        }
+    }
+
+    /**
+     * @return the value of a field of a row, or null if the row has none
+     */
+    Double value(Field field, int row) {
+        return (present[field.ordinal()][row >>> 6] & (1L << row)) != 0 ? values[field.ordinal()][row] : null;
+    }
+
+    LocalDateTime dateTime(int row) {
+        long seconds = Math.floorDiv(times[row], 1_000_000L);
+        return LocalDateTime.ofEpochSecond(seconds, (int) Math.floorMod(times[row], 1_000_000L) * 1000, ZoneOffset.UTC);
+    }
+
+    UUID uuid(int row) {
+        return new UUID(uuidHigh[row], uuidLow[row]);
+    }
+
+    /**
+     * Creates a detached {@link VesselData} of a row, without its id and validation errors.
+     */
+    VesselData toVesselData(String vesselCode, int row) {
+        VesselData vesselData = VesselData.builder()
+                .vesselDataUuid(uuid(row))
+                .vesselCode(vesselCode)
+                .dateTime(dateTime(row))
+                .validationStatus(isValid(row) ? ValidationStatus.VALID : ValidationStatus.INVALID)
+                .validationErrors(new ArrayList<>())
+                .build();
+        for (Field field : FIELDS) {
+            field.setter.accept(vesselData, value(field, row));
+        }
+        return vesselData;
+    }
+
+    /**
+     * @return the bytes held by the arrays
+     */
+    long bytes() {
+        long capacity = times.length;
+        return capacity * Long.BYTES * 3
+                + capacity * Double.BYTES * FIELDS.length
+                + (long) words((int) capacity) * Long.BYTES * (FIELDS.length + 1);
+    }
+
+    private void append(VesselData row, long time) {
+        if (size == times.length) {
+            grow(times.length * 2);
+        }
+        int index = size++;
+        times[index] = time;
+        UUID uuid = row.getVesselDataUuid();
+        uuidHigh[index] = uuid != null ? uuid.getMostSignificantBits() : 0;
+        uuidLow[index] = uuid != null ? uuid.getLeastSignificantBits() : 0;
+        long bit = 1L << index;
+        for (Field field : FIELDS) {
+            Double value = field.getter.apply(row);
+            if (value != null) {
+                values[field.ordinal()][index] = value;
+                present[field.ordinal()][index >>> 6] |= bit;
+            }
+        }
+        if (row.getValidationStatus() == ValidationStatus.VALID) {
+            valid[index >>> 6] |= bit;
+            validCount++;
+        }
+    }
+
+    private void merge(List<VesselData> sorted) {
+        VesselTimeSeries merged = new VesselTimeSeries(Math.max(INITIAL_CAPACITY, size + sorted.size()));
+        int kept = 0;
+        for (VesselData row : sorted) {
+            long time = toMicros(row.getDateTime());
+            while (kept < size && times[kept] <= time) {
+                merged.copyRow(this, kept++);
+            }
+            if (merged.size == 0 || time > merged.times[merged.size - 1]) {
+                merged.append(row, time);
+            }
+        }
+        while (kept < size) {
+            merged.copyRow(this, kept++);
+        }
+        size = merged.size;
+        validCount = merged.validCount;
+        times = merged.times;
+        uuidHigh = merged.uuidHigh;
+        uuidLow = merged.uuidLow;
+        values = merged.values;
+        present = merged.present;
+        valid = merged.valid;
+    }
+
+    private void copyRow(VesselTimeSeries source, int row) {
+        int index = size++;
+        times[index] = source.times[row];
+        uuidHigh[index] = source.uuidHigh[row];
+        uuidLow[index] = source.uuidLow[row];
+        long bit = 1L << index;
+        for (int field = 0; field < FIELDS.length; field++) {
+            values[field][index] = source.values[field][row];
+            if ((source.present[field][row >>> 6] & (1L << row)) != 0) {
+                present[field][index >>> 6] |= bit;
+            }
+        }
+        if (source.isValid(row)) {
+            valid[index >>> 6] |= bit;
+            validCount++;
+        }
+    }
+
+    private void grow(int capacity) {
+        times = Arrays.copyOf(times, capacity);
+        uuidHigh = Arrays.copyOf(uuidHigh, capacity);
+        uuidLow = Arrays.copyOf(uuidLow, capacity);
+        for (int field = 0; field < FIELDS.length; field++) {
+            values[field] = Arrays.copyOf(values[field], capacity);
+            present[field] = Arrays.copyOf(present[field], words(capacity));
+        }
+        valid = Arrays.copyOf(valid, words(capacity));
+    }
+
+    private int firstAtOrAfter(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long toMicros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + dateTime.getNano() / 1000;
+    }
+
+    private static int words(int capacity) {
+        return (capacity + 63) >>> 6;
+    }
+
+}
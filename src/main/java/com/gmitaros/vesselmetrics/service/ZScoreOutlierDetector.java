@@ -0,0 +1,73 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.model.VesselMetricsStatistics;
+import com.gmitaros.vesselmetrics.util.ZScoreKernel;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * {@link OutlierDetector} that flags values more than {@code vessel.metrics.outlier.threshold} standard deviations
+ * away from the mean of the vessel. The mean and standard deviation come from the totals kept by
+ * {@link VesselStatisticsService}, so fitting a vessel does not read its rows.
+ * <p>
+ * Batches are scored a column at a time by the {@link ZScoreKernel}, which uses the Vector API when the service is
+ * built with the {@code vector} profile and runs with {@code --add-modules jdk.incubator.vector}.
+ * <p>
+ * Simple and cheap, but the outliers themselves pull the mean and inflate the standard deviation.
+ */
+@RequiredArgsConstructor
+@Component
+@ConditionalOnProperty(name = "vessel.metrics.outlier.detector", havingValue = "zscore", matchIfMissing = true)
+public class ZScoreOutlierDetector implements OutlierDetector {
+
+    @Value("${vessel.metrics.outlier.threshold:3}")
+    private double outlierThreshold;
+
+    private final VesselStatisticsService vesselStatisticsService;
+
+    private final ZScoreKernel kernel = ZScoreKernel.best();
+
+    @Override
+    public Optional<Model> fit(String vesselCode) {
+        // Fitted before the rows of the vessel are changed, so the cached statistics are current
+        return vesselStatisticsService.cachedStatisticsOf(vesselCode).map(ZScoreModel::new);
+    }
+
+    private final class ZScoreModel implements Model {
+
+        private final double[] means = new double[Metric.values().length];
+        // The largest distance from the mean that is not an outlier, NaN when the metric has no statistics
+        private final double[] limits = new double[Metric.values().length];
+
+        private ZScoreModel(VesselMetricsStatistics stats) {
+            for (Metric metric : Metric.values()) {
+                Double mean = metric.meanOf(stats);
+                Double standardDeviation = metric.standardDeviationOf(stats);
+                boolean known = mean != null && standardDeviation != null;
+                means[metric.ordinal()] = known ? mean : Double.NaN;
+                // A zero standard deviation flags every value that differs from the mean, like an infinite z-score does
+                limits[metric.ordinal()] = known ? outlierThreshold * standardDeviation : Double.NaN;
+            }
+        }
+
+        @Override
+        public boolean isOutlier(Metric metric, double value) {
+            return Math.abs(value - means[metric.ordinal()]) > limits[metric.ordinal()];
+        }
+
+        @Override
+        public void score(MetricColumns columns, byte[] masks) {
+            for (Metric metric : Metric.values()) {
+                if (!Double.isNaN(limits[metric.ordinal()])) {
+                    kernel.flagOutliers(columns.values(metric), columns.present(metric), columns.size(),
+                            means[metric.ordinal()], limits[metric.ordinal()], masks, MetricColumns.maskBit(metric));
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.gmitaros.vesselmetrics.util;
+
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+
+/**
+ * Parses date-times in the fixed 19-character {@code yyyy-MM-dd HH:mm:ss} layout by reading the digits at their
+ * positions, without the general-purpose machinery of {@link java.time.format.DateTimeFormatter}.
+ * <p>
+ * Vessel data is time-ordered and consecutive rows often share a timestamp, so the last parsed value is kept and
+ * returned again when the next input has the same digits; in that case nothing is allocated at all.
+ * Inputs with any other layout, or with values the formatter would resolve differently (for example
+ * {@code 2023-02-30}), are not handled and must be passed to the formatter by the caller.
+ * <p>
+ * Not thread-safe, use one instance per thread.
+ */
+public final class FixedWidthDateTimeParser {
+
+    public static final int LENGTH = 19;
+
+    private long lastKey = -1;
+    private LocalDateTime lastValue;
+
+    /**
+     * Parses the given text.
+     *
+     * @param text the text to parse
+     * @return the parsed date-time, or null if the text must be parsed by the formatter instead
+     */
+    public LocalDateTime parse(CharSequence text) {
+        if (text == null || text.length() != LENGTH
+                || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != ' '
+                || text.charAt(13) != ':' || text.charAt(16) != ':') {
+            return null;
+        }
+        return resolve(digits(text, 0, 4), digits(text, 5, 2), digits(text, 8, 2),
+                digits(text, 11, 2), digits(text, 14, 2), digits(text, 17, 2));
+    }
+
+    /**
+     * Parses the {@value #LENGTH} bytes starting at the given position of the buffer.
+     *
+     * @param bytes the buffer holding the text
+     * @param start the position of the first byte of the text
+     * @return the parsed date-time, or null if the text must be parsed by the formatter instead
+     */
+    public LocalDateTime parse(ByteBuffer bytes, int start) {
+        if (bytes.get(start + 4) != '-' || bytes.get(start + 7) != '-' || bytes.get(start + 10) != ' '
+                || bytes.get(start + 13) != ':' || bytes.get(start + 16) != ':') {
+            return null;
+        }
+        return resolve(digits(bytes, start, 4), digits(bytes, start + 5, 2), digits(bytes, start + 8, 2),
+                digits(bytes, start + 11, 2), digits(bytes, start + 14, 2), digits(bytes, start + 17, 2));
+    }
+
+    private LocalDateTime resolve(int year, int month, int day, int hour, int minute, int second) {
+        if ((year | month | day | hour | minute | second) < 0) {
+            return null;
+        }
+        long key = ((((year * 100L + month) * 100 + day) * 100 + hour) * 100 + minute) * 100 + second;
+        if (key == lastKey) {
+            return lastValue;
+        }
+        try {
+            lastValue = LocalDateTime.of(year, month, day, hour, minute, second);
+            lastKey = key;
+            return lastValue;
+        } catch (DateTimeException e) {
+            // The formatter resolves some out-of-range values, such as day 30 of February, instead of rejecting them
+            return null;
+        }
+    }
+
+    private static int digits(CharSequence text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int digits(ByteBuffer bytes, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = bytes.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.gmitaros.vesselmetrics.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over {@code long} keys: {@link #mightContain(long)} never answers false for a key that was added,
+ * and answers true for a key that was not added with about the false positive rate the filter was sized for.
+ * Once more keys than expected are added the rate goes up; {@link #isSaturated()} tells when to rebuild it larger.
+ * <p>
+ * Safe to use from several threads; keys added concurrently with a lookup may or may not be seen by it.
+ */
+public final class LongBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long expectedKeys;
+    private final AtomicLong keyCount = new AtomicLong();
+
+    /**
+     * @param expectedKeys      the number of keys the filter is sized for
+     * @param falsePositiveRate the false positive rate wanted at that number of keys, between 0 and 1
+     */
+    public LongBloomFilter(long expectedKeys, double falsePositiveRate) {
+        if (expectedKeys <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter size " + expectedKeys + " or rate " + falsePositiveRate);
+        }
+        long words = words(expectedKeys, falsePositiveRate);
+        this.bits = new AtomicLongArray(Math.toIntExact(words));
+        this.bitCount = words * Long.SIZE;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedKeys * Math.log(2)));
+        this.expectedKeys = expectedKeys;
+    }
+
+    /**
+     * @return the number of bytes the bits of a filter of the given size take
+     */
+    public static long byteSize(long expectedKeys, double falsePositiveRate) {
+        return words(expectedKeys, falsePositiveRate) * Long.BYTES;
+    }
+
+    private static long words(long expectedKeys, double falsePositiveRate) {
+        double ln2 = Math.log(2);
+        return Math.max(1, (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (ln2 * ln2) / Long.SIZE));
+    }
+
+    public void put(long key) {
+        long h1 = mix(key);
+        long h2 = secondHash(h1);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = bitIndex(h1, h2, i);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+        keyCount.incrementAndGet();
+    }
+
+    public boolean mightContain(long key) {
+        long h1 = mix(key);
+        long h2 = secondHash(h1);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = bitIndex(h1, h2, i);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether more keys were added than the filter was sized for
+     */
+    public boolean isSaturated() {
+        return keyCount.get() > expectedKeys;
+    }
+
+    public long getKeyCount() {
+        return keyCount.get();
+    }
+
+    /**
+     * @return the number of bytes the bits of this filter take
+     */
+    public long getByteSize() {
+        return (long) bits.length() * Long.BYTES;
+    }
+
+    // The bits of a key are derived from two hashes (Kirsch and Mitzenmacher) instead of computing k hashes
+    private long bitIndex(long h1, long h2, int i) {
+        return Math.floorMod(h1 + i * h2, bitCount);
+    }
+
+    private static long secondHash(long h1) {
+        return mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+    }
+
+    // Finalizer of MurmurHash3, spreads keys that differ in a few bits, like consecutive timestamps
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+}
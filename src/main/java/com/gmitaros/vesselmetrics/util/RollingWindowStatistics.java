@@ -0,0 +1,286 @@
+package com.gmitaros.vesselmetrics.util;
+
+/**
+ * Mean and standard deviation of several metrics over trailing time windows, such as the last 24 hours and the
+ * last 7 days, updated in constant time per value.
+ * <p>
+ * The values of the largest window are kept in a ring buffer of primitive arrays, one {@code long[]} of times and
+ * one {@code double[]} per metric, which grows by doubling when it is full. Every window has its own start in the
+ * buffer and its own {@link RunningStatistics} per metric: a new value is added to all of them, and the values
+ * that fell out of a window are removed from its statistics as its start moves on. The window ending at time
+ * {@code t} covers the times after {@code t - length} up to {@code t}.
+ * <p>
+ * The buffer is kept in time order. A value older than the newest one is inserted at its place, moving the values
+ * after it up by one, and is only added to the windows that still cover it; a value no longer covered by the largest
+ * window is dropped.
+ * <p>
+ * Not thread-safe.
+ */
+public final class RollingWindowStatistics {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final long[] windowLengths;
+    private final int metricCount;
+    private final RunningStatistics[][] statistics;
+    // Absolute positions of values; the buffer index of a position is the position modulo the capacity
+    private final long[] windowStarts;
+    private long end;
+    private long newestTime = Long.MIN_VALUE;
+
+    private long[] times = new long[INITIAL_CAPACITY];
+    private double[][] values;
+
+    /**
+     * @param windowLengths the lengths of the windows, in any unit the times are given in, in ascending order
+     * @param metricCount   the number of metrics
+     */
+    public RollingWindowStatistics(long[] windowLengths, int metricCount) {
+        if (windowLengths.length == 0) {
+            throw new IllegalArgumentException("At least one window is required");
+        }
+        for (int i = 1; i < windowLengths.length; i++) {
+            if (windowLengths[i] < windowLengths[i - 1]) {
+                throw new IllegalArgumentException("Window lengths must be in ascending order");
+            }
+        }
+        this.windowLengths = windowLengths.clone();
+        this.metricCount = metricCount;
+        this.windowStarts = new long[windowLengths.length];
+        this.statistics = new RunningStatistics[windowLengths.length][metricCount];
+        for (RunningStatistics[] window : statistics) {
+            for (int metric = 0; metric < metricCount; metric++) {
+                window[metric] = new RunningStatistics();
+            }
+        }
+        this.values = new double[metricCount][INITIAL_CAPACITY];
+    }
+
+    /**
+     * Moves every window to end at the given time, removing the values that fall out of it. Times before the
+     * newest value leave the windows where they are.
+     *
+     * @param time the new end of the windows
+     */
+    public void advance(long time) {
+        if (time <= newestTime) {
+            return;
+        }
+        newestTime = time;
+        for (int window = 0; window < windowLengths.length; window++) {
+            long start = windowStarts[window];
+            long cutoff = time - windowLengths[window];
+            RunningStatistics[] windowStatistics = statistics[window];
+            while (start < end && times[index(start)] <= cutoff) {
+                int index = index(start);
+                for (int metric = 0; metric < metricCount; metric++) {
+                    double value = values[metric][index];
+                    if (!Double.isNaN(value)) {
+                        windowStatistics[metric].remove(value);
+                    }
+                }
+                start++;
+            }
+            windowStarts[window] = start;
+        }
+    }
+
+    /**
+     * Adds the values of one point in time to every window that covers it, after moving the windows to end at its
+     * time if it is the newest.
+     *
+     * @param time          the time of the values
+     * @param metricValues  one value per metric, {@link Double#NaN} for a missing value
+     * @return false if the time is no longer covered by the largest window, and the values were dropped
+     */
+    public boolean add(long time, double[] metricValues) {
+        advance(time);
+        int largest = windowLengths.length - 1;
+        if (time <= newestTime - windowLengths[largest]) {
+            return false;
+        }
+        if (end - windowStarts[largest] == times.length) {
+            grow();
+        }
+        long position = end;
+        while (position > windowStarts[largest] && times[index(position - 1)] > time) {
+            int from = index(position - 1);
+            int to = index(position);
+            times[to] = times[from];
+            for (int metric = 0; metric < metricCount; metric++) {
+                values[metric][to] = values[metric][from];
+            }
+            position--;
+        }
+        int index = index(position);
+        times[index] = time;
+        for (int metric = 0; metric < metricCount; metric++) {
+            values[metric][index] = metricValues[metric];
+        }
+        end++;
+        for (int window = 0; window < windowLengths.length; window++) {
+            if (time <= newestTime - windowLengths[window]) {
+                // Before the start of the window, which moved up by one with the values after it
+                windowStarts[window]++;
+                continue;
+            }
+            for (int metric = 0; metric < metricCount; metric++) {
+                if (!Double.isNaN(metricValues[metric])) {
+                    statistics[window][metric].add(metricValues[metric]);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param time a time
+     * @return whether values of that time are kept
+     */
+    public boolean contains(long time) {
+        long position = positionAfter(time);
+        return position > windowStarts[windowStarts.length - 1] && times[index(position - 1)] == time;
+    }
+
+    /**
+     * Computes the statistics of a window ending at a time before the newest one, from the values kept, for values
+     * that arrive late. Like the first points of a {@link #series(long, SeriesSink)}, the window only sees the part
+     * of it that is still kept.
+     *
+     * @param window the index of the window in the lengths passed to the constructor
+     * @param time   the end of the window
+     * @return the statistics, one per metric
+     */
+    public RunningStatistics[] statisticsAt(int window, long time) {
+        RunningStatistics[] windowStatistics = new RunningStatistics[metricCount];
+        for (int metric = 0; metric < metricCount; metric++) {
+            windowStatistics[metric] = new RunningStatistics();
+        }
+        long cutoff = time - windowLengths[window];
+        for (long position = positionAfter(time) - 1;
+             position >= windowStarts[windowStarts.length - 1] && times[index(position)] > cutoff; position--) {
+            int index = index(position);
+            for (int metric = 0; metric < metricCount; metric++) {
+                if (!Double.isNaN(values[metric][index])) {
+                    windowStatistics[metric].add(values[metric][index]);
+                }
+            }
+        }
+        return windowStatistics;
+    }
+
+    /**
+     * Returns the statistics of a metric over a window. The statistics are live and must not be changed.
+     *
+     * @param window the index of the window in the lengths passed to the constructor
+     * @param metric the index of the metric
+     * @return the statistics
+     */
+    public RunningStatistics statistics(int window, int metric) {
+        return statistics[window][metric];
+    }
+
+    /**
+     * @return the number of values kept, those of the largest window
+     */
+    public int size() {
+        return (int) (end - windowStarts[windowStarts.length - 1]);
+    }
+
+    /**
+     * @return the time the windows end at, or {@link Long#MIN_VALUE} if nothing was added yet
+     */
+    public long newestTime() {
+        return newestTime;
+    }
+
+    /**
+     * @return the bytes taken by the buffer, which grows with the values kept and is never shrunk
+     */
+    public long getByteSize() {
+        return (long) times.length * Long.BYTES * (1 + metricCount);
+    }
+
+    /**
+     * Computes the statistics of a trailing window of the given length ending at every value kept, oldest first.
+     * The first values of the series only see the part of their window that is still kept.
+     *
+     * @param windowLength the length of the window, more than 0 and at most the length of the largest window
+     * @param sink         receives the time of every value and the statistics of its window, one per metric;
+     *                     the statistics are reused for the next value
+     */
+    public void series(long windowLength, SeriesSink sink) {
+        RunningStatistics[] window = new RunningStatistics[metricCount];
+        for (int metric = 0; metric < metricCount; metric++) {
+            window[metric] = new RunningStatistics();
+        }
+        long start = windowStarts[windowStarts.length - 1];
+        for (long position = start; position < end; position++) {
+            int index = index(position);
+            long time = times[index];
+            while (times[index(start)] <= time - windowLength) {
+                int startIndex = index(start);
+                for (int metric = 0; metric < metricCount; metric++) {
+                    if (!Double.isNaN(values[metric][startIndex])) {
+                        window[metric].remove(values[metric][startIndex]);
+                    }
+                }
+                start++;
+            }
+            for (int metric = 0; metric < metricCount; metric++) {
+                if (!Double.isNaN(values[metric][index])) {
+                    window[metric].add(values[metric][index]);
+                }
+            }
+            sink.accept(time, window);
+        }
+    }
+
+    private void grow() {
+        long first = windowStarts[windowStarts.length - 1];
+        int capacity = times.length * 2;
+        long[] grownTimes = new long[capacity];
+        double[][] grownValues = new double[metricCount][capacity];
+        for (long position = first; position < end; position++) {
+            int from = index(position);
+            int to = (int) (position & (capacity - 1));
+            grownTimes[to] = times[from];
+            for (int metric = 0; metric < metricCount; metric++) {
+                grownValues[metric][to] = values[metric][from];
+            }
+        }
+        times = grownTimes;
+        values = grownValues;
+    }
+
+    /**
+     * Finds the first position whose time is after the given one, by binary search over the kept values.
+     */
+    private long positionAfter(long time) {
+        long low = windowStarts[windowStarts.length - 1];
+        long high = end;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (times[index(middle)] <= time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int index(long position) {
+        return (int) (position & (times.length - 1));
+    }
+
+    /**
+     * Receives the points of a series.
+     */
+    @FunctionalInterface
+    public interface SeriesSink {
+
+        void accept(long time, RunningStatistics[] statistics);
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.gmitaros.vesselmetrics.util;
+
+/**
+ * Count, mean vector and covariance matrix of a series of points, updated one point at a time with the
+ * multivariate form of Welford's algorithm: the co-moments are accumulated from the deviations to the old and the
+ * new mean, so the result stays accurate when the values are large compared to their spread, unlike sums of
+ * products. Two series can be merged with the pairwise update of Chan et al., like {@link RunningStatistics}.
+ * <p>
+ * Not thread-safe.
+ */
+public final class RunningCovariance {
+
+    private final int dimensions;
+    private long count;
+    private final double[] mean;
+    // Sums of the products of the deviations from the mean, the upper triangle row by row
+    private final double[] comoments;
+    private final double[] delta;
+
+    /**
+     * @param dimensions the number of values of a point
+     */
+    public RunningCovariance(int dimensions) {
+        this.dimensions = dimensions;
+        this.mean = new double[dimensions];
+        this.comoments = new double[dimensions * (dimensions + 1) / 2];
+        this.delta = new double[dimensions];
+    }
+
+    /**
+     * @param point one value per dimension
+     */
+    public void add(double[] point) {
+        count++;
+        for (int i = 0; i < dimensions; i++) {
+            delta[i] = point[i] - mean[i];
+            mean[i] += delta[i] / count;
+        }
+        int k = 0;
+        for (int i = 0; i < dimensions; i++) {
+            for (int j = i; j < dimensions; j++) {
+                comoments[k++] += delta[i] * (point[j] - mean[j]);
+            }
+        }
+    }
+
+    public void merge(RunningCovariance other) {
+        if (other.dimensions != dimensions) {
+            throw new IllegalArgumentException("Cannot merge " + other.dimensions + " dimensions into " + dimensions);
+        }
+        if (other.count == 0) {
+            return;
+        }
+        long total = count + other.count;
+        double weight = (double) count * other.count / total;
+        for (int i = 0; i < dimensions; i++) {
+            delta[i] = other.mean[i] - mean[i];
+        }
+        int k = 0;
+        for (int i = 0; i < dimensions; i++) {
+            for (int j = i; j < dimensions; j++) {
+                comoments[k] += other.comoments[k] + delta[i] * delta[j] * weight;
+                k++;
+            }
+        }
+        for (int i = 0; i < dimensions; i++) {
+            mean[i] += delta[i] * other.count / total;
+        }
+        count = total;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return a copy of the mean of every dimension, zeros if there are no points
+     */
+    public double[] getMean() {
+        return mean.clone();
+    }
+
+    /**
+     * @return the sample covariance matrix, or null if there are less than two points
+     */
+    public double[][] getCovariance() {
+        if (count < 2) {
+            return null;
+        }
+        double[][] covariance = new double[dimensions][dimensions];
+        int k = 0;
+        for (int i = 0; i < dimensions; i++) {
+            for (int j = i; j < dimensions; j++) {
+                covariance[i][j] = comoments[k++] / (count - 1);
+                covariance[j][i] = covariance[i][j];
+            }
+        }
+        return covariance;
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.gmitaros.vesselmetrics.util;
+
+/**
+ * Count, mean and sum of squared deviations of a series of values, updated one value at a time with Welford's
+ * algorithm, so the mean and standard deviation are known at any point without keeping the values.
+ * Values can also be removed again, and two series can be merged with the pairwise update of Chan et al.,
+ * which lets statistics be collected in parts on several threads.
+ * <p>
+ * Not thread-safe.
+ */
+public final class RunningStatistics {
+
+    private long count;
+    private double mean;
+    private double m2;
+
+    public RunningStatistics() {
+    }
+
+    private RunningStatistics(long count, double mean, double m2) {
+        this.count = count;
+        this.mean = mean;
+        this.m2 = m2;
+    }
+
+    /**
+     * Creates statistics from aggregates computed elsewhere, such as by the database.
+     *
+     * @param count          the number of values
+     * @param mean           the mean of the values
+     * @param sampleVariance the sample variance of the values, ignored if there are less than two
+     * @return the statistics
+     */
+    public static RunningStatistics of(long count, double mean, double sampleVariance) {
+        if (count == 0) {
+            return new RunningStatistics();
+        }
+        return new RunningStatistics(count, mean, count > 1 ? sampleVariance * (count - 1) : 0);
+    }
+
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+    /**
+     * Removes a value that was added before.
+     *
+     * @param value the value to remove
+     */
+    public void remove(double value) {
+        if (count <= 1) {
+            count = 0;
+            mean = 0;
+            m2 = 0;
+            return;
+        }
+        double previousMean = mean;
+        count--;
+        mean -= (value - mean) / count;
+        // Rounding can leave a tiny negative sum when the remaining values are all equal
+        m2 = Math.max(0, m2 - (value - mean) * (value - previousMean));
+    }
+
+    public void merge(RunningStatistics other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            m2 = other.m2;
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * count * other.count / total;
+        count = total;
+    }
+
+    public RunningStatistics copy() {
+        return new RunningStatistics(count, mean, m2);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the mean, or null if there are no values, like SQL {@code AVG}
+     */
+    public Double getMean() {
+        return count > 0 ? mean : null;
+    }
+
+    /**
+     * @return the sample standard deviation, or null if there are less than two values, like SQL {@code STDDEV}
+     */
+    public Double getStandardDeviation() {
+        return count > 1 ? Math.sqrt(m2 / (count - 1)) : null;
+    }
+
+}
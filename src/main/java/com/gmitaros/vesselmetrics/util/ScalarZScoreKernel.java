@@ -0,0 +1,22 @@
+package com.gmitaros.vesselmetrics.util;
+
+/**
+ * {@link ZScoreKernel} in plain Java, one value at a time, for JVMs without the Vector API.
+ */
+final class ScalarZScoreKernel implements ZScoreKernel {
+
+    @Override
+    public void flagOutliers(double[] values, long[] present, int size, double mean, double limit, byte[] masks, int bit) {
+        for (int row = 0; row < size; row++) {
+            if ((present[row >>> 6] & (1L << row)) != 0 && Math.abs(values[row] - mean) > limit) {
+                masks[row] |= (byte) bit;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "scalar kernel";
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.gmitaros.vesselmetrics.util;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates time-ordered UUIDs in the version 7 layout of RFC 9562: the first 48 bits hold the Unix time in
+ * milliseconds, followed by the version, the variant and 74 random bits.
+ * <p>
+ * Ids generated close in time sort next to each other, so new rows are added at the right edge of the unique
+ * index instead of all over it, as with random version 4 UUIDs. The random bits come from
+ * {@link ThreadLocalRandom}, so ingest threads do not contend on the shared {@code SecureRandom} behind
+ * {@link UUID#randomUUID()}. The ids are unique but predictable and must not be used as secrets.
+ */
+public final class TimeOrderedUuid {
+
+    private static final long VERSION_7 = 0x7000L;
+    private static final long VARIANT_RFC = 0x8000000000000000L;
+
+    private TimeOrderedUuid() {
+    }
+
+    /**
+     * Returns a new id for the current time.
+     *
+     * @return the id
+     */
+    public static UUID next() {
+        return of(System.currentTimeMillis(), ThreadLocalRandom.current());
+    }
+
+    static UUID of(long epochMillis, Random random) {
+        long mostSigBits = (epochMillis << 16) | VERSION_7 | (random.nextInt() & 0x0FFF);
+        long leastSigBits = (random.nextLong() >>> 2) | VARIANT_RFC;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+}
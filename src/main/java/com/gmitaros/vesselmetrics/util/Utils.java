@@ -11,16 +11,40 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.UUID;
 
 @UtilityClass
 public class Utils {
     private static final Logger log = LoggerFactory.getLogger(Utils.class);
 
+    public static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final ThreadLocal<FixedWidthDateTimeParser> DATE_TIME_PARSER =
+            ThreadLocal.withInitial(FixedWidthDateTimeParser::new);
+
+    /**
+     * Parses a {@code yyyy-MM-dd HH:mm:ss} date-time. Well-formed values are read by a {@link FixedWidthDateTimeParser}
+     * per thread, everything else goes through {@link #DATE_TIME_FORMATTER} so the results stay the same.
+     *
+     * @param dateTimeStr the text to parse
+     * @return the parsed date-time, or null if the text is not a valid date-time
+     */
     public LocalDateTime parseDateTime(String dateTimeStr) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        LocalDateTime dateTime = DATE_TIME_PARSER.get().parse(dateTimeStr);
+        if (dateTime != null) {
+            return dateTime;
+        }
+        return parseDateTimeWithFormatter(dateTimeStr);
+    }
+
+    /**
+     * Parses a date-time with {@link #DATE_TIME_FORMATTER} only, for inputs the fixed-width parser does not handle.
+     *
+     * @param dateTimeStr the text to parse
+     * @return the parsed date-time, or null if the text is not a valid date-time
+     */
+    public LocalDateTime parseDateTimeWithFormatter(String dateTimeStr) {
         try {
-            return LocalDateTime.parse(dateTimeStr, formatter);
+            return LocalDateTime.parse(dateTimeStr, DATE_TIME_FORMATTER);
         } catch (DateTimeParseException e) {
             log.warn("Invalid date-time format: {}", dateTimeStr);
             return null;
@@ -60,7 +84,7 @@ public class Utils {
             final Double predictedFuelConsumption = parseDoubleSafe(record.get("predicted_fuel_consumption"));
 
             return VesselData.builder()
-                    .vesselDataUuid(UUID.randomUUID().toString())
+                    .vesselDataUuid(TimeOrderedUuid.next())
                     .vesselCode(vesselCode)
                     .dateTime(Utils.parseDateTime(dateTime))
                     .latitude(latitude)
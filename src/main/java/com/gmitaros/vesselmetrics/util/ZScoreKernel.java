@@ -0,0 +1,70 @@
+package com.gmitaros.vesselmetrics.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Flags the values of a column that lie further than a limit from a mean, {@code |value - mean| > limit}, which is a
+ * z-score test with the limit set to the threshold times the standard deviation.
+ * <p>
+ * A column is a {@code double[]} of values with a bitmap of the values that are present, one bit per row in words
+ * of 64 rows; missing values are never flagged. The result is written into a bitmask per row, so the outliers of
+ * several metrics can be collected in one {@code byte[]}.
+ */
+public interface ZScoreKernel {
+
+    /**
+     * Sets {@code bit} in the mask of every row whose value is present and further than {@code limit} from
+     * {@code mean}. A NaN mean or limit flags nothing.
+     *
+     * @param values  the values of the column
+     * @param present bit {@code row % 64} of word {@code row / 64} is set when the value of the row is present
+     * @param size    the number of rows
+     * @param mean    the mean of the column
+     * @param limit   the largest distance from the mean that is not an outlier
+     * @param masks   the masks of the rows
+     * @param bit     the bit to set in the mask of an outlier row
+     */
+    void flagOutliers(double[] values, long[] present, int size, double mean, double limit, byte[] masks, int bit);
+
+    /**
+     * Returns the kernel that uses the SIMD instructions of the CPU through the Vector API if it was built with the
+     * {@code vector} profile and the {@code jdk.incubator.vector} module was added to the JVM with
+     * {@code --add-modules}, and the scalar kernel otherwise.
+     *
+     * @return the fastest kernel available
+     */
+    static ZScoreKernel best() {
+        return Holder.BEST;
+    }
+
+    /**
+     * Picks the kernel once, the first time it is asked for.
+     */
+    final class Holder {
+
+        private static final Logger log = LoggerFactory.getLogger(ZScoreKernel.class);
+        private static final ZScoreKernel BEST = load();
+
+        private Holder() {
+        }
+
+        private static ZScoreKernel load() {
+            if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+                try {
+                    // Only loaded by name, as it is only built by the vector profile and needs the module to link
+                    ZScoreKernel kernel = (ZScoreKernel) Class.forName(ZScoreKernel.class.getPackageName() + ".VectorZScoreKernel")
+                            .getDeclaredConstructor().newInstance();
+                    log.info("Scoring z-scores with {}", kernel);
+                    return kernel;
+                } catch (ClassNotFoundException e) {
+                    log.info("Vector API z-score kernel not built, using the scalar kernel");
+                } catch (ReflectiveOperationException | LinkageError e) {
+                    log.warn("Vector API z-score kernel unavailable, using the scalar kernel", e);
+                }
+            }
+            return new ScalarZScoreKernel();
+        }
+    }
+
+}
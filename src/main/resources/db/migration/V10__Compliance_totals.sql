@@ -0,0 +1,14 @@
+-- Count and sum of the compliance of the VALID rows of each vessel, (1 - |actual - proposed| / proposed) * 100 over
+-- the rows with both speeds and a proposed speed other than 0, kept up to date with the other totals. The
+-- compliance of a vessel is their quotient instead of an average over all of its rows.
+ALTER TABLE vessel_metrics_totals ADD COLUMN compliance_count BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE vessel_metrics_totals ADD COLUMN compliance_sum DOUBLE PRECISION NOT NULL DEFAULT 0;
+
+UPDATE vessel_metrics_totals t
+SET compliance_count = (SELECT COUNT(CASE WHEN d.proposed_speed_overground <> 0 THEN d.actual_speed_overground END)
+                        FROM vessel_data d
+                        WHERE d.vessel_code = t.vessel_code AND d.validation_status = 'VALID'),
+    compliance_sum   = (SELECT COALESCE(SUM(CASE WHEN d.proposed_speed_overground <> 0
+                            THEN (1 - ABS(d.actual_speed_overground - d.proposed_speed_overground) / d.proposed_speed_overground) * 100 END), 0)
+                        FROM vessel_data d
+                        WHERE d.vessel_code = t.vessel_code AND d.validation_status = 'VALID');
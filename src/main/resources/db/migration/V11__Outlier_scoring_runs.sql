@@ -0,0 +1,15 @@
+-- Rows are claimed for outlier scoring by a run number instead of being compared with the highest id scored. An id
+-- is taken when a row is inserted, but the row only becomes visible when its transaction commits, so a row with a
+-- lower id can appear after a row with a higher id has already been scored. A run first sets outlier_run on the
+-- rows of the vessel that have none, then scores the rows it claimed; rows committed later are left to the next run.
+ALTER TABLE vessel_data ADD COLUMN outlier_run BIGINT;
+
+-- The rows up to the old watermark were scored, by a run before the first one numbered
+UPDATE vessel_data
+SET outlier_run = 0
+WHERE id <= (SELECT w.last_scored_id FROM vessel_outlier_watermarks w WHERE w.vessel_code = vessel_data.vessel_code);
+
+CREATE INDEX idx_vessel_data_vessel_code_outlier_run ON vessel_data (vessel_code, outlier_run);
+
+ALTER TABLE vessel_outlier_watermarks ADD COLUMN last_run BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE vessel_outlier_watermarks DROP COLUMN last_scored_id;
@@ -0,0 +1,13 @@
+CREATE TABLE ingest_jobs
+(
+    id            BIGSERIAL PRIMARY KEY,
+    source_id     VARCHAR(1024) NOT NULL UNIQUE,
+    source_size   BIGINT        NOT NULL,
+    status        VARCHAR(50)   NOT NULL,
+    byte_offset   BIGINT,
+    record_number BIGINT        NOT NULL,
+    rows_written  BIGINT        NOT NULL,
+    started_at    TIMESTAMP     NOT NULL,
+    updated_at    TIMESTAMP     NOT NULL,
+    finished_at   TIMESTAMP
+);
@@ -0,0 +1,21 @@
+-- Row ids become native UUIDs (16 bytes instead of 36 characters of text) holding time-ordered version 7 values.
+-- The column is rebuilt instead of altered in place, because the cast needs a USING clause on PostgreSQL
+-- that H2 does not support. Dropping the referencing column first also drops its foreign key.
+ALTER TABLE vessel_data ADD COLUMN vessel_data_row_uuid UUID;
+UPDATE vessel_data SET vessel_data_row_uuid = CAST(vessel_data_uuid AS UUID);
+
+ALTER TABLE vessel_data_validation_errors ADD COLUMN vessel_data_row_uuid UUID;
+UPDATE vessel_data_validation_errors SET vessel_data_row_uuid = CAST(vessel_data_uuid AS UUID);
+
+ALTER TABLE vessel_data_validation_errors DROP COLUMN vessel_data_uuid;
+ALTER TABLE vessel_data DROP COLUMN vessel_data_uuid;
+
+ALTER TABLE vessel_data RENAME COLUMN vessel_data_row_uuid TO vessel_data_uuid;
+ALTER TABLE vessel_data ALTER COLUMN vessel_data_uuid SET NOT NULL;
+ALTER TABLE vessel_data ADD CONSTRAINT uk_vessel_data_uuid UNIQUE (vessel_data_uuid);
+
+ALTER TABLE vessel_data_validation_errors RENAME COLUMN vessel_data_row_uuid TO vessel_data_uuid;
+ALTER TABLE vessel_data_validation_errors ALTER COLUMN vessel_data_uuid SET NOT NULL;
+ALTER TABLE vessel_data_validation_errors
+    ADD CONSTRAINT fk_validation_errors_vessel_data FOREIGN KEY (vessel_data_uuid)
+        REFERENCES vessel_data (vessel_data_uuid) ON DELETE CASCADE;
@@ -0,0 +1,14 @@
+-- A vessel reports one row per point in time. Rows loaded more than once are removed, keeping the first copy,
+-- and the unique key lets ingest skip rows that are stored already.
+DELETE
+FROM vessel_data d
+WHERE EXISTS (SELECT 1
+              FROM vessel_data first_copy
+              WHERE first_copy.vessel_code = d.vessel_code
+                AND first_copy.date_time = d.date_time
+                AND first_copy.id < d.id);
+
+ALTER TABLE vessel_data ADD CONSTRAINT uk_vessel_data_vessel_code_date_time UNIQUE (vessel_code, date_time);
+
+-- Lookups by vessel code use the unique key now
+DROP INDEX idx_vessel_code;
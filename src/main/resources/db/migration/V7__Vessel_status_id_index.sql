@@ -0,0 +1,6 @@
+-- Scans of the rows of a vessel seek by id within (vessel_code, validation_status), so every batch starts
+-- right after the last row of the previous one instead of counting past an offset.
+-- The new index also serves every lookup of the index it replaces.
+CREATE INDEX idx_vessel_code_validation_status_id ON vessel_data (vessel_code, validation_status, id);
+
+DROP INDEX idx_vessel_code_validation_status;
@@ -0,0 +1,15 @@
+-- How far the rows of each vessel have been scored for outliers: rows with an id above last_scored_id are new.
+-- The statistics are those of the VALID rows after the last full scoring, to tell when they have drifted.
+CREATE TABLE vessel_outlier_watermarks
+(
+    vessel_code                    VARCHAR(255) PRIMARY KEY,
+    last_scored_id                 BIGINT    NOT NULL,
+    avg_power                      DOUBLE PRECISION,
+    stddev_power                   DOUBLE PRECISION,
+    avg_fuel_consumption           DOUBLE PRECISION,
+    stddev_fuel_consumption        DOUBLE PRECISION,
+    avg_actual_speed_overground    DOUBLE PRECISION,
+    stddev_actual_speed_overground DOUBLE PRECISION,
+    rescored_at                    TIMESTAMP NOT NULL,
+    scored_at                      TIMESTAMP NOT NULL
+);
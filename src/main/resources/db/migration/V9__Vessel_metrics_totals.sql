@@ -0,0 +1,77 @@
+-- Count, sum and sum of squares of every metric over the VALID rows of each vessel, kept up to date by the batch
+-- writers and the outlier detection in the transactions that change the rows. The statistics view reads them
+-- with a primary key lookup instead of aggregating all rows of the vessel.
+CREATE TABLE vessel_metrics_totals
+(
+    vessel_code                            VARCHAR(255) PRIMARY KEY,
+    valid_rows                             BIGINT NOT NULL DEFAULT 0,
+    power_count                            BIGINT NOT NULL DEFAULT 0,
+    power_sum                              DOUBLE PRECISION NOT NULL DEFAULT 0,
+    power_sum_squares                      DOUBLE PRECISION NOT NULL DEFAULT 0,
+    fuel_consumption_count                 BIGINT NOT NULL DEFAULT 0,
+    fuel_consumption_sum                   DOUBLE PRECISION NOT NULL DEFAULT 0,
+    fuel_consumption_sum_squares           DOUBLE PRECISION NOT NULL DEFAULT 0,
+    actual_speed_overground_count          BIGINT NOT NULL DEFAULT 0,
+    actual_speed_overground_sum            DOUBLE PRECISION NOT NULL DEFAULT 0,
+    actual_speed_overground_sum_squares    DOUBLE PRECISION NOT NULL DEFAULT 0,
+    proposed_speed_overground_count        BIGINT NOT NULL DEFAULT 0,
+    proposed_speed_overground_sum          DOUBLE PRECISION NOT NULL DEFAULT 0,
+    proposed_speed_overground_sum_squares  DOUBLE PRECISION NOT NULL DEFAULT 0,
+    predicted_fuel_consumption_count       BIGINT NOT NULL DEFAULT 0,
+    predicted_fuel_consumption_sum         DOUBLE PRECISION NOT NULL DEFAULT 0,
+    predicted_fuel_consumption_sum_squares DOUBLE PRECISION NOT NULL DEFAULT 0,
+    speed_difference_count                 BIGINT NOT NULL DEFAULT 0,
+    speed_difference_sum                   DOUBLE PRECISION NOT NULL DEFAULT 0,
+    speed_difference_sum_squares           DOUBLE PRECISION NOT NULL DEFAULT 0,
+    fuel_efficiency_count                  BIGINT NOT NULL DEFAULT 0,
+    fuel_efficiency_sum                    DOUBLE PRECISION NOT NULL DEFAULT 0,
+    fuel_efficiency_sum_squares            DOUBLE PRECISION NOT NULL DEFAULT 0
+);
+
+INSERT INTO vessel_metrics_totals (vessel_code, valid_rows,
+                                   power_count, power_sum, power_sum_squares,
+                                   fuel_consumption_count, fuel_consumption_sum, fuel_consumption_sum_squares,
+                                   actual_speed_overground_count, actual_speed_overground_sum, actual_speed_overground_sum_squares,
+                                   proposed_speed_overground_count, proposed_speed_overground_sum, proposed_speed_overground_sum_squares,
+                                   predicted_fuel_consumption_count, predicted_fuel_consumption_sum, predicted_fuel_consumption_sum_squares,
+                                   speed_difference_count, speed_difference_sum, speed_difference_sum_squares,
+                                   fuel_efficiency_count, fuel_efficiency_sum, fuel_efficiency_sum_squares)
+SELECT vessel_code,
+       COUNT(*),
+       COUNT(power), COALESCE(SUM(power), 0), COALESCE(SUM(power * power), 0),
+       COUNT(fuel_consumption), COALESCE(SUM(fuel_consumption), 0), COALESCE(SUM(fuel_consumption * fuel_consumption), 0),
+       COUNT(actual_speed_overground), COALESCE(SUM(actual_speed_overground), 0), COALESCE(SUM(actual_speed_overground * actual_speed_overground), 0),
+       COUNT(proposed_speed_overground), COALESCE(SUM(proposed_speed_overground), 0), COALESCE(SUM(proposed_speed_overground * proposed_speed_overground), 0),
+       COUNT(predicted_fuel_consumption), COALESCE(SUM(predicted_fuel_consumption), 0), COALESCE(SUM(predicted_fuel_consumption * predicted_fuel_consumption), 0),
+       COUNT(speed_difference), COALESCE(SUM(speed_difference), 0), COALESCE(SUM(speed_difference * speed_difference), 0),
+       COUNT(fuel_efficiency), COALESCE(SUM(fuel_efficiency), 0), COALESCE(SUM(fuel_efficiency * fuel_efficiency), 0)
+FROM vessel_data
+WHERE validation_status = 'VALID'
+GROUP BY vessel_code;
+
+-- Same columns as before, computed from the totals; rounding can leave a tiny negative variance, hence GREATEST
+CREATE OR REPLACE VIEW vessel_metrics_statistics AS
+SELECT vessel_code,
+       CASE WHEN power_count > 0 THEN power_sum / power_count END AS avg_power,
+       CASE WHEN power_count > 1
+                THEN SQRT(GREATEST(0, (power_sum_squares - power_sum * power_sum / power_count) / (power_count - 1))) END AS stddev_power,
+       CASE WHEN fuel_consumption_count > 0 THEN fuel_consumption_sum / fuel_consumption_count END AS avg_fuel_consumption,
+       CASE WHEN fuel_consumption_count > 1
+                THEN SQRT(GREATEST(0, (fuel_consumption_sum_squares - fuel_consumption_sum * fuel_consumption_sum / fuel_consumption_count) / (fuel_consumption_count - 1))) END AS stddev_fuel_consumption,
+       CASE WHEN actual_speed_overground_count > 0 THEN actual_speed_overground_sum / actual_speed_overground_count END AS avg_actual_speed_overground,
+       CASE WHEN actual_speed_overground_count > 1
+                THEN SQRT(GREATEST(0, (actual_speed_overground_sum_squares - actual_speed_overground_sum * actual_speed_overground_sum / actual_speed_overground_count) / (actual_speed_overground_count - 1))) END AS stddev_actual_speed_overground,
+       CASE WHEN proposed_speed_overground_count > 0 THEN proposed_speed_overground_sum / proposed_speed_overground_count END AS avg_proposed_speed_overground,
+       CASE WHEN proposed_speed_overground_count > 1
+                THEN SQRT(GREATEST(0, (proposed_speed_overground_sum_squares - proposed_speed_overground_sum * proposed_speed_overground_sum / proposed_speed_overground_count) / (proposed_speed_overground_count - 1))) END AS stddev_proposed_speed_overground,
+       CASE WHEN predicted_fuel_consumption_count > 0 THEN predicted_fuel_consumption_sum / predicted_fuel_consumption_count END AS avg_predicted_fuel_consumption,
+       CASE WHEN predicted_fuel_consumption_count > 1
+                THEN SQRT(GREATEST(0, (predicted_fuel_consumption_sum_squares - predicted_fuel_consumption_sum * predicted_fuel_consumption_sum / predicted_fuel_consumption_count) / (predicted_fuel_consumption_count - 1))) END AS stddev_predicted_fuel_consumption,
+       CASE WHEN speed_difference_count > 0 THEN speed_difference_sum / speed_difference_count END AS avg_speed_difference,
+       CASE WHEN speed_difference_count > 1
+                THEN SQRT(GREATEST(0, (speed_difference_sum_squares - speed_difference_sum * speed_difference_sum / speed_difference_count) / (speed_difference_count - 1))) END AS stddev_speed_difference,
+       CASE WHEN fuel_efficiency_count > 0 THEN fuel_efficiency_sum / fuel_efficiency_count END AS avg_fuel_efficiency,
+       CASE WHEN fuel_efficiency_count > 1
+                THEN SQRT(GREATEST(0, (fuel_efficiency_sum_squares - fuel_efficiency_sum * fuel_efficiency_sum / fuel_efficiency_count) / (fuel_efficiency_count - 1))) END AS stddev_fuel_efficiency
+FROM vessel_metrics_totals
+WHERE valid_rows > 0;
@@ -0,0 +1,80 @@
+package com.gmitaros.vesselmetrics.controller;
+
+import com.gmitaros.vesselmetrics.dto.IngestJobDTO;
+import com.gmitaros.vesselmetrics.model.IngestJobStatus;
+import com.gmitaros.vesselmetrics.service.VesselStatisticsService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DirtiesContext
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class IngestControllerIntegrationTest {
+
+    private static final String CSV = """
+            "vessel_code","datetime","latitude","longitude","power","fuel_consumption","actual_speed_overground","proposed_speed_overground","predicted_fuel_consumption"
+            "INGEST1","2023-07-01 00:00:00","10.28","-14.78","1200","50","15.5","14.2","45"
+            "INGEST1","2023-07-01 00:01:00","10.29","-14.79","1210","51","15.4","14.2","46"
+            "INGEST1","2023-07-01 00:02:00"
+            """;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private VesselStatisticsService vesselStatisticsService;
+
+    @AfterEach
+    void removeIngestedRows() {
+        jdbcTemplate.update("DELETE FROM vessel_data WHERE vessel_code = 'INGEST1'");
+        vesselStatisticsService.rebuild();
+    }
+
+    @Test
+    void testIngest_ReturnsJobAndReportsProgress() throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/csv"));
+
+        ResponseEntity<IngestJobDTO> response = restTemplate.postForEntity("/vessels/ingest", new HttpEntity<>(CSV, headers), IngestJobDTO.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getHeaders().getLocation()).isNotNull();
+        String jobId = response.getBody().jobId();
+
+        IngestJobDTO job = response.getBody();
+        for (int attempt = 0; attempt < 300 && job.finishedAt() == null; attempt++) {
+            Thread.sleep(100);
+            job = restTemplate.getForObject("/vessels/ingest/{jobId}", IngestJobDTO.class, jobId);
+        }
+
+        assertThat(job.status()).isEqualTo(IngestJobStatus.COMPLETED);
+        assertThat(job.rowsParsed()).isEqualTo(3);
+        assertThat(job.rowsWritten()).isEqualTo(2);
+        assertThat(job.rowsRejected()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vessel_data WHERE vessel_code = 'INGEST1'", Integer.class)).isEqualTo(2);
+    }
+
+    @Test
+    void testGetIngestJob_UnknownJob() {
+        ResponseEntity<String> response = restTemplate.getForEntity("/vessels/ingest/{jobId}", String.class, "unknown");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+}
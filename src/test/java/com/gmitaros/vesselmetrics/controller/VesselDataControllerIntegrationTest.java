@@ -1,22 +1,32 @@
 package com.gmitaros.vesselmetrics.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gmitaros.vesselmetrics.dto.ComplianceComparisonResponseDTO;
 import com.gmitaros.vesselmetrics.dto.PaginatedResponse;
 import com.gmitaros.vesselmetrics.dto.ProblematicWaypointGroupDTO;
 import com.gmitaros.vesselmetrics.dto.SpeedDifferenceDTO;
 import com.gmitaros.vesselmetrics.dto.ValidationIssueDTO;
 import com.gmitaros.vesselmetrics.dto.VesselDataDTO;
+import com.gmitaros.vesselmetrics.dto.WindowStatisticsDTO;
+import com.gmitaros.vesselmetrics.dto.WindowStatisticsPointDTO;
+import com.gmitaros.vesselmetrics.exception.TooManyExportsException;
+import com.gmitaros.vesselmetrics.service.VesselDataExportService;
 import org.assertj.core.data.Percentage;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -30,6 +40,12 @@ public class VesselDataControllerIntegrationTest {
     @Autowired
     private TestRestTemplate restTemplate;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private VesselDataExportService vesselDataExportService;
+
     @Test
     void testGetSpeedDifferences() {
         String vesselCode = "19310";
@@ -126,4 +142,129 @@ public class VesselDataControllerIntegrationTest {
         assertThat(response.getBody()).isNotEmpty();
         assertThat(response.getBody().size()).isEqualTo(198);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetWindowStatistics() {
+        String vesselCode = "3001";
+
+        ResponseEntity<WindowStatisticsDTO> response = restTemplate.getForEntity(
+                "/vessels/{vesselCode}/window-statistics?window={window}",
+                WindowStatisticsDTO.class,
+                vesselCode, "24h"
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().window()).isEqualTo(Duration.ofHours(24));
+        List<WindowStatisticsPointDTO> points = response.getBody().points();
+        assertThat(points).isNotEmpty();
+        assertThat(points).isSortedAccordingTo(Comparator.comparing(WindowStatisticsPointDTO::dateTime));
+        assertThat(points.getLast().powerCount()).isPositive();
+        assertThat(points.getLast().avgPower()).isNotNull();
+    }
+
+    @Test
+    void testGetWindowStatistics_UnknownVesselAndInvalidWindow() {
+        ResponseEntity<String> unknownVessel = restTemplate.getForEntity(
+                "/vessels/{vesselCode}/window-statistics", String.class, "INVALID_VESSEL_CODE");
+        assertThat(unknownVessel.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+
+        ResponseEntity<String> tooLong = restTemplate.getForEntity(
+                "/vessels/{vesselCode}/window-statistics?window={window}", String.class, "3001", "30d");
+        assertThat(tooLong.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void testExportData_Ndjson() {
+        String vesselCode = "3001";
+        String startDate = "2023-06-01T00:00:00";
+        String endDate = "2023-06-10T23:59:59";
+
+        ResponseEntity<PaginatedResponse<VesselDataDTO>> merged = restTemplate.exchange(
+                "/vessels/{vesselCode}/data-merge?startDate={startDate}&endDate={endDate}&page=0&size=1000",
+                GET,
+                null,
+                new ParameterizedTypeReference<>() {
+                },
+                vesselCode, startDate, endDate
+        );
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                "/vessels/{vesselCode}/export?startDate={startDate}&endDate={endDate}",
+                String.class, vesselCode, startDate, endDate);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType().toString()).startsWith("application/x-ndjson");
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION)).contains("3001.ndjson");
+        assertThat(response.getBody()).endsWith("\n");
+        List<VesselDataDTO> exported = response.getBody().lines()
+                .map(line -> {
+                    try {
+                        return objectMapper.readValue(line, VesselDataDTO.class);
+                    } catch (Exception e) {
+                        throw new AssertionError("Not a JSON line: " + line, e);
+                    }
+                })
+                .toList();
+        assertThat(exported).hasSize(868);
+        assertThat(exported).isEqualTo(merged.getBody().getContent());
+    }
+
+    @Test
+    void testExportData_Csv() {
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                "/vessels/{vesselCode}/export?startDate={startDate}&endDate={endDate}&format=csv",
+                String.class, "3001", "2023-06-01T00:00:00", "2023-06-10T23:59:59");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType().toString()).startsWith("text/csv");
+        List<String> lines = response.getBody().lines().toList();
+        assertThat(lines).hasSize(869);
+        assertThat(lines.getFirst()).isEqualTo("vesselCode,dateTime,latitude,longitude,power,fuelConsumption,"
+                + "actualSpeedOverground,proposedSpeedOverground,predictedFuelConsumption,speedDifference,fuelEfficiency");
+        assertThat(lines.subList(1, lines.size())).allSatisfy(line -> {
+            assertThat(line).startsWith("3001,2023-06-");
+            assertThat(Arrays.stream(line.split(",", -1))).hasSize(11);
+        });
+        assertThat(lines.subList(1, lines.size())).isSortedAccordingTo(Comparator.comparing(line -> line.split(",")[1]));
+    }
+
+    @Test
+    void testExportData_UnknownVesselAndInvalidFormat() {
+        ResponseEntity<String> unknownVessel = restTemplate.getForEntity(
+                "/vessels/{vesselCode}/export?startDate={startDate}&endDate={endDate}",
+                String.class, "INVALID_VESSEL_CODE", "2023-06-01T00:00:00", "2023-06-10T23:59:59");
+        assertThat(unknownVessel.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+
+        ResponseEntity<String> invalidFormat = restTemplate.getForEntity(
+                "/vessels/{vesselCode}/export?startDate={startDate}&endDate={endDate}&format=xml",
+                String.class, "3001", "2023-06-01T00:00:00", "2023-06-10T23:59:59");
+        assertThat(invalidFormat.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void testExportData_RejectsExportsBeyondTheLimit() {
+        List<Runnable> slots = new ArrayList<>();
+        try {
+            // Takes every slot, like exports that are still streaming
+            while (true) {
+                try {
+                    slots.add(vesselDataExportService.acquireSlot());
+                } catch (TooManyExportsException e) {
+                    break;
+                }
+            }
+            ResponseEntity<String> rejected = restTemplate.getForEntity(
+                    "/vessels/{vesselCode}/export?startDate={startDate}&endDate={endDate}",
+                    String.class, "3001", "2023-06-01T00:00:00", "2023-06-10T23:59:59");
+            assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        } finally {
+            slots.forEach(Runnable::run);
+        }
+
+        ResponseEntity<String> accepted = restTemplate.getForEntity(
+                "/vessels/{vesselCode}/export?startDate={startDate}&endDate={endDate}",
+                String.class, "3001", "2023-06-01T00:00:00", "2023-06-10T23:59:59");
+        assertThat(accepted.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(accepted.getBody().lines()).hasSize(868);
+    }
+}
@@ -0,0 +1,112 @@
+package com.gmitaros.vesselmetrics.parser.impl;
+
+import com.gmitaros.vesselmetrics.util.Utils;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the time it takes to turn a large CSV file into {@code VesselData} with commons-csv
+ * ({@link CsvParserService}) and with the memory-mapped tokenizer ({@link MappedCsvParserService}).
+ * Only parsing and mapping are measured; validation and database writes are the same for both parsers.
+ * <p>
+ * The file is generated once in the temp directory. Run with
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=CsvParserBenchmark}, and add
+ * {@code -p sizeMb=...} to the JMH arguments to change the file size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class CsvParserBenchmark {
+
+    private static final String HEADER = "\"vessel_code\",\"datetime\",\"latitude\",\"longitude\",\"power\",\"fuel_consumption\",\"actual_speed_overground\",\"proposed_speed_overground\",\"predicted_fuel_consumption\"";
+
+    @Param({"4096"})
+    private int sizeMb;
+
+    private Path file;
+
+    @Setup
+    public void generateFile() throws IOException {
+        file = generateFile(sizeMb);
+    }
+
+    /**
+     * Generates a CSV file of vessel data of at least the given size in the temp directory, unless it exists already.
+     */
+    static Path generateFile(int sizeMb) throws IOException {
+        Path file = Path.of(System.getProperty("java.io.tmpdir"), "vessel_data_benchmark_" + sizeMb + "mb.csv");
+        long targetSize = sizeMb * 1024L * 1024L;
+        if (Files.exists(file) && Files.size(file) >= targetSize) {
+            return file;
+        }
+        Random random = new Random(42);
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        LocalDateTime dateTime = LocalDateTime.of(2023, 6, 1, 0, 0);
+        long written = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write(HEADER);
+            writer.newLine();
+            while (written < targetSize) {
+                String timestamp = dateTime.format(formatter);
+                for (int vessel = 0; vessel < 20; vessel++) {
+                    String line = "\"" + (3000 + vessel) + "\",\"" + timestamp + "\",\""
+                            + (random.nextDouble() * 180 - 90) + "\",\"" + (random.nextDouble() * 360 - 180) + "\",\""
+                            + (random.nextDouble() * 20000) + "\",\"" + (random.nextDouble() * 3000) + "\",\""
+                            + (random.nextDouble() * 20) + "\",\"" + (random.nextDouble() * 20) + "\",\""
+                            + (random.nextInt(50) == 0 ? "NULL" : String.valueOf(random.nextDouble() * 3000)) + "\"";
+                    writer.write(line);
+                    writer.newLine();
+                    written += line.length() + 1;
+                }
+                dateTime = dateTime.plusMinutes(1);
+            }
+        }
+        return file;
+    }
+
+    @Benchmark
+    public void commonsCsv(Blackhole blackhole) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file);
+             CSVParser csvParser = CSVFormat.DEFAULT.builder()
+                     .setHeader()
+                     .setSkipHeaderRecord(true)
+                     .build()
+                     .parse(reader)) {
+            for (CSVRecord record : csvParser) {
+                blackhole.consume(Utils.mapCsvRecordToVesselData(record));
+            }
+        }
+    }
+
+    @Benchmark
+    public void mappedTokenizer(Blackhole blackhole) throws IOException {
+        new MappedCsvParserService(null).read(file, blackhole::consume);
+    }
+
+}
@@ -1,5 +1,12 @@
 package com.gmitaros.vesselmetrics.parser.impl;
 
+import com.gmitaros.vesselmetrics.service.IngestCheckpoint;
+import com.gmitaros.vesselmetrics.service.IngestProgress;
+import com.gmitaros.vesselmetrics.service.VesselStatisticsService;
+import com.gmitaros.vesselmetrics.util.Utils;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,20 +15,32 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @ActiveProfiles("test")
 @SpringBootTest
 public class CsvParserServiceIntegrationTest {
 
+    private static final String SOURCE_ID = "/data/vessel_data_test.csv";
+
     @Autowired
     private CsvParserService csvParserService;
 
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private VesselStatisticsService vesselStatisticsService;
+
     @BeforeEach
     void setUp() {
     }
@@ -46,4 +65,75 @@ public class CsvParserServiceIntegrationTest {
         Integer validationErrorCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vessel_data_validation_errors", Integer.class);
         assertThat(validationErrorCount).isGreaterThan(0);
     }
+
+    @Test
+    void testStartupLoad_IsCheckpointed() {
+        Map<String, Object> job = jdbcTemplate.queryForMap("SELECT * FROM ingest_jobs WHERE source_id = ?", SOURCE_ID);
+
+        assertThat(job.get("status")).isEqualTo("COMPLETED");
+        assertThat(((Number) job.get("record_number")).longValue()).isEqualTo(1000L);
+    }
+
+    @Test
+    void testInterruptedLoad_ResumesFromCheckpoint() throws Exception {
+        Integer rowsBefore = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vessel_data", Integer.class);
+        // The load is interrupted before the last 10 records were written
+        List<CSVRecord> records = readTestRecords();
+        for (CSVRecord record : records.subList(989, records.size())) {
+            jdbcTemplate.update("DELETE FROM vessel_data WHERE vessel_code = ? AND date_time = ?",
+                    record.get("vessel_code"), Timestamp.valueOf(Utils.parseDateTime(record.get("datetime"))));
+        }
+        vesselStatisticsService.rebuild();
+        jdbcTemplate.update("UPDATE ingest_jobs SET status = 'FAILED', record_number = 989, byte_offset = NULL, rows_written = 989 WHERE source_id = ?", SOURCE_ID);
+
+        csvParserService.onApplicationReady();
+
+        Integer rowsAfter = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vessel_data", Integer.class);
+        Map<String, Object> job = jdbcTemplate.queryForMap("SELECT * FROM ingest_jobs WHERE source_id = ?", SOURCE_ID);
+        assertThat(rowsAfter).isEqualTo(rowsBefore);
+        assertThat(job.get("status")).isEqualTo("COMPLETED");
+        assertThat(((Number) job.get("record_number")).longValue()).isEqualTo(1000L);
+        assertThat(((Number) job.get("rows_written")).longValue()).isEqualTo(1000L);
+    }
+
+    @Test
+    void testReload_SkipsStoredRows() {
+        Integer rowsBefore = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vessel_data", Integer.class);
+        IngestProgress progress = new IngestProgress();
+
+        csvParserService.parseAndSave(getClass().getResourceAsStream("/data/vessel_data_test.csv"), progress);
+
+        Integer rowsAfter = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vessel_data", Integer.class);
+        assertThat(rowsAfter).isEqualTo(rowsBefore);
+        assertThat(progress.getRowsWritten()).isZero();
+        assertThat(progress.getRowsDuplicate() + progress.getRowsRejected()).isEqualTo(1000L);
+    }
+
+    @Test
+    void testCheckpoint_IsCommittedWithItsBatch() {
+        String csv = """
+                "vessel_code","datetime","latitude","longitude","power","fuel_consumption","actual_speed_overground","proposed_speed_overground","predicted_fuel_consumption"
+                "CHECKPOINT1","2023-07-01 00:00:00","10.28","-14.78","1200","50","15.5","14.2","45"
+                """;
+        // A checkpoint that cannot be stored rolls back the rows it covers
+        IngestProgress progress = new IngestProgress(IngestCheckpoint.START, checkpoint -> {
+            throw new IllegalStateException("Checkpoint store failed");
+        });
+
+        assertThatThrownBy(() -> csvParserService.parseAndSave(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), progress))
+                .isInstanceOf(RuntimeException.class);
+
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vessel_data WHERE vessel_code = 'CHECKPOINT1'", Integer.class);
+        assertThat(rows).isZero();
+    }
+
+    private List<CSVRecord> readTestRecords() throws Exception {
+        try (CSVParser csvParser = CSVFormat.DEFAULT.builder()
+                .setHeader()
+                .setSkipHeaderRecord(true)
+                .build()
+                .parse(new InputStreamReader(getClass().getResourceAsStream("/data/vessel_data_test.csv")))) {
+            return csvParser.getRecords();
+        }
+    }
 }
@@ -0,0 +1,241 @@
+package com.gmitaros.vesselmetrics.parser.impl;
+
+import com.gmitaros.vesselmetrics.model.VesselData;
+import com.gmitaros.vesselmetrics.util.Utils;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedCsvParserServiceTest {
+
+    private static final String HEADER = "vessel_code,datetime,latitude,longitude,power,fuel_consumption,actual_speed_overground,proposed_speed_overground,predicted_fuel_consumption\n";
+
+    private final MappedCsvParserService mappedCsvParserService = new MappedCsvParserService(null);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRead_MatchesCommonsCsvOnTestData() throws Exception {
+        List<VesselData> expected = readWithCommonsCsv(getClass().getResourceAsStream("/data/vessel_data_test.csv"));
+
+        Path file = tempDir.resolve("vessel_data_test.csv");
+        try (InputStream inputStream = getClass().getResourceAsStream("/data/vessel_data_test.csv")) {
+            Files.copy(Objects.requireNonNull(inputStream), file);
+        }
+        List<VesselData> mapped = new ArrayList<>();
+        mappedCsvParserService.read(file, mapped::add);
+
+        List<VesselData> streamed = new ArrayList<>();
+        try (InputStream inputStream = getClass().getResourceAsStream("/data/vessel_data_test.csv")) {
+            mappedCsvParserService.read(inputStream, streamed::add);
+        }
+
+        assertSameVesselData(expected, mapped);
+        assertSameVesselData(expected, streamed);
+    }
+
+    @Test
+    void testRead_QuotedValuesNullsAndLastLineWithoutLineBreak() throws Exception {
+        String csv = HEADER +
+                "\"V1234\",\"2023-10-06 12:30:00\",\"12.345\",NULL,-0,,1.5e3,14.2,45\r\n" +
+                "\r\n" +
+                "V1234,2023-10-06 12:30:00,12.345,54.321,1200,50,15.5,14.2,abc";
+
+        List<VesselData> rows = new ArrayList<>();
+        mappedCsvParserService.read(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), rows::add);
+
+        assertEquals(2, rows.size());
+        VesselData first = rows.getFirst();
+        assertEquals("V1234", first.getVesselCode());
+        assertEquals(LocalDateTime.of(2023, 10, 6, 12, 30, 0), first.getDateTime());
+        assertEquals(12.345, first.getLatitude());
+        assertNull(first.getLongitude());
+        assertEquals(-0.0, first.getPower());
+        assertNull(first.getFuelConsumption());
+        assertEquals(1500.0, first.getActualSpeedOverground());
+        assertSame(first.getVesselCode(), rows.get(1).getVesselCode());
+        assertSame(first.getDateTime(), rows.get(1).getDateTime());
+        assertNull(rows.get(1).getPredictedFuelConsumption());
+    }
+
+    @Test
+    void testRead_ShortRowIsPassedOnAsRejected() throws Exception {
+        String csv = HEADER +
+                "V1234,2023-10-06 12:30:00,12.345,54.321,1200,50,15.5,14.2,45\n" +
+                "V1234,2023-10-06 12:31:00\n" +
+                "V1234,2023-10-06 12:32:00,12.345,54.321,1200,50,15.5,14.2,45\n";
+
+        List<VesselData> rows = new ArrayList<>();
+        mappedCsvParserService.read(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), rows::add);
+
+        assertEquals(3, rows.size());
+        assertNull(rows.get(1));
+        assertEquals(LocalDateTime.of(2023, 10, 6, 12, 32, 0), rows.get(2).getDateTime());
+    }
+
+    @Test
+    void testRead_InvalidDateTimeFallsBackToFormatter() throws Exception {
+        String csv = HEADER + "V1234,invalid_date,12.345,54.321,1200,50,15.5,14.2,45\n";
+
+        List<VesselData> rows = new ArrayList<>();
+        mappedCsvParserService.read(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), rows::add);
+
+        assertEquals(1, rows.size());
+        assertNull(rows.getFirst().getDateTime());
+        assertEquals(readWithCommonsCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))).getFirst().getLatitude(),
+                rows.getFirst().getLatitude());
+    }
+
+    @Test
+    void testRead_ResumesFromByteOffsetOfRow() throws Exception {
+        Path file = tempDir.resolve("vessel_data_test.csv");
+        try (InputStream inputStream = getClass().getResourceAsStream("/data/vessel_data_test.csv")) {
+            Files.copy(Objects.requireNonNull(inputStream), file);
+        }
+        List<VesselData> all = new ArrayList<>();
+        List<Long> positions = new ArrayList<>();
+        MappedCsvParserService.FileSource source = new MappedCsvParserService.FileSource(file, 0);
+        source.forEach(row -> {
+            all.add(row);
+            positions.add(source.position());
+        });
+        assertEquals(Files.size(file), source.position());
+
+        int resumeAfter = 700;
+        long offset = positions.get(resumeAfter - 1);
+        List<VesselData> mapped = new ArrayList<>();
+        new MappedCsvParserService.FileSource(file, offset).forEach(mapped::add);
+        List<VesselData> streamed = new ArrayList<>();
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            new MappedCsvParserService.StreamSource(inputStream, offset).forEach(streamed::add);
+        }
+
+        List<VesselData> expected = all.subList(resumeAfter, all.size());
+        assertSameVesselData(expected, mapped);
+        assertSameVesselData(expected, streamed);
+    }
+
+    @Test
+    void testSplitIntoRanges_ReadsTheSameRowsAsOneSource() throws Exception {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < 50; i++) {
+            // One vessel code holds a line break, which must not be taken for the start of a range
+            String vesselCode = i == 20 ? "V\n" + i : "V" + i;
+            csv.append("\"").append(vesselCode).append("\",\"2023-10-06 12:").append(10 + i).append(":00\",\"")
+                    .append(i).append(".5\",\"54.321\",\"1200\",\"50\",\"15.5\",\"14.2\",\"45\"\n");
+        }
+        Path file = tempDir.resolve("quoted.csv");
+        Files.writeString(file, csv);
+
+        List<VesselData> expected = new ArrayList<>();
+        mappedCsvParserService.read(file, expected::add);
+        assertEquals(50, expected.size());
+        assertEquals("V\n20", expected.get(20).getVesselCode());
+
+        for (long rangeSize : new long[]{1, 37, 200, 1000, Long.MAX_VALUE / 2}) {
+            List<MappedCsvParserService.FileSource> ranges = mappedCsvParserService.splitIntoRanges(file, 0, rangeSize);
+            List<VesselData> split = new ArrayList<>();
+            for (MappedCsvParserService.FileSource range : ranges) {
+                range.forEach(split::add);
+            }
+            assertSameVesselData(expected, split);
+            assertEquals(Files.size(file), ranges.getLast().position());
+        }
+    }
+
+    @Test
+    void testSplitIntoRanges_DoesNotCutInsideQuotedLineThatLooksLikeARecord() throws Exception {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < 20; i++) {
+            // After its line break, the vessel code reads like a complete record of the header's width
+            String vesselCode = i % 5 == 0 ? "V" + i + "\nX,2023-10-06 12:00:00,1,2,3,4,5,6,7\n" : "V" + i;
+            csv.append("\"").append(vesselCode).append("\",2023-10-06 12:").append(10 + i)
+                    .append(":00,1.5,54.321,1200,50,15.5,14.2,45\n");
+        }
+        Path file = tempDir.resolve("quoted-records.csv");
+        Files.writeString(file, csv);
+
+        List<VesselData> expected = new ArrayList<>();
+        mappedCsvParserService.read(file, expected::add);
+        assertEquals(20, expected.size());
+
+        for (long rangeSize = 1; rangeSize < Files.size(file); rangeSize += 7) {
+            List<VesselData> split = new ArrayList<>();
+            for (MappedCsvParserService.FileSource range : mappedCsvParserService.splitIntoRanges(file, 0, rangeSize)) {
+                range.forEach(split::add);
+            }
+            assertSameVesselData(expected, split);
+        }
+    }
+
+    @Test
+    void testSplitIntoRanges_StartsAtResumeOffset() throws Exception {
+        Path file = tempDir.resolve("vessel_data_test.csv");
+        try (InputStream inputStream = getClass().getResourceAsStream("/data/vessel_data_test.csv")) {
+            Files.copy(Objects.requireNonNull(inputStream), file);
+        }
+        List<VesselData> all = new ArrayList<>();
+        List<Long> positions = new ArrayList<>();
+        MappedCsvParserService.FileSource source = new MappedCsvParserService.FileSource(file, 0);
+        source.forEach(row -> {
+            all.add(row);
+            positions.add(source.position());
+        });
+
+        int resumeAfter = 300;
+        List<MappedCsvParserService.FileSource> ranges =
+                mappedCsvParserService.splitIntoRanges(file, positions.get(resumeAfter - 1), 4096);
+        List<VesselData> split = new ArrayList<>();
+        for (MappedCsvParserService.FileSource range : ranges) {
+            range.forEach(split::add);
+        }
+
+        assertTrue(ranges.size() > 1);
+        assertSameVesselData(all.subList(resumeAfter, all.size()), split);
+    }
+
+    private static List<VesselData> readWithCommonsCsv(InputStream inputStream) throws Exception {
+        try (CSVParser csvParser = CSVFormat.DEFAULT.builder()
+                .setHeader()
+                .setSkipHeaderRecord(true)
+                .build()
+                .parse(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            return csvParser.stream().map(Utils::mapCsvRecordToVesselData).filter(Objects::nonNull).toList();
+        }
+    }
+
+    private static void assertSameVesselData(List<VesselData> expected, List<VesselData> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            VesselData e = expected.get(i);
+            VesselData a = actual.get(i);
+            assertEquals(e.getVesselCode(), a.getVesselCode(), "vessel code of row " + i);
+            assertEquals(e.getDateTime(), a.getDateTime(), "date-time of row " + i);
+            assertEquals(e.getLatitude(), a.getLatitude(), "latitude of row " + i);
+            assertEquals(e.getLongitude(), a.getLongitude(), "longitude of row " + i);
+            assertEquals(e.getPower(), a.getPower(), "power of row " + i);
+            assertEquals(e.getFuelConsumption(), a.getFuelConsumption(), "fuel consumption of row " + i);
+            assertEquals(e.getActualSpeedOverground(), a.getActualSpeedOverground(), "actual speed of row " + i);
+            assertEquals(e.getProposedSpeedOverground(), a.getProposedSpeedOverground(), "proposed speed of row " + i);
+            assertEquals(e.getPredictedFuelConsumption(), a.getPredictedFuelConsumption(), "predicted fuel of row " + i);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.gmitaros.vesselmetrics.parser.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures how parsing one large CSV file with the memory-mapped tokenizer scales when the file is split into
+ * line-aligned byte ranges that are parsed on a fork-join pool of {@code parallelism} threads, the way the split
+ * mode of {@link MappedCsvParserService} reads it. Only parsing and mapping are measured.
+ * <p>
+ * The file is generated once in the temp directory, by default 10 GB, so make sure there is enough disk space.
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=SplitCsvParserBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class SplitCsvParserBenchmark {
+
+    private static final int RANGES_PER_THREAD = 4;
+
+    @Param({"10240"})
+    private int sizeMb;
+
+    @Param({"1", "2", "4", "8"})
+    private int parallelism;
+
+    private Path file;
+
+    @Setup
+    public void generateFile() throws IOException {
+        file = CsvParserBenchmark.generateFile(sizeMb);
+    }
+
+    @Benchmark
+    public long splitMappedTokenizer() throws Exception {
+        long rangeSize = Files.size(file) / ((long) parallelism * RANGES_PER_THREAD) + 1;
+        List<MappedCsvParserService.FileSource> ranges = new MappedCsvParserService(null).splitIntoRanges(file, 0, rangeSize);
+        // A shared Blackhole would serialize the threads, so the rows are only counted
+        LongAdder rows = new LongAdder();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Future<?>> reads = new ArrayList<>();
+            for (MappedCsvParserService.FileSource range : ranges) {
+                reads.add(pool.submit(() -> {
+                    try {
+                        range.forEach(row -> rows.increment());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+            for (Future<?> read : reads) {
+                read.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return rows.sum();
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.gmitaros.vesselmetrics.repository;
+
+import com.gmitaros.vesselmetrics.VesselMetricsApplication;
+import com.gmitaros.vesselmetrics.dto.SpeedDifferenceDTO;
+import com.gmitaros.vesselmetrics.dto.VesselDataDTO;
+import com.gmitaros.vesselmetrics.model.ValidationStatus;
+import com.gmitaros.vesselmetrics.model.VesselData;
+import com.gmitaros.vesselmetrics.service.VesselDataWriter;
+import com.gmitaros.vesselmetrics.util.TimeOrderedUuid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading a page of 10,000 rows as {@link VesselData} entities and mapping them to DTOs, like the read
+ * endpoints used to, with the constructor projections of {@link VesselDataRepository} that select only the columns
+ * of the DTOs. Every read runs in a read-only transaction, like the service methods. The rows live in the in-memory
+ * H2 database of the {@code test} profile, so the difference is the work of Hibernate rather than of the database;
+ * add {@code -prof gc} to the JMH arguments to see the allocations per page.
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=VesselDataReadBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class VesselDataReadBenchmark {
+
+    private static final String VESSEL_CODE = "BENCHMARK";
+    private static final int ROWS = 30_000;
+    private static final int PAGE_SIZE = 10_000;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private ConfigurableApplicationContext context;
+    private VesselDataRepository vesselDataRepository;
+    private TransactionTemplate readOnly;
+    private final Pageable pageable = PageRequest.of(1, PAGE_SIZE, Sort.by("dateTime"));
+
+    @Setup
+    public void startApplication() {
+        context = new SpringApplicationBuilder(VesselMetricsApplication.class)
+                .profiles("test")
+                .properties("spring.main.web-application-type=none", "logging.level.com.gmitaros=WARN")
+                .run();
+        vesselDataRepository = context.getBean(VesselDataRepository.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+
+        Random random = new Random(42);
+        List<VesselData> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            double proposedSpeed = 10 + random.nextDouble() * 5;
+            double actualSpeed = proposedSpeed + random.nextGaussian();
+            rows.add(VesselData.builder()
+                    .vesselDataUuid(TimeOrderedUuid.next())
+                    .vesselCode(VESSEL_CODE)
+                    .dateTime(START.plusMinutes(i))
+                    .latitude(random.nextDouble() * 180 - 90)
+                    .longitude(random.nextDouble() * 360 - 180)
+                    .power(8000 + random.nextGaussian() * 500)
+                    .fuelConsumption(30 + random.nextGaussian() * 3)
+                    .actualSpeedOverground(actualSpeed)
+                    .proposedSpeedOverground(proposedSpeed)
+                    .predictedFuelConsumption(30 + random.nextGaussian() * 3)
+                    .speedDifference(proposedSpeed - actualSpeed)
+                    .fuelEfficiency(actualSpeed / 30)
+                    .validationStatus(ValidationStatus.VALID)
+                    .validationErrors(new ArrayList<>())
+                    .build());
+        }
+        context.getBean(VesselDataWriter.class).saveVesselDataBatch(rows);
+    }
+
+    @TearDown
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<SpeedDifferenceDTO> speedDifferencesFromEntities() {
+        return readOnly.execute(status -> vesselDataRepository
+                .findByVesselCodeAndValidationStatus(VESSEL_CODE, ValidationStatus.VALID, pageable)
+                .map(data -> new SpeedDifferenceDTO(data.getDateTime(), data.getLatitude(), data.getLongitude(), data.getSpeedDifference()))
+                .getContent());
+    }
+
+    @Benchmark
+    public List<SpeedDifferenceDTO> speedDifferencesFromProjection() {
+        return readOnly.execute(status -> vesselDataRepository
+                .findSpeedDifferencesByVesselCodeAndValidationStatus(VESSEL_CODE, ValidationStatus.VALID, pageable)
+                .getContent());
+    }
+
+    @Benchmark
+    public List<VesselDataDTO> mergedDataFromEntities() {
+        return readOnly.execute(status -> vesselDataRepository
+                .findByVesselCodeAndDateTimeBetween(VESSEL_CODE, START, START.plusMinutes(ROWS), pageable)
+                .map(VesselDataDTO::from)
+                .getContent());
+    }
+
+    @Benchmark
+    public List<VesselDataDTO> mergedDataFromProjection() {
+        return readOnly.execute(status -> vesselDataRepository
+                .findMergedDataByVesselCodeAndDateTimeBetween(VESSEL_CODE, START, START.plusMinutes(ROWS), pageable)
+                .getContent());
+    }
+}
@@ -0,0 +1,123 @@
+package com.gmitaros.vesselmetrics.repository;
+
+import com.gmitaros.vesselmetrics.dto.SpeedDifferenceDTO;
+import com.gmitaros.vesselmetrics.dto.VesselDataDTO;
+import com.gmitaros.vesselmetrics.model.ValidationStatus;
+import com.gmitaros.vesselmetrics.model.VesselData;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DirtiesContext
+@ActiveProfiles("test")
+@SpringBootTest
+class VesselDataRepositoryIntegrationTest {
+
+    @Autowired
+    private VesselDataRepository vesselDataRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    @Transactional(readOnly = true)
+    void testScanByVesselCodeAndValidationStatus_ReadsAllRowsInIdOrder() {
+        String vesselCode = "3001";
+        List<Long> expected = vesselDataRepository.findByVesselCodeAndValidationStatus(vesselCode, ValidationStatus.VALID).stream()
+                .map(VesselData::getId)
+                .sorted()
+                .toList();
+
+        List<Long> scanned = new ArrayList<>();
+        List<Integer> batchSizes = new ArrayList<>();
+        vesselDataRepository.scanByVesselCodeAndValidationStatus(vesselCode, ValidationStatus.VALID, 100, batch -> {
+            batchSizes.add(batch.size());
+            batch.forEach(data -> scanned.add(data.getId()));
+        });
+
+        assertEquals(expected, scanned);
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 100));
+        assertEquals((expected.size() + 99) / 100, batchSizes.size());
+    }
+
+    @Test
+    @Transactional
+    void testScanByVesselCodeAndValidationStatus_StatusChangesDoNotSkipRows() {
+        String vesselCode = "19310";
+        List<VesselData> valid = vesselDataRepository.findByVesselCodeAndValidationStatus(vesselCode, ValidationStatus.VALID);
+
+        // Every row the scan sees is moved out of the scanned status, which shifts OFFSET pages but not a seek
+        List<Long> scanned = new ArrayList<>();
+        vesselDataRepository.scanByVesselCodeAndValidationStatus(vesselCode, ValidationStatus.VALID, 10, batch -> {
+            batch.forEach(data -> {
+                scanned.add(data.getId());
+                data.setValidationStatus(ValidationStatus.INVALID);
+            });
+            vesselDataRepository.saveAllAndFlush(batch);
+        });
+
+        assertEquals(valid.stream().map(VesselData::getId).sorted(Comparator.naturalOrder()).toList(), scanned);
+    }
+
+    @Test
+    @Transactional(readOnly = true)
+    void testFindSpeedDifferences_MatchesEntitiesWithoutLoadingThem() {
+        String vesselCode = "3001";
+        Pageable pageable = PageRequest.of(2, 50, Sort.by("dateTime"));
+
+        Page<SpeedDifferenceDTO> projected = vesselDataRepository.findSpeedDifferencesByVesselCodeAndValidationStatus(vesselCode, ValidationStatus.VALID, pageable);
+        int managedAfterProjection = managedEntities();
+        Page<SpeedDifferenceDTO> expected = vesselDataRepository.findByVesselCodeAndValidationStatus(vesselCode, ValidationStatus.VALID, pageable)
+                .map(data -> new SpeedDifferenceDTO(data.getDateTime(), data.getLatitude(), data.getLongitude(), data.getSpeedDifference()));
+
+        assertEquals(0, managedAfterProjection);
+        assertFalse(projected.isEmpty());
+        assertEquals(expected.getTotalElements(), projected.getTotalElements());
+        assertEquals(expected.getContent(), projected.getContent());
+    }
+
+    @Test
+    @Transactional(readOnly = true)
+    void testFindMergedData_MatchesEntitiesWithoutLoadingThem() {
+        String vesselCode = "3001";
+        // All test rows are on 2023-06-01
+        LocalDateTime start = LocalDateTime.of(2023, 6, 1, 2, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 6, 1, 6, 0);
+        Pageable pageable = PageRequest.of(1, 40, Sort.by("dateTime"));
+
+        Page<VesselDataDTO> projected = vesselDataRepository.findMergedDataByVesselCodeAndDateTimeBetween(vesselCode, start, end, pageable);
+        int managedAfterProjection = managedEntities();
+        Page<VesselDataDTO> expected = vesselDataRepository.findByVesselCodeAndDateTimeBetween(vesselCode, start, end, pageable)
+                .map(VesselDataDTO::from);
+
+        assertEquals(0, managedAfterProjection);
+        assertFalse(projected.isEmpty());
+        assertEquals(expected.getTotalElements(), projected.getTotalElements());
+        assertEquals(expected.getContent(), projected.getContent());
+    }
+
+    /**
+     * @return the number of entities held by the persistence context of the current transaction
+     */
+    private int managedEntities() {
+        return entityManager.unwrap(Session.class).getStatistics().getEntityCount();
+    }
+}
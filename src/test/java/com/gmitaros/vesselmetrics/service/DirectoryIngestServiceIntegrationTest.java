@@ -0,0 +1,149 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import com.gmitaros.vesselmetrics.model.IngestJob;
+import com.gmitaros.vesselmetrics.model.IngestJobStatus;
+import com.gmitaros.vesselmetrics.repository.IngestJobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DirtiesContext
+@SpringBootTest
+@ActiveProfiles("test")
+public class DirectoryIngestServiceIntegrationTest {
+
+    private static final String HEADER = "\"vessel_code\",\"datetime\",\"latitude\",\"longitude\",\"power\",\"fuel_consumption\",\"actual_speed_overground\",\"proposed_speed_overground\",\"predicted_fuel_consumption\"\n";
+    private static final Path WATCH_DIRECTORY = createWatchDirectory();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private VesselStatisticsService vesselStatisticsService;
+
+    @Autowired
+    private IngestJobRepository ingestJobRepository;
+
+    @DynamicPropertySource
+    static void watchProperties(DynamicPropertyRegistry registry) {
+        registry.add("vessel.metrics.ingest.watch.directory", WATCH_DIRECTORY::toString);
+        registry.add("vessel.metrics.ingest.watch.poll.interval.ms", () -> "100");
+    }
+
+    @AfterEach
+    void removeIngestedRows() {
+        jdbcTemplate.update("DELETE FROM vessel_data WHERE vessel_code LIKE 'WATCH%'");
+        vesselStatisticsService.rebuild();
+        jdbcTemplate.update("DELETE FROM ingest_jobs WHERE source_id LIKE ?", WATCH_DIRECTORY.toAbsolutePath() + "%");
+    }
+
+    @Test
+    void testWatch_IngestsPlainAndCompressedFilesOnce() throws Exception {
+        Path done = WATCH_DIRECTORY.resolve("done.csv");
+        byte[] doneContent = (HEADER + row("WATCH4", 0)).getBytes(StandardCharsets.UTF_8);
+        // A file completed before a restart is skipped
+        ingestJobRepository.save(IngestJob.builder()
+                .sourceId(done.toAbsolutePath().normalize().toString())
+                .sourceSize(doneContent.length)
+                .status(IngestJobStatus.COMPLETED)
+                .recordNumber(1)
+                .rowsWritten(1)
+                .startedAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build());
+
+        drop(done, out -> out.write(doneContent));
+        drop(WATCH_DIRECTORY.resolve("plain.csv"), out -> out.write(csv("WATCH1", 1)));
+        drop(WATCH_DIRECTORY.resolve("gzip.csv.gz"), out -> {
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(csv("WATCH2", 2));
+            }
+        });
+        drop(WATCH_DIRECTORY.resolve("zstd.csv.zst"), out -> {
+            try (ZstdOutputStream zstd = new ZstdOutputStream(out)) {
+                zstd.write(csv("WATCH3", 3));
+            }
+        });
+        drop(WATCH_DIRECTORY.resolve("ignored.txt"), out -> out.write(csv("WATCH5", 1)));
+
+        for (int attempt = 0; attempt < 300 && completedLoads() < 4; attempt++) {
+            Thread.sleep(100);
+        }
+        // Later polls must not ingest the files again
+        Thread.sleep(500);
+
+        assertThat(completedLoads()).isEqualTo(4);
+        assertThat(countRows("WATCH1")).isEqualTo(1);
+        assertThat(countRows("WATCH2")).isEqualTo(2);
+        assertThat(countRows("WATCH3")).isEqualTo(3);
+        assertThat(countRows("WATCH4")).isZero();
+        assertThat(countRows("WATCH5")).isZero();
+    }
+
+    private int completedLoads() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ingest_jobs WHERE source_id LIKE ? AND status = 'COMPLETED'",
+                Integer.class, WATCH_DIRECTORY.toAbsolutePath() + "%");
+    }
+
+    private int countRows(String vesselCode) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vessel_data WHERE vessel_code = ?", Integer.class, vesselCode);
+    }
+
+    private static byte[] csv(String vesselCode, int rows) {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < rows; i++) {
+            csv.append(row(vesselCode, i));
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String row(String vesselCode, int minute) {
+        return "\"" + vesselCode + "\",\"2023-07-01 00:0" + minute + ":00\",\"10.28\",\"-14.78\",\"1200\",\"50\",\"15.5\",\"14.2\",\"45\"\n";
+    }
+
+    /**
+     * Writes a file next to the directory and moves it in, dated a minute back so it is taken as complete right away.
+     */
+    private static void drop(Path file, FileWriter writer) throws IOException {
+        Path temporary = WATCH_DIRECTORY.resolveSibling(WATCH_DIRECTORY.getFileName() + "-" + file.getFileName());
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            writer.write(out);
+        }
+        Files.setLastModifiedTime(temporary, FileTime.from(Instant.now().minus(1, ChronoUnit.MINUTES)));
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Path createWatchDirectory() {
+        try {
+            return Files.createTempDirectory("vessel-ingest-watch");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private interface FileWriter {
+        void write(OutputStream out) throws IOException;
+    }
+}
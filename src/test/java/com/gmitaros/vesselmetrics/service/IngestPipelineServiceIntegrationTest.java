@@ -0,0 +1,88 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.util.Utils;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.InputStreamReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DirtiesContext
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "vessel.metrics.ingest.pipeline.enabled=true",
+        "vessel.metrics.ingest.pipeline.workers=3",
+        "vessel.metrics.ingest.pipeline.writers=2",
+        "vessel.metrics.ingest.pipeline.queue.size=2",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=100"
+})
+class IngestPipelineServiceIntegrationTest {
+
+    @Autowired
+    private IngestPipelineService ingestPipelineService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private VesselStatisticsService vesselStatisticsService;
+
+    /**
+     * Puts back the removed rows the ingest did not load again, such as when it failed, since the test database is
+     * shared by all test classes.
+     */
+    @AfterEach
+    void restoreRemovedRows() {
+        jdbcTemplate.update("INSERT INTO vessel_data SELECT * FROM removed_vessel_data r WHERE NOT EXISTS "
+                + "(SELECT 1 FROM vessel_data d WHERE d.vessel_code = r.vessel_code AND d.date_time = r.date_time)");
+        jdbcTemplate.update("INSERT INTO vessel_data_validation_errors (vessel_data_uuid, vessel_code, error_message, problem_type) "
+                + "SELECT r.vessel_data_uuid, r.vessel_code, r.error_message, r.problem_type FROM removed_validation_errors r "
+                + "WHERE r.vessel_data_uuid IN (SELECT vessel_data_uuid FROM vessel_data) AND NOT EXISTS "
+                + "(SELECT 1 FROM vessel_data_validation_errors e WHERE e.vessel_data_uuid = r.vessel_data_uuid)");
+        jdbcTemplate.execute("DROP TABLE removed_validation_errors");
+        jdbcTemplate.execute("DROP TABLE removed_vessel_data");
+        vesselStatisticsService.rebuild();
+    }
+
+    @Test
+    void testPipelinedIngest_StoresSameDataAsStartupLoad() throws Exception {
+        Integer rowsBefore = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vessel_data", Integer.class);
+        Integer errorsBefore = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vessel_data_validation_errors WHERE problem_type <> 'OUTLIER'", Integer.class);
+        // Every third row without outliers is removed and loaded again; the other rows are stored already and skipped
+        String removedCondition = "MOD(id, 3) = 0 AND vessel_data_uuid NOT IN "
+                + "(SELECT vessel_data_uuid FROM vessel_data_validation_errors WHERE problem_type = 'OUTLIER')";
+        jdbcTemplate.execute("CREATE TABLE removed_vessel_data AS SELECT * FROM vessel_data WHERE " + removedCondition);
+        jdbcTemplate.execute("CREATE TABLE removed_validation_errors AS SELECT * FROM vessel_data_validation_errors "
+                + "WHERE vessel_data_uuid IN (SELECT vessel_data_uuid FROM removed_vessel_data)");
+        int removed = jdbcTemplate.update("DELETE FROM vessel_data WHERE vessel_data_uuid IN "
+                + "(SELECT vessel_data_uuid FROM removed_vessel_data)");
+        vesselStatisticsService.rebuild();
+        IngestProgress progress = new IngestProgress();
+
+        try (CSVParser csvParser = CSVFormat.DEFAULT.builder()
+                .setHeader()
+                .setSkipHeaderRecord(true)
+                .build()
+                .parse(new InputStreamReader(getClass().getResourceAsStream("/data/vessel_data_test.csv")))) {
+            IngestPipelineService.RecordSource<CSVRecord> records = csvParser::forEach;
+            long processed = ingestPipelineService.ingest(records, Utils::mapCsvRecordToVesselData, progress);
+            assertEquals(rowsBefore.longValue(), processed);
+        }
+
+        Integer rowsAfter = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vessel_data", Integer.class);
+        Integer errorsAfter = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vessel_data_validation_errors WHERE problem_type <> 'OUTLIER'", Integer.class);
+        assertEquals(rowsBefore, rowsAfter);
+        assertEquals(errorsBefore, errorsAfter);
+        assertEquals(removed, progress.getRowsWritten());
+        assertEquals(rowsBefore - removed, progress.getRowsDuplicate());
+    }
+}
@@ -0,0 +1,120 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.model.VesselData;
+import com.gmitaros.vesselmetrics.service.OutlierDetector.Metric;
+import com.gmitaros.vesselmetrics.util.RunningCovariance;
+import com.gmitaros.vesselmetrics.util.RunningStatistics;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MahalanobisOutlierDetectorTest {
+
+    @Test
+    void testScore_FlagsImplausibleCombinationOfValuesWithinRange() {
+        OutlierDetector.Model model = fit(sailingRows(10_000));
+        List<VesselData> rows = List.of(
+                row(8000, 30, 14, 0.5),
+                // Every value within three standard deviations, but high power at low speed
+                row(9000, 33, 12, 0.5),
+                // Power alone far out: only the error of the metric
+                row(30_000, 30, 14, 0.5),
+                // Missing speed difference: only checked value by value
+                row(9000, 33, 12, null));
+        byte[] masks = new byte[rows.size()];
+
+        model.score(MetricColumns.of(rows), masks);
+
+        assertArrayEquals(new byte[]{0, (byte) MetricColumns.COMBINATION_BIT, (byte) MetricColumns.maskBit(Metric.POWER), 0}, masks);
+    }
+
+    @Test
+    void testScore_LeavesOutValuesThatNeverChange() {
+        List<VesselData> sailing = sailingRows(10_000);
+        sailing.forEach(row -> row.setSpeedDifference(0.0));
+        OutlierDetector.Model model = fit(sailing);
+        byte[] masks = new byte[2];
+
+        model.score(MetricColumns.of(List.of(row(8000, 30, 14, 0.0), row(9000, 33, 12, 0.0))), masks);
+
+        assertArrayEquals(new byte[]{0, (byte) MetricColumns.COMBINATION_BIT}, masks);
+    }
+
+    @Test
+    void testInverseCholeskyFactor_WhitensTheCovariance() {
+        double[][] covariance = {{4, 2, 0}, {2, 3, 1}, {0, 1, 2}};
+        double[] inverse = MahalanobisOutlierDetector.inverseCholeskyFactor(covariance, new int[]{0, 1, 2});
+        assertNotNull(inverse);
+        double[][] w = {{inverse[0], 0, 0}, {inverse[1], inverse[2], 0}, {inverse[3], inverse[4], inverse[5]}};
+        // W * C * W^T is the identity
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                double sum = 0;
+                for (int k = 0; k < 3; k++) {
+                    for (int l = 0; l < 3; l++) {
+                        sum += w[i][k] * covariance[k][l] * w[j][l];
+                    }
+                }
+                assertEquals(i == j ? 1 : 0, sum, 1e-12);
+            }
+        }
+    }
+
+    @Test
+    void testInverseCholeskyFactor_RejectsLinearlyDependentValues() {
+        // The second value is twice the first
+        double[][] covariance = {{1, 2}, {2, 4}};
+
+        assertNull(MahalanobisOutlierDetector.inverseCholeskyFactor(covariance, new int[]{0, 1}));
+    }
+
+    private static OutlierDetector.Model fit(List<VesselData> rows) {
+        Map<Metric, RunningStatistics> statistics = new EnumMap<>(Metric.class);
+        for (Metric metric : Metric.values()) {
+            statistics.put(metric, new RunningStatistics());
+        }
+        RunningCovariance covariance = new RunningCovariance(Metric.values().length + 1);
+        for (VesselData row : rows) {
+            double[] point = new double[Metric.values().length + 1];
+            for (Metric metric : Metric.values()) {
+                point[metric.ordinal()] = metric.valueOf(row);
+                statistics.get(metric).add(point[metric.ordinal()]);
+            }
+            point[Metric.values().length] = row.getSpeedDifference();
+            covariance.add(point);
+        }
+        return MahalanobisOutlierDetector.model(statistics, covariance, 3, 4);
+    }
+
+    /**
+     * Rows of a sailing vessel whose power and fuel consumption follow its speed.
+     */
+    private static List<VesselData> sailingRows(int count) {
+        Random random = new Random(42);
+        List<VesselData> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double speed = 14 + random.nextGaussian();
+            double power = 8000 + (speed - 14) * 500 + random.nextGaussian() * 100;
+            rows.add(row(power, power / 8000 * 30 + random.nextGaussian() * 0.3, speed, 0.5 + random.nextGaussian() * 0.1));
+        }
+        return rows;
+    }
+
+    private static VesselData row(double power, double fuelConsumption, double speed, Double speedDifference) {
+        return VesselData.builder()
+                .power(power)
+                .fuelConsumption(fuelConsumption)
+                .actualSpeedOverground(speed)
+                .speedDifference(speedDifference)
+                .build();
+    }
+}
@@ -5,18 +5,28 @@ import com.gmitaros.vesselmetrics.model.ValidationProblemType;
 import com.gmitaros.vesselmetrics.model.ValidationStatus;
 import com.gmitaros.vesselmetrics.model.VesselData;
 import com.gmitaros.vesselmetrics.model.VesselMetricsStatistics;
+import com.gmitaros.vesselmetrics.repository.OutlierWatermarkRepository;
 import com.gmitaros.vesselmetrics.repository.ValidationErrorRepository;
 import com.gmitaros.vesselmetrics.repository.VesselDataRepository;
 import com.gmitaros.vesselmetrics.repository.VesselMetricsStatisticsRepository;
+import com.gmitaros.vesselmetrics.util.TimeOrderedUuid;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -40,6 +50,18 @@ class OutlierDetectionServiceIntegrationTest {
     @Autowired
     private ValidationErrorRepository validationErrorRepository;
 
+    @Autowired
+    private VesselStatisticsService vesselStatisticsService;
+
+    @Autowired
+    private OutlierWatermarkRepository outlierWatermarkRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
     @BeforeEach
     void setUp() {
         // Add setup code here if necessary, like inserting test data into the DB.
@@ -88,4 +110,120 @@ class OutlierDetectionServiceIntegrationTest {
         List<VesselData> invalidVesselData = vesselDataRepository.findByVesselCodeAndValidationStatus(vesselCode, ValidationStatus.INVALID);
         assertTrue(invalidVesselData.isEmpty());
     }
+
+    @Test
+    void testStatisticsOf_MatchesRowsAfterDetection() {
+        String vesselCode = "3001";
+        assertSameStatistics(statisticsOfRows(vesselCode), vesselStatisticsService.statisticsOf(vesselCode).orElseThrow());
+
+        // Rows flagged as outliers are removed from the totals in the transaction that flags them
+        outlierDetectionService.findOutlierByVessel(vesselCode);
+
+        assertSameStatistics(statisticsOfRows(vesselCode), vesselStatisticsService.statisticsOf(vesselCode).orElseThrow());
+        assertSameStatistics(statisticsOfRows(vesselCode),
+                vesselMetricsStatisticsRepository.findStatisticsByVesselCode(vesselCode).orElseThrow());
+        assertTrue(vesselStatisticsService.statisticsOf("INVALID_VESSEL_CODE").isEmpty());
+    }
+
+    @Test
+    void testFindOutlierByVessel_ScoresOnlyRowsAddedSinceLastRun() {
+        String vesselCode = "3001";
+        // Scores all rows once, so every row is claimed by a run
+        outlierDetectionService.findOutlierByVessel(vesselCode);
+        Long errorsBefore = countOutlierErrors(vesselCode);
+
+        // A row with an extreme speed barely moves the statistics of the vessel, so only the new row is scored
+        UUID uuid = TimeOrderedUuid.next();
+        insertRowWithExtremeSpeed(jdbcTemplate, uuid, vesselCode, LocalDateTime.of(2100, 1, 1, 0, 0));
+        Long id = idOf(uuid);
+        vesselStatisticsService.rebuild();
+        try {
+            outlierDetectionService.findOutlierByVessel(vesselCode);
+
+            assertEquals(errorsBefore + 1, countOutlierErrors(vesselCode));
+            assertEquals("INVALID", jdbcTemplate.queryForObject("SELECT validation_status FROM vessel_data WHERE id = ?", String.class, id));
+            assertEquals(outlierWatermarkRepository.findById(vesselCode).orElseThrow().getLastRun(),
+                    jdbcTemplate.queryForObject("SELECT outlier_run FROM vessel_data WHERE id = ?", Long.class, id));
+
+            // Nothing new to score
+            outlierDetectionService.findOutlierByVessel(vesselCode);
+            assertEquals(errorsBefore + 1, countOutlierErrors(vesselCode));
+        } finally {
+            // The errors of the row are removed with it
+            jdbcTemplate.update("DELETE FROM vessel_data WHERE id = ?", id);
+            vesselStatisticsService.rebuild();
+        }
+    }
+
+    @Test
+    void testFindOutlierByVessel_ScoresRowCommittedAfterAHigherIdWasScored() throws SQLException {
+        String vesselCode = "3001";
+        outlierDetectionService.findOutlierByVessel(vesselCode);
+
+        UUID lower = TimeOrderedUuid.next();
+        UUID higher = TimeOrderedUuid.next();
+        try {
+            // The lower id is taken by a transaction that only commits after the row with the higher id was scored
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                insertRowWithExtremeSpeed(new JdbcTemplate(new SingleConnectionDataSource(connection, true)), lower, vesselCode,
+                        LocalDateTime.of(2100, 1, 1, 0, 0));
+                insertRowWithExtremeSpeed(jdbcTemplate, higher, vesselCode, LocalDateTime.of(2100, 1, 1, 0, 1));
+                outlierDetectionService.findOutlierByVessel(vesselCode);
+                assertEquals("INVALID", statusOf(higher));
+                connection.commit();
+            }
+            assertTrue(idOf(lower) < idOf(higher));
+            assertEquals("VALID", statusOf(lower));
+
+            outlierDetectionService.findOutlierByVessel(vesselCode);
+
+            assertEquals("INVALID", statusOf(lower));
+        } finally {
+            jdbcTemplate.update("DELETE FROM vessel_data WHERE vessel_data_uuid IN (?, ?)", lower, higher);
+            vesselStatisticsService.rebuild();
+        }
+    }
+
+    private void insertRowWithExtremeSpeed(JdbcTemplate template, UUID uuid, String vesselCode, LocalDateTime dateTime) {
+        VesselMetricsStatistics stats = vesselMetricsStatisticsRepository.findStatisticsByVesselCode(vesselCode).orElseThrow();
+        template.update("INSERT INTO vessel_data (vessel_data_uuid, vessel_code, date_time, power, fuel_consumption, "
+                        + "actual_speed_overground, validation_status) VALUES (?, ?, ?, ?, ?, ?, 'VALID')",
+                uuid, vesselCode, dateTime, stats.getAvgPower(), stats.getAvgFuelConsumption(),
+                stats.getAvgActualSpeedOverground() + 5 * stats.getStddevActualSpeedOverground());
+    }
+
+    private Long idOf(UUID uuid) {
+        return jdbcTemplate.queryForObject("SELECT id FROM vessel_data WHERE vessel_data_uuid = ?", Long.class, uuid);
+    }
+
+    private String statusOf(UUID uuid) {
+        return jdbcTemplate.queryForObject("SELECT validation_status FROM vessel_data WHERE vessel_data_uuid = ?", String.class, uuid);
+    }
+
+    private Long countOutlierErrors(String vesselCode) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vessel_data_validation_errors WHERE vessel_code = ? AND problem_type = 'OUTLIER'",
+                Long.class, vesselCode);
+    }
+
+    private VesselMetricsStatistics statisticsOfRows(String vesselCode) {
+        return jdbcTemplate.queryForObject("SELECT vessel_code, "
+                        + "AVG(power) AS avg_power, STDDEV_SAMP(power) AS stddev_power, "
+                        + "AVG(fuel_consumption) AS avg_fuel_consumption, STDDEV_SAMP(fuel_consumption) AS stddev_fuel_consumption, "
+                        + "AVG(actual_speed_overground) AS avg_actual_speed_overground, STDDEV_SAMP(actual_speed_overground) AS stddev_actual_speed_overground, "
+                        + "AVG(fuel_efficiency) AS avg_fuel_efficiency, STDDEV_SAMP(fuel_efficiency) AS stddev_fuel_efficiency "
+                        + "FROM vessel_data WHERE vessel_code = ? AND validation_status = 'VALID' GROUP BY vessel_code",
+                new BeanPropertyRowMapper<>(VesselMetricsStatistics.class), vesselCode);
+    }
+
+    private static void assertSameStatistics(VesselMetricsStatistics expected, VesselMetricsStatistics actual) {
+        assertEquals(expected.getAvgPower(), actual.getAvgPower(), 1e-6);
+        assertEquals(expected.getStddevPower(), actual.getStddevPower(), 1e-6);
+        assertEquals(expected.getAvgFuelConsumption(), actual.getAvgFuelConsumption(), 1e-6);
+        assertEquals(expected.getStddevFuelConsumption(), actual.getStddevFuelConsumption(), 1e-6);
+        assertEquals(expected.getAvgActualSpeedOverground(), actual.getAvgActualSpeedOverground(), 1e-6);
+        assertEquals(expected.getStddevActualSpeedOverground(), actual.getStddevActualSpeedOverground(), 1e-6);
+        assertEquals(expected.getAvgFuelEfficiency(), actual.getAvgFuelEfficiency(), 1e-6);
+        assertEquals(expected.getStddevFuelEfficiency(), actual.getStddevFuelEfficiency(), 1e-6);
+    }
 }
@@ -0,0 +1,99 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.model.ValidationStatus;
+import com.gmitaros.vesselmetrics.model.VesselData;
+import com.gmitaros.vesselmetrics.model.VesselMetricsStatistics;
+import com.gmitaros.vesselmetrics.repository.VesselDataRepository;
+import com.gmitaros.vesselmetrics.repository.VesselMetricsStatisticsRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@DirtiesContext
+@ActiveProfiles("test")
+@SpringBootTest(properties = "vessel.metrics.outlier.engine=sql")
+class OutlierDetectionServiceSqlEngineIntegrationTest {
+
+    private static final String VESSEL_CODE = "19310";
+    private static final double THRESHOLD = 3.0;
+
+    @Autowired
+    private OutlierDetectionService outlierDetectionService;
+
+    @Autowired
+    private VesselDataRepository vesselDataRepository;
+
+    @Autowired
+    private VesselMetricsStatisticsRepository vesselMetricsStatisticsRepository;
+
+    @Autowired
+    private VesselStatisticsService vesselStatisticsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testFindOutlierByVessel_FlagsTheSameRowsAsZScores() {
+        VesselMetricsStatistics stats = vesselMetricsStatisticsRepository.findStatisticsByVesselCode(VESSEL_CODE).orElseThrow();
+        List<VesselData> validRows = vesselDataRepository.findByVesselCodeAndValidationStatus(VESSEL_CODE, ValidationStatus.VALID);
+        Set<UUID> expectedOutliers = new HashSet<>();
+        int expectedErrors = 0;
+        for (VesselData row : validRows) {
+            int rowErrors = isOutlier(row.getFuelConsumption(), stats.getAvgFuelConsumption(), stats.getStddevFuelConsumption())
+                    + isOutlier(row.getPower(), stats.getAvgPower(), stats.getStddevPower())
+                    + isOutlier(row.getActualSpeedOverground(), stats.getAvgActualSpeedOverground(), stats.getStddevActualSpeedOverground());
+            if (rowErrors > 0) {
+                expectedOutliers.add(row.getVesselDataUuid());
+                expectedErrors += rowErrors;
+            }
+        }
+        Long errorsBefore = countOutlierErrors();
+
+        try {
+            outlierDetectionService.rescoreOutliersOfVessel(VESSEL_CODE);
+
+            Set<UUID> invalidated = new HashSet<>();
+            for (VesselData row : vesselDataRepository.findByVesselCodeAndValidationStatus(VESSEL_CODE, ValidationStatus.INVALID)) {
+                if (validRows.stream().anyMatch(valid -> valid.getVesselDataUuid().equals(row.getVesselDataUuid()))) {
+                    invalidated.add(row.getVesselDataUuid());
+                }
+            }
+            assertFalse(expectedOutliers.isEmpty());
+            assertEquals(expectedOutliers, invalidated);
+            assertEquals(errorsBefore + expectedErrors, countOutlierErrors());
+            // The flagged rows were removed from the totals before they were marked INVALID
+            assertEquals(validRows.size() - expectedOutliers.size(), jdbcTemplate.queryForObject(
+                    "SELECT valid_rows FROM vessel_metrics_totals WHERE vessel_code = ?", Integer.class, VESSEL_CODE));
+        } finally {
+            // Restore the rows flagged by this test, the database is shared with the other tests
+            for (UUID uuid : expectedOutliers) {
+                jdbcTemplate.update("DELETE FROM vessel_data_validation_errors WHERE vessel_data_uuid = ? AND problem_type = 'OUTLIER'", uuid);
+                jdbcTemplate.update("UPDATE vessel_data SET validation_status = 'VALID' WHERE vessel_data_uuid = ?", uuid);
+            }
+            vesselStatisticsService.rebuild();
+        }
+    }
+
+    private Long countOutlierErrors() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vessel_data_validation_errors WHERE vessel_code = ? AND problem_type = 'OUTLIER'",
+                Long.class, VESSEL_CODE);
+    }
+
+    private static int isOutlier(Double value, Double mean, Double stddev) {
+        if (value == null || mean == null || stddev == null) {
+            return 0;
+        }
+        return Math.abs((value - mean) / stddev) > THRESHOLD ? 1 : 0;
+    }
+}
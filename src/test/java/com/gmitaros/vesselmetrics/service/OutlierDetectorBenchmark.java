@@ -0,0 +1,136 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.model.VesselData;
+import com.gmitaros.vesselmetrics.service.OutlierDetector.Metric;
+import com.gmitaros.vesselmetrics.util.RunningStatistics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares fitting and scoring one vessel with the {@link OutlierDetector}s: running mean and standard deviation as
+ * kept for the z-score detector, and the t-digests of the median/MAD and IQR detectors. Each benchmark fits a model
+ * in one pass over the rows and then scores every value, like a detection run does. A third of the rows are idle,
+ * with zero power and speed.
+ * <p>
+ * The {@code modelBytes} counter reports the memory held by the fitted model, which does not grow with the number
+ * of rows; add {@code -prof gc} to the JMH arguments to see the allocations of the fitting pass as well.
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=OutlierDetectorBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class OutlierDetectorBenchmark {
+
+    private static final int RUNNING_STATISTICS_BYTES = 32;
+
+    @Param({"100000", "1000000"})
+    private int rows;
+
+    private List<VesselData> vesselData;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ModelSize {
+
+        public long modelBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            modelBytes = 0;
+        }
+    }
+
+    @Setup
+    public void generateRows() {
+        Random random = new Random(42);
+        vesselData = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            boolean idle = random.nextInt(3) == 0;
+            boolean spike = random.nextInt(1000) == 0;
+            vesselData.add(VesselData.builder()
+                    .power(idle ? 0 : 8000 + random.nextGaussian() * 500 + (spike ? 20_000 : 0))
+                    .fuelConsumption(idle ? 0.5 : 30 + random.nextGaussian() * 3)
+                    .actualSpeedOverground(idle ? 0 : 14 + random.nextGaussian())
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public int zScore(ModelSize size) {
+        Map<Metric, RunningStatistics> statistics = new EnumMap<>(Metric.class);
+        for (Metric metric : Metric.values()) {
+            statistics.put(metric, new RunningStatistics());
+        }
+        for (VesselData data : vesselData) {
+            for (Metric metric : Metric.values()) {
+                statistics.get(metric).add(metric.valueOf(data));
+            }
+        }
+        size.modelBytes = (long) RUNNING_STATISTICS_BYTES * statistics.size();
+        return score((metric, value) -> {
+            RunningStatistics metricStatistics = statistics.get(metric);
+            return Math.abs(value - metricStatistics.getMean()) / metricStatistics.getStandardDeviation() > 3;
+        });
+    }
+
+    @Benchmark
+    public int medianAbsoluteDeviation(ModelSize size) {
+        Map<Metric, QuantileSketchOutlierDetector.MetricSketch> sketches = sketch(size);
+        return score(MadOutlierDetector.model(sketches, 3));
+    }
+
+    @Benchmark
+    public int interquartileRange(ModelSize size) {
+        Map<Metric, QuantileSketchOutlierDetector.MetricSketch> sketches = sketch(size);
+        return score(IqrOutlierDetector.model(sketches, 1.5));
+    }
+
+    private Map<Metric, QuantileSketchOutlierDetector.MetricSketch> sketch(ModelSize size) {
+        Map<Metric, QuantileSketchOutlierDetector.MetricSketch> sketches = new EnumMap<>(Metric.class);
+        for (Metric metric : Metric.values()) {
+            sketches.put(metric, new QuantileSketchOutlierDetector.MetricSketch(100));
+        }
+        for (VesselData data : vesselData) {
+            for (Metric metric : Metric.values()) {
+                sketches.get(metric).add(metric.valueOf(data));
+            }
+        }
+        size.modelBytes = sketches.values().stream()
+                .mapToLong(sketch -> sketch.values().byteSize() + sketch.nonZeroValues().byteSize()).sum();
+        return sketches;
+    }
+
+    private int score(OutlierDetector.Model model) {
+        int outliers = 0;
+        for (VesselData data : vesselData) {
+            for (Metric metric : Metric.values()) {
+                if (model.isOutlier(metric, metric.valueOf(data))) {
+                    outliers++;
+                }
+            }
+        }
+        return outliers;
+    }
+
+}
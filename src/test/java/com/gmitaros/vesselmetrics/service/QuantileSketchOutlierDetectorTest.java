@@ -0,0 +1,106 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.service.OutlierDetector.Metric;
+import com.tdunning.math.stats.TDigest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuantileSketchOutlierDetectorTest {
+
+    @Test
+    void testMedianAbsoluteDeviation_MatchesExactValue() {
+        double[] values = new Random(1).doubles(100_000).map(value -> 100 + value * value * 50).toArray();
+        TDigest sketch = sketchOf(values);
+
+        double median = sketch.quantile(0.5);
+        double[] deviations = Arrays.stream(values).map(value -> Math.abs(value - median)).sorted().toArray();
+        double exact = deviations[deviations.length / 2];
+
+        assertEquals(exact, MadOutlierDetector.medianAbsoluteDeviation(sketch, median), exact * 0.02);
+    }
+
+    @Test
+    void testMadModel_FlagsSpikesButNotTheBulk() {
+        Random random = new Random(2);
+        double[] values = random.doubles(10_000).map(value -> 1000 + random.nextGaussian() * 20).toArray();
+        // A few extreme values move the mean and standard deviation, but hardly the median and MAD
+        values[0] = 50_000;
+        values[1] = 60_000;
+        OutlierDetector.Model model = MadOutlierDetector.model(sketchesOf(values), 3);
+
+        assertTrue(model.isOutlier(Metric.POWER, 50_000));
+        assertTrue(model.isOutlier(Metric.POWER, 1200));
+        assertFalse(model.isOutlier(Metric.POWER, 1030));
+        assertFalse(model.isOutlier(Metric.POWER, 970));
+    }
+
+    @Test
+    void testIqrModel_FlagsValuesOutsideTheFences() {
+        double[] values = new double[1000];
+        Arrays.setAll(values, i -> i);
+        // Quartiles are about 250 and 750, so the fences are about -500 and 1500
+        OutlierDetector.Model model = IqrOutlierDetector.model(sketchesOf(values), 1.5);
+
+        assertTrue(model.isOutlier(Metric.POWER, 1600));
+        assertTrue(model.isOutlier(Metric.POWER, -600));
+        assertFalse(model.isOutlier(Metric.POWER, 1400));
+        assertFalse(model.isOutlier(Metric.POWER, 0));
+    }
+
+    @Test
+    void testModels_FlagSpikesOfMetricsMostlyAtOneValue() {
+        // A vessel idling most of the time: most power values are zero, so the MAD and interquartile range are zero
+        double[] values = new double[1000];
+        for (int i = 0; i < 200; i++) {
+            values[i] = 5000 + i;
+        }
+        Map<Metric, QuantileSketchOutlierDetector.MetricSketch> sketches = sketchesOf(values);
+        OutlierDetector.Model mad = MadOutlierDetector.model(sketches, 3);
+        OutlierDetector.Model iqr = IqrOutlierDetector.model(sketches, 1.5);
+
+        assertTrue(mad.isOutlier(Metric.POWER, 50_000));
+        assertTrue(mad.isOutlier(Metric.POWER, 3000));
+        assertFalse(mad.isOutlier(Metric.POWER, 5100));
+        assertFalse(mad.isOutlier(Metric.POWER, 0));
+        assertTrue(iqr.isOutlier(Metric.POWER, 50_000));
+        assertTrue(iqr.isOutlier(Metric.POWER, 3000));
+        assertFalse(iqr.isOutlier(Metric.POWER, 5100));
+        assertFalse(iqr.isOutlier(Metric.POWER, 0));
+    }
+
+    @Test
+    void testModels_DoNotFlagMetricsWithoutSpread() {
+        double[] values = new double[1000];
+        Arrays.fill(values, 42);
+        Map<Metric, QuantileSketchOutlierDetector.MetricSketch> sketches = sketchesOf(values);
+
+        assertFalse(MadOutlierDetector.model(sketches, 3).isOutlier(Metric.POWER, 1e9));
+        assertFalse(IqrOutlierDetector.model(sketches, 1.5).isOutlier(Metric.POWER, 1e9));
+        // Metrics without any values have nothing to compare with
+        assertFalse(MadOutlierDetector.model(sketches, 3).isOutlier(Metric.FUEL_CONSUMPTION, 1e9));
+        assertFalse(IqrOutlierDetector.model(sketches, 1.5).isOutlier(Metric.FUEL_CONSUMPTION, 1e9));
+    }
+
+    private static Map<Metric, QuantileSketchOutlierDetector.MetricSketch> sketchesOf(double[] powerValues) {
+        Map<Metric, QuantileSketchOutlierDetector.MetricSketch> sketches = new EnumMap<>(Metric.class);
+        for (Metric metric : Metric.values()) {
+            sketches.put(metric, new QuantileSketchOutlierDetector.MetricSketch(100));
+        }
+        Arrays.stream(powerValues).forEach(sketches.get(Metric.POWER)::add);
+        return sketches;
+    }
+
+    private static TDigest sketchOf(double[] values) {
+        TDigest sketch = TDigest.createMergingDigest(100);
+        Arrays.stream(values).forEach(sketch::add);
+        return sketch;
+    }
+}
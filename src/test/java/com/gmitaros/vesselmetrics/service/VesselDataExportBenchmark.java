@@ -0,0 +1,134 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.VesselMetricsApplication;
+import com.gmitaros.vesselmetrics.model.ValidationStatus;
+import com.gmitaros.vesselmetrics.model.VesselData;
+import com.gmitaros.vesselmetrics.repository.VesselDataRepository;
+import com.gmitaros.vesselmetrics.util.TimeOrderedUuid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rows per second of {@link VesselDataExportService} writing the whole range of a vessel as NDJSON and
+ * as CSV, and of reading the same range page by page through the merged data projection, like a client of the
+ * data-merge endpoint has to. The output is discarded, so the export is measured without the network. The rows live
+ * in the in-memory H2 database of the {@code test} profile; on PostgreSQL the cursor also keeps memory flat, which
+ * {@code -Xmx} well below the size of the range shows.
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=VesselDataExportBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class VesselDataExportBenchmark {
+
+    private static final String VESSEL_CODE = "BENCHMARK";
+    private static final int ROWS = 200_000;
+    private static final int BATCH_SIZE = 10_000;
+    private static final int PAGE_SIZE = 10_000;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime END = START.plusMinutes(ROWS);
+
+    private ConfigurableApplicationContext context;
+    private VesselDataExportService vesselDataExportService;
+    private VesselDataRepository vesselDataRepository;
+    private TransactionTemplate readOnly;
+    private final OutputStream discarded = OutputStream.nullOutputStream();
+
+    @Setup
+    public void startApplication() {
+        context = new SpringApplicationBuilder(VesselMetricsApplication.class)
+                .profiles("test")
+                .properties("spring.main.web-application-type=none", "logging.level.com.gmitaros=WARN")
+                .run();
+        vesselDataExportService = context.getBean(VesselDataExportService.class);
+        vesselDataRepository = context.getBean(VesselDataRepository.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+
+        VesselDataWriter writer = context.getBean(VesselDataWriter.class);
+        Random random = new Random(42);
+        for (int first = 0; first < ROWS; first += BATCH_SIZE) {
+            List<VesselData> rows = new ArrayList<>(BATCH_SIZE);
+            for (int i = first; i < first + BATCH_SIZE; i++) {
+                double proposedSpeed = 10 + random.nextDouble() * 5;
+                double actualSpeed = proposedSpeed + random.nextGaussian();
+                rows.add(VesselData.builder()
+                        .vesselDataUuid(TimeOrderedUuid.next())
+                        .vesselCode(VESSEL_CODE)
+                        .dateTime(START.plusMinutes(i))
+                        .latitude(random.nextDouble() * 180 - 90)
+                        .longitude(random.nextDouble() * 360 - 180)
+                        .power(8000 + random.nextGaussian() * 500)
+                        .fuelConsumption(30 + random.nextGaussian() * 3)
+                        .actualSpeedOverground(actualSpeed)
+                        .proposedSpeedOverground(proposedSpeed)
+                        // Some missing values, written as null and empty cells
+                        .predictedFuelConsumption(i % 10 == 0 ? null : 30 + random.nextGaussian() * 3)
+                        .speedDifference(proposedSpeed - actualSpeed)
+                        .fuelEfficiency(actualSpeed / 30)
+                        .validationStatus(ValidationStatus.VALID)
+                        .validationErrors(new ArrayList<>())
+                        .build());
+            }
+            writer.saveVesselDataBatch(rows);
+        }
+    }
+
+    @TearDown
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long exportNdjson() throws IOException {
+        return vesselDataExportService.export(VESSEL_CODE, START, END, VesselDataExportService.Format.NDJSON, discarded);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long exportCsv() throws IOException {
+        return vesselDataExportService.export(VESSEL_CODE, START, END, VesselDataExportService.Format.CSV, discarded);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long pagedMergedData() {
+        long rows = 0;
+        for (int page = 0; page * PAGE_SIZE < ROWS; page++) {
+            PageRequest pageable = PageRequest.of(page, PAGE_SIZE, Sort.by("dateTime"));
+            Page<?> content = readOnly.execute(status -> vesselDataRepository
+                    .findMergedDataByVesselCodeAndDateTimeBetween(VESSEL_CODE, START, END, pageable));
+            rows += content.getNumberOfElements();
+        }
+        return rows;
+    }
+}
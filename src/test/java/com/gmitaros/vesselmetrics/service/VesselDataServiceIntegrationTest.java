@@ -4,15 +4,24 @@ import com.gmitaros.vesselmetrics.dto.ComplianceDTO;
 import com.gmitaros.vesselmetrics.dto.SpeedDifferenceDTO;
 import com.gmitaros.vesselmetrics.dto.ValidationIssueDTO;
 import com.gmitaros.vesselmetrics.exception.VesselNotFoundException;
+import com.gmitaros.vesselmetrics.model.ValidationProblemType;
+import com.gmitaros.vesselmetrics.model.ValidationStatus;
+import com.gmitaros.vesselmetrics.model.VesselData;
+import com.gmitaros.vesselmetrics.repository.VesselDataRepository;
+import com.gmitaros.vesselmetrics.util.TimeOrderedUuid;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.DoubleSummaryStatistics;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -25,6 +34,21 @@ class VesselDataServiceIntegrationTest {
     @Autowired
     private VesselDataService vesselDataService;
 
+    @Autowired
+    private VesselDataRepository vesselDataRepository;
+
+    @Autowired
+    private VesselDataWriter vesselDataWriter;
+
+    @Autowired
+    private VesselStatisticsService vesselStatisticsService;
+
+    @Autowired
+    private VesselReadCache vesselReadCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @BeforeEach
     void setUp() {
         // Add setup code here if necessary, like inserting test data into the DB.
@@ -82,4 +106,85 @@ class VesselDataServiceIntegrationTest {
         assertEquals(vesselCode, compliance.vesselCode());
         assertTrue(compliance.compliancePercentage() >= 0);
     }
+
+    @Test
+    void testGetValidationIssues_SeesVesselWrittenAfterItWasNotFound() {
+        String vesselCode = "CACHED_VESSEL";
+        assertThrows(VesselNotFoundException.class, () -> vesselDataService.getValidationIssues(vesselCode));
+
+        VesselData row = row(vesselCode, LocalDateTime.of(2023, 6, 1, 0, 0), null, 10.0);
+        row.setValidationStatus(ValidationStatus.INVALID);
+        row.addValidationError("Missing actual speed", ValidationProblemType.MISSING_ACTUAL_SPEED);
+        try {
+            assertEquals(1, vesselDataWriter.saveVesselDataBatch(new ArrayList<>(List.of(row))));
+
+            // The writer dropped the cached answers of the vessel
+            List<ValidationIssueDTO> issues = vesselDataService.getValidationIssues(vesselCode);
+            assertEquals(1, issues.size());
+            assertEquals(1, issues.getFirst().frequency());
+        } finally {
+            jdbcTemplate.update("DELETE FROM vessel_data WHERE vessel_code = ?", vesselCode);
+            vesselStatisticsService.rebuild();
+        }
+    }
+
+    @Test
+    void testCalculateCompliance_MatchesAverageOverValidRows() {
+        String vesselCode = "3001";
+
+        ComplianceDTO compliance = vesselDataService.calculateCompliance(vesselCode);
+
+        assertEquals(complianceOfValidRows(vesselCode).getAverage(), compliance.compliancePercentage(), 1e-9);
+    }
+
+    @Test
+    void testCalculateCompliance_FollowsStoredAndInvalidatedRows() {
+        String vesselCode = "3001";
+        LocalDateTime dateTime = LocalDateTime.of(2023, 8, 1, 0, 0);
+        DoubleSummaryStatistics before = complianceOfValidRows(vesselCode);
+        // 90% compliant, and a row without a proposed speed that has no compliance
+        List<VesselData> rows = List.of(row(vesselCode, dateTime, 9.0, 10.0), row(vesselCode, dateTime.plusMinutes(1), 9.0, 0.0));
+        try {
+            assertEquals(2, vesselDataWriter.saveVesselDataBatch(new ArrayList<>(rows)));
+            assertEquals((before.getSum() + 90) / (before.getCount() + 1),
+                    vesselDataService.calculateCompliance(vesselCode).compliancePercentage(), 1e-9);
+
+            // Like outlier detection does after marking the rows INVALID
+            vesselStatisticsService.recordInvalidated(rows);
+            vesselReadCache.invalidate(List.of(vesselCode));
+            assertEquals(before.getAverage(), vesselDataService.calculateCompliance(vesselCode).compliancePercentage(), 1e-9);
+        } finally {
+            jdbcTemplate.update("DELETE FROM vessel_data WHERE vessel_code = ? AND date_time >= ?", vesselCode, dateTime);
+            vesselStatisticsService.rebuild();
+        }
+    }
+
+    @Test
+    void testCalculateCompliance_VesselWithoutRows() {
+        assertEquals(0, vesselDataService.calculateCompliance("VESSEL_CODE").compliancePercentage());
+    }
+
+    private DoubleSummaryStatistics complianceOfValidRows(String vesselCode) {
+        DoubleSummaryStatistics compliance = new DoubleSummaryStatistics();
+        for (VesselData data : vesselDataRepository.findByVesselCodeAndValidationStatus(vesselCode, ValidationStatus.VALID)) {
+            Double actualSpeed = data.getActualSpeedOverground();
+            Double proposedSpeed = data.getProposedSpeedOverground();
+            if (actualSpeed != null && proposedSpeed != null && proposedSpeed != 0) {
+                compliance.accept((1 - Math.abs(actualSpeed - proposedSpeed) / proposedSpeed) * 100);
+            }
+        }
+        return compliance;
+    }
+
+    private static VesselData row(String vesselCode, LocalDateTime dateTime, Double actualSpeed, Double proposedSpeed) {
+        return VesselData.builder()
+                .vesselDataUuid(TimeOrderedUuid.next())
+                .vesselCode(vesselCode)
+                .dateTime(dateTime)
+                .actualSpeedOverground(actualSpeed)
+                .proposedSpeedOverground(proposedSpeed)
+                .validationStatus(ValidationStatus.VALID)
+                .validationErrors(new ArrayList<>())
+                .build();
+    }
 }
@@ -0,0 +1,137 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.dto.SpeedDifferenceDTO;
+import com.gmitaros.vesselmetrics.dto.VesselDataDTO;
+import com.gmitaros.vesselmetrics.model.ValidationStatus;
+import com.gmitaros.vesselmetrics.model.VesselData;
+import com.gmitaros.vesselmetrics.repository.VesselDataRepository;
+import com.gmitaros.vesselmetrics.util.TimeOrderedUuid;
+import com.gmitaros.vesselmetrics.util.Utils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DirtiesContext
+@ActiveProfiles("test")
+@SpringBootTest
+class VesselDataStoreIntegrationTest {
+
+    private static final String VESSEL_CODE = "3001";
+    private static final LocalDateTime NEWER = LocalDateTime.of(2023, 7, 1, 0, 0);
+    private static final LocalDateTime OLDER = LocalDateTime.of(2023, 5, 1, 0, 0);
+
+    @Autowired
+    private VesselDataService vesselDataService;
+
+    @Autowired
+    private VesselDataStore vesselDataStore;
+
+    @Autowired
+    private VesselDataRepository vesselDataRepository;
+
+    @Autowired
+    private VesselDataWriter vesselDataWriter;
+
+    @Autowired
+    private VesselStatisticsService vesselStatisticsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        vesselDataStore.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM vessel_data WHERE vessel_code = ? AND date_time IN (?, ?)", VESSEL_CODE, NEWER, OLDER);
+        vesselStatisticsService.rebuild();
+        vesselDataStore.clear();
+    }
+
+    @Test
+    void testGetMergedData_MatchesDatabase() {
+        Pageable pageable = PageRequest.of(1, 50, Sort.by("dateTime"));
+        // All test rows are on 2023-06-01
+        LocalDateTime start = LocalDateTime.of(2023, 6, 1, 2, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 6, 1, 12, 0);
+        Page<VesselDataDTO> expected = vesselDataRepository.findByVesselCodeAndDateTimeBetween(VESSEL_CODE, start, end, pageable)
+                .map(Utils::mapToVesselDataDTO);
+
+        Page<VesselDataDTO> actual = vesselDataService.getMergedData(VESSEL_CODE, start.toString(), end.toString(), pageable);
+
+        assertTrue(vesselDataStore.isResident(VESSEL_CODE));
+        assertFalse(actual.isEmpty());
+        assertEquals(expected.getTotalElements(), actual.getTotalElements());
+        assertEquals(expected.getContent(), actual.getContent());
+    }
+
+    @Test
+    void testGetSpeedDifferences_MatchesDatabase() {
+        Pageable pageable = PageRequest.of(2, 20, Sort.by("dateTime"));
+        Page<VesselData> expected = vesselDataRepository.findByVesselCodeAndValidationStatus(VESSEL_CODE, ValidationStatus.VALID, pageable);
+
+        Page<SpeedDifferenceDTO> actual = vesselDataService.getSpeedDifferences(VESSEL_CODE, pageable);
+
+        assertTrue(vesselDataStore.isResident(VESSEL_CODE));
+        assertEquals(expected.getTotalElements(), actual.getTotalElements());
+        assertEquals(expected.getContent().size(), actual.getContent().size());
+        for (int i = 0; i < actual.getContent().size(); i++) {
+            assertEquals(expected.getContent().get(i).getDateTime(), actual.getContent().get(i).getDateTime());
+            assertEquals(expected.getContent().get(i).getSpeedDifference(), actual.getContent().get(i).getSpeedDifference());
+        }
+    }
+
+    @Test
+    void testRecordStored_AddsWrittenRowsToResidentVessel() {
+        Pageable all = PageRequest.of(0, 10_000);
+        long validRows = vesselDataService.getSpeedDifferences(VESSEL_CODE, all).getTotalElements();
+        assertTrue(vesselDataStore.isResident(VESSEL_CODE));
+
+        // One row after the newest and one before the oldest, which is merged in
+        List<VesselData> rows = new ArrayList<>(List.of(row(NEWER), row(OLDER)));
+        assertEquals(2, vesselDataWriter.saveVesselDataBatch(rows));
+        // Written again, the rows are skipped by the database and by the store
+        assertEquals(0, vesselDataWriter.saveVesselDataBatch(List.of(row(NEWER))));
+
+        List<SpeedDifferenceDTO> differences = vesselDataService.getSpeedDifferences(VESSEL_CODE, all).getContent();
+        assertEquals(validRows + 2, differences.size());
+        assertEquals(OLDER, differences.getFirst().getDateTime());
+        assertEquals(NEWER, differences.getLast().getDateTime());
+        Page<VesselDataDTO> merged = vesselDataService.getMergedData(VESSEL_CODE, NEWER.toString(), NEWER.plusDays(1).toString(), all);
+        assertEquals(1, merged.getTotalElements());
+        assertEquals(42.0, merged.getContent().getFirst().power());
+    }
+
+    private static VesselData row(LocalDateTime dateTime) {
+        return VesselData.builder()
+                .vesselDataUuid(TimeOrderedUuid.next())
+                .vesselCode(VESSEL_CODE)
+                .dateTime(dateTime)
+                .latitude(10.0)
+                .longitude(-14.0)
+                .power(42.0)
+                .speedDifference(0.5)
+                .validationStatus(ValidationStatus.VALID)
+                .validationErrors(new ArrayList<>())
+                .build();
+    }
+}
@@ -0,0 +1,64 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.dto.CacheStatisticsDTO;
+import com.gmitaros.vesselmetrics.model.VesselData;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VesselReadCacheTest {
+
+    private final VesselReadCache cache = new VesselReadCache(100, Duration.ofMinutes(10));
+
+    @Test
+    void testGet_LoadsOncePerVesselAndKind() {
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("3001:1", cache.get(VesselReadCache.Kind.COMPLIANCE, "3001", code -> code + ":" + loads.incrementAndGet()));
+        }
+        cache.get(VesselReadCache.Kind.VESSEL_EXISTS, "3001", code -> loads.incrementAndGet() > 0);
+
+        assertEquals(2, loads.get());
+        CacheStatisticsDTO compliance = statisticsOf(VesselReadCache.Kind.COMPLIANCE);
+        assertEquals(2, compliance.hits());
+        assertEquals(1, compliance.misses());
+        assertEquals(1, compliance.size());
+    }
+
+    @Test
+    void testInvalidate_DropsOnlyTheGivenVessels() {
+        AtomicInteger loads = new AtomicInteger();
+        for (String vesselCode : List.of("3001", "19310")) {
+            cache.get(VesselReadCache.Kind.STATISTICS, vesselCode, code -> loads.incrementAndGet());
+            cache.get(VesselReadCache.Kind.VALIDATION_ISSUES, vesselCode, code -> loads.incrementAndGet());
+        }
+
+        cache.invalidateVesselsOf(List.of(VesselData.builder().vesselCode("3001").build(), VesselData.builder().build()));
+
+        assertEquals(5, (int) cache.get(VesselReadCache.Kind.STATISTICS, "3001", code -> loads.incrementAndGet()));
+        assertEquals(4, (int) cache.get(VesselReadCache.Kind.VALIDATION_ISSUES, "19310", code -> loads.incrementAndGet()));
+    }
+
+    @Test
+    void testInvalidateAll_DropsEveryVessel() {
+        cache.get(VesselReadCache.Kind.COMPLIANCE, "3001", code -> 1.0);
+        cache.get(VesselReadCache.Kind.VESSEL_EXISTS, "19310", code -> true);
+
+        cache.invalidateAll();
+
+        assertEquals(2.0, cache.get(VesselReadCache.Kind.COMPLIANCE, "3001", code -> 2.0));
+        assertEquals(false, cache.get(VesselReadCache.Kind.VESSEL_EXISTS, "19310", code -> false));
+    }
+
+    private CacheStatisticsDTO statisticsOf(VesselReadCache.Kind kind) {
+        return cache.statistics().stream()
+                .filter(statistics -> statistics.cache().equals(kind.name().toLowerCase()))
+                .findFirst()
+                .orElseThrow();
+    }
+}
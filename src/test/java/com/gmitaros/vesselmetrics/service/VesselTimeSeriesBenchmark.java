@@ -0,0 +1,84 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.model.ValidationStatus;
+import com.gmitaros.vesselmetrics.model.VesselData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the reads the endpoints make on a vessel held by the {@link VesselDataStore}: a page of 100 speed
+ * differences at a random offset among the VALID rows, a page of 100 rows of a random one-day range turned into
+ * {@link VesselData}. It samples the time of every call, so the output shows
+ * the percentiles, such as p99, and not only the average. The database and the HTTP layer are left out.
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=VesselTimeSeriesBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VesselTimeSeriesBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 0, 0);
+
+    @Param({"100000", "1000000"})
+    private int rows;
+
+    private VesselTimeSeries series;
+    private final Random random = new Random(7);
+
+    @Setup
+    public void loadSeries() {
+        Random values = new Random(42);
+        series = new VesselTimeSeries();
+        VesselData row = new VesselData();
+        for (int i = 0; i < rows; i++) {
+            row.setVesselDataUuid(new UUID(values.nextLong(), values.nextLong()));
+            row.setDateTime(START.plusMinutes(i));
+            row.setLatitude(values.nextDouble() * 180 - 90);
+            row.setLongitude(values.nextDouble() * 360 - 180);
+            row.setPower(values.nextDouble() * 10_000);
+            row.setActualSpeedOverground(values.nextDouble() * 20);
+            row.setProposedSpeedOverground(10 + values.nextDouble() * 10);
+            row.setSpeedDifference(row.getProposedSpeedOverground() - row.getActualSpeedOverground());
+            row.setValidationStatus(values.nextInt(20) == 0 ? ValidationStatus.INVALID : ValidationStatus.VALID);
+            series.append(row);
+        }
+    }
+
+    @Benchmark
+    public void speedDifferencePage(Blackhole blackhole) {
+        long offset = random.nextInt(series.validCount());
+        series.forEachValid(offset, PAGE_SIZE, row -> {
+            blackhole.consume(series.dateTime(row));
+            blackhole.consume(series.value(VesselTimeSeries.Field.SPEED_DIFFERENCE, row));
+        });
+    }
+
+    @Benchmark
+    public void dateRangePage(Blackhole blackhole) {
+        LocalDateTime start = START.plusMinutes(random.nextInt(rows));
+        int first = series.firstAtOrAfter(start);
+        int last = Math.min(series.firstAfter(start.plusDays(1)), first + PAGE_SIZE);
+        for (int row = first; row < last; row++) {
+            blackhole.consume(series.toVesselData("3001", row));
+        }
+    }
+}
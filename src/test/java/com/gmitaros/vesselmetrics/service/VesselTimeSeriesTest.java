@@ -0,0 +1,120 @@
+package com.gmitaros.vesselmetrics.service;
+
+import com.gmitaros.vesselmetrics.model.ValidationStatus;
+import com.gmitaros.vesselmetrics.model.VesselData;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VesselTimeSeriesTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2023, 6, 1, 0, 0);
+
+    @Test
+    void testAdd_KeepsRowsSortedAndSkipsDuplicates() {
+        List<VesselData> rows = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            rows.add(row(i, i % 7 != 0));
+        }
+        Collections.shuffle(rows, new Random(42));
+        VesselTimeSeries series = new VesselTimeSeries();
+        // In order after the newest row, merged before it, and again as duplicates
+        series.add(rows.subList(0, 200));
+        series.add(rows.subList(200, 500));
+        series.add(List.of(row(10, true), row(499, true)));
+
+        assertEquals(500, series.size());
+        assertEquals(500 - 72, series.validCount());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(START.plusMinutes(i), series.dateTime(i));
+            assertEquals(i % 7 != 0, series.isValid(i));
+            assertEquals((double) i, series.value(VesselTimeSeries.Field.POWER, i));
+        }
+    }
+
+    @Test
+    void testFirstAtOrAfter_FindsTimeRanges() {
+        VesselTimeSeries series = new VesselTimeSeries();
+        for (int i = 0; i < 100; i++) {
+            series.append(row(i * 2, true));
+        }
+
+        assertEquals(0, series.firstAtOrAfter(START.minusDays(1)));
+        assertEquals(5, series.firstAtOrAfter(START.plusMinutes(10)));
+        assertEquals(6, series.firstAtOrAfter(START.plusMinutes(11)));
+        assertEquals(6, series.firstAfter(START.plusMinutes(10)));
+        assertEquals(100, series.firstAfter(START.plusMinutes(198)));
+    }
+
+    @Test
+    void testForEachValid_SkipsOffsetAcrossWords() {
+        VesselTimeSeries series = new VesselTimeSeries();
+        List<Integer> validRows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            boolean valid = i % 3 != 0;
+            series.append(row(i, valid));
+            if (valid) {
+                validRows.add(i);
+            }
+        }
+
+        for (int offset : new int[]{0, 1, 63, 64, 200, validRows.size() - 5, validRows.size()}) {
+            List<Integer> passed = new ArrayList<>();
+            series.forEachValid(offset, 50, passed::add);
+            assertEquals(validRows.subList(offset, Math.min(offset + 50, validRows.size())), passed, "offset " + offset);
+        }
+    }
+
+    @Test
+    void testMarkInvalid_ClearsValidRow() {
+        VesselTimeSeries series = new VesselTimeSeries();
+        series.add(List.of(row(0, true), row(1, true)));
+
+        series.markInvalid(START.plusMinutes(1));
+        series.markInvalid(START.plusMinutes(1));
+        series.markInvalid(START.plusMinutes(5));
+
+        assertTrue(series.isValid(0));
+        assertFalse(series.isValid(1));
+        assertEquals(1, series.validCount());
+    }
+
+    @Test
+    void testToVesselData_KeepsMissingValues() {
+        VesselData row = row(3, false);
+        row.setLatitude(null);
+        VesselTimeSeries series = new VesselTimeSeries();
+        series.append(row);
+
+        VesselData copy = series.toVesselData("3001", 0);
+
+        assertEquals(row.getVesselDataUuid(), copy.getVesselDataUuid());
+        assertEquals(row.getDateTime(), copy.getDateTime());
+        assertEquals(ValidationStatus.INVALID, copy.getValidationStatus());
+        assertNull(copy.getLatitude());
+        assertEquals(row.getLongitude(), copy.getLongitude());
+        assertNull(copy.getFuelEfficiency());
+    }
+
+    private static VesselData row(int minute, boolean valid) {
+        return VesselData.builder()
+                .vesselDataUuid(UUID.randomUUID())
+                .vesselCode("3001")
+                .dateTime(START.plusMinutes(minute))
+                .latitude(10.0 + minute)
+                .longitude(-14.0)
+                .power((double) minute)
+                .validationStatus(valid ? ValidationStatus.VALID : ValidationStatus.INVALID)
+                .build();
+    }
+}
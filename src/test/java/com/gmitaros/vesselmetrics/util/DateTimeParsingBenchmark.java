@@ -0,0 +1,80 @@
+package com.gmitaros.vesselmetrics.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing the datetime column with a {@link DateTimeFormatter} created per call, as
+ * {@link Utils#parseDateTime(String)} used to do, with a shared formatter and with {@link FixedWidthDateTimeParser}.
+ * {@code rowsPerTimestamp} controls how many consecutive rows share a timestamp, like the vessels reporting at the
+ * same minute in the CSV file.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=DateTimeParsingBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(DateTimeParsingBenchmark.ROWS)
+public class DateTimeParsingBenchmark {
+
+    static final int ROWS = 10_000;
+
+    @Param({"1", "20"})
+    private int rowsPerTimestamp;
+
+    private final String[] values = new String[ROWS];
+    private final DateTimeFormatter sharedFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final FixedWidthDateTimeParser fixedWidthParser = new FixedWidthDateTimeParser();
+
+    @Setup
+    public void generateValues() {
+        LocalDateTime dateTime = LocalDateTime.of(2023, 6, 1, 0, 0);
+        for (int i = 0; i < ROWS; i++) {
+            if (i % rowsPerTimestamp == 0) {
+                dateTime = dateTime.plusMinutes(1);
+            }
+            // A new String per row, as the CSV parser would produce
+            values[i] = new String(dateTime.format(sharedFormatter).toCharArray());
+        }
+    }
+
+    @Benchmark
+    public void formatterPerCall(Blackhole blackhole) {
+        for (String value : values) {
+            blackhole.consume(LocalDateTime.parse(value, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+        }
+    }
+
+    @Benchmark
+    public void sharedFormatter(Blackhole blackhole) {
+        for (String value : values) {
+            blackhole.consume(LocalDateTime.parse(value, sharedFormatter));
+        }
+    }
+
+    @Benchmark
+    public void fixedWidthParser(Blackhole blackhole) {
+        for (String value : values) {
+            blackhole.consume(fixedWidthParser.parse(value));
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.gmitaros.vesselmetrics.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongBloomFilterTest {
+
+    @Test
+    void testMightContain_AddedKeysAreAlwaysFound() {
+        LongBloomFilter filter = new LongBloomFilter(10_000, 0.01);
+        for (long key = 0; key < 10_000; key++) {
+            filter.put(key * 60_000_000_000L);
+        }
+
+        for (long key = 0; key < 10_000; key++) {
+            assertTrue(filter.mightContain(key * 60_000_000_000L));
+        }
+        assertFalse(filter.isSaturated());
+    }
+
+    @Test
+    void testMightContain_FalsePositiveRateIsAboutTheConfiguredOne() {
+        LongBloomFilter filter = new LongBloomFilter(10_000, 0.01);
+        for (long key = 0; key < 10_000; key++) {
+            filter.put(key);
+        }
+
+        int falsePositives = 0;
+        for (long key = 10_000; key < 110_000; key++) {
+            if (filter.mightContain(key)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void testIsSaturated_AfterMoreKeysThanExpected() {
+        LongBloomFilter filter = new LongBloomFilter(10, 0.01);
+        for (long key = 0; key <= 10; key++) {
+            filter.put(key);
+        }
+
+        assertTrue(filter.isSaturated());
+    }
+
+    @Test
+    void testByteSize_MatchesTheFilterOfThatSize() {
+        assertEquals(LongBloomFilter.byteSize(100_000, 0.01), new LongBloomFilter(100_000, 0.01).getByteSize());
+    }
+}
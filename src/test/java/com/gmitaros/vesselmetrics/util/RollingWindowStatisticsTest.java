@@ -0,0 +1,189 @@
+package com.gmitaros.vesselmetrics.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RollingWindowStatisticsTest {
+
+    private static final double DELTA = 1e-6;
+    private static final long[] WINDOWS = {100, 1000};
+
+    @Test
+    void testAdd_MatchesDirectComputationOverEveryWindow() {
+        Random random = new Random(42);
+        RollingWindowStatistics statistics = new RollingWindowStatistics(WINDOWS, 2);
+        List<Long> times = new ArrayList<>();
+        List<double[]> values = new ArrayList<>();
+        long time = 0;
+        // Enough values for the buffer to grow several times and wrap around after that
+        for (int i = 0; i < 5000; i++) {
+            time += 1 + random.nextInt(5);
+            double[] point = {1000 + random.nextDouble() * 500, random.nextInt(10) == 0 ? Double.NaN : random.nextGaussian()};
+            statistics.add(time, point);
+            times.add(time);
+            values.add(point);
+
+            if (i % 97 == 96) {
+                for (int window = 0; window < WINDOWS.length; window++) {
+                    for (int metric = 0; metric < 2; metric++) {
+                        double[] expected = valuesInWindow(times, values, time, WINDOWS[window], metric);
+                        RunningStatistics actual = statistics.statistics(window, metric);
+                        assertEquals(expected.length, actual.getCount());
+                        assertEquals(mean(expected), actual.getMean(), DELTA);
+                        assertEquals(standardDeviation(expected), actual.getStandardDeviation(), DELTA);
+                    }
+                }
+            }
+        }
+        assertEquals(valuesInWindow(times, values, time, WINDOWS[1], 0).length, statistics.size());
+    }
+
+    @Test
+    void testAdvance_EmptiesWindowsAfterAGap() {
+        RollingWindowStatistics statistics = new RollingWindowStatistics(WINDOWS, 1);
+        statistics.add(10, new double[]{1});
+        statistics.add(20, new double[]{2});
+
+        statistics.advance(20 + WINDOWS[0]);
+        assertEquals(0, statistics.statistics(0, 0).getCount());
+        assertNull(statistics.statistics(0, 0).getMean());
+        assertEquals(2, statistics.statistics(1, 0).getCount());
+
+        statistics.advance(20 + WINDOWS[1]);
+        assertEquals(0, statistics.size());
+    }
+
+    @Test
+    void testSeries_MatchesTrailingWindowOfEveryValue() {
+        Random random = new Random(7);
+        RollingWindowStatistics statistics = new RollingWindowStatistics(WINDOWS, 1);
+        List<Long> times = new ArrayList<>();
+        List<double[]> values = new ArrayList<>();
+        long time = 0;
+        for (int i = 0; i < 2000; i++) {
+            time += 1 + random.nextInt(3);
+            double[] point = {random.nextDouble()};
+            statistics.add(time, point);
+            times.add(time);
+            values.add(point);
+        }
+        long newest = time;
+        long oldestKept = times.get(times.size() - statistics.size());
+        List<Long> kept = times.subList(times.size() - statistics.size(), times.size());
+        List<double[]> keptValues = values.subList(values.size() - statistics.size(), values.size());
+
+        int[] points = {0};
+        statistics.series(WINDOWS[0], (pointTime, windowStatistics) -> {
+            double[] expected = valuesInWindow(kept.subList(0, points[0] + 1), keptValues.subList(0, points[0] + 1),
+                    pointTime, WINDOWS[0], 0);
+            assertEquals((long) kept.get(points[0]), pointTime);
+            assertEquals(expected.length, windowStatistics[0].getCount());
+            assertEquals(mean(expected), windowStatistics[0].getMean(), DELTA);
+            points[0]++;
+        });
+        assertEquals(statistics.size(), points[0]);
+        assertTrue(newest - oldestKept < WINDOWS[1]);
+    }
+
+    @Test
+    void testAdd_InsertsLateValuesAtTheirTime() {
+        Random random = new Random(11);
+        List<Long> times = new ArrayList<>();
+        List<double[]> values = new ArrayList<>();
+        long time = 0;
+        for (int i = 0; i < 3000; i++) {
+            time += 1 + random.nextInt(5);
+            times.add(time);
+            values.add(new double[]{random.nextGaussian()});
+        }
+        // Every value arrives up to 20 places late, which stays within the largest window
+        List<Integer> arrival = new ArrayList<>();
+        for (int i = 0; i < times.size(); i++) {
+            arrival.add(i);
+        }
+        for (int i = 0; i + 20 < arrival.size(); i += 1 + random.nextInt(10)) {
+            arrival.add(i + 20, arrival.remove(i));
+        }
+        RollingWindowStatistics inOrder = new RollingWindowStatistics(WINDOWS, 1);
+        RollingWindowStatistics late = new RollingWindowStatistics(WINDOWS, 1);
+        for (int i = 0; i < times.size(); i++) {
+            inOrder.add(times.get(i), values.get(i));
+            int index = arrival.get(i);
+            assertTrue(late.add(times.get(index), values.get(index)));
+        }
+
+        for (int window = 0; window < WINDOWS.length; window++) {
+            RunningStatistics expected = inOrder.statistics(window, 0);
+            RunningStatistics actual = late.statistics(window, 0);
+            assertEquals(expected.getCount(), actual.getCount());
+            assertEquals(expected.getMean(), actual.getMean(), DELTA);
+            assertEquals(expected.getStandardDeviation(), actual.getStandardDeviation(), DELTA);
+        }
+        assertEquals(inOrder.size(), late.size());
+        List<Long> expectedSeries = new ArrayList<>();
+        List<Long> actualSeries = new ArrayList<>();
+        inOrder.series(WINDOWS[0], (pointTime, windowStatistics) -> expectedSeries.add(pointTime));
+        late.series(WINDOWS[0], (pointTime, windowStatistics) -> actualSeries.add(pointTime));
+        assertEquals(expectedSeries, actualSeries);
+    }
+
+    @Test
+    void testAdd_DropsValuesOlderThanTheLargestWindow() {
+        RollingWindowStatistics statistics = new RollingWindowStatistics(WINDOWS, 1);
+        statistics.add(2000, new double[]{1});
+
+        assertFalse(statistics.add(2000 - WINDOWS[1], new double[]{2}));
+        assertTrue(statistics.add(2001 - WINDOWS[1], new double[]{3}));
+        assertEquals(2, statistics.size());
+        assertEquals(1, statistics.statistics(0, 0).getCount());
+        assertEquals(2, statistics.statistics(1, 0).getCount());
+    }
+
+    @Test
+    void testContainsAndStatisticsAt() {
+        RollingWindowStatistics statistics = new RollingWindowStatistics(WINDOWS, 1);
+        for (long time = 10; time <= 500; time += 10) {
+            statistics.add(time, new double[]{time});
+        }
+
+        assertTrue(statistics.contains(250));
+        assertFalse(statistics.contains(255));
+        assertFalse(statistics.contains(600));
+        // The window of 100 ending at 250 holds 160 to 250
+        RunningStatistics[] at = statistics.statisticsAt(0, 250);
+        assertEquals(10, at[0].getCount());
+        assertEquals(205, at[0].getMean(), DELTA);
+        RunningStatistics[] beforeFirst = statistics.statisticsAt(0, 5);
+        assertEquals(0, beforeFirst[0].getCount());
+    }
+
+    private static double[] valuesInWindow(List<Long> times, List<double[]> values, long end, long length, int metric) {
+        List<Double> inWindow = new ArrayList<>();
+        for (int i = 0; i < times.size(); i++) {
+            long time = times.get(i);
+            double value = values.get(i)[metric];
+            if (time > end - length && time <= end && !Double.isNaN(value)) {
+                inWindow.add(value);
+            }
+        }
+        return inWindow.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    private static double mean(double[] values) {
+        return Arrays.stream(values).sum() / values.length;
+    }
+
+    private static double standardDeviation(double[] values) {
+        double mean = mean(values);
+        return Math.sqrt(Arrays.stream(values).map(value -> (value - mean) * (value - mean)).sum() / (values.length - 1));
+    }
+}
@@ -0,0 +1,39 @@
+package com.gmitaros.vesselmetrics.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares generating row ids the way ingest used to, random UUIDs as text, with {@link TimeOrderedUuid}, on as
+ * many threads as a parallel ingest would use.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=RowIdBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class RowIdBenchmark {
+
+    @Benchmark
+    public String randomUuidText() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public UUID timeOrderedUuid() {
+        return TimeOrderedUuid.next();
+    }
+
+}
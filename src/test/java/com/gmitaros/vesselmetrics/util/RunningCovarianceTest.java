@@ -0,0 +1,81 @@
+package com.gmitaros.vesselmetrics.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RunningCovarianceTest {
+
+    private static final double DELTA = 1e-6;
+
+    @Test
+    void testAdd_MatchesDirectComputation() {
+        double[][] points = randomPoints(1000, 42);
+        RunningCovariance covariance = new RunningCovariance(3);
+        for (double[] point : points) {
+            covariance.add(point);
+        }
+
+        assertEquals(points.length, covariance.getCount());
+        assertMatches(points, covariance);
+    }
+
+    @Test
+    void testMerge_MatchesOneSeries() {
+        double[][] points = randomPoints(1000, 13);
+        RunningCovariance first = new RunningCovariance(3);
+        RunningCovariance second = new RunningCovariance(3);
+        for (int i = 0; i < points.length; i++) {
+            (i < 250 ? first : second).add(points[i]);
+        }
+        first.merge(second);
+
+        assertEquals(points.length, first.getCount());
+        assertMatches(points, first);
+    }
+
+    @Test
+    void testGetCovariance_NeedsTwoPoints() {
+        RunningCovariance covariance = new RunningCovariance(2);
+        covariance.add(new double[]{1, 2});
+
+        assertNull(covariance.getCovariance());
+        assertEquals(2, covariance.getMean()[1]);
+    }
+
+    private static void assertMatches(double[][] points, RunningCovariance covariance) {
+        int dimensions = points[0].length;
+        double[] mean = new double[dimensions];
+        for (double[] point : points) {
+            for (int i = 0; i < dimensions; i++) {
+                mean[i] += point[i] / points.length;
+            }
+        }
+        double[][] actual = covariance.getCovariance();
+        for (int i = 0; i < dimensions; i++) {
+            assertEquals(mean[i], covariance.getMean()[i], DELTA);
+            for (int j = 0; j < dimensions; j++) {
+                double expected = 0;
+                for (double[] point : points) {
+                    expected += (point[i] - mean[i]) * (point[j] - mean[j]);
+                }
+                expected /= points.length - 1;
+                assertEquals(expected, actual[i][j], Math.abs(expected) * 1e-9 + DELTA);
+            }
+        }
+    }
+
+    private static double[][] randomPoints(int count, long seed) {
+        Random random = new Random(seed);
+        double[][] points = new double[count][];
+        for (int i = 0; i < count; i++) {
+            // Large values with a small, correlated spread, where sums of products would lose precision
+            double shared = random.nextGaussian();
+            points[i] = new double[]{1e6 + shared * 10, 1e3 + shared + random.nextGaussian(), random.nextGaussian()};
+        }
+        return points;
+    }
+}
@@ -0,0 +1,98 @@
+package com.gmitaros.vesselmetrics.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RunningStatisticsTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    void testAdd_MatchesDirectComputation() {
+        double[] values = randomValues(1000, 42);
+        RunningStatistics statistics = new RunningStatistics();
+        Arrays.stream(values).forEach(statistics::add);
+
+        assertEquals(values.length, statistics.getCount());
+        assertEquals(mean(values), statistics.getMean(), DELTA);
+        assertEquals(standardDeviation(values), statistics.getStandardDeviation(), DELTA);
+    }
+
+    @Test
+    void testRemove_UndoesAdd() {
+        double[] values = randomValues(1000, 7);
+        RunningStatistics statistics = new RunningStatistics();
+        Arrays.stream(values).forEach(statistics::add);
+        for (int i = 600; i < values.length; i++) {
+            statistics.remove(values[i]);
+        }
+
+        double[] remaining = Arrays.copyOf(values, 600);
+        assertEquals(600, statistics.getCount());
+        assertEquals(mean(remaining), statistics.getMean(), DELTA);
+        assertEquals(standardDeviation(remaining), statistics.getStandardDeviation(), DELTA);
+    }
+
+    @Test
+    void testMerge_MatchesOneSeries() {
+        double[] values = randomValues(1000, 13);
+        RunningStatistics first = new RunningStatistics();
+        RunningStatistics second = new RunningStatistics();
+        for (int i = 0; i < values.length; i++) {
+            (i < 250 ? first : second).add(values[i]);
+        }
+        first.merge(second);
+
+        assertEquals(values.length, first.getCount());
+        assertEquals(mean(values), first.getMean(), DELTA);
+        assertEquals(standardDeviation(values), first.getStandardDeviation(), DELTA);
+    }
+
+    @Test
+    void testOf_ContinuesFromAggregates() {
+        double[] values = randomValues(100, 3);
+        double[] head = Arrays.copyOf(values, 80);
+        RunningStatistics statistics = RunningStatistics.of(head.length, mean(head),
+                Math.pow(standardDeviation(head), 2));
+        for (int i = 80; i < values.length; i++) {
+            statistics.add(values[i]);
+        }
+
+        assertEquals(mean(values), statistics.getMean(), DELTA);
+        assertEquals(standardDeviation(values), statistics.getStandardDeviation(), DELTA);
+    }
+
+    @Test
+    void testEmptyAndSingleValue_LikeSqlAggregates() {
+        RunningStatistics statistics = new RunningStatistics();
+        assertNull(statistics.getMean());
+        assertNull(statistics.getStandardDeviation());
+
+        statistics.add(5);
+        assertEquals(5, statistics.getMean());
+        assertNull(statistics.getStandardDeviation());
+
+        statistics.remove(5);
+        assertEquals(0, statistics.getCount());
+        assertNull(statistics.getMean());
+    }
+
+    private static double[] randomValues(int count, long seed) {
+        Random random = new Random(seed);
+        return random.doubles(count).map(value -> 1000 + value * 500).toArray();
+    }
+
+    private static double mean(double[] values) {
+        return Arrays.stream(values).sum() / values.length;
+    }
+
+    private static double standardDeviation(double[] values) {
+        double mean = mean(values);
+        return Math.sqrt(Arrays.stream(values).map(value -> (value - mean) * (value - mean)).sum() / (values.length - 1));
+    }
+}
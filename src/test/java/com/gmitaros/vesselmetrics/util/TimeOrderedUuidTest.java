@@ -0,0 +1,46 @@
+package com.gmitaros.vesselmetrics.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeOrderedUuidTest {
+
+    @Test
+    void testNext_IsVersion7WithRfcVariant() {
+        long before = System.currentTimeMillis();
+        UUID uuid = TimeOrderedUuid.next();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        long timestamp = uuid.getMostSignificantBits() >>> 16;
+        assertTrue(timestamp >= before && timestamp <= after);
+    }
+
+    @Test
+    void testOf_SortsByTimeAndRoundTripsThroughText() {
+        Random random = new Random(42);
+        UUID earlier = TimeOrderedUuid.of(1_696_595_400_000L, random);
+        UUID later = TimeOrderedUuid.of(1_696_595_400_001L, random);
+
+        assertTrue(earlier.compareTo(later) < 0);
+        assertTrue(earlier.toString().compareTo(later.toString()) < 0);
+        assertEquals(later, UUID.fromString(later.toString()));
+    }
+
+    @Test
+    void testNext_IsUniqueWithinTheSameMillisecond() {
+        Set<UUID> ids = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            ids.add(TimeOrderedUuid.next());
+        }
+        assertEquals(100_000, ids.size());
+    }
+}
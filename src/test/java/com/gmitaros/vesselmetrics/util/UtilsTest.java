@@ -12,6 +12,7 @@ import java.time.LocalDateTime;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 class UtilsTest {
 
@@ -34,6 +35,24 @@ class UtilsTest {
         assertNull(actualDateTime);
     }
 
+    @Test
+    void testParseDateTime_ReusesValueForSameTimestamp() {
+        LocalDateTime first = Utils.parseDateTime("2023-10-06 12:30:00");
+        LocalDateTime second = Utils.parseDateTime("2023-10-06 12:30:00");
+        LocalDateTime next = Utils.parseDateTime("2023-10-06 12:31:00");
+
+        assertSame(first, second);
+        assertEquals(LocalDateTime.of(2023, 10, 6, 12, 31, 0), next);
+    }
+
+    @Test
+    void testParseDateTime_UnusualValuesMatchFormatter() {
+        for (String dateTimeStr : new String[]{"2023-02-30 00:00:00", "2023-10-06 24:00:00", "2023-13-01 00:00:00",
+                "2023-10-06T12:30:00", "2023-1O-06 12:30:00", "invalid_date"}) {
+            assertEquals(Utils.parseDateTimeWithFormatter(dateTimeStr), Utils.parseDateTime(dateTimeStr), dateTimeStr);
+        }
+    }
+
     @Test
     void testParseDoubleSafe_ValidDouble() {
         String value = "123.45";
@@ -0,0 +1,41 @@
+package com.gmitaros.vesselmetrics.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+class ZScoreKernelTest {
+
+    @Test
+    void testBest_UsesScalarKernelWithoutVectorModule() {
+        // The vector profile adds the module and tests its kernel in src/vector-test
+        assumeFalse(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent());
+        assertInstanceOf(ScalarZScoreKernel.class, ZScoreKernel.best());
+    }
+
+    @Test
+    void testFlagOutliers_SkipsMissingValuesAndKeepsOtherBits() {
+        double[] values = {10, 500, 500, -500, 10};
+        long[] present = {0b01011};
+        byte[] masks = {1, 0, 0, 0, 0};
+        new ScalarZScoreKernel().flagOutliers(values, present, values.length, 10, 100, masks, 4);
+        assertArrayEquals(new byte[]{1, 4, 0, 4, 0}, masks);
+    }
+
+    @Test
+    void testFlagOutliers_ZeroLimitFlagsEveryOtherValueAndNaNLimitNone() {
+        double[] values = {5, 5, 6};
+        long[] present = {0b111};
+        ZScoreKernel kernel = new ScalarZScoreKernel();
+        byte[] masks = new byte[3];
+        kernel.flagOutliers(values, present, values.length, 5, 0, masks, 1);
+        assertArrayEquals(new byte[]{0, 0, 1}, masks);
+
+        masks = new byte[3];
+        kernel.flagOutliers(values, present, values.length, 5, Double.NaN, masks, 1);
+        assertEquals(0, masks[2]);
+    }
+}
@@ -1,4 +1,7 @@
 SET REFERENTIAL_INTEGRITY FALSE;
 TRUNCATE TABLE vessel_data_validation_errors;
 TRUNCATE TABLE vessel_data;
+TRUNCATE TABLE vessel_outlier_watermarks;
+TRUNCATE TABLE vessel_metrics_totals;
+TRUNCATE TABLE ingest_jobs;
 SET REFERENTIAL_INTEGRITY TRUE;
\ No newline at end of file
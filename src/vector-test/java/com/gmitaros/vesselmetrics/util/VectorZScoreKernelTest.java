@@ -0,0 +1,65 @@
+package com.gmitaros.vesselmetrics.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+class VectorZScoreKernelTest {
+
+    @Test
+    void testBest_UsesVectorKernelWithVectorModule() {
+        // The vector profile runs the tests with --add-modules jdk.incubator.vector
+        assertInstanceOf(VectorZScoreKernel.class, ZScoreKernel.best());
+    }
+
+    @Test
+    void testFlagOutliers_VectorKernelMatchesScalarKernel() {
+        Random random = new Random(42);
+        // Sizes around the lane counts and the 64 rows of a bitmap word, so the tail and word boundaries are covered
+        for (int size : new int[]{0, 1, 3, 7, 8, 63, 64, 65, 127, 1000, 1031}) {
+            double[] values = new double[size];
+            long[] present = new long[(size + 63) >>> 6];
+            for (int row = 0; row < size; row++) {
+                values[row] = 100 + random.nextGaussian() * 10;
+                if (random.nextInt(10) != 0) {
+                    present[row >>> 6] |= 1L << row;
+                }
+            }
+            byte[] scalar = new byte[size];
+            byte[] vector = new byte[size];
+            new ScalarZScoreKernel().flagOutliers(values, present, size, 100, 15, scalar, 2);
+            new VectorZScoreKernel().flagOutliers(values, present, size, 100, 15, vector, 2);
+            assertArrayEquals(scalar, vector, "size " + size);
+        }
+    }
+
+    @Test
+    void testFlagOutliers_SkipsMissingValuesAndKeepsOtherBits() {
+        double[] values = {10, 500, 500, -500, 10};
+        long[] present = {0b01011};
+        for (ZScoreKernel kernel : new ZScoreKernel[]{new ScalarZScoreKernel(), new VectorZScoreKernel()}) {
+            byte[] masks = {1, 0, 0, 0, 0};
+            kernel.flagOutliers(values, present, values.length, 10, 100, masks, 4);
+            assertArrayEquals(new byte[]{1, 4, 0, 4, 0}, masks, kernel.toString());
+        }
+    }
+
+    @Test
+    void testFlagOutliers_ZeroLimitFlagsEveryOtherValueAndNaNLimitNone() {
+        double[] values = {5, 5, 6};
+        long[] present = {0b111};
+        for (ZScoreKernel kernel : new ZScoreKernel[]{new ScalarZScoreKernel(), new VectorZScoreKernel()}) {
+            byte[] masks = new byte[3];
+            kernel.flagOutliers(values, present, values.length, 5, 0, masks, 1);
+            assertArrayEquals(new byte[]{0, 0, 1}, masks, kernel.toString());
+
+            masks = new byte[3];
+            kernel.flagOutliers(values, present, values.length, 5, Double.NaN, masks, 1);
+            assertEquals(0, masks[2], kernel.toString());
+        }
+    }
+}
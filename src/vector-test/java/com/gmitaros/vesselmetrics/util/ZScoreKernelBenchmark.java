@@ -0,0 +1,125 @@
+package com.gmitaros.vesselmetrics.util;
+
+import com.gmitaros.vesselmetrics.model.VesselData;
+import com.gmitaros.vesselmetrics.service.MetricColumns;
+import com.gmitaros.vesselmetrics.service.OutlierDetector.Metric;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares scoring the z-scores of one vessel row by row, unboxing the {@code Double} of every metric of every
+ * {@link VesselData} like outlier detection used to, with reading the rows into {@link MetricColumns} once and
+ * scoring every column with the {@link ScalarZScoreKernel} and the {@link VectorZScoreKernel}.
+ * <p>
+ * The {@code scalarKernel} and {@code vectorKernel} benchmarks score columns that are already built, the
+ * {@code rows}, {@code scalarColumns} and {@code vectorColumns} benchmarks include reading the rows, which is what a
+ * detection batch pays. The database is left out; the 10 million rows stand for a whole vessel scored in one go.
+ * Run with {@code mvn -Pbenchmark,vector test-compile exec:exec -Dbenchmark=ZScoreKernelBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx8g", "--add-modules=jdk.incubator.vector"})
+public class ZScoreKernelBenchmark {
+
+    private static final Metric[] METRICS = Metric.values();
+    private static final double THRESHOLD = 3;
+
+    @Param({"1000000", "10000000"})
+    private int rows;
+
+    private List<VesselData> vesselData;
+    private MetricColumns columns;
+    private final double[] means = new double[METRICS.length];
+    private final double[] limits = new double[METRICS.length];
+    private final ZScoreKernel scalarKernel = new ScalarZScoreKernel();
+    private final ZScoreKernel vectorKernel = new VectorZScoreKernel();
+
+    @Setup
+    public void generateRows() {
+        Random random = new Random(42);
+        vesselData = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            boolean idle = random.nextInt(3) == 0;
+            boolean spike = random.nextInt(1000) == 0;
+            vesselData.add(VesselData.builder()
+                    .power(idle ? 0 : 8000 + random.nextGaussian() * 500 + (spike ? 20_000 : 0))
+                    .fuelConsumption(random.nextInt(50) == 0 ? null : idle ? 0.5 : 30 + random.nextGaussian() * 3)
+                    .actualSpeedOverground(idle ? 0 : 14 + random.nextGaussian())
+                    .build());
+        }
+        columns = MetricColumns.of(vesselData);
+        for (Metric metric : METRICS) {
+            RunningStatistics statistics = new RunningStatistics();
+            double[] values = columns.values(metric);
+            for (int row = 0; row < rows; row++) {
+                if (columns.isPresent(metric, row)) {
+                    statistics.add(values[row]);
+                }
+            }
+            means[metric.ordinal()] = statistics.getMean();
+            limits[metric.ordinal()] = THRESHOLD * statistics.getStandardDeviation();
+        }
+    }
+
+    @Benchmark
+    public byte[] scalarKernel() {
+        return score(columns, scalarKernel);
+    }
+
+    @Benchmark
+    public byte[] vectorKernel() {
+        return score(columns, vectorKernel);
+    }
+
+    @Benchmark
+    public byte[] rows() {
+        byte[] masks = new byte[rows];
+        for (int row = 0; row < rows; row++) {
+            VesselData data = vesselData.get(row);
+            for (Metric metric : METRICS) {
+                Double value = metric.valueOf(data);
+                if (value != null && Math.abs((value - means[metric.ordinal()]) / (limits[metric.ordinal()] / THRESHOLD)) > THRESHOLD) {
+                    masks[row] |= (byte) MetricColumns.maskBit(metric);
+                }
+            }
+        }
+        return masks;
+    }
+
+    @Benchmark
+    public byte[] scalarColumns() {
+        return score(MetricColumns.of(vesselData), scalarKernel);
+    }
+
+    @Benchmark
+    public byte[] vectorColumns() {
+        return score(MetricColumns.of(vesselData), vectorKernel);
+    }
+
+    private byte[] score(MetricColumns metricColumns, ZScoreKernel kernel) {
+        byte[] masks = new byte[metricColumns.size()];
+        for (Metric metric : METRICS) {
+            kernel.flagOutliers(metricColumns.values(metric), metricColumns.present(metric), metricColumns.size(),
+                    means[metric.ordinal()], limits[metric.ordinal()], masks, MetricColumns.maskBit(metric));
+        }
+        return masks;
+    }
+
+}
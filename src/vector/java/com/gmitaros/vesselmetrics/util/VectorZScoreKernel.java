@@ -0,0 +1,47 @@
+package com.gmitaros.vesselmetrics.util;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link ZScoreKernel} on the Vector API, comparing as many values at once as the widest vectors of the CPU hold.
+ * Needs the {@code jdk.incubator.vector} module, so it is only built by the {@code vector} profile and only created
+ * through {@link ZScoreKernel#best()}.
+ */
+final class VectorZScoreKernel implements ZScoreKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    // Lane counts are powers of two up to 64, so the bits of a vector never span two words of the bitmap
+    private static final long LANE_BITS = SPECIES.length() == Long.SIZE ? -1L : (1L << SPECIES.length()) - 1;
+
+    @Override
+    public void flagOutliers(double[] values, long[] present, int size, double mean, double limit, byte[] masks, int bit) {
+        DoubleVector means = DoubleVector.broadcast(SPECIES, mean);
+        DoubleVector limits = DoubleVector.broadcast(SPECIES, limit);
+        int row = 0;
+        for (int bound = SPECIES.loopBound(size); row < bound; row += SPECIES.length()) {
+            VectorMask<Double> outliers = DoubleVector.fromArray(SPECIES, values, row)
+                    .sub(means)
+                    .abs()
+                    .compare(VectorOperators.GT, limits);
+            long lanes = outliers.toLong() & (present[row >>> 6] >>> (row & 63)) & LANE_BITS;
+            while (lanes != 0) {
+                masks[row + Long.numberOfTrailingZeros(lanes)] |= (byte) bit;
+                lanes &= lanes - 1;
+            }
+        }
+        for (; row < size; row++) {
+            if ((present[row >>> 6] & (1L << row)) != 0 && Math.abs(values[row] - mean) > limit) {
+                masks[row] |= (byte) bit;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "vector kernel of " + SPECIES.length() + " lanes";
+    }
+
+}